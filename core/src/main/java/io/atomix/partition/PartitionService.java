@@ -33,6 +33,14 @@ public interface PartitionService extends ListenerService<PartitionEvent, Partit
    */
   int getNumberOfPartitions();
 
+  /**
+   * Returns the partition to which the given key belongs.
+   *
+   * @param key the key for which to return the partition
+   * @return partition identifier
+   */
+  PartitionId getPartitionId(String key);
+
   /**
    * Returns the set of controller nodes configured to be members of a partition.
    *
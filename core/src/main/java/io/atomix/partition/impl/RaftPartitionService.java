@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.partition.impl;
+
+import io.atomix.cluster.NodeId;
+import io.atomix.cluster.PartitionId;
+import io.atomix.event.AbstractListenerManager;
+import io.atomix.partition.PartitionEvent;
+import io.atomix.partition.PartitionEventListener;
+import io.atomix.partition.PartitionService;
+import io.atomix.protocols.raft.MultiRaftServer;
+import io.atomix.protocols.raft.cluster.RaftMember;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Partition service backed by the Raft groups of a {@link MultiRaftServer}.
+ * <p>
+ * Each partition is served by the Raft group with the same partition number, and the members of a partition are the
+ * members of the partition's Raft cluster.
+ */
+public class RaftPartitionService extends AbstractListenerManager<PartitionEvent, PartitionEventListener> implements PartitionService {
+  private final MultiRaftServer server;
+
+  public RaftPartitionService(MultiRaftServer server) {
+    this.server = checkNotNull(server, "server cannot be null");
+  }
+
+  @Override
+  public int getNumberOfPartitions() {
+    return server.getPartitions();
+  }
+
+  @Override
+  public PartitionId getPartitionId(String key) {
+    return PartitionId.from(server.getPartition(key));
+  }
+
+  @Override
+  public Set<NodeId> getConfiguredMembers(PartitionId partitionId) {
+    return server.getServer(partitionId.asInt()).cluster().getMembers().stream()
+        .map(member -> NodeId.from(member.memberId().id()))
+        .collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<NodeId> getActiveMembersMembers(PartitionId partitionId) {
+    return server.getServer(partitionId.asInt()).cluster().getMembers().stream()
+        .filter(member -> member.getType() == RaftMember.Type.ACTIVE)
+        .map(member -> NodeId.from(member.memberId().id()))
+        .collect(Collectors.toSet());
+  }
+
+  @Override
+  public Set<PartitionId> getAllPartitionIds() {
+    return IntStream.range(0, server.getPartitions())
+        .mapToObj(PartitionId::from)
+        .collect(Collectors.toSet());
+  }
+}
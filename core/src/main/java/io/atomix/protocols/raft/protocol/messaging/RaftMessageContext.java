@@ -26,6 +26,7 @@ class RaftMessageContext {
   final MessageSubject closeSessionSubject;
   final MessageSubject keepAliveSubject;
   final MessageSubject querySubject;
+  final MessageSubject readIndexSubject;
   final MessageSubject commandSubject;
   final MessageSubject metadataSubject;
   final MessageSubject joinSubject;
@@ -36,6 +37,7 @@ class RaftMessageContext {
   final MessageSubject pollSubject;
   final MessageSubject voteSubject;
   final MessageSubject appendSubject;
+  final MessageSubject heartbeatSubject;
 
   RaftMessageContext(String prefix) {
     this.prefix = prefix;
@@ -43,6 +45,7 @@ class RaftMessageContext {
     this.closeSessionSubject = getSubject(prefix, "close");
     this.keepAliveSubject = getSubject(prefix, "keep-alive");
     this.querySubject = getSubject(prefix, "query");
+    this.readIndexSubject = getSubject(prefix, "read-index");
     this.commandSubject = getSubject(prefix, "command");
     this.metadataSubject = getSubject(prefix, "metadata");
     this.joinSubject = getSubject(prefix, "join");
@@ -53,6 +56,7 @@ class RaftMessageContext {
     this.pollSubject = getSubject(prefix, "poll");
     this.voteSubject = getSubject(prefix, "vote");
     this.appendSubject = getSubject(prefix, "append");
+    this.heartbeatSubject = getSubject(prefix, "heartbeat");
   }
 
   private static MessageSubject getSubject(String prefix, String type) {
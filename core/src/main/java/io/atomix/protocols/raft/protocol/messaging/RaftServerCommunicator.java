@@ -28,6 +28,8 @@ import io.atomix.protocols.raft.protocol.CommandRequest;
 import io.atomix.protocols.raft.protocol.CommandResponse;
 import io.atomix.protocols.raft.protocol.ConfigureRequest;
 import io.atomix.protocols.raft.protocol.ConfigureResponse;
+import io.atomix.protocols.raft.protocol.HeartbeatRequest;
+import io.atomix.protocols.raft.protocol.HeartbeatResponse;
 import io.atomix.protocols.raft.protocol.InstallRequest;
 import io.atomix.protocols.raft.protocol.InstallResponse;
 import io.atomix.protocols.raft.protocol.JoinRequest;
@@ -45,6 +47,8 @@ import io.atomix.protocols.raft.protocol.PollResponse;
 import io.atomix.protocols.raft.protocol.PublishRequest;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.RaftServerProtocol;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureResponse;
@@ -101,6 +105,11 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     return sendAndReceive(context.querySubject, request, memberId);
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(MemberId memberId, ReadIndexRequest request) {
+    return sendAndReceive(context.readIndexSubject, request, memberId);
+  }
+
   @Override
   public CompletableFuture<CommandResponse> command(MemberId memberId, CommandRequest request) {
     return sendAndReceive(context.commandSubject, request, memberId);
@@ -151,6 +160,11 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     return sendAndReceive(context.appendSubject, request, memberId);
   }
 
+  @Override
+  public CompletableFuture<HeartbeatResponse> heartbeat(MemberId memberId, HeartbeatRequest request) {
+    return sendAndReceive(context.heartbeatSubject, request, memberId);
+  }
+
   @Override
   public void publish(MemberId memberId, PublishRequest request) {
     clusterCommunicator.unicast(request, context.publishSubject(request.session()), serializer::encode, NodeId.from(memberId.id()));
@@ -196,6 +210,16 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     clusterCommunicator.removeSubscriber(context.querySubject);
   }
 
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    clusterCommunicator.addSubscriber(context.readIndexSubject, serializer::decode, handler, serializer::encode);
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    clusterCommunicator.removeSubscriber(context.readIndexSubject);
+  }
+
   @Override
   public void registerCommandHandler(Function<CommandRequest, CompletableFuture<CommandResponse>> handler) {
     clusterCommunicator.addSubscriber(context.commandSubject, serializer::decode, handler, serializer::encode);
@@ -296,6 +320,16 @@ public class RaftServerCommunicator implements RaftServerProtocol {
     clusterCommunicator.removeSubscriber(context.appendSubject);
   }
 
+  @Override
+  public void registerHeartbeatHandler(Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> handler) {
+    clusterCommunicator.addSubscriber(context.heartbeatSubject, serializer::decode, handler, serializer::encode);
+  }
+
+  @Override
+  public void unregisterHeartbeatHandler() {
+    clusterCommunicator.removeSubscriber(context.heartbeatSubject);
+  }
+
   @Override
   public void registerResetListener(SessionId sessionId, Consumer<ResetRequest> listener, Executor executor) {
     clusterCommunicator.addSubscriber(context.resetSubject(sessionId.id()), serializer::decode, listener, executor);
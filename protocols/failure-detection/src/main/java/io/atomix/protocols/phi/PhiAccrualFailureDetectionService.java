@@ -104,10 +104,10 @@ public class PhiAccrualFailureDetectionService<T extends Identifier>
       HeartbeatMessage<T> heartbeat = new HeartbeatMessage<>(localNode, state);
       peers.forEach((node) -> {
         heartbeatToPeer(heartbeat, node);
-        FailureDetectionEvent.State currentState = nodeStates.get(node.id());
+        FailureDetectionEvent.State currentState = nodeStates.get(node);
         double phi = failureDetector.phi(node);
         if (phi >= phiFailureThreshold) {
-          if (currentState == FailureDetectionEvent.State.ACTIVE) {
+          if (currentState != FailureDetectionEvent.State.INACTIVE) {
             updateState(node, FailureDetectionEvent.State.INACTIVE);
           }
         } else {
@@ -133,7 +133,7 @@ public class PhiAccrualFailureDetectionService<T extends Identifier>
     @Override
     public void accept(HeartbeatMessage<T> heartbeat) {
       failureDetector.report(heartbeat.source());
-      updateState(heartbeat.source(), heartbeat.state());
+      updateState(heartbeat.source(), FailureDetectionEvent.State.ACTIVE);
     }
   }
 
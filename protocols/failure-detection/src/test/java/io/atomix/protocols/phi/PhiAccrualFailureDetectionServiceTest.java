@@ -0,0 +1,130 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.phi;
+
+import io.atomix.protocols.phi.protocol.FailureDetectionProtocol;
+import io.atomix.protocols.phi.protocol.HeartbeatMessage;
+import io.atomix.utils.AbstractIdentifier;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Phi accrual failure detection service test.
+ */
+public class PhiAccrualFailureDetectionServiceTest {
+
+  /**
+   * Tests that peers are marked inactive when phi crosses the threshold and active on every heartbeat.
+   */
+  @Test
+  public void testStateChanges() throws Exception {
+    TestNode local = new TestNode("a");
+    TestNode peer = new TestNode("b");
+    TestProtocol protocol = new TestProtocol();
+    ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    FailureDetectionService<TestNode> service = PhiAccrualFailureDetectionService.<TestNode>builder()
+        .withProtocol(protocol)
+        .withLocalNode(local)
+        .withPeerProvider(() -> Arrays.asList(local, peer))
+        .withHeartbeatExecutor(executor)
+        .withHeartbeatInterval(Duration.ofMillis(10))
+        .withPhiFailureThreshold(5)
+        .withMinSamples(1)
+        .build();
+
+    BlockingQueue<FailureDetectionEvent<TestNode>> events = new LinkedBlockingQueue<>();
+    service.addListener(events::add);
+    try {
+      // A peer from which no heartbeat has been received is inactive.
+      FailureDetectionEvent<TestNode> event = events.poll(5, TimeUnit.SECONDS);
+      assertEquals(peer, event.subject());
+      assertEquals(FailureDetectionEvent.State.INACTIVE, event.newState());
+
+      // Heartbeats from the peer mark it active.
+      for (int i = 0; i < 5; i++) {
+        protocol.receive(new HeartbeatMessage<>(peer, null));
+        Thread.sleep(10);
+      }
+      event = events.poll(5, TimeUnit.SECONDS);
+      assertEquals(peer, event.subject());
+      assertEquals(FailureDetectionEvent.State.INACTIVE, event.oldState());
+      assertEquals(FailureDetectionEvent.State.ACTIVE, event.newState());
+
+      // The peer is marked inactive once its heartbeats stop.
+      event = events.poll(5, TimeUnit.SECONDS);
+      assertEquals(peer, event.subject());
+      assertEquals(FailureDetectionEvent.State.INACTIVE, event.newState());
+
+      // The next heartbeat marks the peer active regardless of the state carried by the message.
+      protocol.receive(new HeartbeatMessage<>(peer, FailureDetectionEvent.State.INACTIVE));
+      event = events.poll(5, TimeUnit.SECONDS);
+      assertEquals(peer, event.subject());
+      assertEquals(FailureDetectionEvent.State.ACTIVE, event.newState());
+    } finally {
+      service.close();
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Test node identifier.
+   */
+  private static class TestNode extends AbstractIdentifier<String> {
+    TestNode(String id) {
+      super(id);
+    }
+  }
+
+  /**
+   * Test failure detection protocol.
+   */
+  private static class TestProtocol implements FailureDetectionProtocol<TestNode> {
+    private volatile Consumer<HeartbeatMessage<TestNode>> listener;
+
+    /**
+     * Delivers a heartbeat to the registered listener.
+     */
+    void receive(HeartbeatMessage<TestNode> message) {
+      listener.accept(message);
+    }
+
+    @Override
+    public CompletableFuture<Void> heartbeat(TestNode peer, HeartbeatMessage<TestNode> message) {
+      return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void registerHeartbeatListener(Consumer<HeartbeatMessage<TestNode>> listener) {
+      this.listener = listener;
+    }
+
+    @Override
+    public void unregisterHeartbeatListener() {
+      this.listener = null;
+    }
+  }
+}
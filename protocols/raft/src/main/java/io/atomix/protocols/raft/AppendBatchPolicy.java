@@ -0,0 +1,187 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Append request batching policy.
+ * <p>
+ * The batching policy controls how the leader groups log entries into append requests. Each request contains at
+ * most {@link #maxBatchSize()} bytes and {@link #maxBatchEntries()} entries, and when a {@link #lingerTime() linger
+ * time} is configured the leader waits up to that long after an entry is appended before replicating it, so entries
+ * appended by all sessions within the linger time are sent to each follower in a single request. Large batches with
+ * a linger time favor throughput, and small batches without a linger time favor latency.
+ */
+public final class AppendBatchPolicy {
+  private static final int DEFAULT_MAX_BATCH_SIZE = 1024 * 32;
+  private static final int DEFAULT_MAX_BATCH_ENTRIES = Integer.MAX_VALUE;
+  private static final Duration DEFAULT_LINGER_TIME = Duration.ZERO;
+
+  /**
+   * Returns the default batching policy.
+   * <p>
+   * The default policy sends requests of up to {@code 32KB} as soon as entries are appended.
+   *
+   * @return The default batching policy.
+   */
+  public static AppendBatchPolicy defaultPolicy() {
+    return newBuilder().build();
+  }
+
+  /**
+   * Returns a new batching policy builder.
+   *
+   * @return A new batching policy builder.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private final int maxBatchSize;
+  private final int maxBatchEntries;
+  private final Duration lingerTime;
+
+  private AppendBatchPolicy(int maxBatchSize, int maxBatchEntries, Duration lingerTime) {
+    this.maxBatchSize = maxBatchSize;
+    this.maxBatchEntries = maxBatchEntries;
+    this.lingerTime = lingerTime;
+  }
+
+  /**
+   * Returns the maximum number of serialized entry bytes in an append request.
+   * <p>
+   * A single entry larger than the maximum batch size is always sent in a request of its own.
+   *
+   * @return The maximum batch size in bytes.
+   */
+  public int maxBatchSize() {
+    return maxBatchSize;
+  }
+
+  /**
+   * Returns the maximum number of entries in an append request.
+   *
+   * @return The maximum number of entries in a batch.
+   */
+  public int maxBatchEntries() {
+    return maxBatchEntries;
+  }
+
+  /**
+   * Returns the amount of time for which the leader waits for more entries before replicating appended entries.
+   *
+   * @return The batch linger time.
+   */
+  public Duration lingerTime() {
+    return lingerTime;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(maxBatchSize, maxBatchEntries, lingerTime);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof AppendBatchPolicy) {
+      AppendBatchPolicy policy = (AppendBatchPolicy) object;
+      return policy.maxBatchSize == maxBatchSize
+          && policy.maxBatchEntries == maxBatchEntries
+          && policy.lingerTime.equals(lingerTime);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("maxBatchSize", maxBatchSize)
+        .add("maxBatchEntries", maxBatchEntries)
+        .add("lingerTime", lingerTime)
+        .toString();
+  }
+
+  /**
+   * Append batching policy builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<AppendBatchPolicy> {
+    private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+    private int maxBatchEntries = DEFAULT_MAX_BATCH_ENTRIES;
+    private Duration lingerTime = DEFAULT_LINGER_TIME;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the maximum number of serialized entry bytes in an append request.
+     * <p>
+     * By default, append requests contain up to {@code 1024 * 32} bytes.
+     *
+     * @param maxBatchSize The maximum batch size in bytes.
+     * @return The batching policy builder.
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public Builder withMaxBatchSize(int maxBatchSize) {
+      checkArgument(maxBatchSize > 0, "maxBatchSize must be positive");
+      this.maxBatchSize = maxBatchSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries in an append request.
+     * <p>
+     * By default, the number of entries in a request is limited only by the maximum batch size.
+     *
+     * @param maxBatchEntries The maximum number of entries in a batch.
+     * @return The batching policy builder.
+     * @throws IllegalArgumentException if the number of entries is not positive
+     */
+    public Builder withMaxBatchEntries(int maxBatchEntries) {
+      checkArgument(maxBatchEntries > 0, "maxBatchEntries must be positive");
+      this.maxBatchEntries = maxBatchEntries;
+      return this;
+    }
+
+    /**
+     * Sets the amount of time for which the leader waits for more entries before replicating appended entries.
+     * <p>
+     * By default, entries are replicated as soon as they're appended. If the number of entries appended within the
+     * linger time reaches the maximum number of entries in a batch, the entries are replicated immediately.
+     *
+     * @param lingerTime The batch linger time.
+     * @return The batching policy builder.
+     * @throws NullPointerException if the linger time is {@code null}
+     * @throws IllegalArgumentException if the linger time is negative
+     */
+    public Builder withLingerTime(Duration lingerTime) {
+      checkNotNull(lingerTime, "lingerTime cannot be null");
+      checkArgument(!lingerTime.isNegative(), "lingerTime cannot be negative");
+      this.lingerTime = lingerTime;
+      return this;
+    }
+
+    @Override
+    public AppendBatchPolicy build() {
+      return new AppendBatchPolicy(maxBatchSize, maxBatchEntries, lingerTime);
+    }
+  }
+}
@@ -0,0 +1,452 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft;
+
+import com.google.common.hash.Hashing;
+import io.atomix.protocols.phi.FailureDetectionService;
+import io.atomix.protocols.raft.cluster.MemberId;
+import io.atomix.protocols.raft.protocol.RaftServerProtocol;
+import io.atomix.protocols.raft.service.RaftService;
+import io.atomix.protocols.raft.storage.RaftStorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Hosts many Raft groups in a single process.
+ * <p>
+ * A multi-Raft server runs one {@link RaftServer} per partition. The servers share a fixed-size
+ * {@link RaftEventLoopGroup}, so the number of threads does not grow with the number of partitions. Each partition's
+ * log, metadata and snapshots are stored in a shared storage directory under the partition's name, and each partition
+ * communicates over a protocol created for the partition's name so that messages for different partitions between
+ * the same pair of nodes can be multiplexed over a single transport. Keys are routed to partitions by
+ * {@link #getPartition(String)}.
+ * <p>
+ * Heartbeats sent by the partitions' leaders to the same node are {@link RaftHeartbeatCoalescer coalesced} into a
+ * single message over a node-level protocol created for the server's name. Given a node-level
+ * {@link Builder#withFailureDetector(FailureDetectionService) failure detector}, idle partitions can also be
+ * {@link Builder#withQuiescenceTimeout(Duration) quiesced} to stop heartbeating altogether.
+ * <pre>
+ *   {@code
+ *   MultiRaftServer server = MultiRaftServer.newBuilder(memberId)
+ *     .withPartitions(16)
+ *     .withEventLoops(4)
+ *     .withProtocolFactory(partition -> new RaftServerCommunicator(partition, serializer, communicator))
+ *     .withStorage(RaftStorage.newBuilder().withDirectory(directory))
+ *     .addService("map", MapService::new)
+ *     .build();
+ *   server.bootstrap(members).join();
+ *   }
+ * </pre>
+ */
+public final class MultiRaftServer {
+
+  /**
+   * Returns a new multi-Raft server builder.
+   *
+   * @param localMemberId The local member identifier.
+   * @return A new multi-Raft server builder.
+   */
+  public static Builder newBuilder(MemberId localMemberId) {
+    return new Builder(localMemberId);
+  }
+
+  private final String name;
+  private final List<RaftServer> servers;
+  private final RaftEventLoopGroup eventLoopGroup;
+  private final RaftHeartbeatCoalescer heartbeatCoalescer;
+
+  private MultiRaftServer(String name, List<RaftServer> servers, RaftEventLoopGroup eventLoopGroup, RaftHeartbeatCoalescer heartbeatCoalescer) {
+    this.name = name;
+    this.servers = servers;
+    this.eventLoopGroup = eventLoopGroup;
+    this.heartbeatCoalescer = heartbeatCoalescer;
+  }
+
+  /**
+   * Returns the server name.
+   *
+   * @return The server name.
+   */
+  public String name() {
+    return name;
+  }
+
+  /**
+   * Returns the number of partitions hosted by the server.
+   *
+   * @return The number of partitions.
+   */
+  public int getPartitions() {
+    return servers.size();
+  }
+
+  /**
+   * Returns the Raft server for the given partition.
+   *
+   * @param partition The partition number, from {@code 0} to {@link #getPartitions()} exclusive.
+   * @return The Raft server for the partition.
+   * @throws IndexOutOfBoundsException if the partition is unknown
+   */
+  public RaftServer getServer(int partition) {
+    return servers.get(partition);
+  }
+
+  /**
+   * Returns the Raft servers for all partitions, in partition order.
+   *
+   * @return The Raft servers for all partitions.
+   */
+  public List<RaftServer> getServers() {
+    return servers;
+  }
+
+  /**
+   * Returns the partition to which the given key is routed.
+   *
+   * @param key The key to route.
+   * @return The partition number for the key.
+   */
+  public int getPartition(String key) {
+    return getPartition(key, servers.size());
+  }
+
+  /**
+   * Returns the partition to which the given key is routed among the given number of partitions.
+   * <p>
+   * Keys are routed by their murmur3 hash, so clients route keys to the same partitions as servers.
+   *
+   * @param key        The key to route.
+   * @param partitions The number of partitions.
+   * @return The partition number for the key.
+   */
+  public static int getPartition(String key, int partitions) {
+    checkNotNull(key, "key cannot be null");
+    return Math.floorMod(Hashing.murmur3_32().hashString(key, StandardCharsets.UTF_8).asInt(), partitions);
+  }
+
+  /**
+   * Bootstraps a new cluster for every partition.
+   *
+   * @param cluster The members of the cluster to bootstrap.
+   * @return A future to be completed once all partitions have been bootstrapped.
+   * @see RaftServer#bootstrap(Collection)
+   */
+  public CompletableFuture<MultiRaftServer> bootstrap(Collection<MemberId> cluster) {
+    return allOf(server -> server.bootstrap(cluster));
+  }
+
+  /**
+   * Joins an existing cluster for every partition.
+   *
+   * @param cluster The members of the cluster to join.
+   * @return A future to be completed once all partitions have joined the cluster.
+   * @see RaftServer#join(Collection)
+   */
+  public CompletableFuture<MultiRaftServer> join(Collection<MemberId> cluster) {
+    return allOf(server -> server.join(cluster));
+  }
+
+  /**
+   * Shuts down the servers for all partitions and then closes the heartbeat coalescer and the shared event loop group.
+   *
+   * @return A future to be completed once all partitions have been shut down.
+   */
+  public CompletableFuture<Void> shutdown() {
+    return allOf(RaftServer::shutdown)
+        .thenRun(heartbeatCoalescer::close)
+        .thenRun(eventLoopGroup::close);
+  }
+
+  /**
+   * Applies the given function to all servers and returns a future to be completed once all results are complete.
+   */
+  private CompletableFuture<MultiRaftServer> allOf(Function<RaftServer, CompletableFuture<?>> function) {
+    CompletableFuture<?>[] futures = new CompletableFuture[servers.size()];
+    for (int i = 0; i < servers.size(); i++) {
+      futures[i] = function.apply(servers.get(i));
+    }
+    return CompletableFuture.allOf(futures).thenApply(v -> this);
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("name", name)
+        .add("partitions", servers.size())
+        .add("eventLoops", eventLoopGroup.size())
+        .toString();
+  }
+
+  /**
+   * Multi-Raft server builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<MultiRaftServer> {
+    private static final int DEFAULT_PARTITIONS = 1;
+
+    private final MemberId localMemberId;
+    private String name;
+    private int partitions = DEFAULT_PARTITIONS;
+    private final RaftEventLoopGroup.Builder eventLoopGroupBuilder = RaftEventLoopGroup.newBuilder();
+    private Function<String, RaftServerProtocol> protocolFactory;
+    private RaftStorage.Builder storageBuilder = RaftStorage.newBuilder();
+    private final Map<String, Supplier<RaftService>> services = new HashMap<>();
+    private Duration electionTimeout;
+    private Duration heartbeatInterval;
+    private Duration sessionTimeout;
+    private Duration heartbeatWindow;
+    private FailureDetectionService<MemberId> failureDetector;
+    private Duration quiescenceTimeout;
+
+    private Builder(MemberId localMemberId) {
+      this.localMemberId = checkNotNull(localMemberId, "localMemberId cannot be null");
+    }
+
+    /**
+     * Sets the server name.
+     * <p>
+     * Partitions are named by suffixing the server name with the partition number. By default, the server name
+     * is the local member identifier.
+     *
+     * @param name The server name.
+     * @return The server builder.
+     */
+    public Builder withName(String name) {
+      this.name = checkNotNull(name, "name cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the number of partitions to host.
+     *
+     * @param partitions The number of partitions.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the number of partitions is not positive
+     */
+    public Builder withPartitions(int partitions) {
+      checkArgument(partitions > 0, "partitions must be positive");
+      this.partitions = partitions;
+      return this;
+    }
+
+    /**
+     * Sets the number of event loops shared by all partitions.
+     * <p>
+     * By default, partitions share one event loop per available processor.
+     *
+     * @param eventLoops The number of event loops.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the number of event loops is not positive
+     */
+    public Builder withEventLoops(int eventLoops) {
+      eventLoopGroupBuilder.withEventLoops(eventLoops);
+      return this;
+    }
+
+    /**
+     * Sets the size of the service thread pool shared by all partitions.
+     *
+     * @param threadPoolSize The service thread pool size.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the thread pool size is not positive
+     */
+    public Builder withThreadPoolSize(int threadPoolSize) {
+      eventLoopGroupBuilder.withThreadPoolSize(threadPoolSize);
+      return this;
+    }
+
+    /**
+     * Sets the factory with which to create the protocol for each partition.
+     * <p>
+     * The factory is called with the name of each partition, which should be used to distinguish the partition's
+     * messages from those of other partitions on a shared transport.
+     *
+     * @param protocolFactory The partition protocol factory.
+     * @return The server builder.
+     */
+    public Builder withProtocolFactory(Function<String, RaftServerProtocol> protocolFactory) {
+      this.protocolFactory = checkNotNull(protocolFactory, "protocolFactory cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the storage configuration shared by all partitions.
+     * <p>
+     * Each partition's storage is built from the given builder with the partition's name as its prefix, so all
+     * partitions store their files in the same directory.
+     *
+     * @param storageBuilder The storage builder.
+     * @return The server builder.
+     */
+    public Builder withStorage(RaftStorage.Builder storageBuilder) {
+      this.storageBuilder = checkNotNull(storageBuilder, "storageBuilder cannot be null");
+      return this;
+    }
+
+    /**
+     * Adds a service to all partitions.
+     *
+     * @param type    The service type name.
+     * @param factory The service factory.
+     * @return The server builder.
+     */
+    public Builder addService(String type, Supplier<RaftService> factory) {
+      services.put(checkNotNull(type, "type cannot be null"), checkNotNull(factory, "factory cannot be null"));
+      return this;
+    }
+
+    /**
+     * Sets the election timeout of all partitions.
+     *
+     * @param electionTimeout The election timeout.
+     * @return The server builder.
+     * @see RaftServer.Builder#withElectionTimeout(Duration)
+     */
+    public Builder withElectionTimeout(Duration electionTimeout) {
+      this.electionTimeout = checkNotNull(electionTimeout, "electionTimeout cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the heartbeat interval of all partitions.
+     *
+     * @param heartbeatInterval The heartbeat interval.
+     * @return The server builder.
+     * @see RaftServer.Builder#withHeartbeatInterval(Duration)
+     */
+    public Builder withHeartbeatInterval(Duration heartbeatInterval) {
+      this.heartbeatInterval = checkNotNull(heartbeatInterval, "heartbeatInterval cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the session timeout of all partitions.
+     *
+     * @param sessionTimeout The session timeout.
+     * @return The server builder.
+     * @see RaftServer.Builder#withSessionTimeout(Duration)
+     */
+    public Builder withSessionTimeout(Duration sessionTimeout) {
+      this.sessionTimeout = checkNotNull(sessionTimeout, "sessionTimeout cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the window within which heartbeats of different partitions to the same node are coalesced.
+     *
+     * @param heartbeatWindow The heartbeat coalescing window.
+     * @return The server builder.
+     * @see RaftHeartbeatCoalescer.Builder#withWindow(Duration)
+     */
+    public Builder withHeartbeatWindow(Duration heartbeatWindow) {
+      this.heartbeatWindow = checkNotNull(heartbeatWindow, "heartbeatWindow cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the node-level failure detector shared by all partitions.
+     *
+     * @param failureDetector The node-level failure detector.
+     * @return The server builder.
+     * @see RaftServer.Builder#withFailureDetector(FailureDetectionService)
+     */
+    public Builder withFailureDetector(FailureDetectionService<MemberId> failureDetector) {
+      this.failureDetector = checkNotNull(failureDetector, "failureDetector cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the time after which idle partitions quiesce.
+     *
+     * @param quiescenceTimeout The quiescence timeout, or zero to disable quiescence.
+     * @return The server builder.
+     * @see RaftServer.Builder#withQuiescenceTimeout(Duration)
+     */
+    public Builder withQuiescenceTimeout(Duration quiescenceTimeout) {
+      this.quiescenceTimeout = checkNotNull(quiescenceTimeout, "quiescenceTimeout cannot be null");
+      return this;
+    }
+
+    @Override
+    public MultiRaftServer build() {
+      checkNotNull(protocolFactory, "protocolFactory cannot be null");
+      checkArgument(!services.isEmpty(), "no services registered");
+
+      String name = this.name != null ? this.name : localMemberId.id();
+      RaftEventLoopGroup eventLoopGroup = eventLoopGroupBuilder.withName(name).build();
+
+      // Heartbeats are coalesced over a protocol created for the server's name rather than a partition's name.
+      RaftHeartbeatCoalescer.Builder heartbeatCoalescerBuilder = RaftHeartbeatCoalescer.newBuilder()
+          .withProtocol(protocolFactory.apply(name))
+          .withExecutor(eventLoopGroup.threadPool());
+      if (heartbeatWindow != null) {
+        heartbeatCoalescerBuilder.withWindow(heartbeatWindow);
+      }
+      RaftHeartbeatCoalescer heartbeatCoalescer = heartbeatCoalescerBuilder.build();
+
+      List<RaftServer> servers = new ArrayList<>(partitions);
+      for (int i = 0; i < partitions; i++) {
+        String partitionName = String.format("%s-%d", name, i);
+        RaftServer.Builder builder = RaftServer.newBuilder(localMemberId)
+            .withName(partitionName)
+            .withProtocol(protocolFactory.apply(partitionName))
+            .withStorage(storageBuilder.withPrefix(partitionName).build())
+            .withEventLoopGroup(eventLoopGroup)
+            .withHeartbeatCoalescer(heartbeatCoalescer);
+        // The builder requires the election timeout to exceed the heartbeat interval after each change, so the
+        // heartbeat interval is set first unless it is not less than the default election timeout.
+        if (heartbeatInterval != null && heartbeatInterval.compareTo(builder.electionTimeout) < 0) {
+          builder.withHeartbeatInterval(heartbeatInterval);
+          if (electionTimeout != null) {
+            builder.withElectionTimeout(electionTimeout);
+          }
+        } else {
+          if (electionTimeout != null) {
+            builder.withElectionTimeout(electionTimeout);
+          }
+          if (heartbeatInterval != null) {
+            builder.withHeartbeatInterval(heartbeatInterval);
+          }
+        }
+        if (sessionTimeout != null) {
+          builder.withSessionTimeout(sessionTimeout);
+        }
+        if (failureDetector != null) {
+          builder.withFailureDetector(failureDetector);
+        }
+        if (quiescenceTimeout != null) {
+          builder.withQuiescenceTimeout(quiescenceTimeout);
+        }
+        services.forEach(builder::addService);
+        servers.add(builder.build());
+      }
+      return new MultiRaftServer(name, Collections.unmodifiableList(servers), eventLoopGroup, heartbeatCoalescer);
+    }
+  }
+}
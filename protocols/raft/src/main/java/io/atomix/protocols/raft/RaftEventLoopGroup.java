@@ -0,0 +1,212 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft;
+
+import io.atomix.utils.concurrent.SingleThreadContext;
+import io.atomix.utils.concurrent.ThreadContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Fixed-size group of event loops shared by many Raft servers in a single process.
+ * <p>
+ * By default, each {@link RaftServer} creates its own server and state machine threads and its own service thread
+ * pool. When many Raft groups are hosted in the same process, servers built {@link RaftServer.Builder#withEventLoopGroup
+ * with an event loop group} are instead pinned to one of the group's event loops in round-robin order, and share the
+ * group's service thread pool. Each event loop is composed of a server thread and a state machine thread, so with at
+ * least as many event loops as servers each server runs on threads of its own, and with more servers than event
+ * loops servers share threads evenly. Servers do not close the shared threads; the group must be
+ * {@link #close() closed} once all its servers have been shut down.
+ */
+public final class RaftEventLoopGroup implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RaftEventLoopGroup.class);
+
+  /**
+   * Returns a new event loop group builder.
+   *
+   * @return A new event loop group builder.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private final EventLoop[] eventLoops;
+  private final ScheduledExecutorService threadPool;
+  private final AtomicInteger nextEventLoop = new AtomicInteger();
+
+  private RaftEventLoopGroup(String name, int eventLoops, int threadPoolSize) {
+    this.eventLoops = new EventLoop[eventLoops];
+    for (int i = 0; i < eventLoops; i++) {
+      String baseThreadName = String.format("raft-%s-loop-%d", name, i);
+      this.eventLoops[i] = new EventLoop(
+          new SingleThreadContext(namedThreads(baseThreadName, LOGGER)),
+          new SingleThreadContext(namedThreads(baseThreadName + "-state", LOGGER)));
+    }
+    this.threadPool = Executors.newScheduledThreadPool(threadPoolSize, namedThreads("raft-" + name + "-%d", LOGGER));
+  }
+
+  /**
+   * Returns the number of event loops in the group.
+   *
+   * @return The number of event loops in the group.
+   */
+  public int size() {
+    return eventLoops.length;
+  }
+
+  /**
+   * Returns the next event loop to which to pin a server.
+   *
+   * @return The next event loop in round-robin order.
+   */
+  public EventLoop next() {
+    return eventLoops[Math.floorMod(nextEventLoop.getAndIncrement(), eventLoops.length)];
+  }
+
+  /**
+   * Returns the service thread pool shared by all servers in the group.
+   *
+   * @return The shared service thread pool.
+   */
+  public ScheduledExecutorService threadPool() {
+    return threadPool;
+  }
+
+  @Override
+  public void close() {
+    for (EventLoop eventLoop : eventLoops) {
+      eventLoop.threadContext.close();
+      eventLoop.stateContext.close();
+    }
+    threadPool.shutdownNow();
+    try {
+      threadPool.awaitTermination(10, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("eventLoops", eventLoops.length)
+        .toString();
+  }
+
+  /**
+   * Event loop to which a server is pinned.
+   */
+  public static final class EventLoop {
+    private final ThreadContext threadContext;
+    private final ThreadContext stateContext;
+
+    private EventLoop(ThreadContext threadContext, ThreadContext stateContext) {
+      this.threadContext = threadContext;
+      this.stateContext = stateContext;
+    }
+
+    /**
+     * Returns the context on which the server's Raft protocol runs.
+     *
+     * @return The server thread context.
+     */
+    public ThreadContext threadContext() {
+      return threadContext;
+    }
+
+    /**
+     * Returns the context on which the server's state machine runs.
+     *
+     * @return The state machine thread context.
+     */
+    public ThreadContext stateContext() {
+      return stateContext;
+    }
+  }
+
+  /**
+   * Event loop group builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<RaftEventLoopGroup> {
+    private static final String DEFAULT_NAME = "group";
+    private static final int DEFAULT_EVENT_LOOPS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+    private String name = DEFAULT_NAME;
+    private int eventLoops = DEFAULT_EVENT_LOOPS;
+    private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the name with which to prefix the group's thread names.
+     *
+     * @param name The event loop group name.
+     * @return The event loop group builder.
+     * @throws NullPointerException if {@code name} is null
+     */
+    public Builder withName(String name) {
+      this.name = checkNotNull(name, "name cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the number of event loops in the group.
+     * <p>
+     * By default, the group has one event loop per available processor.
+     *
+     * @param eventLoops The number of event loops.
+     * @return The event loop group builder.
+     * @throws IllegalArgumentException if the number of event loops is not positive
+     */
+    public Builder withEventLoops(int eventLoops) {
+      checkArgument(eventLoops > 0, "eventLoops must be positive");
+      this.eventLoops = eventLoops;
+      return this;
+    }
+
+    /**
+     * Sets the size of the service thread pool shared by all servers in the group.
+     * <p>
+     * By default, the pool has one thread per available processor.
+     *
+     * @param threadPoolSize The service thread pool size.
+     * @return The event loop group builder.
+     * @throws IllegalArgumentException if the thread pool size is not positive
+     */
+    public Builder withThreadPoolSize(int threadPoolSize) {
+      checkArgument(threadPoolSize > 0, "threadPoolSize must be positive");
+      this.threadPoolSize = threadPoolSize;
+      return this;
+    }
+
+    @Override
+    public RaftEventLoopGroup build() {
+      return new RaftEventLoopGroup(name, eventLoops, threadPoolSize);
+    }
+  }
+}
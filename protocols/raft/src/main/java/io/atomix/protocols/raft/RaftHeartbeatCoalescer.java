@@ -0,0 +1,295 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft;
+
+import io.atomix.protocols.raft.cluster.MemberId;
+import io.atomix.protocols.raft.protocol.AppendRequest;
+import io.atomix.protocols.raft.protocol.AppendResponse;
+import io.atomix.protocols.raft.protocol.HeartbeatRequest;
+import io.atomix.protocols.raft.protocol.HeartbeatResponse;
+import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.RaftServerProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Coalesces the heartbeats of many Raft partitions hosted by a single process.
+ * <p>
+ * Each leader sends an empty {@link AppendRequest} to each of its followers every heartbeat interval. When many
+ * partitions are hosted by the same nodes, servers built {@link RaftServer.Builder#withHeartbeatCoalescer with a
+ * coalescer} instead hand their empty append requests to the coalescer, which collects the requests sent to the
+ * same node within a short window and sends them in a single {@link HeartbeatRequest} over a node-level protocol.
+ * The receiving coalescer dispatches each request to the partition of the same name and returns all the partitions'
+ * responses in a single {@link HeartbeatResponse}. Append requests that carry entries are never coalesced.
+ * <p>
+ * Leaders that share a coalescer align their heartbeat timers to multiples of the heartbeat interval, so the
+ * heartbeats of all partitions led by the same node are sent within the same window.
+ */
+public final class RaftHeartbeatCoalescer implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RaftHeartbeatCoalescer.class);
+
+  /**
+   * Returns a new heartbeat coalescer builder.
+   *
+   * @return A new heartbeat coalescer builder.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private final RaftServerProtocol protocol;
+  private final ScheduledExecutorService executor;
+  private final Duration window;
+  private final Map<String, Function<AppendRequest, CompletableFuture<AppendResponse>>> handlers = new ConcurrentHashMap<>();
+  private final Map<MemberId, Batch> batches = new HashMap<>();
+
+  private RaftHeartbeatCoalescer(RaftServerProtocol protocol, ScheduledExecutorService executor, Duration window) {
+    this.protocol = protocol;
+    this.executor = executor;
+    this.window = window;
+    protocol.registerHeartbeatHandler(this::handleHeartbeat);
+  }
+
+  /**
+   * Returns the window within which heartbeats to the same node are coalesced.
+   *
+   * @return The coalescing window.
+   */
+  public Duration window() {
+    return window;
+  }
+
+  /**
+   * Registers the append request handler of a partition.
+   *
+   * @param partition The partition name.
+   * @param handler   The partition's append request handler.
+   */
+  public void register(String partition, Function<AppendRequest, CompletableFuture<AppendResponse>> handler) {
+    handlers.put(checkNotNull(partition, "partition cannot be null"), checkNotNull(handler, "handler cannot be null"));
+  }
+
+  /**
+   * Unregisters the append request handler of a partition.
+   *
+   * @param partition The partition name.
+   */
+  public void unregister(String partition) {
+    handlers.remove(partition);
+  }
+
+  /**
+   * Sends an empty append request on behalf of the given partition, coalesced with the heartbeats of other
+   * partitions to the same member.
+   *
+   * @param partition The name of the partition sending the request.
+   * @param memberId  The member to which to send the request.
+   * @param request   The append request to send.
+   * @return A future to be completed with the partition's response.
+   */
+  public CompletableFuture<AppendResponse> append(String partition, MemberId memberId, AppendRequest request) {
+    CompletableFuture<AppendResponse> future = new CompletableFuture<>();
+    Batch flush = null;
+    synchronized (this) {
+      Batch batch = batches.get(memberId);
+
+      // If the partition already has a heartbeat pending to the member, send the pending batch first so that
+      // each partition's requests are delivered in order.
+      if (batch != null && batch.requests.containsKey(partition)) {
+        flush = batches.remove(memberId);
+        batch = null;
+      }
+
+      if (batch == null) {
+        Batch newBatch = new Batch();
+        batches.put(memberId, newBatch);
+        executor.schedule(() -> flush(memberId, newBatch), window.toMillis(), TimeUnit.MILLISECONDS);
+        batch = newBatch;
+      }
+      batch.requests.put(partition, request);
+      batch.futures.put(partition, future);
+    }
+
+    if (flush != null) {
+      send(memberId, flush);
+    }
+    return future;
+  }
+
+  /**
+   * Sends the given batch if it's still pending.
+   */
+  private void flush(MemberId memberId, Batch batch) {
+    synchronized (this) {
+      if (!batches.remove(memberId, batch)) {
+        return;
+      }
+    }
+    send(memberId, batch);
+  }
+
+  /**
+   * Sends a batch of heartbeats to the given member and completes each partition's future with its response.
+   */
+  private void send(MemberId memberId, Batch batch) {
+    HeartbeatRequest request = HeartbeatRequest.newBuilder()
+        .withRequests(batch.requests)
+        .build();
+    LOGGER.trace("Sending {} to {}", request, memberId);
+    protocol.heartbeat(memberId, request).whenComplete((response, error) -> {
+      if (error == null && response.status() == RaftResponse.Status.OK) {
+        batch.futures.forEach((partition, future) -> {
+          AppendResponse appendResponse = response.responses().get(partition);
+          if (appendResponse != null) {
+            future.complete(appendResponse);
+          } else {
+            future.completeExceptionally(new RaftException.Unavailable("Unknown partition %s", partition));
+          }
+        });
+      } else {
+        Throwable cause = error != null ? error : new RaftException.Unavailable("Heartbeat failed");
+        batch.futures.values().forEach(future -> future.completeExceptionally(cause));
+      }
+    });
+  }
+
+  /**
+   * Handles a coalesced heartbeat by dispatching each append request to its partition.
+   */
+  private CompletableFuture<HeartbeatResponse> handleHeartbeat(HeartbeatRequest request) {
+    Map<String, CompletableFuture<AppendResponse>> futures = new HashMap<>();
+    request.requests().forEach((partition, appendRequest) -> {
+      Function<AppendRequest, CompletableFuture<AppendResponse>> handler = handlers.get(partition);
+      if (handler != null) {
+        futures.put(partition, handler.apply(appendRequest));
+      }
+    });
+
+    // Responses of partitions that fail to handle the request are omitted, and fail on the sender.
+    return CompletableFuture.allOf(futures.values().stream()
+        .map(future -> future.handle((response, error) -> null))
+        .toArray(CompletableFuture[]::new))
+        .thenApply(v -> {
+          Map<String, AppendResponse> responses = new HashMap<>();
+          futures.forEach((partition, future) -> {
+            if (!future.isCompletedExceptionally()) {
+              responses.put(partition, future.join());
+            }
+          });
+          return HeartbeatResponse.newBuilder()
+              .withStatus(RaftResponse.Status.OK)
+              .withResponses(responses)
+              .build();
+        });
+  }
+
+  @Override
+  public void close() {
+    protocol.unregisterHeartbeatHandler();
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("window", window)
+        .toString();
+  }
+
+  /**
+   * Heartbeats pending to a single member.
+   */
+  private static final class Batch {
+    private final Map<String, AppendRequest> requests = new HashMap<>();
+    private final Map<String, CompletableFuture<AppendResponse>> futures = new HashMap<>();
+  }
+
+  /**
+   * Heartbeat coalescer builder.
+   */
+  public static class Builder implements io.atomix.utils.Builder<RaftHeartbeatCoalescer> {
+    private static final Duration DEFAULT_WINDOW = Duration.ofMillis(5);
+
+    private RaftServerProtocol protocol;
+    private ScheduledExecutorService executor;
+    private Duration window = DEFAULT_WINDOW;
+
+    private Builder() {
+    }
+
+    /**
+     * Sets the node-level protocol over which coalesced heartbeats are sent.
+     * <p>
+     * The protocol must not be used by any of the partitions whose heartbeats are coalesced.
+     *
+     * @param protocol The node-level protocol.
+     * @return The heartbeat coalescer builder.
+     * @throws NullPointerException if {@code protocol} is null
+     */
+    public Builder withProtocol(RaftServerProtocol protocol) {
+      this.protocol = checkNotNull(protocol, "protocol cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the executor with which to send coalesced heartbeats once the window expires.
+     *
+     * @param executor The heartbeat executor.
+     * @return The heartbeat coalescer builder.
+     * @throws NullPointerException if {@code executor} is null
+     */
+    public Builder withExecutor(ScheduledExecutorService executor) {
+      this.executor = checkNotNull(executor, "executor cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the window within which heartbeats to the same node are coalesced.
+     * <p>
+     * Heartbeats are delayed by up to the window. By default, the window is {@code 5} milliseconds.
+     *
+     * @param window The coalescing window.
+     * @return The heartbeat coalescer builder.
+     * @throws NullPointerException if {@code window} is null
+     * @throws IllegalArgumentException if the window is negative
+     */
+    public Builder withWindow(Duration window) {
+      checkNotNull(window, "window cannot be null");
+      checkArgument(!window.isNegative(), "window cannot be negative");
+      this.window = window;
+      return this;
+    }
+
+    @Override
+    public RaftHeartbeatCoalescer build() {
+      checkNotNull(protocol, "protocol cannot be null");
+      checkNotNull(executor, "executor cannot be null");
+      return new RaftHeartbeatCoalescer(protocol, executor, window);
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package io.atomix.protocols.raft;
 
+import io.atomix.protocols.phi.FailureDetectionService;
 import io.atomix.protocols.raft.cluster.MemberId;
 import io.atomix.protocols.raft.cluster.RaftCluster;
 import io.atomix.protocols.raft.cluster.RaftMember;
@@ -510,6 +511,11 @@ public interface RaftServer {
     private static final Duration DEFAULT_HEARTBEAT_INTERVAL = Duration.ofMillis(250);
     private static final Duration DEFAULT_SESSION_TIMEOUT = Duration.ofMillis(5000);
     private static final int DEFAULT_THREAD_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_MAX_INFLIGHT_ENTRIES = 1024;
+    private static final int DEFAULT_MAX_INFLIGHT_BYTES = 1024 * 1024;
+    private static final int DEFAULT_SNAPSHOT_CHUNK_SIZE = 1024 * 1024;
+    private static final int DEFAULT_MAX_INFLIGHT_SNAPSHOT_CHUNKS = 4;
+    private static final Duration DEFAULT_MAX_CLOCK_DRIFT = Duration.ofMillis(100);
 
     protected String name;
     protected RaftMember.Type type = RaftMember.Type.ACTIVE;
@@ -521,6 +527,16 @@ public interface RaftServer {
     protected Duration sessionTimeout = DEFAULT_SESSION_TIMEOUT;
     protected final RaftServiceRegistry serviceRegistry = new RaftServiceRegistry();
     protected int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
+    protected RaftEventLoopGroup eventLoopGroup;
+    protected int maxInflightEntries = DEFAULT_MAX_INFLIGHT_ENTRIES;
+    protected int maxInflightBytes = DEFAULT_MAX_INFLIGHT_BYTES;
+    protected AppendBatchPolicy batchPolicy = AppendBatchPolicy.defaultPolicy();
+    protected int snapshotChunkSize = DEFAULT_SNAPSHOT_CHUNK_SIZE;
+    protected int maxInflightSnapshotChunks = DEFAULT_MAX_INFLIGHT_SNAPSHOT_CHUNKS;
+    protected Duration maxClockDrift = DEFAULT_MAX_CLOCK_DRIFT;
+    protected RaftHeartbeatCoalescer heartbeatCoalescer;
+    protected FailureDetectionService<MemberId> failureDetector;
+    protected Duration quiescenceTimeout = Duration.ZERO;
 
     protected Builder(MemberId localMemberId) {
       this.localMemberId = checkNotNull(localMemberId, "localMemberId cannot be null");
@@ -645,6 +661,175 @@ public interface RaftServer {
       this.threadPoolSize = threadPoolSize;
       return this;
     }
+
+    /**
+     * Sets the event loop group on which to run the server.
+     * <p>
+     * By default, each server creates its own threads. When an event loop group is configured, the server is pinned
+     * to one of the group's event loops and shares the group's service thread pool instead, and the configured
+     * {@link #withThreadPoolSize(int) thread pool size} is ignored.
+     *
+     * @param eventLoopGroup The event loop group on which to run the server.
+     * @return The server builder.
+     * @throws NullPointerException if {@code eventLoopGroup} is null
+     */
+    public Builder withEventLoopGroup(RaftEventLoopGroup eventLoopGroup) {
+      this.eventLoopGroup = checkNotNull(eventLoopGroup, "eventLoopGroup cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the append request batching policy.
+     * <p>
+     * The batching policy controls the maximum size of append requests sent to followers and how long the leader
+     * waits for more entries before replicating appended entries. By default, requests of up to {@code 32KB} are
+     * sent as soon as entries are appended.
+     *
+     * @param batchPolicy The append request batching policy.
+     * @return The server builder.
+     * @throws NullPointerException if the policy is {@code null}
+     */
+    public Builder withBatchPolicy(AppendBatchPolicy batchPolicy) {
+      this.batchPolicy = checkNotNull(batchPolicy, "batchPolicy cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entries in flight to each member.
+     * <p>
+     * The leader pipelines append requests to each member until the number of unacknowledged entries reaches
+     * this limit. By default, up to {@code 1024} entries may be in flight to each member.
+     *
+     * @param maxInflightEntries The maximum number of in-flight entries per member.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the maximum is not positive
+     */
+    public Builder withMaxInflightEntries(int maxInflightEntries) {
+      checkArgument(maxInflightEntries > 0, "maxInflightEntries must be positive");
+      this.maxInflightEntries = maxInflightEntries;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of entry bytes in flight to each member.
+     * <p>
+     * The number of bytes in flight to each member is adapted to the member's round trip time and backpressure,
+     * up to this limit. By default, up to {@code 1024 * 1024} bytes may be in flight to each member.
+     *
+     * @param maxInflightBytes The maximum number of in-flight bytes per member.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the maximum is not positive
+     */
+    public Builder withMaxInflightBytes(int maxInflightBytes) {
+      checkArgument(maxInflightBytes > 0, "maxInflightBytes must be positive");
+      this.maxInflightBytes = maxInflightBytes;
+      return this;
+    }
+
+    /**
+     * Sets the size of the chunks in which snapshots are sent to members.
+     * <p>
+     * By default, snapshots are sent in chunks of {@code 1024 * 1024} bytes.
+     *
+     * @param snapshotChunkSize The snapshot chunk size in bytes.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the chunk size is not positive
+     */
+    public Builder withSnapshotChunkSize(int snapshotChunkSize) {
+      checkArgument(snapshotChunkSize > 0, "snapshotChunkSize must be positive");
+      this.snapshotChunkSize = snapshotChunkSize;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of snapshot chunks in flight to each member.
+     * <p>
+     * Snapshot chunks are streamed to members without waiting for each chunk to be acknowledged until the number
+     * of unacknowledged chunks reaches this limit. By default, up to {@code 4} chunks may be in flight to each member.
+     *
+     * @param maxInflightSnapshotChunks The maximum number of in-flight snapshot chunks per member.
+     * @return The server builder.
+     * @throws IllegalArgumentException if the maximum is not positive
+     */
+    public Builder withMaxInflightSnapshotChunks(int maxInflightSnapshotChunks) {
+      checkArgument(maxInflightSnapshotChunks > 0, "maxInflightSnapshotChunks must be positive");
+      this.maxInflightSnapshotChunks = maxInflightSnapshotChunks;
+      return this;
+    }
+
+    /**
+     * Sets the maximum amount by which the clocks of two servers may drift apart within an election timeout.
+     * <p>
+     * {@link ReadConsistency#LINEARIZABLE_LEASE} reads are served by the leader without contacting the cluster for
+     * an election timeout less the maximum clock drift after a majority of the cluster acknowledged the leader.
+     * If the maximum clock drift is not less than the election timeout, all lease reads are served as
+     * {@link ReadConsistency#LINEARIZABLE} reads. By default, the maximum clock drift is {@code 100} milliseconds.
+     *
+     * @param maxClockDrift The maximum clock drift.
+     * @return The server builder.
+     * @throws NullPointerException if {@code maxClockDrift} is null
+     * @throws IllegalArgumentException if the maximum clock drift is negative
+     */
+    public Builder withMaxClockDrift(Duration maxClockDrift) {
+      checkNotNull(maxClockDrift, "maxClockDrift cannot be null");
+      checkArgument(!maxClockDrift.isNegative(), "maxClockDrift cannot be negative");
+      this.maxClockDrift = maxClockDrift;
+      return this;
+    }
+
+    /**
+     * Sets the coalescer through which the server sends heartbeats.
+     * <p>
+     * By default, each leader sends its own heartbeats to its followers. When a heartbeat coalescer is configured,
+     * the server's heartbeats are sent together with the heartbeats of other servers sharing the coalescer in a
+     * single message per remote node, and heartbeats are received through the coalescer under the server's
+     * {@link #withName(String) name}. All servers in the cluster must then share a coalescer of the same kind.
+     *
+     * @param heartbeatCoalescer The heartbeat coalescer.
+     * @return The server builder.
+     * @throws NullPointerException if {@code heartbeatCoalescer} is null
+     */
+    public Builder withHeartbeatCoalescer(RaftHeartbeatCoalescer heartbeatCoalescer) {
+      this.heartbeatCoalescer = checkNotNull(heartbeatCoalescer, "heartbeatCoalescer cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the node-level failure detector.
+     * <p>
+     * The failure detector reports the liveness of the nodes hosting the members of the cluster. It is required to
+     * {@link #withQuiescenceTimeout(Duration) quiesce} idle groups, since followers of a quiesced group rely on the
+     * failure detector rather than on heartbeats to learn that the leader has failed.
+     *
+     * @param failureDetector The node-level failure detector.
+     * @return The server builder.
+     * @throws NullPointerException if {@code failureDetector} is null
+     */
+    public Builder withFailureDetector(FailureDetectionService<MemberId> failureDetector) {
+      this.failureDetector = checkNotNull(failureDetector, "failureDetector cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the time after which an idle group quiesces.
+     * <p>
+     * A leader that has appended no entries for the quiescence timeout, and whose followers have all acknowledged
+     * its last entry and commit index, stops sending heartbeats until the next entry is appended. While the group
+     * is quiescent, followers do not start an election as long as the {@link #withFailureDetector(FailureDetectionService)
+     * failure detector} reports the leader's node to be alive. The timeout must be greater than the heartbeat
+     * interval. By default, the quiescence timeout is zero and groups never quiesce.
+     *
+     * @param quiescenceTimeout The quiescence timeout, or zero to disable quiescence.
+     * @return The server builder.
+     * @throws NullPointerException if {@code quiescenceTimeout} is null
+     * @throws IllegalArgumentException if the quiescence timeout is negative
+     */
+    public Builder withQuiescenceTimeout(Duration quiescenceTimeout) {
+      checkNotNull(quiescenceTimeout, "quiescenceTimeout cannot be null");
+      checkArgument(!quiescenceTimeout.isNegative(), "quiescenceTimeout cannot be negative");
+      this.quiescenceTimeout = quiescenceTimeout;
+      return this;
+    }
   }
 
 }
@@ -17,19 +17,35 @@ package io.atomix.protocols.raft.cluster.impl;
 
 import io.atomix.protocols.raft.storage.log.RaftLog;
 import io.atomix.protocols.raft.storage.log.RaftLogReader;
+import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 
+import java.util.zip.CRC32;
+
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Cluster member state.
+ * <p>
+ * Appends to the member are pipelined within an adaptive window of in-flight bytes. The window is grown additively
+ * as appends are acknowledged and shrunk multiplicatively when the member signals backpressure, either by failing
+ * appends or by round trip times rising well above the lowest observed round trip time. The window is bounded by the
+ * server's configured maximum number of in-flight entries and bytes.
+ * <p>
+ * Snapshots are streamed to the member from a single open {@link SnapshotReader}, with up to the server's configured
+ * maximum number of snapshot chunks in flight.
  */
 public final class RaftMemberContext {
-  private static final int MAX_APPENDS = 2;
-  private static final int APPEND_WINDOW_SIZE = 8;
+  private static final int MIN_APPEND_WINDOW = 1024 * 32;
+  private static final int INITIAL_APPEND_WINDOW = MIN_APPEND_WINDOW * 2;
+  private static final int APPEND_STATS_WINDOW_SIZE = 8;
+  private static final double BACKPRESSURE_TIME_FACTOR = 2;
+  private static final long MIN_BACKPRESSURE_DELAY = 10;
   private final DefaultRaftMember member;
+  private final RaftClusterContext cluster;
   private long term;
   private long configIndex;
   private long snapshotIndex;
@@ -38,17 +54,31 @@ public final class RaftMemberContext {
   private long matchIndex;
   private long heartbeatTime;
   private long heartbeatStartTime;
+  private long acknowledgedTime;
   private int appending;
+  private int appendingEntries;
+  private long appendingBytes;
+  private double appendWindow = INITIAL_APPEND_WINDOW;
+  private long appendWindowTime;
+  private long minAppendTime = Long.MAX_VALUE;
+  private long appendSequence;
+  private long resetSequence;
   private boolean appendSucceeded;
   private long appendTime;
   private boolean configuring;
-  private boolean installing;
+  private int installing;
+  private long installSequence;
+  private long installResetSequence;
+  private SnapshotReader snapshotReader;
+  private long snapshotSize;
+  private final CRC32 snapshotChecksum = new CRC32();
   private volatile int failures;
   private volatile RaftLogReader reader;
-  private final DescriptiveStatistics timeStats = new DescriptiveStatistics(APPEND_WINDOW_SIZE);
+  private final DescriptiveStatistics timeStats = new DescriptiveStatistics(APPEND_STATS_WINDOW_SIZE);
 
   RaftMemberContext(DefaultRaftMember member, RaftClusterContext cluster) {
     this.member = checkNotNull(member, "member cannot be null").setCluster(cluster);
+    this.cluster = cluster;
   }
 
   /**
@@ -56,15 +86,21 @@ public final class RaftMemberContext {
    */
   public void resetState(RaftLog log) {
     snapshotIndex = 0;
-    nextSnapshotIndex = 0;
-    nextSnapshotOffset = 0;
+    resetInstall();
     matchIndex = 0;
     heartbeatTime = 0;
     heartbeatStartTime = 0;
+    acknowledgedTime = 0;
     appending = 0;
+    appendingEntries = 0;
+    appendingBytes = 0;
+    appendWindow = INITIAL_APPEND_WINDOW;
+    appendWindowTime = 0;
+    minAppendTime = Long.MAX_VALUE;
+    resetSequence = appendSequence;
     timeStats.clear();
     configuring = false;
-    installing = false;
+    installing = 0;
     appendSucceeded = false;
     failures = 0;
 
@@ -207,11 +243,16 @@ public final class RaftMemberContext {
 
   /**
    * Returns a boolean indicating whether an append request can be sent to the member.
+   * <p>
+   * Once an append to the member has succeeded, appends are pipelined until the in-flight bytes reach the member's
+   * append window or the in-flight entries reach the server's maximum.
    *
    * @return Indicates whether an append request can be sent to the member.
    */
   public boolean canAppend() {
-    return appending == 0 || (appendSucceeded && appending < MAX_APPENDS && System.currentTimeMillis() - (timeStats.getMean() / MAX_APPENDS) >= appendTime);
+    return appending == 0 || (appendSucceeded
+        && appendingBytes < appendWindow
+        && appendingEntries < cluster.getContext().getMaxInflightEntries());
   }
 
   /**
@@ -248,27 +289,147 @@ public final class RaftMemberContext {
 
   /**
    * Starts an append request to the member.
+   *
+   * @param entries The number of entries in the request.
+   * @param bytes The number of serialized entry bytes in the request.
+   * @return The append sequence number.
    */
-  public void startAppend() {
+  public long startAppend(int entries, int bytes) {
     appending++;
+    appendingEntries += entries;
+    appendingBytes += bytes;
     appendTime = System.currentTimeMillis();
+    return ++appendSequence;
   }
 
   /**
-   * Completes an append request to the member.
+   * Completes a successful append request to the member.
+   * <p>
+   * If the request contained entries, the append window is grown unless the round trip time indicates the member
+   * is falling behind, in which case the window is shrunk.
+   *
+   * @param entries The number of entries in the request.
+   * @param bytes The number of serialized entry bytes in the request.
+   * @param time The time in milliseconds for the append.
    */
-  public void completeAppend() {
-    appending--;
+  public void completeAppend(int entries, int bytes, long time) {
+    completeAppend(entries, bytes);
+    if (entries > 0) {
+      timeStats.addValue(time);
+      minAppendTime = Math.min(minAppendTime, time);
+      if (time > Math.max(minAppendTime * BACKPRESSURE_TIME_FACTOR, minAppendTime + MIN_BACKPRESSURE_DELAY)) {
+        shrinkAppendWindow();
+      } else {
+        growAppendWindow(bytes);
+      }
+    }
+  }
+
+  /**
+   * Completes a failed append request to the member, shrinking the append window.
+   *
+   * @param entries The number of entries in the request.
+   * @param bytes The number of serialized entry bytes in the request.
+   */
+  public void failAppend(int entries, int bytes) {
+    completeAppend(entries, bytes);
+    shrinkAppendWindow();
   }
 
   /**
    * Completes an append request to the member.
+   */
+  private void completeAppend(int entries, int bytes) {
+    // In-flight counts are cleared when the member state is reset, so don't count appends completed after a reset.
+    appending = Math.max(appending - 1, 0);
+    appendingEntries = Math.max(appendingEntries - entries, 0);
+    appendingBytes = Math.max(appendingBytes - bytes, 0);
+  }
+
+  /**
+   * Additively grows the append window by up to one minimum window per window of acknowledged bytes.
+   */
+  private void growAppendWindow(int bytes) {
+    appendWindow = Math.min(
+        Math.max(cluster.getContext().getMaxInflightBytes(), MIN_APPEND_WINDOW),
+        appendWindow + (double) MIN_APPEND_WINDOW * bytes / appendWindow);
+  }
+
+  /**
+   * Multiplicatively shrinks the append window at most once per round trip.
+   */
+  private void shrinkAppendWindow() {
+    long currentTime = System.currentTimeMillis();
+    if (currentTime - appendWindowTime >= timeStats.getMean() || timeStats.getN() == 0) {
+      appendWindow = Math.max(appendWindow / 2, MIN_APPEND_WINDOW);
+      appendWindowTime = currentTime;
+    }
+  }
+
+  /**
+   * Marks all in-flight appends as stale.
+   * <p>
+   * This should be called when the member's next index is reset, since failure responses to appends sent prior to
+   * the reset refer to the member's previous next index.
+   */
+  public void resetAppends() {
+    resetSequence = appendSequence;
+  }
+
+  /**
+   * Returns a boolean indicating whether the append with the given sequence number was sent prior to the last
+   * {@link #resetAppends() reset}.
    *
-   * @param time The time in milliseconds for the append.
+   * @param sequence The append sequence number.
+   * @return Indicates whether the append is stale.
+   */
+  public boolean isStaleAppend(long sequence) {
+    return sequence <= resetSequence;
+  }
+
+  /**
+   * Returns the number of in-flight append requests to the member.
+   *
+   * @return The number of in-flight append requests.
+   */
+  public int getInflightAppends() {
+    return appending;
+  }
+
+  /**
+   * Returns the number of in-flight entries to the member.
+   *
+   * @return The number of in-flight entries.
+   */
+  public int getInflightEntries() {
+    return appendingEntries;
+  }
+
+  /**
+   * Returns the number of in-flight serialized entry bytes to the member.
+   *
+   * @return The number of in-flight bytes.
+   */
+  public long getInflightBytes() {
+    return appendingBytes;
+  }
+
+  /**
+   * Returns the member's current append window in bytes.
+   *
+   * @return The member's append window.
+   */
+  public long getAppendWindow() {
+    return (long) appendWindow;
+  }
+
+  /**
+   * Returns the mean round trip time of recent appends to the member.
+   *
+   * @return The mean append round trip time in milliseconds.
    */
-  public void completeAppend(long time) {
-    appending--;
-    timeStats.addValue(time);
+  public double getAppendTime() {
+    return timeStats.getN() > 0 ? timeStats.getMean() : 0;
   }
 
   /**
@@ -300,21 +461,113 @@ public final class RaftMemberContext {
    * @return Indicates whether an install request can be sent to the member.
    */
   public boolean canInstall() {
-    return !installing;
+    return installing < cluster.getContext().getMaxInflightSnapshotChunks() && !isSnapshotSent();
   }
 
   /**
    * Starts an install request to the member.
+   *
+   * @return The install sequence number.
    */
-  public void startInstall() {
-    installing = true;
+  public long startInstall() {
+    installing++;
+    return ++installSequence;
   }
 
   /**
    * Completes an install request to the member.
    */
   public void completeInstall() {
-    installing = false;
+    installing = Math.max(installing - 1, 0);
+  }
+
+  /**
+   * Returns the number of in-flight install requests to the member.
+   *
+   * @return The number of in-flight install requests.
+   */
+  public int getInflightInstalls() {
+    return installing;
+  }
+
+  /**
+   * Opens a reader for the given snapshot to stream the snapshot to the member.
+   * <p>
+   * Any snapshot currently being streamed to the member is {@link #resetInstall() reset}.
+   *
+   * @param snapshot The snapshot to stream to the member.
+   * @return The snapshot reader.
+   */
+  public SnapshotReader openSnapshotReader(Snapshot snapshot) {
+    resetInstall();
+    nextSnapshotIndex = snapshot.index();
+    snapshotReader = snapshot.openReader();
+    snapshotSize = snapshotReader.remainingBytes();
+    return snapshotReader;
+  }
+
+  /**
+   * Returns the reader for the snapshot being streamed to the member.
+   *
+   * @return The snapshot reader or {@code null} if no snapshot is being streamed.
+   */
+  public SnapshotReader getSnapshotReader() {
+    return snapshotReader;
+  }
+
+  /**
+   * Returns the size of the snapshot being streamed to the member.
+   *
+   * @return The snapshot size in bytes.
+   */
+  public long getSnapshotSize() {
+    return snapshotSize;
+  }
+
+  /**
+   * Returns the running checksum of the snapshot chunks sent to the member.
+   *
+   * @return The snapshot checksum.
+   */
+  public CRC32 getSnapshotChecksum() {
+    return snapshotChecksum;
+  }
+
+  /**
+   * Returns a boolean indicating whether all chunks of the snapshot being streamed have been sent to the member.
+   *
+   * @return Indicates whether all chunks of the snapshot have been sent.
+   */
+  public boolean isSnapshotSent() {
+    return snapshotReader != null && nextSnapshotOffset > 0 && !snapshotReader.hasRemaining();
+  }
+
+  /**
+   * Resets the snapshot being streamed to the member.
+   * <p>
+   * The snapshot reader is closed, and responses to install requests sent prior to the reset are treated as stale.
+   */
+  public void resetInstall() {
+    if (snapshotReader != null) {
+      snapshotReader.close();
+      snapshotReader = null;
+    }
+    snapshotChecksum.reset();
+    snapshotSize = 0;
+    nextSnapshotIndex = 0;
+    nextSnapshotOffset = 0;
+    installResetSequence = installSequence;
+  }
+
+  /**
+   * Returns a boolean indicating whether the install with the given sequence number was sent prior to the last
+   * {@link #resetInstall() reset}.
+   *
+   * @param sequence The install sequence number.
+   * @return Indicates whether the install is stale.
+   */
+  public boolean isStaleInstall(long sequence) {
+    return sequence <= installResetSequence;
   }
 
   /**
@@ -353,6 +606,28 @@ public final class RaftMemberContext {
     this.heartbeatStartTime = startTime;
   }
 
+  /**
+   * Returns the monotonic send time of the most recent request acknowledged by the member in the current term.
+   *
+   * @return The {@link System#nanoTime()} at which the most recently acknowledged request was sent.
+   */
+  public long getAcknowledgedTime() {
+    return acknowledgedTime;
+  }
+
+  /**
+   * Records the acknowledgement of a request by the member.
+   * <p>
+   * Pipelined requests may be acknowledged out of order, so the acknowledged time only moves forward.
+   *
+   * @param sendTime The {@link System#nanoTime()} at which the acknowledged request was sent.
+   */
+  public void acknowledge(long sendTime) {
+    if (acknowledgedTime == 0 || sendTime - acknowledgedTime > 0) {
+      acknowledgedTime = sendTime;
+    }
+  }
+
   /**
    * Returns the member failure count.
    *
@@ -393,10 +668,14 @@ public final class RaftMemberContext {
         .add("heartbeatTime", heartbeatTime)
         .add("heartbeatStartTime", heartbeatStartTime)
         .add("appending", appending)
+        .add("appendingEntries", appendingEntries)
+        .add("appendingBytes", appendingBytes)
+        .add("appendWindow", (long) appendWindow)
         .add("appendSucceeded", appendSucceeded)
         .add("appendTime", appendTime)
         .add("configuring", configuring)
         .add("installing", installing)
+        .add("snapshotSize", snapshotSize)
         .add("failures", failures)
         .toString();
   }
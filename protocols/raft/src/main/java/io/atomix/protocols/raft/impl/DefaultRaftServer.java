@@ -35,6 +35,7 @@ import java.util.function.Supplier;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Provides a standalone implementation of the <a href="http://raft.github.io/">Raft consensus algorithm</a>.
@@ -152,6 +153,15 @@ public class DefaultRaftServer implements RaftServer {
     return started;
   }
 
+  /**
+   * Returns the server context.
+   *
+   * @return The server context.
+   */
+  public RaftContext getContext() {
+    return context;
+  }
+
   /**
    * Shuts down the server without leaving the Raft cluster.
    *
@@ -248,10 +258,25 @@ public class DefaultRaftServer implements RaftServer {
         storage = RaftStorage.newBuilder().build();
       }
 
-      RaftContext raft = new RaftContext(name, type, localMemberId, protocol, storage, serviceRegistry, threadPoolSize);
+      // Quiesced groups rely on the failure detector to detect the failure of the leader.
+      if (!quiescenceTimeout.isZero()) {
+        checkState(failureDetector != null, "quiescence requires a failure detector");
+        checkState(quiescenceTimeout.compareTo(heartbeatInterval) > 0, "quiescenceTimeout must be greater than heartbeatInterval");
+      }
+
+      RaftContext raft = new RaftContext(name, type, localMemberId, protocol, storage, serviceRegistry, threadPoolSize, eventLoopGroup);
       raft.setElectionTimeout(electionTimeout);
       raft.setHeartbeatInterval(heartbeatInterval);
       raft.setSessionTimeout(sessionTimeout);
+      raft.setMaxInflightEntries(maxInflightEntries);
+      raft.setMaxInflightBytes(maxInflightBytes);
+      raft.setBatchPolicy(batchPolicy);
+      raft.setSnapshotChunkSize(snapshotChunkSize);
+      raft.setMaxInflightSnapshotChunks(maxInflightSnapshotChunks);
+      raft.setMaxClockDrift(maxClockDrift);
+      raft.setHeartbeatCoalescer(heartbeatCoalescer);
+      raft.setFailureDetector(failureDetector);
+      raft.setQuiescenceTimeout(quiescenceTimeout);
 
       return new DefaultRaftServer(raft);
     }
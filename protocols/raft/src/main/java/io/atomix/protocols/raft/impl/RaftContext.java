@@ -15,6 +15,12 @@
  */
 package io.atomix.protocols.raft.impl;
 
+import io.atomix.protocols.phi.FailureDetectionEvent;
+import io.atomix.protocols.phi.FailureDetectionEventListener;
+import io.atomix.protocols.phi.FailureDetectionService;
+import io.atomix.protocols.raft.AppendBatchPolicy;
+import io.atomix.protocols.raft.RaftEventLoopGroup;
+import io.atomix.protocols.raft.RaftHeartbeatCoalescer;
 import io.atomix.protocols.raft.RaftServer;
 import io.atomix.protocols.raft.cluster.MemberId;
 import io.atomix.protocols.raft.cluster.RaftMember;
@@ -46,6 +52,7 @@ import java.time.Duration;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
@@ -85,10 +92,24 @@ public class RaftContext implements AutoCloseable {
   private RaftServiceManager stateMachine;
   protected final ScheduledExecutorService threadPool;
   protected final ThreadContext stateContext;
+  private final boolean sharedThreads;
   protected RaftRole role = new InactiveRole(this);
   private Duration electionTimeout = Duration.ofMillis(500);
   private Duration sessionTimeout = Duration.ofMillis(5000);
   private Duration heartbeatInterval = Duration.ofMillis(150);
+  private int maxInflightEntries = 1024;
+  private int maxInflightBytes = 1024 * 1024;
+  private AppendBatchPolicy batchPolicy = AppendBatchPolicy.defaultPolicy();
+  private int snapshotChunkSize = 1024 * 1024;
+  private int maxInflightSnapshotChunks = 4;
+  private Duration maxClockDrift = Duration.ofMillis(100);
+  private RaftHeartbeatCoalescer heartbeatCoalescer;
+  private FailureDetectionService<MemberId> failureDetector;
+  private final FailureDetectionEventListener<MemberId> failureDetectionListener = this::onFailureDetectionEvent;
+  private final Set<MemberId> inactiveMembers = ConcurrentHashMap.newKeySet();
+  private Duration quiescenceTimeout = Duration.ZERO;
+  private volatile long leaseHits;
+  private volatile long leaseMisses;
   private volatile MemberId leader;
   private volatile long term;
   private MemberId lastVotedFor;
@@ -96,8 +117,12 @@ public class RaftContext implements AutoCloseable {
   private volatile long firstCommitIndex;
   private volatile long lastApplied;
 
-  @SuppressWarnings("unchecked")
   public RaftContext(String name, RaftMember.Type type, MemberId localMemberId, RaftServerProtocol protocol, RaftStorage storage, RaftServiceRegistry registry, int threadPoolSize) {
+    this(name, type, localMemberId, protocol, storage, registry, threadPoolSize, null);
+  }
+
+  @SuppressWarnings("unchecked")
+  public RaftContext(String name, RaftMember.Type type, MemberId localMemberId, RaftServerProtocol protocol, RaftStorage storage, RaftServiceRegistry registry, int threadPoolSize, RaftEventLoopGroup eventLoopGroup) {
     this.name = checkNotNull(name, "name cannot be null");
     this.protocol = checkNotNull(protocol, "protocol cannot be null");
     this.storage = checkNotNull(storage, "storage cannot be null");
@@ -106,10 +131,20 @@ public class RaftContext implements AutoCloseable {
         .addValue(name)
         .build());
 
-    String baseThreadName = String.format("raft-server-%s", name);
-    this.threadContext = new SingleThreadContext(namedThreads(baseThreadName, log));
-    this.stateContext = new SingleThreadContext(namedThreads(baseThreadName + "-state", log));
-    this.threadPool = Executors.newScheduledThreadPool(threadPoolSize, namedThreads(baseThreadName + "-%d", log));
+    // If an event loop group is provided, pin the server to one of the group's event loops.
+    if (eventLoopGroup != null) {
+      RaftEventLoopGroup.EventLoop eventLoop = eventLoopGroup.next();
+      this.threadContext = eventLoop.threadContext();
+      this.stateContext = eventLoop.stateContext();
+      this.threadPool = eventLoopGroup.threadPool();
+      this.sharedThreads = true;
+    } else {
+      String baseThreadName = String.format("raft-server-%s", name);
+      this.threadContext = new SingleThreadContext(namedThreads(baseThreadName, log));
+      this.stateContext = new SingleThreadContext(namedThreads(baseThreadName + "-state", log));
+      this.threadPool = Executors.newScheduledThreadPool(threadPoolSize, namedThreads(baseThreadName + "-%d", log));
+      this.sharedThreads = false;
+    }
 
     // Open the metadata store.
     this.meta = storage.openMetaStore();
@@ -300,6 +335,236 @@ public class RaftContext implements AutoCloseable {
     this.sessionTimeout = checkNotNull(sessionTimeout, "sessionTimeout cannot be null");
   }
 
+  /**
+   * Returns the append request batching policy.
+   *
+   * @return The append request batching policy.
+   */
+  public AppendBatchPolicy getBatchPolicy() {
+    return batchPolicy;
+  }
+
+  /**
+   * Sets the append request batching policy.
+   *
+   * @param batchPolicy The append request batching policy.
+   */
+  public void setBatchPolicy(AppendBatchPolicy batchPolicy) {
+    this.batchPolicy = checkNotNull(batchPolicy, "batchPolicy cannot be null");
+  }
+
+  /**
+   * Returns the maximum number of entries in flight to each member.
+   *
+   * @return The maximum number of in-flight entries per member.
+   */
+  public int getMaxInflightEntries() {
+    return maxInflightEntries;
+  }
+
+  /**
+   * Sets the maximum number of entries in flight to each member.
+   *
+   * @param maxInflightEntries The maximum number of in-flight entries per member.
+   */
+  public void setMaxInflightEntries(int maxInflightEntries) {
+    checkArgument(maxInflightEntries > 0, "maxInflightEntries must be positive");
+    this.maxInflightEntries = maxInflightEntries;
+  }
+
+  /**
+   * Returns the maximum number of entry bytes in flight to each member.
+   *
+   * @return The maximum number of in-flight bytes per member.
+   */
+  public int getMaxInflightBytes() {
+    return maxInflightBytes;
+  }
+
+  /**
+   * Sets the maximum number of entry bytes in flight to each member.
+   *
+   * @param maxInflightBytes The maximum number of in-flight bytes per member.
+   */
+  public void setMaxInflightBytes(int maxInflightBytes) {
+    checkArgument(maxInflightBytes > 0, "maxInflightBytes must be positive");
+    this.maxInflightBytes = maxInflightBytes;
+  }
+
+  /**
+   * Returns the size of the chunks in which snapshots are sent to members.
+   *
+   * @return The snapshot chunk size in bytes.
+   */
+  public int getSnapshotChunkSize() {
+    return snapshotChunkSize;
+  }
+
+  /**
+   * Sets the size of the chunks in which snapshots are sent to members.
+   *
+   * @param snapshotChunkSize The snapshot chunk size in bytes.
+   */
+  public void setSnapshotChunkSize(int snapshotChunkSize) {
+    checkArgument(snapshotChunkSize > 0, "snapshotChunkSize must be positive");
+    this.snapshotChunkSize = snapshotChunkSize;
+  }
+
+  /**
+   * Returns the maximum number of snapshot chunks in flight to each member.
+   *
+   * @return The maximum number of in-flight snapshot chunks per member.
+   */
+  public int getMaxInflightSnapshotChunks() {
+    return maxInflightSnapshotChunks;
+  }
+
+  /**
+   * Sets the maximum number of snapshot chunks in flight to each member.
+   *
+   * @param maxInflightSnapshotChunks The maximum number of in-flight snapshot chunks per member.
+   */
+  public void setMaxInflightSnapshotChunks(int maxInflightSnapshotChunks) {
+    checkArgument(maxInflightSnapshotChunks > 0, "maxInflightSnapshotChunks must be positive");
+    this.maxInflightSnapshotChunks = maxInflightSnapshotChunks;
+  }
+
+  /**
+   * Returns the maximum amount by which server clocks may drift apart within an election timeout.
+   *
+   * @return The maximum clock drift.
+   */
+  public Duration getMaxClockDrift() {
+    return maxClockDrift;
+  }
+
+  /**
+   * Sets the maximum amount by which server clocks may drift apart within an election timeout.
+   *
+   * @param maxClockDrift The maximum clock drift.
+   */
+  public void setMaxClockDrift(Duration maxClockDrift) {
+    checkNotNull(maxClockDrift, "maxClockDrift cannot be null");
+    checkArgument(!maxClockDrift.isNegative(), "maxClockDrift cannot be negative");
+    this.maxClockDrift = maxClockDrift;
+  }
+
+  /**
+   * Returns the coalescer through which heartbeats are sent.
+   *
+   * @return The heartbeat coalescer, or {@code null} if heartbeats are not coalesced.
+   */
+  public RaftHeartbeatCoalescer getHeartbeatCoalescer() {
+    return heartbeatCoalescer;
+  }
+
+  /**
+   * Sets the coalescer through which heartbeats are sent and received.
+   *
+   * @param heartbeatCoalescer The heartbeat coalescer, or {@code null} if heartbeats are not coalesced.
+   */
+  public void setHeartbeatCoalescer(RaftHeartbeatCoalescer heartbeatCoalescer) {
+    if (this.heartbeatCoalescer != null) {
+      this.heartbeatCoalescer.unregister(name);
+    }
+    this.heartbeatCoalescer = heartbeatCoalescer;
+    if (heartbeatCoalescer != null) {
+      heartbeatCoalescer.register(name, request -> runOnContext(() -> role.onAppend(request)));
+    }
+  }
+
+  /**
+   * Sets the node-level failure detector.
+   *
+   * @param failureDetector The failure detector, or {@code null} if no failure detector is configured.
+   */
+  public void setFailureDetector(FailureDetectionService<MemberId> failureDetector) {
+    if (this.failureDetector != null) {
+      this.failureDetector.removeListener(failureDetectionListener);
+    }
+    this.failureDetector = failureDetector;
+    inactiveMembers.clear();
+    if (failureDetector != null) {
+      failureDetector.addListener(failureDetectionListener);
+    }
+  }
+
+  /**
+   * Handles a failure detection event.
+   */
+  private void onFailureDetectionEvent(FailureDetectionEvent<MemberId> event) {
+    if (event.newState() == FailureDetectionEvent.State.INACTIVE) {
+      inactiveMembers.add(event.subject());
+    } else {
+      inactiveMembers.remove(event.subject());
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the node hosting the given member is known to be alive.
+   * <p>
+   * Without a failure detector the liveness of members is unknown, and no member is known to be alive. With a
+   * failure detector, members are alive unless the detector has reported the member's node to be inactive.
+   *
+   * @param memberId The member identifier.
+   * @return Indicates whether the member's node is alive.
+   */
+  public boolean isMemberActive(MemberId memberId) {
+    return failureDetector != null && !inactiveMembers.contains(memberId);
+  }
+
+  /**
+   * Returns the time after which an idle group quiesces.
+   *
+   * @return The quiescence timeout, or zero if groups never quiesce.
+   */
+  public Duration getQuiescenceTimeout() {
+    return quiescenceTimeout;
+  }
+
+  /**
+   * Sets the time after which an idle group quiesces.
+   *
+   * @param quiescenceTimeout The quiescence timeout, or zero if groups never quiesce.
+   */
+  public void setQuiescenceTimeout(Duration quiescenceTimeout) {
+    checkNotNull(quiescenceTimeout, "quiescenceTimeout cannot be null");
+    checkArgument(!quiescenceTimeout.isNegative(), "quiescenceTimeout cannot be negative");
+    this.quiescenceTimeout = quiescenceTimeout;
+  }
+
+  /**
+   * Returns the number of lease reads served under the leader's lease.
+   *
+   * @return The number of lease reads served without contacting the cluster.
+   */
+  public long getLeaseHits() {
+    return leaseHits;
+  }
+
+  /**
+   * Returns the number of lease reads that fell back to the ReadIndex protocol because the leader's lease expired.
+   *
+   * @return The number of lease reads that contacted the cluster.
+   */
+  public long getLeaseMisses() {
+    return leaseMisses;
+  }
+
+  /**
+   * Records a lease read.
+   *
+   * @param hit Whether the read was served under the leader's lease.
+   */
+  public void recordLeaseRead(boolean hit) {
+    checkThread();
+    if (hit) {
+      leaseHits++;
+    } else {
+      leaseMisses++;
+    }
+  }
+
   /**
    * Sets the state leader.
    *
@@ -606,6 +871,7 @@ public class RaftContext implements AutoCloseable {
     protocol.registerVoteHandler(request -> runOnContext(() -> role.onVote(request)));
     protocol.registerCommandHandler(request -> runOnContext(() -> role.onCommand(request)));
     protocol.registerQueryHandler(request -> runOnContext(() -> role.onQuery(request)));
+    protocol.registerReadIndexHandler(request -> runOnContext(() -> role.onReadIndex(request)));
   }
 
   private <R extends RaftResponse> CompletableFuture<R> runOnContext(Supplier<CompletableFuture<R>> function) {
@@ -640,6 +906,7 @@ public class RaftContext implements AutoCloseable {
     protocol.unregisterVoteHandler();
     protocol.unregisterCommandHandler();
     protocol.unregisterQueryHandler();
+    protocol.unregisterReadIndexHandler();
   }
 
   /**
@@ -726,6 +993,8 @@ public class RaftContext implements AutoCloseable {
   public void close() {
     // Unregister protocol listeners.
     unregisterHandlers(protocol);
+    setHeartbeatCoalescer(null);
+    setFailureDetector(null);
 
     // Close the log.
     try {
@@ -745,8 +1014,11 @@ public class RaftContext implements AutoCloseable {
     } catch (Exception e) {
     }
 
-    // Close the state machine and thread context.
+    // Close the state machine and thread context. Shared threads are closed by their event loop group.
     stateMachine.close();
+    if (sharedThreads) {
+      return;
+    }
     threadContext.close();
     stateContext.close();
     threadPool.shutdownNow();
@@ -16,6 +16,7 @@
 package io.atomix.protocols.raft.impl;
 
 import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.MoreExecutors;
 import io.atomix.protocols.raft.RaftException;
 import io.atomix.protocols.raft.RaftServer;
 import io.atomix.protocols.raft.cluster.MemberId;
@@ -50,11 +51,16 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -65,9 +71,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * The internal state machine handles application of commands to the user provided {@link RaftService}
  * and keeps track of internal state like sessions and the various indexes relevant to log compaction.
+ * <p>
+ * Committed entries are read from the log on the state machine thread, which acts as a dispatch stage: entries
+ * are grouped by the service to which they apply and each service's entries are submitted to the service's
+ * ordered executor in a single task, so independent services apply their entries in parallel. Entries that
+ * apply to all services, i.e. keep-alive, configuration and initialize entries, are added to the queue of every
+ * service and act as barriers within each service's queue.
  */
 public class RaftServiceManager implements AutoCloseable {
   private static final long COMPACT_INTERVAL_MILLIS = 1000 * 10;
+  private static final int MAX_DISPATCH_BATCH_SIZE = 1024;
 
   private final Logger logger;
   private final RaftContext raft;
@@ -77,6 +90,8 @@ public class RaftServiceManager implements AutoCloseable {
   private final RaftLogReader reader;
   private final RaftSessionManager sessionManager = new RaftSessionManager();
   private final Map<String, DefaultServiceContext> services = new HashMap<>();
+  private final NavigableMap<Long, List<CompletableFuture<Long>>> appliedFutures = new TreeMap<>();
+  private boolean closed;
   private long lastCompacted;
 
   public RaftServiceManager(RaftContext raft, ScheduledExecutorService threadPool, ThreadContext threadContext) {
@@ -115,6 +130,50 @@ public class RaftServiceManager implements AutoCloseable {
     }
   }
 
+  /**
+   * Returns a future to be completed once entries up to the given index have been applied.
+   * <p>
+   * This method does not apply any entries itself. The returned future is completed on the state machine thread
+   * once the given index has been applied, at which point all commits up to the index have been submitted to
+   * their services, so operations submitted to a service after the future is completed will see the state of
+   * the service as of the given index.
+   *
+   * @param index The index to await.
+   * @return A completable future to be completed with the last applied index.
+   */
+  public CompletableFuture<Long> applied(long index) {
+    CompletableFuture<Long> future = new CompletableFuture<>();
+    threadContext.execute(() -> {
+      synchronized (appliedFutures) {
+        long lastApplied = raft.getLastApplied();
+        if (lastApplied >= index) {
+          future.complete(lastApplied);
+        } else if (closed) {
+          future.completeExceptionally(new RaftException.ProtocolException("State machine closed"));
+        } else {
+          appliedFutures.computeIfAbsent(index, i -> new ArrayList<>()).add(future);
+        }
+      }
+    });
+    return future;
+  }
+
+  /**
+   * Sets the last applied index and completes futures awaiting the index.
+   */
+  private void setLastApplied(long index) {
+    raft.setLastApplied(index);
+    synchronized (appliedFutures) {
+      if (!appliedFutures.isEmpty()) {
+        NavigableMap<Long, List<CompletableFuture<Long>>> futures = appliedFutures.headMap(index, true);
+        for (List<CompletableFuture<Long>> indexFutures : futures.values()) {
+          indexFutures.forEach(future -> future.complete(index));
+        }
+        futures.clear();
+      }
+    }
+  }
+
   /**
    * Applies the entry at the given index to the state machine.
    * <p>
@@ -128,55 +187,78 @@ public class RaftServiceManager implements AutoCloseable {
   public <T> CompletableFuture<T> apply(long index) {
     ComposableFuture<T> future = new ComposableFuture<>();
     threadContext.execute(() -> {
-      // Apply entries prior to this entry.
-      while (reader.hasNext()) {
-        long nextIndex = reader.getNextIndex();
-
-        // Validate that the next entry can be applied.
-        long lastApplied = raft.getLastApplied();
-        if (nextIndex > lastApplied + 1 && nextIndex != reader.getFirstIndex()) {
-          logger.error("Cannot apply non-sequential index {} unless it's the first entry in the log: {}", nextIndex, reader.getFirstIndex());
-          future.completeExceptionally(new IndexOutOfBoundsException("Cannot apply non-sequential index unless it's the first entry in the log"));
-          return;
-        } else if (nextIndex < lastApplied) {
-          logger.error("Cannot apply duplicate entry at index {}", nextIndex);
-          future.completeExceptionally(new IndexOutOfBoundsException("Cannot apply duplicate entry at index " + nextIndex));
-          return;
-        }
+      DispatchBatch batch = new DispatchBatch();
+      try {
+        // Apply entries prior to this entry.
+        while (reader.hasNext()) {
+          long nextIndex = reader.getNextIndex();
+
+          // Validate that the next entry can be applied.
+          long lastApplied = Math.max(raft.getLastApplied(), batch.lastIndex);
+          if (nextIndex > lastApplied + 1 && nextIndex != reader.getFirstIndex()) {
+            logger.error("Cannot apply non-sequential index {} unless it's the first entry in the log: {}", nextIndex, reader.getFirstIndex());
+            future.completeExceptionally(new IndexOutOfBoundsException("Cannot apply non-sequential index unless it's the first entry in the log"));
+            return;
+          } else if (nextIndex < lastApplied) {
+            logger.error("Cannot apply duplicate entry at index {}", nextIndex);
+            future.completeExceptionally(new IndexOutOfBoundsException("Cannot apply duplicate entry at index " + nextIndex));
+            return;
+          }
 
-        // If the next index is less than or equal to the given index, read and apply the entry.
-        if (nextIndex < index) {
-          Indexed<RaftLogEntry> entry = reader.next();
-          apply(entry);
-          raft.setLastApplied(nextIndex);
-        }
-        // If the next index is equal to the applied index, apply it and return the result.
-        else if (nextIndex == index) {
-          // Read the entry from the log. If the entry is non-null then apply it, otherwise
-          // simply update the last applied index and return a null result.
-          try {
+          // If the next index is less than or equal to the given index, read and dispatch the entry.
+          if (nextIndex < index) {
             Indexed<RaftLogEntry> entry = reader.next();
-            if (entry.index() != index) {
-              throw new IllegalStateException("inconsistent index applying entry " + index + ": " + entry);
+            apply(entry, batch);
+            batch.lastIndex = nextIndex;
+
+            // Flush large batches so services apply entries while the remaining entries are read.
+            if (batch.size >= MAX_DISPATCH_BATCH_SIZE) {
+              flush(batch);
+            }
+          }
+          // If the next index is equal to the applied index, apply it and return the result.
+          else if (nextIndex == index) {
+            // Read the entry from the log. If the entry is non-null then apply it, otherwise
+            // simply update the last applied index and return a null result.
+            try {
+              Indexed<RaftLogEntry> entry = reader.next();
+              if (entry.index() != index) {
+                throw new IllegalStateException("inconsistent index applying entry " + index + ": " + entry);
+              }
+              this.<T>apply(entry, batch).whenComplete(future);
+              return;
+            } finally {
+              batch.lastIndex = nextIndex;
             }
-            this.<T>apply(entry).whenComplete(future);
+          }
+          // If the applied index has been passed, return a null result.
+          else {
+            batch.lastIndex = nextIndex;
+            future.complete(null);
             return;
-          } finally {
-            raft.setLastApplied(nextIndex);
           }
         }
-        // If the applied index has been passed, return a null result.
-        else {
-          raft.setLastApplied(nextIndex);
-          future.complete(null);
-          return;
-        }
+        future.completeExceptionally(new IndexOutOfBoundsException("Cannot commit index " + index));
+      } finally {
+        flush(batch);
       }
-      future.completeExceptionally(new IndexOutOfBoundsException("Cannot commit index " + index));
     });
     return future;
   }
 
+  /**
+   * Submits the entries in the given batch to their services and updates the last applied index.
+   * <p>
+   * The last applied index is only updated once the batch's entries have been submitted, so operations that
+   * await the applied index are queued behind the entries in each service's queue.
+   */
+  private void flush(DispatchBatch batch) {
+    batch.flush();
+    if (batch.lastIndex > 0) {
+      setLastApplied(batch.lastIndex);
+    }
+  }
+
   /**
    * Applies an entry to the state machine.
    * <p>
@@ -186,38 +268,67 @@ public class RaftServiceManager implements AutoCloseable {
    * @param entry The entry to apply.
    * @return A completable future to be completed with the result.
    */
-  @SuppressWarnings("unchecked")
   public <T> CompletableFuture<T> apply(Indexed<? extends RaftLogEntry> entry) {
+    return apply(entry, null);
+  }
+
+  /**
+   * Applies an entry to the state machine, dispatching service operations in the given batch if non-null.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> CompletableFuture<T> apply(Indexed<? extends RaftLogEntry> entry, DispatchBatch batch) {
     logger.trace("Applying {}", entry);
     if (entry.type() == QueryEntry.class) {
-      return (CompletableFuture<T>) applyQuery(entry.cast());
+      return (CompletableFuture<T>) applyQuery(entry.cast(), batch);
     } else if (entry.type() == CommandEntry.class) {
-      return (CompletableFuture<T>) applyCommand(entry.cast());
+      return (CompletableFuture<T>) applyCommand(entry.cast(), batch);
     } else if (entry.type() == OpenSessionEntry.class) {
-      return (CompletableFuture<T>) applyOpenSession(entry.cast());
+      return (CompletableFuture<T>) applyOpenSession(entry.cast(), batch);
     } else if (entry.type() == KeepAliveEntry.class) {
-      return (CompletableFuture<T>) applyKeepAlive(entry.cast());
+      return (CompletableFuture<T>) applyKeepAlive(entry.cast(), batch);
     } else if (entry.type() == CloseSessionEntry.class) {
-      return (CompletableFuture<T>) applyCloseSession(entry.cast());
+      return (CompletableFuture<T>) applyCloseSession(entry.cast(), batch);
     } else if (entry.type() == MetadataEntry.class) {
       return (CompletableFuture<T>) applyMetadata(entry.cast());
     } else if (entry.type() == InitializeEntry.class) {
-      return (CompletableFuture<T>) applyInitialize(entry.cast());
+      return (CompletableFuture<T>) applyInitialize(entry.cast(), batch);
     } else if (entry.type() == ConfigurationEntry.class) {
-      return (CompletableFuture<T>) applyConfiguration(entry.cast());
+      return (CompletableFuture<T>) applyConfiguration(entry.cast(), batch);
     }
     return Futures.exceptionalFuture(new RaftException.ProtocolException("Unknown entry type"));
   }
 
+  /**
+   * Submits an operation to the given service, adding it to the batch if one is being dispatched.
+   * <p>
+   * The operation is given the executor on which to apply it to the service: the service's executor if the
+   * operation is submitted directly, or a direct executor if the operation is run as part of a batch that is
+   * already being applied on the service's thread.
+   */
+  private <T> CompletableFuture<T> submit(DispatchBatch batch, DefaultServiceContext service, Function<Executor, CompletableFuture<T>> operation) {
+    return batch != null ? batch.submit(service, operation) : operation.apply(service.executor());
+  }
+
+  /**
+   * Executes an operation on the given service, adding it to the batch if one is being dispatched.
+   */
+  private void execute(DispatchBatch batch, DefaultServiceContext service, Function<Executor, CompletableFuture<Void>> operation) {
+    submit(batch, service, operation).whenComplete((result, error) -> {
+      if (error != null) {
+        logger.error("Failed to apply operation to {}", service, error);
+      }
+    });
+  }
+
   /**
    * Applies an initialize entry.
    * <p>
    * Initialize entries are used only at the beginning of a new leader's term to force the commitment of entries from
    * prior terms, therefore no logic needs to take place.
    */
-  private CompletableFuture<Void> applyInitialize(Indexed<InitializeEntry> entry) {
+  private CompletableFuture<Void> applyInitialize(Indexed<InitializeEntry> entry, DispatchBatch batch) {
     for (DefaultServiceContext service : services.values()) {
-      service.keepAliveSessions(entry.index(), entry.entry().timestamp());
+      execute(batch, service, executor -> service.keepAliveSessions(entry.index(), entry.entry().timestamp(), executor));
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -229,9 +340,9 @@ public class RaftServiceManager implements AutoCloseable {
    * logic needs to take place in the handling of configuration entries. We simply release the previous configuration
    * entry since it was overwritten by a more recent committed configuration entry.
    */
-  private CompletableFuture<Void> applyConfiguration(Indexed<ConfigurationEntry> entry) {
+  private CompletableFuture<Void> applyConfiguration(Indexed<ConfigurationEntry> entry, DispatchBatch batch) {
     for (DefaultServiceContext service : services.values()) {
-      service.keepAliveSessions(entry.index(), entry.entry().timestamp());
+      execute(batch, service, executor -> service.keepAliveSessions(entry.index(), entry.entry().timestamp(), executor));
     }
     return CompletableFuture.completedFuture(null);
   }
@@ -259,7 +370,7 @@ public class RaftServiceManager implements AutoCloseable {
    * client's session is expired. This ensures for sessions that have long timeouts, keep alive entries cannot be cleaned
    * from the log before they're replicated to some servers.
    */
-  private CompletableFuture<long[]> applyKeepAlive(Indexed<KeepAliveEntry> entry) {
+  private CompletableFuture<long[]> applyKeepAlive(Indexed<KeepAliveEntry> entry, DispatchBatch batch) {
     // Store the session/command/event sequence and event index instead of acquiring a reference to the entry.
     long[] sessionIds = entry.entry().sessionIds();
     long[] commandSequences = entry.entry().commandSequenceNumbers();
@@ -275,7 +386,8 @@ public class RaftServiceManager implements AutoCloseable {
 
       RaftSessionContext session = sessionManager.getSession(sessionId);
       if (session != null) {
-        CompletableFuture<Void> future = session.getService().keepAlive(entry.index(), entry.entry().timestamp(), session, commandSequence, eventIndex)
+        CompletableFuture<Void> future = submit(batch, session.getService(),
+            executor -> session.getService().keepAlive(entry.index(), entry.entry().timestamp(), session, commandSequence, eventIndex, executor))
             .thenApply(succeeded -> {
               if (succeeded) {
                 synchronized (successfulSessionIds) {
@@ -290,7 +402,7 @@ public class RaftServiceManager implements AutoCloseable {
 
     // Iterate through services and complete keep-alives, causing sessions to be expired if necessary.
     for (DefaultServiceContext service : services.values()) {
-      service.completeKeepAlive(entry.index(), entry.entry().timestamp());
+      execute(batch, service, executor -> service.completeKeepAlive(entry.index(), entry.entry().timestamp(), executor));
     }
 
     return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]))
@@ -304,7 +416,7 @@ public class RaftServiceManager implements AutoCloseable {
   /**
    * Applies an open session entry to the state machine.
    */
-  private CompletableFuture<Long> applyOpenSession(Indexed<OpenSessionEntry> entry) {
+  private CompletableFuture<Long> applyOpenSession(Indexed<OpenSessionEntry> entry, DispatchBatch batch) {
     // Get the state machine executor or create one if it doesn't already exist.
     DefaultServiceContext service = services.get(entry.entry().serviceName());
     if (service == null) {
@@ -337,13 +449,14 @@ public class RaftServiceManager implements AutoCloseable {
         raft,
         threadPool);
     sessionManager.registerSession(session);
-    return service.openSession(entry.index(), entry.entry().timestamp(), session);
+    DefaultServiceContext context = service;
+    return submit(batch, context, executor -> context.openSession(entry.index(), entry.entry().timestamp(), session, executor));
   }
 
   /**
    * Applies a close session entry to the state machine.
    */
-  private CompletableFuture<Void> applyCloseSession(Indexed<CloseSessionEntry> entry) {
+  private CompletableFuture<Void> applyCloseSession(Indexed<CloseSessionEntry> entry, DispatchBatch batch) {
     RaftSessionContext session = sessionManager.getSession(entry.entry().session());
 
     // If the server session is null, the session either never existed or already expired.
@@ -353,7 +466,7 @@ public class RaftServiceManager implements AutoCloseable {
 
     // Get the state machine executor associated with the session and unregister the session.
     DefaultServiceContext service = session.getService();
-    return service.closeSession(entry.index(), entry.entry().timestamp(), session);
+    return submit(batch, service, executor -> service.closeSession(entry.index(), entry.entry().timestamp(), session, executor));
   }
 
   /**
@@ -400,7 +513,7 @@ public class RaftServiceManager implements AutoCloseable {
    * received in sequential order. The reason for this assumption is because leaders always sequence
    * commands as they're written to the log, so no sequence number will be skipped.
    */
-  private CompletableFuture<OperationResult> applyCommand(Indexed<CommandEntry> entry) {
+  private CompletableFuture<OperationResult> applyCommand(Indexed<CommandEntry> entry, DispatchBatch batch) {
     // First check to ensure that the session exists.
     RaftSessionContext session = sessionManager.getSession(entry.entry().session());
 
@@ -412,13 +525,14 @@ public class RaftServiceManager implements AutoCloseable {
     }
 
     // Execute the command using the state machine associated with the session.
-    return session.getService()
+    return submit(batch, session.getService(), executor -> session.getService()
         .executeCommand(
             entry.index(),
             entry.entry().sequenceNumber(),
             entry.entry().timestamp(),
             session,
-            entry.entry().operation());
+            entry.entry().operation(),
+            executor));
   }
 
   /**
@@ -439,7 +553,7 @@ public class RaftServiceManager implements AutoCloseable {
    * publishing of session events. Events require commands to be written to the Raft log to ensure
    * fault-tolerance and consistency across the cluster.
    */
-  private CompletableFuture<OperationResult> applyQuery(Indexed<QueryEntry> entry) {
+  private CompletableFuture<OperationResult> applyQuery(Indexed<QueryEntry> entry, DispatchBatch batch) {
     RaftSessionContext session = sessionManager.getSession(entry.entry().session());
 
     // If the session is null then that indicates that the session already timed out or it never existed.
@@ -449,13 +563,14 @@ public class RaftServiceManager implements AutoCloseable {
     }
 
     // Execute the query using the state machine associated with the session.
-    return session.getService()
+    return submit(batch, session.getService(), executor -> session.getService()
         .executeQuery(
             entry.index(),
             entry.entry().sequenceNumber(),
             entry.entry().timestamp(),
             session,
-            entry.entry().operation());
+            entry.entry().operation(),
+            executor));
   }
 
   /**
@@ -475,11 +590,9 @@ public class RaftServiceManager implements AutoCloseable {
       List<DefaultServiceContext> services = new ArrayList<>(this.services.values());
 
       // Iterate through services and take snapshots, gathering a collection of snapshot completion futures.
+      // Snapshots are taken and persisted asynchronously, so the state machine thread is never blocked on them.
       List<CompletableFuture<Void>> futures = services.stream()
-          .map(context -> {
-            long snapshotIndex = context.takeSnapshot().join();
-            return context.completeSnapshot(snapshotIndex);
-          })
+          .map(context -> context.takeSnapshot().thenCompose(context::completeSnapshot))
           .collect(Collectors.toList());
 
       // Wait for snapshots in all state machines to be completed before compacting the log at the last applied index.
@@ -494,5 +607,57 @@ public class RaftServiceManager implements AutoCloseable {
   @Override
   public void close() {
     // Don't close the thread context here since state machines can be reused.
+    // Fail futures awaiting indexes that will no longer be applied. The thread context may be closed along with
+    // the state machine, so futures are failed on the calling thread.
+    synchronized (appliedFutures) {
+      closed = true;
+      for (List<CompletableFuture<Long>> futures : appliedFutures.values()) {
+        futures.forEach(future -> future.completeExceptionally(new RaftException.ProtocolException("State machine closed")));
+      }
+      appliedFutures.clear();
+    }
+  }
+
+  /**
+   * Service operations dispatched in a single round of the dispatch stage, grouped by service.
+   * <p>
+   * When the batch is flushed, each service's operations are submitted to the service's executor in a single
+   * task and run in the order in which they were dispatched.
+   */
+  private final class DispatchBatch {
+    private final Map<DefaultServiceContext, List<Runnable>> operations = new LinkedHashMap<>();
+    private int size;
+    private long lastIndex;
+
+    /**
+     * Adds an operation to the given service's batch, returning a future to be completed with its result.
+     * <p>
+     * Batches are run on the service's thread, so the operation is given a direct executor.
+     */
+    <T> CompletableFuture<T> submit(DefaultServiceContext service, Function<Executor, CompletableFuture<T>> operation) {
+      ComposableFuture<T> future = new ComposableFuture<>();
+      operations.computeIfAbsent(service, s -> new ArrayList<>()).add(() -> {
+        try {
+          operation.apply(MoreExecutors.directExecutor()).whenComplete(future);
+        } catch (Exception e) {
+          future.completeExceptionally(e);
+        }
+      });
+      size++;
+      return future;
+    }
+
+    /**
+     * Submits each service's operations to the service's executor.
+     */
+    void flush() {
+      for (Map.Entry<DefaultServiceContext, List<Runnable>> entry : operations.entrySet()) {
+        DefaultServiceContext service = entry.getKey();
+        List<Runnable> serviceOperations = entry.getValue();
+        service.executor().execute(() -> serviceOperations.forEach(Runnable::run));
+      }
+      operations.clear();
+      size = 0;
+    }
   }
 }
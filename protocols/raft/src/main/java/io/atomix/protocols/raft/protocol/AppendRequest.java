@@ -17,8 +17,10 @@ package io.atomix.protocols.raft.protocol;
 
 import io.atomix.protocols.raft.cluster.MemberId;
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
+import io.atomix.storage.journal.RawEntries;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 
@@ -32,6 +34,10 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Append entries requests are at the core of the replication protocol. Leaders send append requests
  * to followers to replicate and commit log entries, and followers sent append requests to passive members
  * to replicate committed log entries.
+ * <p>
+ * Entries are sent either as decoded {@link RaftLogEntry entries} or as {@link RawEntries raw entries} copied
+ * directly from the sender's log along with the term of each entry, in which case the receiver appends the
+ * serialized entries to its log without decoding them.
  */
 public class AppendRequest extends AbstractRaftRequest {
 
@@ -49,14 +55,22 @@ public class AppendRequest extends AbstractRaftRequest {
   private final long prevLogIndex;
   private final long prevLogTerm;
   private final List<RaftLogEntry> entries;
+  private final RawEntries rawEntries;
+  private final long[] terms;
   private final long commitIndex;
 
   public AppendRequest(long term, String leader, long prevLogIndex, long prevLogTerm, List<RaftLogEntry> entries, long commitIndex) {
+    this(term, leader, prevLogIndex, prevLogTerm, entries, null, null, commitIndex);
+  }
+
+  public AppendRequest(long term, String leader, long prevLogIndex, long prevLogTerm, List<RaftLogEntry> entries, RawEntries rawEntries, long[] terms, long commitIndex) {
     this.term = term;
     this.leader = leader;
     this.prevLogIndex = prevLogIndex;
     this.prevLogTerm = prevLogTerm;
     this.entries = entries;
+    this.rawEntries = rawEntries;
+    this.terms = terms;
     this.commitIndex = commitIndex;
   }
 
@@ -98,6 +112,8 @@ public class AppendRequest extends AbstractRaftRequest {
 
   /**
    * Returns the log entries to append.
+   * <p>
+   * If the request contains {@link #rawEntries() raw entries}, the returned list is empty.
    *
    * @return A list of log entries.
    */
@@ -105,6 +121,43 @@ public class AppendRequest extends AbstractRaftRequest {
     return entries;
   }
 
+  /**
+   * Returns the serialized log entries to append.
+   *
+   * @return The serialized log entries or {@code null} if the request contains decoded entries.
+   */
+  public RawEntries rawEntries() {
+    return rawEntries;
+  }
+
+  /**
+   * Returns the terms of the serialized log entries.
+   *
+   * @return The terms of the serialized log entries or {@code null} if the request contains decoded entries.
+   */
+  public long[] terms() {
+    return terms;
+  }
+
+  /**
+   * Returns the number of entries to append.
+   *
+   * @return The number of entries to append.
+   */
+  public int entryCount() {
+    return rawEntries != null ? rawEntries.count() : entries.size();
+  }
+
+  /**
+   * Returns the term of the given entry.
+   *
+   * @param entry The number of the entry.
+   * @return The term of the entry.
+   */
+  public long entryTerm(int entry) {
+    return terms != null ? terms[entry] : entries.get(entry).term();
+  }
+
   /**
    * Returns the leader's commit index.
    *
@@ -116,7 +169,7 @@ public class AppendRequest extends AbstractRaftRequest {
 
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, prevLogIndex, prevLogTerm, entries, commitIndex);
+    return Objects.hash(getClass(), term, leader, prevLogIndex, prevLogTerm, entries, rawEntries, Arrays.hashCode(terms), commitIndex);
   }
 
   @Override
@@ -128,6 +181,8 @@ public class AppendRequest extends AbstractRaftRequest {
           && request.prevLogIndex == prevLogIndex
           && request.prevLogTerm == prevLogTerm
           && request.entries.equals(entries)
+          && Objects.equals(request.rawEntries, rawEntries)
+          && Arrays.equals(request.terms, terms)
           && request.commitIndex == commitIndex;
     }
     return false;
@@ -140,7 +195,7 @@ public class AppendRequest extends AbstractRaftRequest {
         .add("leader", leader)
         .add("prevLogIndex", prevLogIndex)
         .add("prevLogTerm", prevLogTerm)
-        .add("entries", entries.size())
+        .add("entries", entryCount())
         .add("commitIndex", commitIndex)
         .toString();
   }
@@ -154,6 +209,8 @@ public class AppendRequest extends AbstractRaftRequest {
     private long logIndex;
     private long logTerm;
     private List<RaftLogEntry> entries;
+    private RawEntries rawEntries;
+    private long[] terms;
     private long commitIndex = -1;
 
     /**
@@ -231,6 +288,23 @@ public class AppendRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the request entries as serialized log entries.
+     *
+     * @param entries The serialized request entries.
+     * @param terms The term of each entry.
+     * @return The append request builder.
+     * @throws NullPointerException if {@code entries} or {@code terms} is null
+     * @throws IllegalArgumentException if the number of terms does not match the number of entries
+     */
+    public Builder withRawEntries(RawEntries entries, long[] terms) {
+      this.rawEntries = checkNotNull(entries, "entries cannot be null");
+      this.terms = checkNotNull(terms, "terms cannot be null");
+      checkArgument(entries.count() == terms.length, "terms must match entries");
+      this.entries = Collections.emptyList();
+      return this;
+    }
+
     /**
      * Adds an entry to the request.
      *
@@ -274,7 +348,7 @@ public class AppendRequest extends AbstractRaftRequest {
     @Override
     public AppendRequest build() {
       validate();
-      return new AppendRequest(term, leader, logIndex, logTerm, entries, commitIndex);
+      return new AppendRequest(term, leader, logIndex, logTerm, entries, rawEntries, terms, commitIndex);
     }
   }
 }
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.protocol;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Coalesced heartbeat request.
+ * <p>
+ * Heartbeat requests carry the empty {@link AppendRequest}s sent by many Raft partitions hosted by one node to the
+ * same remote node, keyed by the name of the partition that sent them. The receiving node dispatches each append
+ * request to the partition of the same name and responds with a {@link HeartbeatResponse} that carries the
+ * partitions' responses.
+ */
+public class HeartbeatRequest extends AbstractRaftRequest {
+
+  /**
+   * Returns a new heartbeat request builder.
+   *
+   * @return A new heartbeat request builder.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private final Map<String, AppendRequest> requests;
+
+  public HeartbeatRequest(Map<String, AppendRequest> requests) {
+    this.requests = requests;
+  }
+
+  /**
+   * Returns the append requests keyed by partition name.
+   *
+   * @return The append requests keyed by partition name.
+   */
+  public Map<String, AppendRequest> requests() {
+    return requests;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), requests);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof HeartbeatRequest) {
+      HeartbeatRequest request = (HeartbeatRequest) object;
+      return Objects.equals(request.requests, requests);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("partitions", requests.keySet())
+        .toString();
+  }
+
+  /**
+   * Heartbeat request builder.
+   */
+  public static class Builder extends AbstractRaftRequest.Builder<Builder, HeartbeatRequest> {
+    private Map<String, AppendRequest> requests;
+
+    /**
+     * Sets the append requests keyed by partition name.
+     *
+     * @param requests The append requests keyed by partition name.
+     * @return The heartbeat request builder.
+     * @throws NullPointerException if {@code requests} is null
+     */
+    public Builder withRequests(Map<String, AppendRequest> requests) {
+      this.requests = checkNotNull(requests, "requests cannot be null");
+      return this;
+    }
+
+    @Override
+    protected void validate() {
+      super.validate();
+      checkNotNull(requests, "requests cannot be null");
+    }
+
+    @Override
+    public HeartbeatRequest build() {
+      validate();
+      return new HeartbeatRequest(requests);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.protocol;
+
+import io.atomix.protocols.raft.RaftError;
+
+import java.util.Map;
+import java.util.Objects;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Coalesced heartbeat response.
+ * <p>
+ * Heartbeat responses carry the {@link AppendResponse}s of the partitions to which the append requests in a
+ * {@link HeartbeatRequest} were dispatched, keyed by partition name. Partitions that are not hosted by the
+ * responding node are omitted.
+ */
+public class HeartbeatResponse extends AbstractRaftResponse {
+
+  /**
+   * Returns a new heartbeat response builder.
+   *
+   * @return A new heartbeat response builder.
+   */
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private final Map<String, AppendResponse> responses;
+
+  public HeartbeatResponse(Status status, RaftError error, Map<String, AppendResponse> responses) {
+    super(status, error);
+    this.responses = responses;
+  }
+
+  /**
+   * Returns the append responses keyed by partition name.
+   *
+   * @return The append responses keyed by partition name.
+   */
+  public Map<String, AppendResponse> responses() {
+    return responses;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getClass(), status, responses);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof HeartbeatResponse) {
+      HeartbeatResponse response = (HeartbeatResponse) object;
+      return response.status == status
+          && Objects.equals(response.responses, responses);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    if (status == Status.OK) {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("partitions", responses.keySet())
+          .toString();
+    } else {
+      return toStringHelper(this)
+          .add("status", status)
+          .add("error", error)
+          .toString();
+    }
+  }
+
+  /**
+   * Heartbeat response builder.
+   */
+  public static class Builder extends AbstractRaftResponse.Builder<Builder, HeartbeatResponse> {
+    private Map<String, AppendResponse> responses;
+
+    /**
+     * Sets the append responses keyed by partition name.
+     *
+     * @param responses The append responses keyed by partition name.
+     * @return The heartbeat response builder.
+     * @throws NullPointerException if {@code responses} is null
+     */
+    public Builder withResponses(Map<String, AppendResponse> responses) {
+      this.responses = checkNotNull(responses, "responses cannot be null");
+      return this;
+    }
+
+    @Override
+    protected void validate() {
+      super.validate();
+      if (status == Status.OK) {
+        checkArgument(responses != null, "responses cannot be null");
+      }
+    }
+
+    @Override
+    public HeartbeatResponse build() {
+      validate();
+      return new HeartbeatResponse(status, error, responses);
+    }
+  }
+}
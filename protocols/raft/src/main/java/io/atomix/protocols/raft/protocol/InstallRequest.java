@@ -30,10 +30,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * Snapshot installation requests are sent by the leader to a follower when the follower indicates
  * that its log is further behind than the last snapshot taken by the leader. Snapshots are sent
- * in chunks, with each chunk being sent in a separate install request. As requests are received by
- * the follower, the snapshot is reconstructed based on the provided {@link #chunkOffset()} and other
- * metadata. The last install request will be sent with {@link #complete()} being {@code true} to
- * indicate that all chunks of the snapshot have been sent.
+ * in chunks, with each chunk being sent in a separate install request. Chunks may be received out of
+ * order, so each chunk is written by the follower at its {@link #chunkPosition() position} within a
+ * snapshot of the given {@link #snapshotSize() size}. The last install request will be sent with
+ * {@link #complete()} being {@code true} and carries the {@link #checksum() checksum} of the snapshot,
+ * which the follower verifies once all chunks have been received.
  */
 public class InstallRequest extends AbstractRaftRequest {
 
@@ -51,19 +52,25 @@ public class InstallRequest extends AbstractRaftRequest {
   private final long id;
   private final long index;
   private final long timestamp;
+  private final long size;
   private final int offset;
+  private final long position;
   private final byte[] data;
   private final boolean complete;
+  private final long checksum;
 
-  public InstallRequest(long term, MemberId leader, long id, long index, long timestamp, int offset, byte[] data, boolean complete) {
+  public InstallRequest(long term, MemberId leader, long id, long index, long timestamp, long size, int offset, long position, byte[] data, boolean complete, long checksum) {
     this.term = term;
     this.leader = leader;
     this.id = id;
     this.index = index;
     this.timestamp = timestamp;
+    this.size = size;
     this.offset = offset;
+    this.position = position;
     this.data = data;
     this.complete = complete;
+    this.checksum = checksum;
   }
 
   /**
@@ -111,6 +118,15 @@ public class InstallRequest extends AbstractRaftRequest {
     return timestamp;
   }
 
+  /**
+   * Returns the total size of the snapshot in bytes.
+   *
+   * @return The snapshot size.
+   */
+  public long snapshotSize() {
+    return size;
+  }
+
   /**
    * Returns the offset of the snapshot chunk.
    *
@@ -120,6 +136,15 @@ public class InstallRequest extends AbstractRaftRequest {
     return offset;
   }
 
+  /**
+   * Returns the byte position of the snapshot chunk within the snapshot.
+   *
+   * @return The position of the snapshot chunk.
+   */
+  public long chunkPosition() {
+    return position;
+  }
+
   /**
    * Returns the snapshot data.
    *
@@ -138,9 +163,20 @@ public class InstallRequest extends AbstractRaftRequest {
     return complete;
   }
 
+  /**
+   * Returns the CRC32 checksum of the snapshot.
+   * <p>
+   * The checksum is only set on the last chunk of the snapshot.
+   *
+   * @return The snapshot checksum.
+   */
+  public long checksum() {
+    return checksum;
+  }
+
   @Override
   public int hashCode() {
-    return Objects.hash(getClass(), term, leader, id, index, offset, complete, data);
+    return Objects.hash(getClass(), term, leader, id, index, size, offset, position, complete, checksum, Arrays.hashCode(data));
   }
 
   @Override
@@ -151,8 +187,11 @@ public class InstallRequest extends AbstractRaftRequest {
           && request.leader == leader
           && request.id == id
           && request.index == index
+          && request.size == size
           && request.offset == offset
+          && request.position == position
           && request.complete == complete
+          && request.checksum == checksum
           && Arrays.equals(request.data, data);
     }
     return false;
@@ -165,9 +204,12 @@ public class InstallRequest extends AbstractRaftRequest {
         .add("leader", leader)
         .add("id", id)
         .add("index", index)
+        .add("size", size)
         .add("offset", offset)
+        .add("position", position)
         .add("data", ArraySizeHashPrinter.of(data))
         .add("complete", complete)
+        .add("checksum", checksum)
         .toString();
   }
 
@@ -180,9 +222,12 @@ public class InstallRequest extends AbstractRaftRequest {
     private long id;
     private long index;
     private long timestamp;
+    private long size = -1;
     private int offset;
+    private long position;
     private byte[] data;
     private boolean complete;
+    private long checksum;
 
     /**
      * Sets the request term.
@@ -245,6 +290,18 @@ public class InstallRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the total size of the snapshot in bytes.
+     *
+     * @param size The snapshot size.
+     * @return The request builder.
+     */
+    public Builder withSize(long size) {
+      checkArgument(size >= 0, "size must be positive");
+      this.size = size;
+      return this;
+    }
+
     /**
      * Sets the request offset.
      *
@@ -257,6 +314,18 @@ public class InstallRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the byte position of the chunk within the snapshot.
+     *
+     * @param position The chunk position.
+     * @return The request builder.
+     */
+    public Builder withPosition(long position) {
+      checkArgument(position >= 0, "position must be positive");
+      this.position = position;
+      return this;
+    }
+
     /**
      * Sets the request snapshot bytes.
      *
@@ -280,6 +349,17 @@ public class InstallRequest extends AbstractRaftRequest {
       return this;
     }
 
+    /**
+     * Sets the CRC32 checksum of the snapshot.
+     *
+     * @param checksum The snapshot checksum.
+     * @return The request builder.
+     */
+    public Builder withChecksum(long checksum) {
+      this.checksum = checksum;
+      return this;
+    }
+
     @Override
     protected void validate() {
       super.validate();
@@ -297,7 +377,7 @@ public class InstallRequest extends AbstractRaftRequest {
     @Override
     public InstallRequest build() {
       validate();
-      return new InstallRequest(term, leader, id, index, timestamp, offset, data, complete);
+      return new InstallRequest(term, leader, id, index, timestamp, size != -1 ? size : data.length, offset, position, data, complete, checksum);
     }
   }
 
@@ -64,6 +64,15 @@ public interface RaftServerProtocol {
    */
   CompletableFuture<QueryResponse> query(MemberId memberId, QueryRequest request);
 
+  /**
+   * Sends a read index request to the given node.
+   *
+   * @param memberId  the node to which to send the request
+   * @param request the request to send
+   * @return a future to be completed with the response
+   */
+  CompletableFuture<ReadIndexResponse> readIndex(MemberId memberId, ReadIndexRequest request);
+
   /**
    * Sends a command request to the given node.
    *
@@ -154,6 +163,15 @@ public interface RaftServerProtocol {
    */
   CompletableFuture<AppendResponse> append(MemberId memberId, AppendRequest request);
 
+  /**
+   * Sends a coalesced heartbeat request to the given node.
+   *
+   * @param memberId  the node to which to send the request
+   * @param request the request to send
+   * @return a future to be completed with the response
+   */
+  CompletableFuture<HeartbeatResponse> heartbeat(MemberId memberId, HeartbeatRequest request);
+
   /**
    * Unicasts a publish request to the given node.
    *
@@ -210,6 +228,18 @@ public interface RaftServerProtocol {
    */
   void unregisterQueryHandler();
 
+  /**
+   * Registers a read index request callback.
+   *
+   * @param handler the read index request handler to register
+   */
+  void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler);
+
+  /**
+   * Unregisters the read index request handler.
+   */
+  void unregisterReadIndexHandler();
+
   /**
    * Registers a command request callback.
    *
@@ -330,6 +360,18 @@ public interface RaftServerProtocol {
    */
   void unregisterAppendHandler();
 
+  /**
+   * Registers a coalesced heartbeat request callback.
+   *
+   * @param handler the heartbeat request handler to register
+   */
+  void registerHeartbeatHandler(Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> handler);
+
+  /**
+   * Unregisters the coalesced heartbeat request handler.
+   */
+  void unregisterHeartbeatHandler();
+
   /**
    * Registers a reset request listener.
    *
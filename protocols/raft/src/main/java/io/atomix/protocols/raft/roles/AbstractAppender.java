@@ -15,7 +15,11 @@
  */
 package io.atomix.protocols.raft.roles;
 
+import com.google.common.primitives.Longs;
+import io.atomix.protocols.raft.AppendBatchPolicy;
+import io.atomix.protocols.raft.RaftHeartbeatCoalescer;
 import io.atomix.protocols.raft.RaftServer;
+import io.atomix.protocols.raft.cluster.MemberId;
 import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
 import io.atomix.protocols.raft.cluster.impl.RaftMemberContext;
 import io.atomix.protocols.raft.impl.RaftContext;
@@ -32,6 +36,7 @@ import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.protocols.raft.storage.snapshot.Snapshot;
 import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
 import io.atomix.storage.journal.Indexed;
+import io.atomix.storage.journal.RawEntries;
 import io.atomix.utils.logging.ContextualLoggerFactory;
 import io.atomix.utils.logging.LoggerContext;
 import org.slf4j.Logger;
@@ -39,6 +44,7 @@ import org.slf4j.Logger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -46,11 +52,14 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Abstract appender.
  */
 abstract class AbstractAppender implements AutoCloseable {
-  private static final int MAX_BATCH_SIZE = 1024 * 32;
   protected final Logger log;
   protected final RaftContext raft;
   protected boolean open = true;
 
+  // The serialized size of the entries in the most recently built append request. Requests are always sent
+  // on the Raft thread immediately after being built, so the size is recorded here rather than in the request.
+  private int batchSize;
+
   AbstractAppender(RaftContext raft) {
     this.raft = checkNotNull(raft, "context cannot be null");
     this.log = ContextualLoggerFactory.getLogger(getClass(), LoggerContext.builder(RaftServer.class)
@@ -100,6 +109,7 @@ abstract class AbstractAppender implements AutoCloseable {
     // The reader can be null for RESERVE members.
     Indexed<RaftLogEntry> prevEntry = reader != null ? reader.getCurrentEntry() : null;
 
+    batchSize = 0;
     DefaultRaftMember leader = raft.getLeader();
     return AppendRequest.newBuilder()
         .withTerm(raft.getTerm())
@@ -128,15 +138,21 @@ abstract class AbstractAppender implements AutoCloseable {
         .withPrevLogTerm(prevEntry != null ? prevEntry.entry().term() : 0)
         .withCommitIndex(raft.getCommitIndex());
 
+    // If raw replication is enabled, copy the serialized entries from the log rather than re-encoding them.
+    if (raft.getStorage().isRawReplication()) {
+      return buildAppendRawEntriesRequest(builder, reader, lastIndex);
+    }
+
     // Build a list of entries to send to the member.
     final List<RaftLogEntry> entries = new ArrayList<>();
 
-    // Build a list of entries up to the MAX_BATCH_SIZE. Note that entries in the log may
-    // be null if they've been compacted and the member to which we're sending entries is just
+    // Build a list of entries up to the batch policy's maximum batch size and entries. Note that entries in the log
+    // may be null if they've been compacted and the member to which we're sending entries is just
     // joining the cluster or is otherwise far behind. Null entries are simply skipped and not
     // counted towards the size of the batch.
-    // If there exists an entry in the log with size >= MAX_BATCH_SIZE the logic ensures that
+    // If there exists an entry in the log with size >= the maximum batch size the logic ensures that
     // entry will be sent in a batch of size one
+    final AppendBatchPolicy batchPolicy = raft.getBatchPolicy();
     int size = 0;
 
     // Iterate through the log until the last index or the end of the log is reached.
@@ -145,7 +161,7 @@ abstract class AbstractAppender implements AutoCloseable {
       Indexed<RaftLogEntry> entry = reader.next();
       entries.add(entry.entry());
       size += entry.size();
-      if (entry.index() == lastIndex || size >= MAX_BATCH_SIZE) {
+      if (entry.index() == lastIndex || size >= batchPolicy.maxBatchSize() || entries.size() >= batchPolicy.maxBatchEntries()) {
         break;
       }
 
@@ -158,35 +174,80 @@ abstract class AbstractAppender implements AutoCloseable {
     }
 
     // Add the entries to the request builder and build the request.
+    batchSize = size;
     return builder.withEntries(entries).build();
   }
 
+  /**
+   * Builds a populated AppendEntries request containing serialized entries copied from the log.
+   * <p>
+   * The term of each entry is sent along with the serialized entries so the receiver does not have to decode them.
+   */
+  private AppendRequest buildAppendRawEntriesRequest(AppendRequest.Builder builder, RaftLogReader reader, long lastIndex) {
+    final AppendBatchPolicy batchPolicy = raft.getBatchPolicy();
+    final RawEntries.Builder entries = RawEntries.newBuilder(raft.getLog().checksum());
+    final List<Long> terms = new ArrayList<>();
+
+    // Iterate through the log until the last index or the end of the log is reached.
+    while (reader.hasNext()) {
+      Indexed<RaftLogEntry> entry = reader.next(entries);
+      terms.add(entry.entry().term());
+      if (entry.index() == lastIndex || entries.size() >= batchPolicy.maxBatchSize() || entries.count() >= batchPolicy.maxBatchEntries()) {
+        break;
+      }
+
+      // If a snapshot exists at the next index, complete the request.
+      Snapshot snapshot = raft.getSnapshotStore().getSnapshotByIndex(entry.index());
+      if (snapshot != null) {
+        break;
+      }
+    }
+
+    batchSize = entries.size();
+    return builder.withRawEntries(entries.build(), Longs.toArray(terms)).build();
+  }
+
   /**
    * Connects to the member and sends a commit message.
    */
   protected void sendAppendRequest(RaftMemberContext member, AppendRequest request) {
     // If this is a heartbeat message and a heartbeat is already in progress, skip the request.
-    if (request.entries().isEmpty() && !member.canHeartbeat()) {
+    if (request.entryCount() == 0 && !member.canHeartbeat()) {
       return;
     }
 
     // Start the append to the member.
-    member.startAppend();
+    final int entries = request.entryCount();
+    final int size = entries > 0 ? batchSize : 0;
+    final long sequence = member.startAppend(entries, size);
 
     long timestamp = System.currentTimeMillis();
+    long sendTime = System.nanoTime();
 
     log.trace("Sending {} to {}", request, member.getMember().memberId());
-    raft.getProtocol().append(member.getMember().memberId(), request).whenCompleteAsync((response, error) -> {
-      // Complete the append to the member.
-      if (!request.entries().isEmpty()) {
-        member.completeAppend(System.currentTimeMillis() - timestamp);
+    append(member.getMember().memberId(), request).whenCompleteAsync((response, error) -> {
+      // Complete the append to the member. Errors are treated as backpressure from the member.
+      if (error == null && response.status() == RaftResponse.Status.OK) {
+        member.completeAppend(entries, size, System.currentTimeMillis() - timestamp);
+
+        // A response in the request's term acknowledges the sender as the leader as of the time the request was sent.
+        if (response.term() == request.term()) {
+          member.acknowledge(sendTime);
+        }
       } else {
-        member.completeAppend();
+        member.failAppend(entries, size);
       }
 
       if (open) {
         if (error == null) {
           log.trace("Received {} from {}", response, member.getMember().memberId());
+
+          // Responses may arrive out of order when appends are pipelined. If the member's next index has been reset
+          // since the request was sent, a failed response refers to the previous next index and can be ignored.
+          if (isStaleAppendFailure(member, sequence, response)) {
+            log.trace("Ignoring stale {} from {}", response, member.getMember().memberId());
+            return;
+          }
           handleAppendResponse(member, request, response);
         } else {
           handleAppendResponseFailure(member, request, error);
@@ -194,11 +255,33 @@ abstract class AbstractAppender implements AutoCloseable {
       }
     }, raft.getThreadContext());
 
-    if (!request.entries().isEmpty() && hasMoreEntries(member)) {
+    if (request.entryCount() > 0 && hasMoreEntries(member)) {
       appendEntries(member);
     }
   }
 
+  /**
+   * Sends an append request to the given member, coalescing heartbeats with those of other servers if configured.
+   */
+  private CompletableFuture<AppendResponse> append(MemberId memberId, AppendRequest request) {
+    RaftHeartbeatCoalescer heartbeatCoalescer = raft.getHeartbeatCoalescer();
+    if (heartbeatCoalescer != null && request.entryCount() == 0) {
+      return heartbeatCoalescer.append(raft.getName(), memberId, request);
+    }
+    return raft.getProtocol().append(memberId, request);
+  }
+
+  /**
+   * Returns a boolean indicating whether the given response is a failure in response to an append sent prior to
+   * the member's next index being reset.
+   */
+  private boolean isStaleAppendFailure(RaftMemberContext member, long sequence, AppendResponse response) {
+    return response.status() == RaftResponse.Status.OK
+        && !response.succeeded()
+        && response.term() <= raft.getTerm()
+        && member.isStaleAppend(sequence);
+  }
+
   /**
    * Handles an append failure.
    */
@@ -304,8 +387,11 @@ abstract class AbstractAppender implements AutoCloseable {
    * Updates the match index when a response is received.
    */
   protected void updateMatchIndex(RaftMemberContext member, AppendResponse response) {
-    // If the replica returned a valid match index then update the existing match index.
-    member.setMatchIndex(response.lastLogIndex());
+    // If the replica returned a valid match index then update the existing match index. Responses to pipelined
+    // appends may arrive out of order, so the match index is only ever increased.
+    if (response.lastLogIndex() > member.getMatchIndex()) {
+      member.setMatchIndex(response.lastLogIndex());
+    }
   }
 
   /**
@@ -320,13 +406,17 @@ abstract class AbstractAppender implements AutoCloseable {
    * Resets the next index when a response fails.
    */
   protected void resetNextIndex(RaftMemberContext member) {
+    // Entries up to the snapshot installed on the member are never resent since they may no longer be in the
+    // member's log and no snapshot precedes them.
     final RaftLogReader reader = member.getLogReader();
-    if (member.getMatchIndex() != 0) {
-      reader.reset(member.getMatchIndex() + 1);
+    final long index = Math.max(member.getMatchIndex(), member.getSnapshotIndex());
+    if (index != 0) {
+      reader.reset(index + 1);
     } else {
       reader.reset();
     }
-    log.trace("Reset next index for {} to {} + 1", member, member.getMatchIndex());
+    member.resetAppends();
+    log.trace("Reset next index for {} to {} + 1", member, index);
   }
 
   /**
@@ -422,48 +512,62 @@ abstract class AbstractAppender implements AutoCloseable {
   }
 
   /**
-   * Builds an install request for the given member.
+   * Builds an install request for the next chunk of the snapshot being streamed to the given member.
+   * <p>
+   * The snapshot is read sequentially from a reader that remains open for the member until the install completes
+   * or is reset, and the last chunk carries the checksum of the entire snapshot.
    */
   protected InstallRequest buildInstallRequest(RaftMemberContext member) {
     Snapshot snapshot = raft.getSnapshotStore().getSnapshotByIndex(member.getLogReader().getCurrentIndex());
-    if (member.getNextSnapshotIndex() != snapshot.index()) {
-      member.setNextSnapshotIndex(snapshot.index());
-      member.setNextSnapshotOffset(0);
-    }
-
-    InstallRequest request;
-    synchronized (snapshot) {
-      // Open a new snapshot reader.
-      try (SnapshotReader reader = snapshot.openReader()) {
-        // Skip to the next batch of bytes according to the snapshot chunk size and current offset.
-        reader.skip(member.getNextSnapshotOffset() * MAX_BATCH_SIZE);
-        byte[] data = new byte[Math.min(MAX_BATCH_SIZE, reader.remaining())];
-        reader.read(data);
-
-        // Create the install request, indicating whether this is the last chunk of data based on the number
-        // of bytes remaining in the buffer.
-        DefaultRaftMember leader = raft.getLeader();
-        request = InstallRequest.newBuilder()
-            .withTerm(raft.getTerm())
-            .withLeader(leader != null ? leader.memberId() : null)
-            .withId(snapshot.serviceId().id())
-            .withIndex(snapshot.index())
-            .withOffset(member.getNextSnapshotOffset())
-            .withData(data)
-            .withComplete(!reader.hasRemaining())
-            .build();
+    SnapshotReader reader = member.getSnapshotReader();
+    if (reader == null || member.getNextSnapshotIndex() != snapshot.index()) {
+      synchronized (snapshot) {
+        reader = member.openSnapshotReader(snapshot);
       }
     }
 
+    // Read the next chunk of bytes from the snapshot and update the running checksum.
+    long position = member.getSnapshotSize() - reader.remainingBytes();
+    byte[] data = new byte[(int) Math.min(raft.getSnapshotChunkSize(), reader.remainingBytes())];
+    reader.read(data);
+    member.getSnapshotChecksum().update(data);
+
+    // Create the install request, indicating whether this is the last chunk of data based on the number
+    // of bytes remaining in the reader.
+    DefaultRaftMember leader = raft.getLeader();
+    InstallRequest request = InstallRequest.newBuilder()
+        .withTerm(raft.getTerm())
+        .withLeader(leader != null ? leader.memberId() : null)
+        .withId(snapshot.serviceId().id())
+        .withIndex(snapshot.index())
+        .withTimestamp(snapshot.timestamp().unixTimestamp())
+        .withSize(member.getSnapshotSize())
+        .withOffset(member.getNextSnapshotOffset())
+        .withPosition(position)
+        .withData(data)
+        .withComplete(!reader.hasRemaining())
+        .withChecksum(!reader.hasRemaining() ? member.getSnapshotChecksum().getValue() : 0)
+        .build();
+    member.setNextSnapshotOffset(member.getNextSnapshotOffset() + 1);
     return request;
   }
 
+  /**
+   * Sends install requests for snapshot chunks to the member until the member's in-flight chunk limit is reached
+   * or all chunks have been sent.
+   */
+  protected void installSnapshot(RaftMemberContext member) {
+    while (member.canInstall()) {
+      sendInstallRequest(member, buildInstallRequest(member));
+    }
+  }
+
   /**
    * Connects to the member and sends a snapshot request.
    */
   protected void sendInstallRequest(RaftMemberContext member, InstallRequest request) {
     // Start the install to the member.
-    member.startInstall();
+    final long sequence = member.startInstall();
 
     log.trace("Sending {} to {}", request, member.getMember().memberId());
     raft.getProtocol().install(member.getMember().memberId(), request).whenCompleteAsync((response, error) -> {
@@ -471,7 +575,12 @@ abstract class AbstractAppender implements AutoCloseable {
       member.completeInstall();
 
       if (open) {
-        if (error == null) {
+        // If the install was reset after the request was sent, ignore the response.
+        if (member.isStaleInstall(sequence)) {
+          if (error == null) {
+            appendEntries(member);
+          }
+        } else if (error == null) {
           log.trace("Received {} from {}", response, member.getMember().memberId());
           handleInstallResponse(member, request, response);
         } else {
@@ -496,10 +605,9 @@ abstract class AbstractAppender implements AutoCloseable {
    * Handles an install response failure.
    */
   protected void handleInstallResponseFailure(RaftMemberContext member, InstallRequest request, Throwable error) {
-    // Reset the member's snapshot index and offset to resend the snapshot from the start
+    // Reset the member's snapshot stream to resend the snapshot from the start
     // once a connection to the member is re-established.
-    member.setNextSnapshotIndex(0);
-    member.setNextSnapshotOffset(0);
+    member.resetInstall();
 
     // Log the failed attempt to contact the member.
     failAttempt(member, request, error);
@@ -524,16 +632,13 @@ abstract class AbstractAppender implements AutoCloseable {
     // Reset the member failure count and update the member's status if necessary.
     succeedAttempt(member);
 
-    // If the install request was completed successfully, set the member's snapshotIndex and reset
-    // the next snapshot index/offset.
-    if (request.complete()) {
-      member.setNextSnapshotIndex(0);
-      member.setNextSnapshotOffset(0);
+    // If all chunks of the snapshot have been sent and acknowledged, set the member's snapshotIndex and
+    // reset the snapshot stream. Replication resumes with the entry following the snapshot.
+    if (member.isSnapshotSent() && member.getInflightInstalls() == 0) {
+      member.resetInstall();
       member.setSnapshotIndex(request.snapshotIndex());
-    }
-    // If more install requests remain, increment the member's snapshot offset.
-    else {
-      member.setNextSnapshotOffset(request.chunkOffset() + 1);
+      member.getLogReader().reset(request.snapshotIndex() + 1);
+      member.resetAppends();
     }
 
     // Recursively append entries to the member.
@@ -546,8 +651,7 @@ abstract class AbstractAppender implements AutoCloseable {
   @SuppressWarnings("unused")
   protected void handleInstallResponseError(RaftMemberContext member, InstallRequest request, InstallResponse response) {
     log.warn("Failed to install {}", member.getMember().memberId());
-    member.setNextSnapshotIndex(0);
-    member.setNextSnapshotOffset(0);
+    member.resetInstall();
   }
 
   @Override
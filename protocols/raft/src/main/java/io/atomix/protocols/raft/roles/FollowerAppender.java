@@ -57,9 +57,7 @@ final class FollowerAppender extends AbstractAppender {
     // is less than the nextIndex, send a snapshot request.
     Snapshot snapshot = raft.getSnapshotStore().getSnapshotByIndex(member.getLogReader().getCurrentIndex());
     if (snapshot != null && member.getSnapshotIndex() < snapshot.index()) {
-      if (member.canInstall()) {
-        sendInstallRequest(member, buildInstallRequest(member));
-      }
+      installSnapshot(member);
     }
     // If no AppendRequest is already being sent, send an AppendRequest.
     else if (member.canAppend() && hasMoreEntries(member)) {
@@ -67,4 +65,12 @@ final class FollowerAppender extends AbstractAppender {
     }
   }
 
+  @Override
+  public void close() {
+    super.close();
+    for (RaftMemberContext member : raft.getCluster().getAssignedPassiveMemberStates()) {
+      member.resetInstall();
+    }
+  }
+
 }
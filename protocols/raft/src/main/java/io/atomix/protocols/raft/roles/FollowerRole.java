@@ -91,6 +91,14 @@ public final class FollowerRole extends ActiveRole {
     heartbeatTimer = raft.getThreadContext().schedule(delay, () -> {
       heartbeatTimer = null;
       if (isOpen()) {
+        // If the leader may have quiesced the group, do not start an election while the leader's node is alive.
+        DefaultRaftMember leader = raft.getLeader();
+        if (!raft.getQuiescenceTimeout().isZero() && leader != null && raft.isMemberActive(leader.memberId())) {
+          log.trace("Heartbeat timed out in {} but leader {} is alive", delay, leader.memberId());
+          resetHeartbeatTimeout();
+          return;
+        }
+
         raft.setLeader(null);
         log.debug("Heartbeat timed out in {}", delay);
         sendPollRequests();
@@ -15,6 +15,7 @@
  */
 package io.atomix.protocols.raft.roles;
 
+import io.atomix.protocols.raft.AppendBatchPolicy;
 import io.atomix.protocols.raft.RaftException;
 import io.atomix.protocols.raft.RaftServer;
 import io.atomix.protocols.raft.cluster.RaftMember;
@@ -27,11 +28,13 @@ import io.atomix.protocols.raft.protocol.InstallRequest;
 import io.atomix.protocols.raft.protocol.InstallResponse;
 import io.atomix.protocols.raft.protocol.RaftRequest;
 import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.utils.concurrent.Scheduled;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -52,6 +55,8 @@ final class LeaderAppender extends AbstractAppender {
   private CompletableFuture<Long> heartbeatFuture;
   private CompletableFuture<Long> nextHeartbeatFuture;
   private final Map<Long, CompletableFuture<Long>> appendFutures = new HashMap<>();
+  private int lingerEntries;
+  private Scheduled lingerTimer;
 
   LeaderAppender(LeaderRole leader) {
     super(leader.raft);
@@ -149,8 +154,12 @@ final class LeaderAppender extends AbstractAppender {
       return CompletableFuture.completedFuture(index);
     }
 
+    // If the index has not yet been flushed to the leader's log, the leader cannot vote for it, so
+    // commitment must wait for the index to be flushed even if the leader is the only voting member.
+    final boolean durable = raft.getLogWriter().getDurableIndex() >= index;
+
     // If there are no other stateful servers in the cluster, immediately commit the index.
-    if (raft.getCluster().getActiveMemberStates().isEmpty() && raft.getCluster().getPassiveMemberStates().isEmpty()) {
+    if (durable && raft.getCluster().getActiveMemberStates().isEmpty() && raft.getCluster().getPassiveMemberStates().isEmpty()) {
       long previousCommitIndex = raft.getCommitIndex();
       raft.setCommitIndex(index);
       completeCommits(previousCommitIndex, index);
@@ -158,7 +167,7 @@ final class LeaderAppender extends AbstractAppender {
     }
     // If there are no other active members in the cluster, update the commit index and complete the commit.
     // The updated commit index will be sent to passive/reserve members on heartbeats.
-    else if (raft.getCluster().getActiveMemberStates().isEmpty()) {
+    else if (durable && raft.getCluster().getActiveMemberStates().isEmpty()) {
       long previousCommitIndex = raft.getCommitIndex();
       raft.setCommitIndex(index);
       completeCommits(previousCommitIndex, index);
@@ -167,13 +176,68 @@ final class LeaderAppender extends AbstractAppender {
 
     // Only send entry-specific AppendRequests to active members of the cluster.
     return appendFutures.computeIfAbsent(index, i -> {
-      for (RaftMemberContext member : raft.getCluster().getActiveMemberStates()) {
-        appendEntries(member);
+      replicateEntries();
+      if (raft.getLogWriter().getDurableIndex() < i) {
+        awaitDurable(i);
       }
       return new CompletableFuture<>();
     });
   }
 
+  /**
+   * Replicates appended entries to active members of the cluster according to the batch policy.
+   * <p>
+   * If the batch policy has a linger time, entries appended within the linger time are coalesced and replicated
+   * to each member together once the linger time expires or the maximum number of entries in a batch is reached.
+   */
+  private void replicateEntries() {
+    AppendBatchPolicy batchPolicy = raft.getBatchPolicy();
+    if (batchPolicy.lingerTime().isZero() || ++lingerEntries >= batchPolicy.maxBatchEntries()) {
+      flushEntries();
+    } else if (lingerTimer == null) {
+      lingerTimer = raft.getThreadContext().schedule(batchPolicy.lingerTime(), () -> {
+        lingerTimer = null;
+        flushEntries();
+      });
+    }
+  }
+
+  /**
+   * Sends pending entries to all active members of the cluster.
+   */
+  private void flushEntries() {
+    lingerEntries = 0;
+    if (lingerTimer != null) {
+      lingerTimer.cancel();
+      lingerTimer = null;
+    }
+    for (RaftMemberContext member : raft.getCluster().getActiveMemberStates()) {
+      appendEntries(member);
+    }
+  }
+
+  /**
+   * Waits for the given index to be flushed to the leader's log and then checks whether any futures can be completed.
+   * <p>
+   * When group commit or flush-on-commit is enabled, entries are flushed on the journal's flusher thread while
+   * they're replicated to followers, and the leader's own vote for an entry is only counted once the entry is
+   * durable. The entry may be committed by a quorum of followers before then.
+   *
+   * @param index the index for which to wait
+   */
+  private void awaitDurable(long index) {
+    raft.getLogWriter().awaitDurable(index).whenCompleteAsync((durableIndex, error) -> {
+      if (!open) {
+        return;
+      }
+      if (error == null) {
+        commitEntries();
+      } else {
+        log.warn("Failed to flush index {}", index, error);
+      }
+    }, raft.getThreadContext());
+  }
+
   @Override
   protected void appendEntries(RaftMemberContext member) {
     // Prevent recursive, asynchronous appends from being executed if the appender has been closed.
@@ -210,9 +274,7 @@ final class LeaderAppender extends AbstractAppender {
     else if (member.getMember().getType() == RaftMember.Type.ACTIVE) {
       Snapshot snapshot = raft.getSnapshotStore().getSnapshotByIndex(member.getLogReader().getCurrentIndex());
       if (snapshot != null && member.getSnapshotIndex() < snapshot.index()) {
-        if (member.canInstall()) {
-          sendInstallRequest(member, buildInstallRequest(member));
-        }
+        installSnapshot(member);
       } else if (member.canAppend()) {
         sendAppendRequest(member, buildAppendRequest(member, -1));
       }
@@ -246,6 +308,42 @@ final class LeaderAppender extends AbstractAppender {
     return System.currentTimeMillis();
   }
 
+  /**
+   * Returns a boolean indicating whether the leader holds a lease on its leadership.
+   * <p>
+   * Followers do not grant votes to other candidates while they know of a leader, and they wait at least an election
+   * timeout after hearing from the leader before starting an election. So, once a quorum of the cluster has
+   * acknowledged a request, no other leader can be elected until an election timeout after the time that request
+   * was sent. The lease is measured against the monotonic send time of the most recent request acknowledged by a
+   * quorum, and is shortened by the configured maximum clock drift to account for clocks that run at different rates.
+   *
+   * @return Indicates whether the leader holds a lease on its leadership.
+   */
+  public boolean hasLease() {
+    raft.checkThread();
+
+    // The leader's own acknowledgement is implicit in the quorum index.
+    int quorumIndex = getQuorumIndex();
+    if (quorumIndex < 0) {
+      return true;
+    }
+
+    // Nano times may only be compared by their difference, so members that have not acknowledged a request
+    // in this term are excluded rather than sorted.
+    List<Long> acknowledgedTimes = raft.getCluster().getActiveMemberStates().stream()
+        .map(RaftMemberContext::getAcknowledgedTime)
+        .filter(time -> time != 0)
+        .sorted((t1, t2) -> Long.signum(t2 - t1))
+        .collect(Collectors.toList());
+    if (quorumIndex >= acknowledgedTimes.size()) {
+      return false;
+    }
+
+    long leaseStart = acknowledgedTimes.get(quorumIndex);
+    long leaseDuration = raft.getElectionTimeout().toNanos() - raft.getMaxClockDrift().toNanos();
+    return System.nanoTime() - leaseStart < leaseDuration;
+  }
+
   /**
    * Sets a commit time or fails the commit if a quorum of successful responses cannot be achieved.
    */
@@ -311,14 +409,26 @@ final class LeaderAppender extends AbstractAppender {
     // ensure all commit futures are completed and cleared.
     if (members.isEmpty()) {
       long previousCommitIndex = raft.getCommitIndex();
-      long commitIndex = raft.getLogWriter().getLastIndex();
-      raft.setCommitIndex(commitIndex);
-      completeCommits(previousCommitIndex, commitIndex);
+      long commitIndex = raft.getLogWriter().getDurableIndex();
+      if (commitIndex > previousCommitIndex) {
+        raft.setCommitIndex(commitIndex);
+        completeCommits(previousCommitIndex, commitIndex);
+      }
       return;
     }
 
     // Calculate the current commit index as the median matchIndex.
-    long commitIndex = members.get(getQuorumIndex()).getMatchIndex();
+    int quorumIndex = getQuorumIndex();
+    long commitIndex = members.get(quorumIndex).getMatchIndex();
+
+    // The leader's own vote is implicit in the quorum index. If the leader has not yet flushed the
+    // commit index, the leader's durable index takes the place of the next highest matchIndex.
+    long durableIndex = raft.getLogWriter().getDurableIndex();
+    if (durableIndex < commitIndex) {
+      commitIndex = quorumIndex + 1 < members.size()
+          ? Math.max(durableIndex, members.get(quorumIndex + 1).getMatchIndex())
+          : durableIndex;
+    }
 
     // If the commit index has increased then update the commit index. Note that in order to ensure
     // the leader completeness property holds, we verify that the commit index is greater than or equal to
@@ -396,7 +506,7 @@ final class LeaderAppender extends AbstractAppender {
       updateMatchIndex(member, response);
 
       // If entries were committed to the replica then check commit indexes.
-      if (!request.entries().isEmpty()) {
+      if (request.entryCount() > 0) {
         commitEntries();
       }
 
@@ -502,4 +612,26 @@ final class LeaderAppender extends AbstractAppender {
     super.handleInstallResponseFailure(member, request, error);
   }
 
+  @Override
+  public void close() {
+    super.close();
+    if (lingerTimer != null) {
+      lingerTimer.cancel();
+      lingerTimer = null;
+    }
+    for (RaftMemberContext member : raft.getCluster().getRemoteMemberStates()) {
+      member.resetInstall();
+    }
+
+    // Fail heartbeats awaiting confirmation of leadership since the leader is no longer able to confirm it.
+    if (heartbeatFuture != null) {
+      heartbeatFuture.completeExceptionally(new RaftException.ProtocolException("Leader stepped down"));
+      heartbeatFuture = null;
+    }
+    if (nextHeartbeatFuture != null) {
+      nextHeartbeatFuture.completeExceptionally(new RaftException.ProtocolException("Leader stepped down"));
+      nextHeartbeatFuture = null;
+    }
+  }
+
 }
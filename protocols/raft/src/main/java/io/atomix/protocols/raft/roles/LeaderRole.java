@@ -45,6 +45,8 @@ import io.atomix.protocols.raft.protocol.PollResponse;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
 import io.atomix.protocols.raft.protocol.ReconfigureResponse;
 import io.atomix.protocols.raft.protocol.VoteRequest;
@@ -68,8 +70,10 @@ import io.atomix.utils.concurrent.Scheduled;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Collection;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -77,8 +81,12 @@ import java.util.stream.Collectors;
  */
 public final class LeaderRole extends ActiveRole {
   private final LeaderAppender appender;
+  private final Set<CompletableFuture<Long>> pendingReads = ConcurrentHashMap.newKeySet();
   private Scheduled appendTimer;
   private long configuring;
+  private long activityIndex;
+  private long activityTime;
+  private boolean quiescent;
 
   public LeaderRole(RaftContext context) {
     super(context);
@@ -160,7 +168,17 @@ public final class LeaderRole extends ActiveRole {
     // in the cluster. This timer acts as a heartbeat to ensure this node remains
     // the leader.
     log.trace("Starting append timer");
-    appendTimer = raft.getThreadContext().schedule(Duration.ZERO, raft.getHeartbeatInterval(), this::appendMembers);
+    activityIndex = raft.getLogWriter().getLastIndex();
+    activityTime = System.currentTimeMillis();
+
+    // If heartbeats are coalesced, align the timer to a multiple of the heartbeat interval so that the heartbeats
+    // of all leaders sharing the coalescer are sent within the same coalescing window.
+    Duration delay = Duration.ZERO;
+    if (raft.getHeartbeatCoalescer() != null) {
+      long interval = raft.getHeartbeatInterval().toMillis();
+      delay = Duration.ofMillis(interval - System.currentTimeMillis() % interval);
+    }
+    appendTimer = raft.getThreadContext().schedule(delay, raft.getHeartbeatInterval(), this::appendMembers);
   }
 
   /**
@@ -169,10 +187,59 @@ public final class LeaderRole extends ActiveRole {
   private void appendMembers() {
     raft.checkThread();
     if (isOpen()) {
+      if (canQuiesce()) {
+        if (!quiescent) {
+          log.debug("Quiescing after {} idle", raft.getQuiescenceTimeout());
+          quiescent = true;
+        }
+        return;
+      }
+      if (quiescent) {
+        log.debug("Resuming heartbeats");
+        quiescent = false;
+      }
       appender.appendEntries();
     }
   }
 
+  /**
+   * Returns a boolean indicating whether the leader may stop sending heartbeats.
+   * <p>
+   * The leader quiesces once no entries have been appended for the quiescence timeout, the last entry is
+   * committed, and every member is alive and has acknowledged the last entry. Since the timeout is greater than
+   * the heartbeat interval, at least one heartbeat carrying the current commit index was acknowledged by each
+   * member, whose failure count would otherwise be non-zero. Heartbeats resume as soon as a member is suspected
+   * to have failed or a new entry is appended.
+   */
+  private boolean canQuiesce() {
+    long quiescenceTimeout = raft.getQuiescenceTimeout().toMillis();
+    if (quiescenceTimeout == 0) {
+      return false;
+    }
+
+    long lastIndex = raft.getLogWriter().getLastIndex();
+    long currentTime = System.currentTimeMillis();
+    if (lastIndex != activityIndex) {
+      activityIndex = lastIndex;
+      activityTime = currentTime;
+      return false;
+    }
+
+    if (currentTime - activityTime < quiescenceTimeout || raft.getCommitIndex() < lastIndex) {
+      return false;
+    }
+
+    for (RaftMemberContext member : raft.getCluster().getRemoteMemberStates()) {
+      if (member.getFailureCount() > 0 || !raft.isMemberActive(member.getMember().memberId())) {
+        return false;
+      }
+      if (member.getMember().getType() == RaftMember.Type.ACTIVE && member.getMatchIndex() < lastIndex) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Returns a boolean value indicating whether a configuration is currently being committed.
    *
@@ -646,27 +713,88 @@ public final class LeaderRole extends ActiveRole {
   /**
    * Executes a bounded linearizable query.
    * <p>
-   * Bounded linearizable queries succeed as long as this server remains the leader. This is possible
-   * since the leader will step down in the event it fails to contact a majority of the cluster.
+   * If the leader holds a lease on its leadership, the query is applied once entries up to the commit index have
+   * been applied, without contacting the cluster. Otherwise, the query is executed as a linearizable query.
    */
   private CompletableFuture<QueryResponse> queryBoundedLinearizable(Indexed<QueryEntry> entry) {
-    return applyQuery(entry);
+    if (!appender.hasLease()) {
+      raft.recordLeaseRead(false);
+      return queryLinearizable(entry);
+    }
+
+    raft.recordLeaseRead(true);
+    return awaitApplied(Math.max(raft.getCommitIndex(), appender.getIndex()))
+        .thenCompose(lastApplied -> applyQuery(entry))
+        .exceptionally(error -> QueryResponse.newBuilder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
+            .build());
   }
 
   /**
    * Executes a linearizable query.
    * <p>
-   * Linearizable queries are first sequenced with commands and then applied to the state machine. Once
-   * applied, we verify the node's leadership prior to responding successfully to the query.
+   * Linearizable queries are executed using the ReadIndex protocol: the commit index is recorded as the query's
+   * read index when the query arrives, leadership is confirmed by a heartbeat to a majority of the cluster, and
+   * the query is applied to the state machine once entries up to the read index have been applied.
    */
   private CompletableFuture<QueryResponse> queryLinearizable(Indexed<QueryEntry> entry) {
-    return applyQuery(entry)
-        .thenComposeAsync(response -> appender.appendEntries()
-            .thenApply(index -> response)
-            .exceptionally(error -> QueryResponse.newBuilder()
-                .withStatus(RaftResponse.Status.ERROR)
-                .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
-                .build()), raft.getThreadContext());
+    return readIndex()
+        .thenCompose(this::awaitApplied)
+        .thenCompose(lastApplied -> applyQuery(entry))
+        .exceptionally(error -> QueryResponse.newBuilder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
+            .build());
+  }
+
+  /**
+   * Returns a read index for a linearizable read.
+   * <p>
+   * The read index is the commit index at the time of the call, or the index of the leader's initial entry if
+   * it has not yet been committed, since entries from prior terms are not known to be committed until then. The
+   * returned future is completed once leadership has been confirmed by a heartbeat started after the call.
+   * Heartbeats are shared by all reads that arrive while a heartbeat is in progress, so leadership is confirmed
+   * once per heartbeat round rather than once per read.
+   *
+   * @return A future to be completed with the read index once leadership has been confirmed.
+   */
+  CompletableFuture<Long> readIndex() {
+    final long readIndex = Math.max(raft.getCommitIndex(), appender.getIndex());
+    return appender.appendEntries().thenApply(index -> readIndex);
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given read index have been applied.
+   * <p>
+   * The future is failed if the leader steps down before the read index is applied.
+   */
+  private CompletableFuture<Long> awaitApplied(long readIndex) {
+    if (!isOpen()) {
+      return Futures.exceptionalFuture(new RaftException.ProtocolException("Leader stepped down"));
+    }
+    CompletableFuture<Long> future = raft.getStateMachine().applied(readIndex);
+    pendingReads.add(future);
+    future.whenComplete((lastApplied, error) -> pendingReads.remove(future));
+    return future;
+  }
+
+  @Override
+  public CompletableFuture<ReadIndexResponse> onReadIndex(ReadIndexRequest request) {
+    raft.checkThread();
+    logRequest(request);
+
+    return readIndex()
+        .thenApply(readIndex -> ReadIndexResponse.newBuilder()
+            .withStatus(RaftResponse.Status.OK)
+            .withTerm(raft.getTerm())
+            .withIndex(readIndex)
+            .build())
+        .exceptionally(error -> ReadIndexResponse.newBuilder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.QUERY_FAILURE, error.getMessage())
+            .build())
+        .thenApply(this::logResponse);
   }
 
   @Override
@@ -887,6 +1015,16 @@ public final class LeaderRole extends ActiveRole {
     }
   }
 
+  /**
+   * Fails pending reads awaiting the application of their read index.
+   */
+  private void failPendingReads() {
+    for (CompletableFuture<Long> future : pendingReads) {
+      future.completeExceptionally(new RaftException.ProtocolException("Leader stepped down"));
+    }
+    pendingReads.clear();
+  }
+
   /**
    * Fails pending commands.
    */
@@ -908,6 +1046,7 @@ public final class LeaderRole extends ActiveRole {
         .thenRun(appender::close)
         .thenRun(this::cancelAppendTimer)
         .thenRun(this::stepDown)
+        .thenRun(this::failPendingReads)
         .thenRun(this::failPendingCommands);
   }
 
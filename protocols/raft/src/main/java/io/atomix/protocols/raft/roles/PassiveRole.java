@@ -29,6 +29,7 @@ import io.atomix.protocols.raft.protocol.OperationResponse;
 import io.atomix.protocols.raft.protocol.QueryRequest;
 import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
 import io.atomix.protocols.raft.service.ServiceId;
 import io.atomix.protocols.raft.session.impl.RaftSessionContext;
 import io.atomix.protocols.raft.storage.log.RaftLogReader;
@@ -50,6 +51,8 @@ import java.util.concurrent.CompletionException;
  */
 public class PassiveRole extends ReserveRole {
   private final Map<Long, PendingSnapshot> pendingSnapshots = new HashMap<>();
+  private CompletableFuture<Long> readIndexFuture;
+  private CompletableFuture<Long> nextReadIndexFuture;
 
   public PassiveRole(RaftContext context) {
     super(context);
@@ -168,10 +171,14 @@ public class PassiveRole extends ReserveRole {
         }
       }
     } else {
-      // If the previous log index is set and the last entry is null, fail the append.
-      if (request.prevLogIndex() > 0) {
-        log.debug("Rejected {}: Previous index ({}) is greater than the local log's last index (0)", request, request.prevLogIndex());
-        return failAppend(0, future);
+      // If the log is empty, its last index precedes its first index, e.g. following the installation of a
+      // snapshot. Entries can only be appended following the last index, so if the previous log index differs
+      // from the last index, fail the append. Entries preceding the last index are covered by the snapshot and
+      // must not reset the log.
+      long lastIndex = writer.getLastIndex();
+      if (request.prevLogIndex() != lastIndex) {
+        log.debug("Rejected {}: Previous index ({}) does not match the local log's last index ({})", request, request.prevLogIndex(), lastIndex);
+        return failAppend(lastIndex, future);
       }
     }
     return true;
@@ -181,8 +188,15 @@ public class PassiveRole extends ReserveRole {
    * Appends entries from the given AppendRequest.
    */
   protected void appendEntries(AppendRequest request, CompletableFuture<AppendResponse> future) {
+    // If the request contains serialized entries, verify the entry checksums before writing them to the log.
+    if (request.rawEntries() != null && !request.rawEntries().verify()) {
+      log.warn("Rejected {}: Entries failed checksum verification", request);
+      failAppend(request.prevLogIndex(), future);
+      return;
+    }
+
     // Compute the last entry index from the previous log index and request entry count.
-    final long lastEntryIndex = request.prevLogIndex() + request.entries().size();
+    final long lastEntryIndex = request.prevLogIndex() + request.entryCount();
 
     // Ensure the commitIndex is not increased beyond the index of the last entry in the request.
     final long commitIndex = Math.max(raft.getCommitIndex(), Math.min(request.commitIndex(), lastEntryIndex));
@@ -190,7 +204,7 @@ public class PassiveRole extends ReserveRole {
     // Track the last log index while entries are appended.
     long lastLogIndex = request.prevLogIndex();
 
-    if (!request.entries().isEmpty()) {
+    if (request.entryCount() > 0) {
       final RaftLogWriter writer = raft.getLogWriter();
       final RaftLogReader reader = raft.getLogReader();
 
@@ -202,62 +216,32 @@ public class PassiveRole extends ReserveRole {
       }
 
       // Iterate through entries and append them.
-      for (RaftLogEntry entry : request.entries()) {
+      for (int i = 0; i < request.entryCount(); i++) {
         long index = ++lastLogIndex;
 
-        // Get the last entry written to the log by the writer.
-        Indexed<RaftLogEntry> lastEntry = writer.getLastEntry();
-
-        if (lastEntry != null) {
-          // If the last written entry index is greater than the next append entry index,
-          // we need to validate that the entry that's already in the log matches this entry.
-          if (lastEntry.index() > index) {
-            // Reset the reader to the current entry index.
-            reader.reset(index);
-
-            // If the reader does not have any next entry, that indicates an inconsistency between the reader and writer.
-            if (!reader.hasNext()) {
-              throw new IllegalStateException("Log reader inconsistent with log writer");
-            }
-
-            // Read the existing entry from the log.
-            Indexed<RaftLogEntry> existingEntry = reader.next();
-
-            // If the existing entry term doesn't match the leader's term for the same entry, truncate
-            // the log and append the leader's entry.
-            if (existingEntry.entry().term() != entry.term()) {
-              writer.truncate(index - 1);
-              Indexed<RaftLogEntry> indexed = writer.append(entry);
-              log.trace("Appended {}", indexed);
-            }
-          }
-          // If the last written entry is equal to the append entry index, we don't need
-          // to read the entry from disk and can just compare the last entry in the writer.
-          else if (lastEntry.index() == index) {
-            // If the last entry term doesn't match the leader's term for the same entry, truncate
-            // the log and append the leader's entry.
-            if (lastEntry.entry().term() != entry.term()) {
-              writer.truncate(index - 1);
-              Indexed<RaftLogEntry> indexed = writer.append(entry);
-              log.trace("Appended {}", indexed);
-            }
-          }
-          // Otherwise, this entry is being appended at the end of the log.
-          else {
-            // If the last entry index isn't the previous index, throw an exception because something crazy happened!
-            if (lastEntry.index() != index - 1) {
-              throw new IllegalStateException("Log writer inconsistent with next append entry index " + index);
-            }
-
-            // Append the entry and log a message.
-            Indexed<RaftLogEntry> indexed = writer.append(entry);
-            log.trace("Appended {}", indexed);
+        // Get the index of the last entry written to the log by the writer. Only the index is used to avoid
+        // decoding entries that were appended in their serialized form.
+        long lastIndex = writer.getLastIndex();
+
+        // If the last written entry index is greater than or equal to the next append entry index,
+        // we need to validate that the entry that's already in the log matches this entry.
+        if (lastIndex >= index) {
+          // If the existing entry term doesn't match the leader's term for the same entry, truncate
+          // the log and append the leader's entry.
+          if (getEntryTerm(index, writer, reader) != request.entryTerm(i)) {
+            writer.truncate(index - 1);
+            appendEntry(request, i, writer);
           }
         }
-        // Otherwise, if the last entry is null just append the entry and log a message.
+        // Otherwise, this entry is being appended at the end of the log.
         else {
-          Indexed<RaftLogEntry> indexed = writer.append(entry);
-          log.trace("Appended {}", indexed);
+          // If the last entry index isn't the previous index, throw an exception because something crazy happened!
+          if (lastIndex != index - 1) {
+            throw new IllegalStateException("Log writer inconsistent with next append entry index " + index);
+          }
+
+          // Append the entry and log a message.
+          appendEntry(request, i, writer);
         }
 
         // If the last log index meets the commitIndex, break the append loop to avoid appending uncommitted entries.
@@ -282,6 +266,42 @@ public class PassiveRole extends ReserveRole {
     succeedAppend(lastLogIndex, future);
   }
 
+  /**
+   * Returns the term of the entry at the given index in the local log.
+   */
+  private long getEntryTerm(long index, RaftLogWriter writer, RaftLogReader reader) {
+    // If the entry is the last entry written to the log, compare the last entry in the writer
+    // rather than reading the entry from disk.
+    if (writer.getLastIndex() == index) {
+      Indexed<RaftLogEntry> lastEntry = writer.getLastEntry();
+      if (lastEntry != null) {
+        return lastEntry.entry().term();
+      }
+    }
+
+    // Reset the reader to the entry index.
+    reader.reset(index);
+
+    // If the reader does not have any next entry, that indicates an inconsistency between the reader and writer.
+    if (!reader.hasNext()) {
+      throw new IllegalStateException("Log reader inconsistent with log writer");
+    }
+    return reader.next().entry().term();
+  }
+
+  /**
+   * Appends the given request entry to the log.
+   */
+  private void appendEntry(AppendRequest request, int entry, RaftLogWriter writer) {
+    if (request.rawEntries() != null) {
+      long index = writer.append(request.rawEntries(), entry);
+      log.trace("Appended serialized entry {}", index);
+    } else {
+      Indexed<RaftLogEntry> indexed = writer.append(request.entries().get(entry));
+      log.trace("Appended {}", indexed);
+    }
+  }
+
   /**
    * Returns a failed append response.
    *
@@ -342,7 +362,8 @@ public class PassiveRole extends ReserveRole {
       return queryForward(request);
     }
 
-    // If the session's consistency level is SEQUENTIAL, handle the request here, otherwise forward it.
+    // If the session's consistency level is SEQUENTIAL, handle the request here. If the session's consistency level
+    // is LINEARIZABLE, handle the request here using a read index provided by the leader, otherwise forward it.
     if (session.readConsistency() == ReadConsistency.SEQUENTIAL) {
 
       // If the commit index is not in the log then we've fallen too far behind the leader to perform a local query.
@@ -362,11 +383,92 @@ public class PassiveRole extends ReserveRole {
               request.operation()), 0);
 
       return applyQuery(entry).thenApply(this::logResponse);
+    } else if (session.readConsistency() == ReadConsistency.LINEARIZABLE && raft.getLeader() != null) {
+      final Indexed<QueryEntry> entry = new Indexed<>(
+          request.index(),
+          new QueryEntry(
+              raft.getTerm(),
+              System.currentTimeMillis(),
+              request.session(),
+              request.sequenceNumber(),
+              request.operation()), 0);
+
+      return queryReadIndex(request, entry).thenApply(this::logResponse);
     } else {
       return queryForward(request);
     }
   }
 
+  /**
+   * Executes a linearizable query locally once entries up to the leader's read index have been applied.
+   * <p>
+   * If a read index cannot be obtained from the leader, the query is forwarded to the leader.
+   */
+  private CompletableFuture<QueryResponse> queryReadIndex(QueryRequest request, Indexed<QueryEntry> entry) {
+    return readIndex()
+        .handle((readIndex, error) -> {
+          if (error == null) {
+            return raft.getStateMachine().applied(readIndex)
+                .thenCompose(lastApplied -> applyQuery(entry))
+                .exceptionally(applyError -> QueryResponse.newBuilder()
+                    .withStatus(RaftResponse.Status.ERROR)
+                    .withError(RaftError.Type.QUERY_FAILURE, applyError.getMessage())
+                    .build());
+          }
+          log.trace("Failed to obtain read index, forwarding query to leader");
+          return queryForward(request);
+        })
+        .thenCompose(future -> future);
+  }
+
+  /**
+   * Returns a future to be completed with a read index obtained from the leader.
+   * <p>
+   * Only one read index request is outstanding at any given time. Reads that arrive while a request is in flight
+   * share the next request, since the leader may have recorded the commit index of the in-flight request before
+   * those reads arrived. This batches many reads into each request to the leader.
+   */
+  private CompletableFuture<Long> readIndex() {
+    if (readIndexFuture == null) {
+      CompletableFuture<Long> future = new CompletableFuture<>();
+      readIndexFuture = future;
+      sendReadIndexRequest(future);
+      return future;
+    } else if (nextReadIndexFuture == null) {
+      nextReadIndexFuture = new CompletableFuture<>();
+    }
+    return nextReadIndexFuture;
+  }
+
+  /**
+   * Sends a read index request to the leader and completes the given future with the read index.
+   */
+  private void sendReadIndexRequest(CompletableFuture<Long> future) {
+    ReadIndexRequest request = ReadIndexRequest.newBuilder()
+        .withMember(raft.getCluster().getMember().memberId())
+        .build();
+
+    log.trace("Sending {}", request);
+    forward(request, raft.getProtocol()::readIndex).whenComplete((response, error) -> {
+      // Start the next read index request before completing reads to ensure reads completed by this
+      // response do not join a request sent before they arrived.
+      readIndexFuture = nextReadIndexFuture;
+      nextReadIndexFuture = null;
+      if (readIndexFuture != null) {
+        sendReadIndexRequest(readIndexFuture);
+      }
+
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else if (response.status() == RaftResponse.Status.OK) {
+        log.trace("Received {}", response);
+        future.complete(response.index());
+      } else {
+        future.completeExceptionally(response.error().createException());
+      }
+    });
+  }
+
   /**
    * Forwards the query to the leader.
    */
@@ -462,18 +564,21 @@ public class PassiveRole extends ReserveRole {
     // where snapshots must be sent since entries can still legitimately exist prior to the snapshot,
     // and so snapshots aren't simply sent at the beginning of the follower's log, but rather the
     // leader dictates when a snapshot needs to be sent.
-    if (pendingSnapshot != null && request.snapshotIndex() != pendingSnapshot.snapshot().index()) {
+    if (pendingSnapshot != null && (request.snapshotIndex() != pendingSnapshot.snapshot().index()
+        || request.snapshotSize() != pendingSnapshot.size())) {
       pendingSnapshot.rollback();
+      pendingSnapshots.remove(request.snapshotId());
       pendingSnapshot = null;
     }
 
-    // If there is no pending snapshot, create a new snapshot.
+    // If there is no pending snapshot, create a new snapshot sized to hold the complete snapshot. Chunks
+    // may arrive out of order, so the snapshot can be created by any chunk.
     if (pendingSnapshot == null) {
-      // For new snapshots, the initial snapshot offset must be 0.
-      if (request.chunkOffset() > 0) {
+      // If the snapshot has already been installed, this is a duplicate chunk.
+      Snapshot currentSnapshot = raft.getSnapshotStore().getSnapshotById(ServiceId.from(request.snapshotId()));
+      if (currentSnapshot != null && currentSnapshot.index() >= request.snapshotIndex()) {
         return CompletableFuture.completedFuture(logResponse(InstallResponse.newBuilder()
-            .withStatus(RaftResponse.Status.ERROR)
-            .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk offset is invalid")
+            .withStatus(RaftResponse.Status.OK)
             .build()));
       }
 
@@ -481,29 +586,43 @@ public class PassiveRole extends ReserveRole {
               ServiceId.from(request.snapshotId()),
               request.snapshotIndex(),
               WallClockTimestamp.from(request.snapshotTimestamp()));
-      pendingSnapshot = new PendingSnapshot(snapshot);
+      pendingSnapshot = new PendingSnapshot(snapshot, request.snapshotSize());
+      pendingSnapshots.put(request.snapshotId(), pendingSnapshot);
     }
 
-    // If the request offset is greater than the next expected snapshot offset, fail the request.
-    if (request.chunkOffset() > pendingSnapshot.nextOffset()) {
+    // If the chunk does not fit in the snapshot, fail the request.
+    if (request.chunkPosition() + request.data().length > pendingSnapshot.size()) {
       return CompletableFuture.completedFuture(logResponse(InstallResponse.newBuilder()
           .withStatus(RaftResponse.Status.ERROR)
-          .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk offset does not match the next chunk offset")
+          .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Request chunk position is invalid")
           .build()));
     }
 
-    // Write the data to the snapshot.
-    try (SnapshotWriter writer = pendingSnapshot.snapshot().openWriter()) {
-      writer.write(request.data());
+    // Write the data to the snapshot at the chunk's position.
+    pendingSnapshot.write(request.chunkOffset(), request.chunkPosition(), request.data());
+    if (request.complete()) {
+      pendingSnapshot.complete(request.checksum());
     }
 
-    // If the snapshot is complete, store the snapshot and reset state, otherwise update the next snapshot offset.
-    if (request.complete()) {
-      pendingSnapshot.commit();
+    // Once all chunks have been received, verify the snapshot checksum and store the snapshot.
+    if (pendingSnapshot.isComplete()) {
       pendingSnapshots.remove(request.snapshotId());
-    } else {
-      pendingSnapshot.incrementOffset();
-      pendingSnapshots.put(request.snapshotId(), pendingSnapshot);
+      if (!pendingSnapshot.verify()) {
+        pendingSnapshot.rollback();
+        return CompletableFuture.completedFuture(logResponse(InstallResponse.newBuilder()
+            .withStatus(RaftResponse.Status.ERROR)
+            .withError(RaftError.Type.ILLEGAL_MEMBER_STATE, "Snapshot checksum does not match")
+            .build()));
+      }
+      pendingSnapshot.commit();
+
+      // If the snapshot is ahead of the local log, reset the log to the entry following the snapshot so the
+      // leader can resume replication from that entry.
+      RaftLogWriter writer = raft.getLogWriter();
+      if (request.snapshotIndex() > writer.getLastIndex()) {
+        log.debug("Reset first index to {}", request.snapshotIndex() + 1);
+        writer.reset(request.snapshotIndex() + 1);
+      }
     }
 
     return CompletableFuture.completedFuture(logResponse(InstallResponse.newBuilder()
@@ -16,18 +16,33 @@
 package io.atomix.protocols.raft.roles;
 
 import io.atomix.protocols.raft.storage.snapshot.Snapshot;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
+
+import java.util.BitSet;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 
 /**
  * Pending snapshot.
+ * <p>
+ * Pending snapshots are written by a single writer that remains open while chunks are received. The snapshot is
+ * sized up front and each chunk is written at its position, so chunks may be received in any order and duplicate
+ * chunks are ignored. Once every byte of the snapshot has been received, the snapshot can be verified against the
+ * checksum sent with the last chunk and committed.
  */
 public class PendingSnapshot {
   private final Snapshot snapshot;
-  private long nextOffset;
+  private final long size;
+  private final SnapshotWriter writer;
+  private final BitSet chunks = new BitSet();
+  private long receivedBytes;
+  private boolean complete;
+  private long checksum;
 
-  public PendingSnapshot(Snapshot snapshot) {
+  public PendingSnapshot(Snapshot snapshot, long size) {
     this.snapshot = snapshot;
+    this.size = size;
+    this.writer = snapshot.openWriter().reserve(size);
   }
 
   /**
@@ -40,25 +55,65 @@ public class PendingSnapshot {
   }
 
   /**
-   * Returns and increments the next snapshot offset.
+   * Returns the total size of the snapshot.
    *
-   * @return the next snapshot offset
+   * @return the total size of the snapshot in bytes
    */
-  public long nextOffset() {
-    return nextOffset;
+  public long size() {
+    return size;
   }
 
   /**
-   * Increments the next snapshot offset.
+   * Writes a chunk to the snapshot.
+   *
+   * @param offset the chunk offset
+   * @param position the position of the chunk within the snapshot
+   * @param data the chunk data
+   * @return indicates whether the chunk was written, or {@code false} if it was already received
+   */
+  public boolean write(int offset, long position, byte[] data) {
+    if (chunks.get(offset)) {
+      return false;
+    }
+    writer.write(position, data);
+    chunks.set(offset);
+    receivedBytes += data.length;
+    return true;
+  }
+
+  /**
+   * Marks the last chunk of the snapshot as received.
+   *
+   * @param checksum the checksum of the snapshot
+   */
+  public void complete(long checksum) {
+    this.complete = true;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Returns a boolean indicating whether all chunks of the snapshot have been received.
+   *
+   * @return indicates whether the snapshot has been fully received
+   */
+  public boolean isComplete() {
+    return complete && receivedBytes == size;
+  }
+
+  /**
+   * Verifies the received snapshot against the checksum sent with the last chunk.
+   *
+   * @return indicates whether the snapshot is valid
    */
-  public void incrementOffset() {
-    nextOffset++;
+  public boolean verify() {
+    return writer.checksum(size) == checksum;
   }
 
   /**
    * Commits the snapshot to disk.
    */
   public void commit() {
+    writer.close();
     snapshot.complete();
   }
 
@@ -66,6 +121,7 @@ public class PendingSnapshot {
    * Closes and deletes the snapshot.
    */
   public void rollback() {
+    writer.close();
     snapshot.close();
     snapshot.delete();
   }
@@ -74,7 +130,9 @@ public class PendingSnapshot {
   public String toString() {
     return toStringHelper(this)
         .add("snapshot", snapshot)
-        .add("nextOffset", nextOffset)
+        .add("size", size)
+        .add("receivedBytes", receivedBytes)
+        .add("complete", complete)
         .toString();
   }
 }
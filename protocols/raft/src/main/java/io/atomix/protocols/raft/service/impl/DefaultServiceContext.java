@@ -35,6 +35,9 @@ import io.atomix.protocols.raft.session.RaftSessions;
 import io.atomix.protocols.raft.session.SessionId;
 import io.atomix.protocols.raft.session.impl.RaftSessionContext;
 import io.atomix.protocols.raft.session.impl.RaftSessionManager;
+import io.atomix.protocols.raft.storage.snapshot.AsyncSnapshottable;
+import io.atomix.protocols.raft.storage.snapshot.ChainedSnapshot;
+import io.atomix.protocols.raft.storage.snapshot.DeltaSnapshottable;
 import io.atomix.protocols.raft.storage.snapshot.Snapshot;
 import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
 import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
@@ -48,10 +51,12 @@ import io.atomix.utils.logging.ContextualLoggerFactory;
 import io.atomix.utils.logging.LoggerContext;
 import org.slf4j.Logger;
 
-import java.util.Map;
+import java.util.NavigableMap;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -70,7 +75,7 @@ public class DefaultServiceContext implements ServiceContext {
   private final ThreadContext serviceExecutor;
   private final ThreadContext snapshotExecutor;
   private final ScheduledExecutorService threadPool;
-  private final Map<Long, PendingSnapshot> pendingSnapshots = new ConcurrentSkipListMap<>();
+  private final NavigableMap<Long, PendingSnapshot> pendingSnapshots = new ConcurrentSkipListMap<>();
   private long snapshotIndex;
   private long currentIndex;
   private long currentTimestamp;
@@ -200,26 +205,23 @@ public class DefaultServiceContext implements ServiceContext {
    * Expires sessions that have timed out.
    */
   private void expireSessions(long timestamp) {
-    // Iterate through registered sessions.
-    for (RaftSessionContext session : sessions.getSessions()) {
-
-      // If the current timestamp minus the session timestamp is greater than the session timeout, expire the session.
-      if (timestamp - session.getTimestamp() > session.timeout()) {
+    // Iterate through sessions for which the current timestamp minus the session timestamp is greater than the
+    // session timeout.
+    for (RaftSessionContext session : sessions.getExpiredSessions(timestamp)) {
 
-        // Remove the session from the sessions list.
-        sessions.remove(session);
+      // Remove the session from the sessions list.
+      sessions.remove(session);
 
-        log.debug("Detected expired session {}", session);
+      log.debug("Detected expired session {}", session);
 
-        // Expire the session.
-        session.expire();
+      // Expire the session.
+      session.expire();
 
-        log.debug("Closing session {}", session.sessionId());
+      log.debug("Closing session {}", session.sessionId());
 
-        // Iterate through and invoke session listeners.
-        for (RaftSessionListener listener : sessions.getListeners()) {
-          listener.onExpire(session);
-        }
+      // Iterate through and invoke session listeners.
+      for (RaftSessionListener listener : sessions.getListeners()) {
+        listener.onExpire(session);
       }
     }
   }
@@ -229,10 +231,15 @@ public class DefaultServiceContext implements ServiceContext {
    */
   private void maybeCompleteSnapshot(long index) {
     if (!pendingSnapshots.isEmpty()) {
-      // Compute the lowest completed index for all sessions that belong to this state machine.
+      // Compute the lowest completed index for all sessions that belong to this state machine. Stop once the
+      // index falls below the lowest pending snapshot index since no pending snapshot can then be completed.
+      long lowestIndex = pendingSnapshots.firstKey();
       long lastCompleted = index;
       for (RaftSessionContext session : sessions.getSessions()) {
         lastCompleted = Math.min(lastCompleted, session.getLastCompleted());
+        if (lastCompleted < lowestIndex) {
+          return;
+        }
       }
 
       for (PendingSnapshot pendingSnapshot : pendingSnapshots.values()) {
@@ -264,29 +271,7 @@ public class DefaultServiceContext implements ServiceContext {
     if (snapshot != null && snapshot.index() > snapshotIndex && snapshot.index() < index) {
       log.debug("Installing snapshot {}", snapshot.index());
       try (SnapshotReader reader = snapshot.openReader()) {
-        int sessionCount = reader.readInt();
-        sessions.clear();
-        for (int i = 0; i < sessionCount; i++) {
-          SessionId sessionId = SessionId.from(reader.readLong());
-          MemberId node = MemberId.from(reader.readString());
-          ReadConsistency readConsistency = ReadConsistency.valueOf(reader.readString());
-          long sessionTimeout = reader.readLong();
-          long sessionTimestamp = reader.readLong();
-          RaftSessionContext session = new RaftSessionContext(
-              sessionId,
-              node,
-              serviceName,
-              serviceType,
-              readConsistency,
-              sessionTimeout,
-              this,
-              server,
-              threadPool);
-          session.setTimestamp(sessionTimestamp);
-          session.setLastApplied(snapshot.index());
-          sessions.add(session);
-        }
-        service.install(reader);
+        installSnapshot(reader, snapshot.index(), false);
       } catch (Exception e) {
         log.error("Snapshot installation failed: {}", e);
       }
@@ -294,33 +279,102 @@ public class DefaultServiceContext implements ServiceContext {
     }
   }
 
+  /**
+   * Installs the sessions and service state from the given snapshot reader.
+   * <p>
+   * Chained snapshots are installed by installing the full snapshot and then applying each delta in order.
+   */
+  private void installSnapshot(SnapshotReader reader, long index, boolean delta) {
+    int sessionCount = reader.readInt();
+    if (sessionCount == ChainedSnapshot.CHAIN_HEADER) {
+      int snapshotCount = reader.readInt();
+      for (int i = 0; i < snapshotCount; i++) {
+        long length = reader.readLong();
+        long remaining = reader.remainingBytes() - length;
+        installSnapshot(reader, index, delta || i > 0);
+
+        // Skip any bytes the service didn't read to position the reader at the next snapshot in the chain.
+        while (reader.remainingBytes() > remaining) {
+          reader.skip((int) Math.min(reader.remainingBytes() - remaining, Integer.MAX_VALUE));
+        }
+      }
+      return;
+    }
+
+    sessions.clear();
+    for (int i = 0; i < sessionCount; i++) {
+      SessionId sessionId = SessionId.from(reader.readLong());
+      MemberId node = MemberId.from(reader.readString());
+      ReadConsistency readConsistency = ReadConsistency.valueOf(reader.readString());
+      long sessionTimeout = reader.readLong();
+      long sessionTimestamp = reader.readLong();
+      RaftSessionContext session = new RaftSessionContext(
+          sessionId,
+          node,
+          serviceName,
+          serviceType,
+          readConsistency,
+          sessionTimeout,
+          this,
+          server,
+          threadPool);
+      session.setTimestamp(sessionTimestamp);
+      session.setLastApplied(index);
+      sessions.add(session);
+    }
+
+    if (delta) {
+      ((DeltaSnapshottable) service).installDelta(reader);
+    } else {
+      service.install(reader);
+    }
+  }
+
   /**
    * Takes a snapshot of the service state.
+   * <p>
+   * If the service is {@link AsyncSnapshottable}, only a point-in-time view of the service state is captured on the
+   * service thread, and the view is written to the snapshot on the snapshot executor while the service continues
+   * to apply commands. If the service is {@link DeltaSnapshottable} and its latest snapshot can be extended, only the
+   * changes since that snapshot are written to a delta snapshot.
    *
-   * @return a future to be completed once the snapshot has been taken
+   * @return a future to be completed with the snapshot index once the snapshot has been persisted, or {@code 0} if
+   * no entries have been applied to the service
    */
   public CompletableFuture<Long> takeSnapshot() {
     CompletableFuture<Long> future = new CompletableFuture<>();
     serviceExecutor.execute(() -> {
       // If no entries have been applied to the state machine, skip the snapshot.
       if (currentIndex == 0) {
+        future.complete(0L);
         return;
       }
 
+      // Deltas can only be written if the service's change tracking began at the latest stored snapshot, i.e. the
+      // service last installed or completed that snapshot and no other snapshot is pending.
+      long previousIndex = this.snapshotIndex;
+      boolean delta = service instanceof DeltaSnapshottable
+          && pendingSnapshots.isEmpty()
+          && currentIndex > previousIndex
+          && server.getSnapshotStore().canAppendDelta(serviceId, previousIndex);
+
       long snapshotIndex = currentIndex;
-      log.debug("Taking snapshot {}", snapshotIndex);
+      log.debug("Taking {} {}", delta ? "delta snapshot" : "snapshot", snapshotIndex);
 
-      // Create a temporary in-memory snapshot buffer.
-      Snapshot snapshot = server.getSnapshotStore()
-          .newTemporarySnapshot(serviceId, snapshotIndex, WallClockTimestamp.from(currentTimestamp));
+      // Create a temporary snapshot to be persisted once the snapshot is complete.
+      Snapshot snapshot = delta
+          ? server.getSnapshotStore().newTemporaryDeltaSnapshot(serviceId, previousIndex, snapshotIndex, WallClockTimestamp.from(currentTimestamp))
+          : server.getSnapshotStore().newTemporarySnapshot(serviceId, snapshotIndex, WallClockTimestamp.from(currentTimestamp));
 
       // Add the snapshot to the pending snapshots registry.
       PendingSnapshot pendingSnapshot = new PendingSnapshot(snapshot);
       pendingSnapshots.put(snapshotIndex, pendingSnapshot);
       pendingSnapshot.future.whenComplete((r, e) -> pendingSnapshots.remove(snapshotIndex));
 
-      // Serialize sessions to the in-memory snapshot and request a snapshot from the state machine.
-      try (SnapshotWriter writer = snapshot.openWriter()) {
+      // Serialize sessions to the snapshot and capture the state machine state.
+      SnapshotWriter writer = snapshot.openWriter();
+      Consumer<SnapshotWriter> serviceSnapshot;
+      try {
         writer.writeInt(sessions.getSessions().size());
         for (RaftSessionContext session : sessions.getSessions()) {
           writer.writeLong(session.sessionId().id());
@@ -329,13 +383,34 @@ public class DefaultServiceContext implements ServiceContext {
           writer.writeLong(session.timeout());
           writer.writeLong(session.getTimestamp());
         }
-        service.snapshot(writer);
+
+        if (delta) {
+          ((DeltaSnapshottable) service).snapshotDelta(writer);
+          serviceSnapshot = null;
+        } else if (service instanceof AsyncSnapshottable) {
+          serviceSnapshot = ((AsyncSnapshottable) service).captureSnapshot();
+        } else {
+          service.snapshot(writer);
+          serviceSnapshot = null;
+        }
       } catch (Exception e) {
         log.error("Snapshot failed: {}", e);
+        serviceSnapshot = null;
       }
 
-      // Persist the snapshot to disk in a background thread before completing the snapshot future.
+      // Write the captured service state and persist the snapshot to disk in a background thread before
+      // completing the snapshot future.
+      Consumer<SnapshotWriter> asyncSnapshot = serviceSnapshot;
       snapshotExecutor.execute(() -> {
+        try {
+          if (asyncSnapshot != null) {
+            asyncSnapshot.accept(writer);
+          }
+        } catch (Exception e) {
+          log.error("Snapshot failed: {}", e);
+        } finally {
+          writer.close();
+        }
         pendingSnapshot.persist();
         future.complete(snapshotIndex);
       });
@@ -364,10 +439,11 @@ public class DefaultServiceContext implements ServiceContext {
    * @param index     The index of the registration.
    * @param timestamp The timestamp of the registration.
    * @param session   The session to register.
+   * @param executor  The executor on which to register the session.
    */
-  public CompletableFuture<Long> openSession(long index, long timestamp, RaftSessionContext session) {
+  public CompletableFuture<Long> openSession(long index, long timestamp, RaftSessionContext session, Executor executor) {
     CompletableFuture<Long> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> {
+    executor.execute(() -> {
       log.debug("Opening session {}", session.sessionId());
 
       // Update the session's timestamp to prevent it from being expired.
@@ -404,10 +480,11 @@ public class DefaultServiceContext implements ServiceContext {
    * @param session         The session to keep-alive.
    * @param commandSequence The session command sequence number.
    * @param eventIndex      The session event index.
+   * @param executor        The executor on which to keep the session alive.
    */
-  public CompletableFuture<Boolean> keepAlive(long index, long timestamp, RaftSessionContext session, long commandSequence, long eventIndex) {
+  public CompletableFuture<Boolean> keepAlive(long index, long timestamp, RaftSessionContext session, long commandSequence, long eventIndex, Executor executor) {
     CompletableFuture<Boolean> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> {
+    executor.execute(() -> {
       // The session may have been closed by the time this update was executed on the service thread.
       if (session.getState() != RaftSession.State.CLOSED) {
         // Update the session's timestamp to prevent it from being expired.
@@ -448,11 +525,12 @@ public class DefaultServiceContext implements ServiceContext {
    *
    * @param index the keep-alive index
    * @param timestamp the keep-alive timestamp
+   * @param executor the executor on which to complete the keep-alive
    * @return future to be completed once the keep alive is completed
    */
-  public CompletableFuture<Void> completeKeepAlive(long index, long timestamp) {
+  public CompletableFuture<Void> completeKeepAlive(long index, long timestamp, Executor executor) {
     CompletableFuture<Void> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> {
+    executor.execute(() -> {
       // Update the state machine index/timestamp and expire sessions if necessary.
       tick(index, timestamp);
 
@@ -470,11 +548,12 @@ public class DefaultServiceContext implements ServiceContext {
    *
    * @param index the index of the timestamp
    * @param timestamp the timestamp with which to reset session timeouts
+   * @param executor the executor on which to reset session timeouts
    * @return future to be completed once all sessions have been preserved
    */
-  public CompletableFuture<Void> keepAliveSessions(long index, long timestamp) {
+  public CompletableFuture<Void> keepAliveSessions(long index, long timestamp, Executor executor) {
     CompletableFuture<Void> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> {
+    executor.execute(() -> {
       log.debug("Resetting session timeouts");
 
       this.currentIndex = index;
@@ -493,10 +572,11 @@ public class DefaultServiceContext implements ServiceContext {
    * @param index     The index of the unregister.
    * @param timestamp The timestamp of the unregister.
    * @param session   The session to unregister.
+   * @param executor  The executor on which to unregister the session.
    */
-  public CompletableFuture<Void> closeSession(long index, long timestamp, RaftSessionContext session) {
+  public CompletableFuture<Void> closeSession(long index, long timestamp, RaftSessionContext session, Executor executor) {
     CompletableFuture<Void> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> {
+    executor.execute(() -> {
       log.debug("Closing session {}", session.sessionId());
 
       // Update the session's timestamp to prevent it from being expired.
@@ -536,11 +616,12 @@ public class DefaultServiceContext implements ServiceContext {
    * @param sequence  The command sequence number.
    * @param session   The session that submitted the command.
    * @param operation   The command to execute.
+   * @param executor  The executor on which to execute the command.
    * @return A future to be completed with the command result.
    */
-  public CompletableFuture<OperationResult> executeCommand(long index, long sequence, long timestamp, RaftSessionContext session, RaftOperation operation) {
+  public CompletableFuture<OperationResult> executeCommand(long index, long sequence, long timestamp, RaftSessionContext session, RaftOperation operation, Executor executor) {
     CompletableFuture<OperationResult> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> executeCommand(index, sequence, timestamp, session, operation, future));
+    executor.execute(() -> executeCommand(index, sequence, timestamp, session, operation, future));
     return future;
   }
 
@@ -635,11 +716,12 @@ public class DefaultServiceContext implements ServiceContext {
    * @param timestamp The timestamp of the query.
    * @param session   The session that submitted the query.
    * @param operation     The query to execute.
+   * @param executor  The executor on which to execute the query.
    * @return A future to be completed with the query result.
    */
-  public CompletableFuture<OperationResult> executeQuery(long index, long sequence, long timestamp, RaftSessionContext session, RaftOperation operation) {
+  public CompletableFuture<OperationResult> executeQuery(long index, long sequence, long timestamp, RaftSessionContext session, RaftOperation operation, Executor executor) {
     CompletableFuture<OperationResult> future = new CompletableFuture<>();
-    serviceExecutor.execute(() -> executeQuery(index, sequence, timestamp, session, operation, future));
+    executor.execute(() -> executeQuery(index, sequence, timestamp, session, operation, future));
     return future;
   }
 
@@ -22,19 +22,32 @@ import io.atomix.protocols.raft.session.SessionId;
 import io.atomix.protocols.raft.session.impl.RaftSessionContext;
 import io.atomix.protocols.raft.session.impl.RaftSessionManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * State machine sessions.
+ * <p>
+ * Sessions are indexed by the log time at which they expire so that expired sessions can be found without
+ * scanning all sessions. Session timestamps only ever increase, so a session's indexed deadline is never later
+ * than its actual deadline. Rather than re-indexing a session each time it's kept alive, the session is re-indexed
+ * with its actual deadline when its indexed deadline passes, so keeping sessions alive costs nothing and finding
+ * expired sessions costs {@code O(log n)} per expired or re-indexed session.
  */
 class DefaultServiceSessions implements RaftSessions {
   private final RaftSessionManager sessionManager;
   private final Map<Long, RaftSessionContext> sessions = new ConcurrentHashMap<>();
+  private final Queue<SessionTimeout> timeouts = new PriorityQueue<>();
   private final Set<RaftSessionListener> listeners = new HashSet<>();
 
   DefaultServiceSessions(RaftSessionManager sessionManager) {
@@ -48,6 +61,7 @@ class DefaultServiceSessions implements RaftSessions {
    */
   void add(RaftSessionContext session) {
     sessions.put(session.sessionId().id(), session);
+    timeouts.add(new SessionTimeout(session));
     sessionManager.registerSession(session);
   }
 
@@ -67,6 +81,54 @@ class DefaultServiceSessions implements RaftSessions {
   void clear() {
     sessions.values().forEach(session -> sessionManager.unregisterSession(session.sessionId().id()));
     sessions.clear();
+    timeouts.clear();
+  }
+
+  /**
+   * Returns the sessions that have timed out as of the given timestamp.
+   * <p>
+   * Returned sessions are no longer indexed by their timeouts and must be removed by the caller. Sessions are
+   * returned in order of their identifiers to ensure they're expired in the same order on all servers.
+   *
+   * @param timestamp The current state machine timestamp.
+   * @return The sessions that have timed out.
+   */
+  List<RaftSessionContext> getExpiredSessions(long timestamp) {
+    List<RaftSessionContext> expiredSessions = null;
+    SessionTimeout timeout = timeouts.peek();
+    while (timeout != null && timeout.deadline < timestamp) {
+      timeouts.remove();
+
+      // Ignore timeouts for sessions that have since been removed.
+      RaftSessionContext session = timeout.session;
+      if (sessions.get(session.sessionId().id()) == session) {
+        // If the session has been kept alive since it was indexed, re-index it with its current deadline.
+        long deadline = deadline(session);
+        if (deadline < timestamp) {
+          if (expiredSessions == null) {
+            expiredSessions = new ArrayList<>();
+          }
+          expiredSessions.add(session);
+        } else {
+          timeouts.add(new SessionTimeout(session, deadline));
+        }
+      }
+      timeout = timeouts.peek();
+    }
+
+    if (expiredSessions == null) {
+      return Collections.emptyList();
+    }
+    expiredSessions.sort(Comparator.comparingLong(session -> session.sessionId().id()));
+    return expiredSessions;
+  }
+
+  /**
+   * Returns the timestamp after which the given session is expired.
+   */
+  private static long deadline(RaftSessionContext session) {
+    long timestamp = session.getTimestamp();
+    return session.timeout() > Long.MAX_VALUE - timestamp ? Long.MAX_VALUE : timestamp + session.timeout();
   }
 
   /**
@@ -109,4 +171,27 @@ class DefaultServiceSessions implements RaftSessions {
   public Iterator<RaftSession> iterator() {
     return (Iterator) sessions.values().iterator();
   }
+
+  /**
+   * Session timeout indexed by the session's deadline at the time it was indexed.
+   */
+  private static final class SessionTimeout implements Comparable<SessionTimeout> {
+    private final RaftSessionContext session;
+    private final long deadline;
+
+    SessionTimeout(RaftSessionContext session) {
+      this(session, deadline(session));
+    }
+
+    SessionTimeout(RaftSessionContext session, long deadline) {
+      this.session = session;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int compareTo(SessionTimeout that) {
+      int compare = Long.compare(deadline, that.deadline);
+      return compare != 0 ? compare : Long.compare(session.sessionId().id(), that.session.sessionId().id());
+    }
+  }
 }
\ No newline at end of file
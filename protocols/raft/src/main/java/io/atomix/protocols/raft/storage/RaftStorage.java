@@ -28,6 +28,7 @@ import io.atomix.storage.journal.JournalSegmentFile;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.Duration;
 import java.util.function.Predicate;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
@@ -70,7 +71,12 @@ public class RaftStorage {
   private final int maxEntriesPerSegment;
   private final int entryBufferSize;
   private final boolean flushOnCommit;
+  private final boolean groupCommit;
+  private final Duration maxGroupCommitDelay;
+  private final int maxGroupCommitSize;
   private final boolean retainStaleSnapshots;
+  private final int maxSnapshotDeltas;
+  private final boolean rawReplication;
 
   private RaftStorage(
       String prefix,
@@ -81,7 +87,12 @@ public class RaftStorage {
       int maxEntriesPerSegment,
       int entryBufferSize,
       boolean flushOnCommit,
-      boolean retainStaleSnapshots) {
+      boolean groupCommit,
+      Duration maxGroupCommitDelay,
+      int maxGroupCommitSize,
+      boolean retainStaleSnapshots,
+      int maxSnapshotDeltas,
+      boolean rawReplication) {
     this.prefix = prefix;
     this.storageLevel = storageLevel;
     this.directory = directory;
@@ -90,7 +101,12 @@ public class RaftStorage {
     this.maxEntriesPerSegment = maxEntriesPerSegment;
     this.entryBufferSize = entryBufferSize;
     this.flushOnCommit = flushOnCommit;
+    this.groupCommit = groupCommit;
+    this.maxGroupCommitDelay = maxGroupCommitDelay;
+    this.maxGroupCommitSize = maxGroupCommitSize;
     this.retainStaleSnapshots = retainStaleSnapshots;
+    this.maxSnapshotDeltas = maxSnapshotDeltas;
+    this.rawReplication = rawReplication;
     directory.mkdirs();
   }
 
@@ -181,6 +197,47 @@ public class RaftStorage {
     return flushOnCommit;
   }
 
+  /**
+   * Returns whether group commit is enabled for the log.
+   * <p>
+   * When group commit is enabled, log appends are flushed to disk in batches on a dedicated flusher thread.
+   *
+   * @return Whether group commit is enabled for the log.
+   */
+  public boolean isGroupCommit() {
+    return groupCommit;
+  }
+
+  /**
+   * Returns the maximum amount of time for which log appends are batched before being flushed.
+   *
+   * @return The maximum group commit delay.
+   */
+  public Duration maxGroupCommitDelay() {
+    return maxGroupCommitDelay;
+  }
+
+  /**
+   * Returns the maximum number of bytes batched before log appends are flushed.
+   *
+   * @return The maximum group commit batch size in bytes.
+   */
+  public int maxGroupCommitSize() {
+    return maxGroupCommitSize;
+  }
+
+  /**
+   * Returns whether log entries are replicated in their serialized form.
+   * <p>
+   * When raw replication is enabled, leaders send entries to followers as they're stored in the log, and followers
+   * append the serialized entries to their logs without decoding them.
+   *
+   * @return Whether log entries are replicated in their serialized form.
+   */
+  public boolean isRawReplication() {
+    return rawReplication;
+  }
+
   /**
    * Returns a boolean value indicating whether to retain stale snapshots on disk.
    * <p>
@@ -194,6 +251,19 @@ public class RaftStorage {
     return retainStaleSnapshots;
   }
 
+  /**
+   * Returns the maximum number of delta snapshots chained to a full snapshot.
+   * <p>
+   * Services that implement {@link io.atomix.protocols.raft.storage.snapshot.DeltaSnapshottable} write only
+   * the changes since their previous snapshot, until this many deltas have been chained to the last full
+   * snapshot and a new full snapshot is taken.
+   *
+   * @return The maximum number of delta snapshots chained to a full snapshot.
+   */
+  public int maxSnapshotDeltas() {
+    return maxSnapshotDeltas;
+  }
+
   /**
    * Opens a new {@link MetaStore}, recovering metadata from disk if it exists.
    * <p>
@@ -258,6 +328,11 @@ public class RaftStorage {
         .withSerializer(serializer)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntriesPerSegment(maxEntriesPerSegment)
+        .withMaxCacheEntries(entryBufferSize)
+        .withFlushOnCommit(flushOnCommit)
+        .withGroupCommit(groupCommit)
+        .withMaxGroupCommitDelay(maxGroupCommitDelay)
+        .withMaxGroupCommitSize(maxGroupCommitSize)
         .build();
   }
 
@@ -317,7 +392,12 @@ public class RaftStorage {
     private static final int DEFAULT_MAX_ENTRIES_PER_SEGMENT = 1024 * 1024;
     private static final int DEFAULT_ENTRY_BUFFER_SIZE = 1024;
     private static final boolean DEFAULT_FLUSH_ON_COMMIT = false;
+    private static final boolean DEFAULT_GROUP_COMMIT = false;
+    private static final Duration DEFAULT_MAX_GROUP_COMMIT_DELAY = Duration.ofMillis(2);
+    private static final int DEFAULT_MAX_GROUP_COMMIT_SIZE = 1024 * 1024;
     private static final boolean DEFAULT_RETAIN_STALE_SNAPSHOTS = false;
+    private static final int DEFAULT_MAX_SNAPSHOT_DELTAS = 10;
+    private static final boolean DEFAULT_RAW_REPLICATION = false;
 
     private String prefix = DEFAULT_PREFIX;
     private StorageLevel storageLevel = StorageLevel.DISK;
@@ -327,7 +407,12 @@ public class RaftStorage {
     private int maxEntriesPerSegment = DEFAULT_MAX_ENTRIES_PER_SEGMENT;
     private int entryBufferSize = DEFAULT_ENTRY_BUFFER_SIZE;
     private boolean flushOnCommit = DEFAULT_FLUSH_ON_COMMIT;
+    private boolean groupCommit = DEFAULT_GROUP_COMMIT;
+    private Duration maxGroupCommitDelay = DEFAULT_MAX_GROUP_COMMIT_DELAY;
+    private int maxGroupCommitSize = DEFAULT_MAX_GROUP_COMMIT_SIZE;
     private boolean retainStaleSnapshots = DEFAULT_RETAIN_STALE_SNAPSHOTS;
+    private int maxSnapshotDeltas = DEFAULT_MAX_SNAPSHOT_DELTAS;
+    private boolean rawReplication = DEFAULT_RAW_REPLICATION;
 
     private Builder() {
     }
@@ -461,7 +546,9 @@ public class RaftStorage {
      * for method chaining.
      * <p>
      * When flush-on-commit is enabled, log entry buffers will be automatically flushed to disk each time
-     * an entry is committed in a given segment.
+     * an entry is committed in a given segment. Unless group commit is enabled, entries are flushed on the
+     * journal's flusher thread as soon as they're appended, so the leader flushes entries while it replicates
+     * them and only counts its own vote for an entry once the entry has been flushed.
      *
      * @return The storage builder.
      */
@@ -474,7 +561,9 @@ public class RaftStorage {
      * for method chaining.
      * <p>
      * When flush-on-commit is enabled, log entry buffers will be automatically flushed to disk each time
-     * an entry is committed in a given segment.
+     * an entry is committed in a given segment. Unless group commit is enabled, entries are flushed on the
+     * journal's flusher thread as soon as they're appended, so the leader flushes entries while it replicates
+     * them and only counts its own vote for an entry once the entry has been flushed.
      *
      * @param flushOnCommit Whether to flush buffers to disk when entries are committed to a segment.
      * @return The storage builder.
@@ -484,6 +573,68 @@ public class RaftStorage {
       return this;
     }
 
+    /**
+     * Enables group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, log appends are flushed to disk in batches on a dedicated flusher thread
+     * rather than on the Raft thread, and the leader only counts its own vote for an entry once the entry has
+     * been flushed. Batches are flushed once the {@link #withMaxGroupCommitDelay(Duration) maximum delay} has
+     * expired or the {@link #withMaxGroupCommitSize(int) maximum batch size} has been reached.
+     *
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit() {
+      return withGroupCommit(true);
+    }
+
+    /**
+     * Sets whether to enable group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, log appends are flushed to disk in batches on a dedicated flusher thread
+     * rather than on the Raft thread, and the leader only counts its own vote for an entry once the entry has
+     * been flushed. Batches are flushed once the {@link #withMaxGroupCommitDelay(Duration) maximum delay} has
+     * expired or the {@link #withMaxGroupCommitSize(int) maximum batch size} has been reached.
+     *
+     * @param groupCommit Whether to enable group commit.
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit(boolean groupCommit) {
+      this.groupCommit = groupCommit;
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit delay, returning the builder for method chaining.
+     * <p>
+     * By default, appends are batched for at most {@code 2} milliseconds before being flushed.
+     *
+     * @param maxGroupCommitDelay The maximum amount of time to batch appends before flushing.
+     * @return The storage builder.
+     * @throws NullPointerException if the delay is {@code null}
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public Builder withMaxGroupCommitDelay(Duration maxGroupCommitDelay) {
+      checkNotNull(maxGroupCommitDelay, "maxGroupCommitDelay cannot be null");
+      checkArgument(!maxGroupCommitDelay.isNegative(), "maxGroupCommitDelay cannot be negative");
+      this.maxGroupCommitDelay = maxGroupCommitDelay;
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit batch size in bytes, returning the builder for method chaining.
+     * <p>
+     * By default, a batch is flushed once {@code 1024 * 1024} bytes have been appended.
+     *
+     * @param maxGroupCommitSize The maximum number of bytes to batch before flushing.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public Builder withMaxGroupCommitSize(int maxGroupCommitSize) {
+      checkArgument(maxGroupCommitSize > 0, "maxGroupCommitSize must be positive");
+      this.maxGroupCommitSize = maxGroupCommitSize;
+      return this;
+    }
+
     /**
      * Enables retaining stale snapshots on disk, returning the builder for method chaining.
      * <p>
@@ -516,6 +667,53 @@ public class RaftStorage {
       return this;
     }
 
+    /**
+     * Sets the maximum number of delta snapshots chained to a full snapshot, returning the builder for method chaining.
+     * <p>
+     * Services that implement {@link io.atomix.protocols.raft.storage.snapshot.DeltaSnapshottable} write only
+     * the changes since their previous snapshot. Deltas are chained to the service's last full snapshot and
+     * installed on top of it, and once the chain holds this many deltas the next snapshot is a full snapshot
+     * which replaces the chain. Setting the maximum to {@code 0} disables delta snapshots. By default, up to
+     * {@code 10} deltas are chained to a full snapshot.
+     *
+     * @param maxSnapshotDeltas The maximum number of delta snapshots chained to a full snapshot.
+     * @return The storage builder.
+     * @throws IllegalArgumentException if the maximum number of deltas is negative
+     */
+    public Builder withMaxSnapshotDeltas(int maxSnapshotDeltas) {
+      checkArgument(maxSnapshotDeltas >= 0, "maxSnapshotDeltas cannot be negative");
+      this.maxSnapshotDeltas = maxSnapshotDeltas;
+      return this;
+    }
+
+    /**
+     * Enables raw replication, returning the builder for method chaining.
+     * <p>
+     * When raw replication is enabled, leaders send entries to followers as they're stored in the log rather than
+     * re-encoding decoded entries, and followers verify the entry checksums and append the serialized entries to
+     * their logs without decoding them. All members of the cluster must be able to read raw append requests.
+     *
+     * @return The storage builder.
+     */
+    public Builder withRawReplication() {
+      return withRawReplication(true);
+    }
+
+    /**
+     * Sets whether to enable raw replication, returning the builder for method chaining.
+     * <p>
+     * When raw replication is enabled, leaders send entries to followers as they're stored in the log rather than
+     * re-encoding decoded entries, and followers verify the entry checksums and append the serialized entries to
+     * their logs without decoding them. All members of the cluster must be able to read raw append requests.
+     *
+     * @param rawReplication Whether to enable raw replication.
+     * @return The storage builder.
+     */
+    public Builder withRawReplication(boolean rawReplication) {
+      this.rawReplication = rawReplication;
+      return this;
+    }
+
     /**
      * Builds the {@link RaftStorage} object.
      *
@@ -532,7 +730,12 @@ public class RaftStorage {
           maxEntriesPerSegment,
           entryBufferSize,
           flushOnCommit,
-          retainStaleSnapshots);
+          groupCommit,
+          maxGroupCommitDelay,
+          maxGroupCommitSize,
+          retainStaleSnapshots,
+          maxSnapshotDeltas,
+          rawReplication);
     }
   }
 
@@ -19,9 +19,11 @@ import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.serializer.Serializer;
 import io.atomix.storage.StorageLevel;
 import io.atomix.storage.journal.DelegatingJournal;
+import io.atomix.storage.journal.JournalChecksum;
 import io.atomix.storage.journal.SegmentedJournal;
 
 import java.io.File;
+import java.time.Duration;
 
 /**
  * Raft log.
@@ -39,15 +41,18 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
 
   private final SegmentedJournal<RaftLogEntry> journal;
   private final boolean flushOnCommit;
+  private final boolean groupCommit;
   private final RaftLogWriter writer;
   private volatile long commitIndex;
 
   public RaftLog(
       SegmentedJournal<RaftLogEntry> journal,
-      boolean flushOnCommit) {
+      boolean flushOnCommit,
+      boolean groupCommit) {
     super(journal);
     this.journal = journal;
     this.flushOnCommit = flushOnCommit;
+    this.groupCommit = groupCommit;
     this.writer = new RaftLogWriter(journal.writer(), this);
   }
 
@@ -72,6 +77,15 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     return new RaftLogReader(journal.openReader(index), this, mode);
   }
 
+  /**
+   * Returns the checksum algorithm used to verify entries in new segments.
+   *
+   * @return the log's entry checksum algorithm
+   */
+  public JournalChecksum checksum() {
+    return journal.checksum();
+  }
+
   /**
    * Returns whether {@code flushOnCommit} is enabled for the log.
    *
@@ -81,6 +95,15 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     return flushOnCommit;
   }
 
+  /**
+   * Returns whether group commit is enabled for the log.
+   *
+   * @return Indicates whether group commit is enabled for the log.
+   */
+  boolean isGroupCommit() {
+    return groupCommit;
+  }
+
   /**
    * Commits entries up to the given index.
    *
@@ -130,6 +153,17 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     journal.compact(index);
   }
 
+  /**
+   * Moves segments preceding the given index to compressed cold storage.
+   * <p>
+   * Uncommitted entries may be truncated from the log, so only segments preceding the commit index are archived.
+   *
+   * @param index The index prior to which to move segments to cold storage.
+   */
+  public void archive(long index) {
+    journal.archive(Math.min(index, commitIndex + 1));
+  }
+
   /**
    * Raft log builder.
    */
@@ -137,6 +171,7 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
     private static final boolean DEFAULT_FLUSH_ON_COMMIT = false;
     private final SegmentedJournal.Builder<RaftLogEntry> journalBuilder = SegmentedJournal.newBuilder();
     private boolean flushOnCommit = DEFAULT_FLUSH_ON_COMMIT;
+    private boolean groupCommit;
 
     protected Builder() {
     }
@@ -193,6 +228,21 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
       return this;
     }
 
+    /**
+     * Sets the cold storage directory, returning the builder for method chaining.
+     * <p>
+     * Segments {@link RaftLog#archive(long) archived} from the log are compressed into the cold storage directory.
+     * By default, cold storage is disabled.
+     *
+     * @param coldDirectory The cold storage directory.
+     * @return The storage builder.
+     * @throws NullPointerException If the {@code coldDirectory} is {@code null}
+     */
+    public Builder withColdDirectory(File coldDirectory) {
+      journalBuilder.withColdDirectory(coldDirectory);
+      return this;
+    }
+
     /**
      * Sets the journal serializer, returning the builder for method chaining.
      *
@@ -241,12 +291,105 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
       return this;
     }
 
+    /**
+     * Sets the log index density, returning the builder for method chaining.
+     * <p>
+     * The index density is the frequency at which the position of entries written to the log will be
+     * recorded in an in-memory index for faster seeking.
+     *
+     * @param indexDensity the index density
+     * @return the log builder
+     * @throws IllegalArgumentException if the density is not between 0 and 1
+     */
+    public Builder withIndexDensity(double indexDensity) {
+      journalBuilder.withIndexDensity(indexDensity);
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of decoded entries to cache, returning the builder for method chaining.
+     * <p>
+     * Cached entries are shared by all readers of the log, so entries read by multiple readers, e.g. when replicating
+     * to multiple followers, are only decoded once.
+     *
+     * @param maxCacheEntries the maximum number of decoded entries to cache
+     * @return the log builder
+     * @throws IllegalArgumentException if the number of entries is negative
+     */
+    public Builder withMaxCacheEntries(int maxCacheEntries) {
+      journalBuilder.withMaxCacheEntries(maxCacheEntries);
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of cached entries in bytes, returning the builder for method chaining.
+     *
+     * @param maxCacheSize the maximum size of cached entries in bytes
+     * @return the log builder
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Builder withMaxCacheSize(int maxCacheSize) {
+      journalBuilder.withMaxCacheSize(maxCacheSize);
+      return this;
+    }
+
+    /**
+     * Enables group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, appends are flushed to disk in batches on a dedicated flusher thread,
+     * and the leader only counts its own vote for an entry once the entry has been flushed.
+     *
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit() {
+      return withGroupCommit(true);
+    }
+
+    /**
+     * Sets whether to enable group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, appends are flushed to disk in batches on a dedicated flusher thread,
+     * and the leader only counts its own vote for an entry once the entry has been flushed.
+     *
+     * @param groupCommit Whether to enable group commit.
+     * @return The storage builder.
+     */
+    public Builder withGroupCommit(boolean groupCommit) {
+      this.groupCommit = groupCommit;
+      journalBuilder.withGroupCommit(groupCommit);
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit delay, returning the builder for method chaining.
+     *
+     * @param maxGroupCommitDelay The maximum amount of time to batch appends before flushing.
+     * @return The storage builder.
+     */
+    public Builder withMaxGroupCommitDelay(Duration maxGroupCommitDelay) {
+      journalBuilder.withMaxGroupCommitDelay(maxGroupCommitDelay);
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit batch size in bytes, returning the builder for method chaining.
+     *
+     * @param maxGroupCommitSize The maximum number of bytes to batch before flushing.
+     * @return The storage builder.
+     */
+    public Builder withMaxGroupCommitSize(int maxGroupCommitSize) {
+      journalBuilder.withMaxGroupCommitSize(maxGroupCommitSize);
+      return this;
+    }
+
     /**
      * Enables flushing buffers to disk when entries are committed to a segment, returning the builder
      * for method chaining.
      * <p>
      * When flush-on-commit is enabled, log entry buffers will be automatically flushed to disk each time
-     * an entry is committed in a given segment.
+     * an entry is committed in a given segment. Unless group commit is enabled, entries are flushed on the
+     * journal's flusher thread as soon as they're appended, so the leader flushes entries while it replicates
+     * them and only counts its own vote for an entry once the entry has been flushed.
      *
      * @return The storage builder.
      */
@@ -259,7 +402,9 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
      * for method chaining.
      * <p>
      * When flush-on-commit is enabled, log entry buffers will be automatically flushed to disk each time
-     * an entry is committed in a given segment.
+     * an entry is committed in a given segment. Unless group commit is enabled, entries are flushed on the
+     * journal's flusher thread as soon as they're appended, so the leader flushes entries while it replicates
+     * them and only counts its own vote for an entry once the entry has been flushed.
      *
      * @param flushOnCommit Whether to flush buffers to disk when entries are committed to a segment.
      * @return The storage builder.
@@ -271,7 +416,12 @@ public class RaftLog extends DelegatingJournal<RaftLogEntry> {
 
     @Override
     public RaftLog build() {
-      return new RaftLog(journalBuilder.build(), flushOnCommit);
+      // Without group commit, flush-on-commit uses the journal's flusher with no batching delay so that
+      // appended entries are flushed immediately and in parallel with replication.
+      if (flushOnCommit && !groupCommit) {
+        journalBuilder.withGroupCommit(true).withMaxGroupCommitDelay(Duration.ZERO);
+      }
+      return new RaftLog(journalBuilder.build(), flushOnCommit, groupCommit);
     }
   }
 }
@@ -17,6 +17,8 @@ package io.atomix.protocols.raft.storage.log;
 
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.storage.journal.DelegatingJournalReader;
+import io.atomix.storage.journal.Indexed;
+import io.atomix.storage.journal.RawEntries;
 import io.atomix.storage.journal.SegmentedJournalReader;
 
 /**
@@ -70,4 +72,14 @@ public class RaftLogReader extends DelegatingJournalReader<RaftLogEntry> {
     long commitIndex = log.getCommitIndex();
     return nextIndex <= commitIndex && super.hasNext();
   }
+
+  /**
+   * Reads the next entry, copying its serialized bytes to the given raw entries builder.
+   *
+   * @param entries the builder to which to copy the entry
+   * @return the next entry
+   */
+  public Indexed<RaftLogEntry> next(RawEntries.Builder entries) {
+    return reader.next(entries);
+  }
 }
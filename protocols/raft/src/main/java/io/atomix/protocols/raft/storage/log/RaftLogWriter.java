@@ -17,8 +17,11 @@ package io.atomix.protocols.raft.storage.log;
 
 import io.atomix.protocols.raft.storage.log.entry.RaftLogEntry;
 import io.atomix.storage.journal.DelegatingJournalWriter;
+import io.atomix.storage.journal.RawEntries;
 import io.atomix.storage.journal.SegmentedJournalWriter;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Raft log writer.
  */
@@ -41,6 +44,36 @@ public class RaftLogWriter extends DelegatingJournalWriter<RaftLogEntry> {
     writer.reset(index);
   }
 
+  /**
+   * Returns the highest index known to have been flushed to disk.
+   *
+   * @return the highest index known to have been flushed to disk
+   */
+  public long getDurableIndex() {
+    return writer.getDurableIndex();
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given index have been flushed to disk.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the durable index once the given index has been flushed
+   */
+  public CompletableFuture<Long> awaitDurable(long index) {
+    return writer.awaitDurable(index);
+  }
+
+  /**
+   * Appends a serialized entry to the log without deserializing it.
+   *
+   * @param entries the raw entries from which to append the entry
+   * @param entry   the number of the entry to append
+   * @return the index of the appended entry
+   */
+  public long append(RawEntries entries, int entry) {
+    return writer.append(entries, entry);
+  }
+
   /**
    * Commits entries up to the given index.
    *
@@ -49,7 +82,10 @@ public class RaftLogWriter extends DelegatingJournalWriter<RaftLogEntry> {
   public void commit(long index) {
     if (index > log.getCommitIndex()) {
       log.setCommitIndex(index);
-      if (log.isFlushOnCommit()) {
+      // When group commit is enabled, entries are already flushed in batches by the journal. Otherwise, the
+      // journal flushes entries as they're appended, and the log only needs to be flushed here if a quorum
+      // persisted the entries before the local flush completed.
+      if (log.isFlushOnCommit() && !log.isGroupCommit() && writer.getDurableIndex() < index) {
         flush();
       }
     }
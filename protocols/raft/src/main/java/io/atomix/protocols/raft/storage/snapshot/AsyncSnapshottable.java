@@ -0,0 +1,60 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import io.atomix.protocols.raft.service.RaftService;
+
+import java.util.function.Consumer;
+
+/**
+ * Support for writing {@link RaftService} snapshots in the background.
+ * <p>
+ * Snapshots of {@link Snapshottable} state machines are written on the state machine thread, so the state machine
+ * cannot apply commands while its state is serialized. State machines that can cheaply capture a point-in-time
+ * view of their state, e.g. using persistent or copy-on-write data structures, can implement this interface to
+ * have the view serialized on a background thread while commands continue to be applied.
+ * <pre>
+ *   {@code
+ *   public class MyStateMachine extends AbstractRaftService implements AsyncSnapshottable {
+ *     private ImmutableMap<String, String> map = ImmutableMap.of();
+ *
+ *     public Consumer<SnapshotWriter> captureSnapshot() {
+ *       ImmutableMap<String, String> map = this.map;
+ *       return writer -> writer.writeObject(map);
+ *     }
+ *   }
+ *   }
+ * </pre>
+ */
+public interface AsyncSnapshottable extends Snapshottable {
+
+  /**
+   * Captures a point-in-time view of the state machine state.
+   * <p>
+   * This method is called on the state machine thread. The returned function is later called on a background
+   * thread to write the captured state to the snapshot, concurrently with the application of subsequent commands
+   * to the state machine. The function must therefore write the state as of the time this method was called and
+   * must not read mutable state machine state.
+   *
+   * @return a function that writes the captured state to a snapshot writer
+   */
+  Consumer<SnapshotWriter> captureSnapshot();
+
+  @Override
+  default void snapshot(SnapshotWriter writer) {
+    captureSnapshot().accept(writer);
+  }
+}
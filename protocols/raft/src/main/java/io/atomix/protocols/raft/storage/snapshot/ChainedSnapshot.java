@@ -0,0 +1,152 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import com.google.common.collect.ImmutableList;
+import io.atomix.protocols.raft.service.ServiceId;
+import io.atomix.storage.buffer.BufferInput;
+import io.atomix.storage.buffer.HeapBuffer;
+import io.atomix.time.WallClockTimestamp;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A full snapshot and the delta snapshots chained to it.
+ * <p>
+ * Chained snapshots are created by the {@link SnapshotStore} as {@link DeltaSnapshottable} services write deltas,
+ * and are never written directly. The deltas remain in their own snapshots, so writing a delta costs only the size of
+ * the delta. Readers of a chained snapshot read the snapshots in sequence in the following format, which allows the
+ * chain to be sent to and stored by other members as a single snapshot:
+ * <ul>
+ *   <li>{@code int} - {@link #CHAIN_HEADER}</li>
+ *   <li>{@code int} - the number of snapshots in the chain, beginning with the full snapshot</li>
+ *   <li>for each snapshot, a {@code long} length followed by that many bytes of the snapshot</li>
+ * </ul>
+ */
+public final class ChainedSnapshot extends Snapshot {
+
+  /**
+   * Header with which chained snapshots begin. The header is negative to distinguish chained snapshots from
+   * snapshots that begin with a count.
+   */
+  public static final int CHAIN_HEADER = -1;
+
+  private final List<Snapshot> snapshots;
+
+  ChainedSnapshot(List<Snapshot> snapshots, SnapshotStore store) {
+    super(store);
+    checkNotNull(snapshots, "snapshots cannot be null");
+    checkArgument(snapshots.size() > 1, "snapshots must contain at least one delta");
+    this.snapshots = ImmutableList.copyOf(snapshots);
+  }
+
+  /**
+   * Returns the snapshots in the chain, beginning with the full snapshot.
+   *
+   * @return the snapshots in the chain
+   */
+  List<Snapshot> snapshots() {
+    return snapshots;
+  }
+
+  /**
+   * Returns the number of deltas in the chain.
+   *
+   * @return the number of deltas chained to the full snapshot
+   */
+  int deltas() {
+    return snapshots.size() - 1;
+  }
+
+  /**
+   * Returns the last delta in the chain.
+   */
+  private Snapshot last() {
+    return snapshots.get(snapshots.size() - 1);
+  }
+
+  @Override
+  public ServiceId serviceId() {
+    return last().serviceId();
+  }
+
+  @Override
+  public long index() {
+    return last().index();
+  }
+
+  @Override
+  public WallClockTimestamp timestamp() {
+    return last().timestamp();
+  }
+
+  @Override
+  public SnapshotWriter openWriter() {
+    throw new UnsupportedOperationException("cannot write to a chained snapshot");
+  }
+
+  @Override
+  public synchronized SnapshotReader openReader() {
+    List<BufferInput<?>> inputs = new ArrayList<>(snapshots.size() * 2 + 1);
+    inputs.add(HeapBuffer.wrap(ByteBuffer.allocate(Integer.BYTES * 2)
+        .putInt(CHAIN_HEADER)
+        .putInt(snapshots.size())
+        .array()));
+    try {
+      for (Snapshot snapshot : snapshots) {
+        SnapshotReader reader = snapshot.openReader();
+        inputs.add(HeapBuffer.wrap(ByteBuffer.allocate(Long.BYTES)
+            .putLong(reader.remainingBytes())
+            .array()));
+        inputs.add(reader);
+      }
+    } catch (RuntimeException e) {
+      inputs.forEach(BufferInput::close);
+      throw e;
+    }
+    return new SnapshotReader(new ChainedSnapshotInput(inputs), this);
+  }
+
+  @Override
+  public boolean isPersisted() {
+    return snapshots.stream().allMatch(Snapshot::isPersisted);
+  }
+
+  @Override
+  public void close() {
+    snapshots.forEach(Snapshot::close);
+  }
+
+  @Override
+  public void delete() {
+    snapshots.forEach(Snapshot::delete);
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("index", index())
+        .add("deltas", deltas())
+        .toString();
+  }
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.BufferInput;
+import io.atomix.storage.buffer.Bytes;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads a sequence of inputs as a single input.
+ * <p>
+ * Values may span the boundaries between inputs, so values are read from the underlying inputs as bytes and
+ * decoded in big-endian order, the same as the {@link Buffer}s from which snapshots are read.
+ */
+final class ChainedSnapshotInput implements BufferInput<ChainedSnapshotInput> {
+  private final List<BufferInput<?>> inputs;
+  private final byte[] scratch = new byte[Long.BYTES];
+  private int current;
+  private long position;
+
+  ChainedSnapshotInput(List<BufferInput<?>> inputs) {
+    this.inputs = inputs;
+  }
+
+  /**
+   * Returns the number of bytes remaining in the given input.
+   */
+  private static long remainingBytes(BufferInput<?> input) {
+    return input instanceof SnapshotReader ? ((SnapshotReader) input).remainingBytes() : input.remaining();
+  }
+
+  /**
+   * Returns the number of bytes remaining to be read.
+   *
+   * @return the number of bytes remaining to be read
+   */
+  long remainingBytes() {
+    long remaining = 0;
+    for (int i = current; i < inputs.size(); i++) {
+      remaining += remainingBytes(inputs.get(i));
+    }
+    return remaining;
+  }
+
+  /**
+   * Returns the next input with bytes remaining.
+   */
+  private BufferInput<?> input() {
+    while (current < inputs.size()) {
+      BufferInput<?> input = inputs.get(current);
+      if (remainingBytes(input) > 0) {
+        return input;
+      }
+      current++;
+    }
+    throw new BufferUnderflowException();
+  }
+
+  /**
+   * Reads the given number of bytes into the scratch buffer and returns them as a big-endian byte buffer.
+   */
+  private ByteBuffer readScratch(int bytes) {
+    read(scratch, 0, bytes);
+    return ByteBuffer.wrap(scratch, 0, bytes);
+  }
+
+  @Override
+  public int position() {
+    return (int) Math.min(position, Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int remaining() {
+    return (int) Math.min(remainingBytes(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public boolean hasRemaining() {
+    return remainingBytes() > 0;
+  }
+
+  @Override
+  public ChainedSnapshotInput skip(int bytes) {
+    if (remainingBytes() < bytes) {
+      throw new BufferUnderflowException();
+    }
+    int skipped = 0;
+    while (skipped < bytes) {
+      BufferInput<?> input = input();
+      int count = (int) Math.min(remainingBytes(input), bytes - skipped);
+      input.skip(count);
+      skipped += count;
+    }
+    position += bytes;
+    return this;
+  }
+
+  @Override
+  public ChainedSnapshotInput read(Bytes bytes) {
+    return read(bytes, 0, bytes.size());
+  }
+
+  @Override
+  public ChainedSnapshotInput read(byte[] bytes) {
+    return read(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public ChainedSnapshotInput read(Bytes bytes, int offset, int length) {
+    byte[] array = new byte[length];
+    read(array, 0, length);
+    bytes.write(offset, array, 0, length);
+    return this;
+  }
+
+  @Override
+  public ChainedSnapshotInput read(byte[] bytes, int offset, int length) {
+    if (remainingBytes() < length) {
+      throw new BufferUnderflowException();
+    }
+    int read = 0;
+    while (read < length) {
+      BufferInput<?> input = input();
+      int count = (int) Math.min(remainingBytes(input), length - read);
+      input.read(bytes, offset + read, count);
+      read += count;
+    }
+    position += length;
+    return this;
+  }
+
+  @Override
+  public ChainedSnapshotInput read(Buffer buffer) {
+    byte[] bytes = new byte[(int) Math.min(buffer.remaining(), remainingBytes())];
+    read(bytes);
+    buffer.write(bytes);
+    return this;
+  }
+
+  @Override
+  public int readByte() {
+    return readScratch(Byte.BYTES).get();
+  }
+
+  @Override
+  public int readUnsignedByte() {
+    return readScratch(Byte.BYTES).get() & 0xFF;
+  }
+
+  @Override
+  public char readChar() {
+    return readScratch(Character.BYTES).getChar();
+  }
+
+  @Override
+  public short readShort() {
+    return readScratch(Short.BYTES).getShort();
+  }
+
+  @Override
+  public int readUnsignedShort() {
+    return readScratch(Short.BYTES).getShort() & 0xFFFF;
+  }
+
+  @Override
+  public int readMedium() {
+    ByteBuffer buffer = readScratch(3);
+    return buffer.get() << 16
+        | (buffer.get() & 0xff) << 8
+        | (buffer.get() & 0xff);
+  }
+
+  @Override
+  public int readUnsignedMedium() {
+    ByteBuffer buffer = readScratch(3);
+    return (buffer.get() & 0xff) << 16
+        | (buffer.get() & 0xff) << 8
+        | (buffer.get() & 0xff);
+  }
+
+  @Override
+  public int readInt() {
+    return readScratch(Integer.BYTES).getInt();
+  }
+
+  @Override
+  public long readUnsignedInt() {
+    return readScratch(Integer.BYTES).getInt() & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public long readLong() {
+    return readScratch(Long.BYTES).getLong();
+  }
+
+  @Override
+  public float readFloat() {
+    return readScratch(Float.BYTES).getFloat();
+  }
+
+  @Override
+  public double readDouble() {
+    return readScratch(Double.BYTES).getDouble();
+  }
+
+  @Override
+  public boolean readBoolean() {
+    return readScratch(Byte.BYTES).get() == 1;
+  }
+
+  @Override
+  public String readString() {
+    return readString(Charset.defaultCharset());
+  }
+
+  @Override
+  public String readString(Charset charset) {
+    if (readBoolean()) {
+      byte[] bytes = new byte[readUnsignedShort()];
+      read(bytes);
+      return new String(bytes, charset);
+    }
+    return null;
+  }
+
+  @Override
+  public String readUTF8() {
+    return readString(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() {
+    inputs.forEach(BufferInput::close);
+  }
+}
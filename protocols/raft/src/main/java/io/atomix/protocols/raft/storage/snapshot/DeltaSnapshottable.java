@@ -0,0 +1,89 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import io.atomix.protocols.raft.service.RaftService;
+import io.atomix.protocols.raft.storage.RaftStorage;
+
+/**
+ * Support for incremental {@link RaftService} snapshots.
+ * <p>
+ * Snapshots of {@link Snapshottable} state machines contain the complete state machine state, so the cost of each
+ * snapshot grows with the size of the state rather than with the number of changes since the previous snapshot.
+ * State machines that track the changes to their state can implement this interface to write only those changes
+ * in a delta snapshot. Deltas are chained to the state machine's last full snapshot, and once the
+ * {@link RaftStorage#maxSnapshotDeltas() maximum number of deltas} has been chained a new full snapshot is taken.
+ * <pre>
+ *   {@code
+ *   public class MyStateMachine extends AbstractRaftService implements DeltaSnapshottable {
+ *     private Map<String, String> map = new HashMap<>();
+ *     private final Map<String, String> changes = new HashMap<>();
+ *
+ *     public void snapshot(SnapshotWriter writer) {
+ *       writer.writeObject(map);
+ *       changes.clear();
+ *     }
+ *
+ *     public void snapshotDelta(SnapshotWriter writer) {
+ *       writer.writeObject(changes);
+ *       changes.clear();
+ *     }
+ *
+ *     public void install(SnapshotReader reader) {
+ *       map = reader.readObject();
+ *       changes.clear();
+ *     }
+ *
+ *     public void installDelta(SnapshotReader reader) {
+ *       Map<String, String> delta = reader.readObject();
+ *       delta.forEach((key, value) -> {
+ *         if (value != null) {
+ *           map.put(key, value);
+ *         } else {
+ *           map.remove(key);
+ *         }
+ *       });
+ *     }
+ *   }
+ *   }
+ * </pre>
+ * Change tracking must be reset each time the state machine is {@link #snapshot(SnapshotWriter) snapshotted},
+ * {@link #snapshotDelta(SnapshotWriter) delta snapshotted}, or {@link #install(SnapshotReader) installed}, so
+ * each delta contains the changes since the previous snapshot or installation.
+ */
+public interface DeltaSnapshottable extends Snapshottable {
+
+  /**
+   * Writes the changes to the state machine state since the previous snapshot.
+   * <p>
+   * This method is called on the state machine thread in place of {@link #snapshot(SnapshotWriter)} while the
+   * state machine's last snapshot can be extended with a delta.
+   *
+   * @param writer The snapshot writer.
+   */
+  void snapshotDelta(SnapshotWriter writer);
+
+  /**
+   * Applies changes written by {@link #snapshotDelta(SnapshotWriter)} to the state machine state.
+   * <p>
+   * When a chained snapshot is installed, the full snapshot is first {@link #install(SnapshotReader) installed}
+   * and each delta is then applied in the order in which it was written.
+   *
+   * @param reader The snapshot reader.
+   */
+  void installDelta(SnapshotReader reader);
+
+}
@@ -15,29 +15,60 @@
  */
 package io.atomix.protocols.raft.storage.snapshot;
 
+import com.google.common.primitives.Ints;
 import io.atomix.protocols.raft.service.ServiceId;
+import io.atomix.storage.StorageException;
+import io.atomix.storage.StorageLevel;
 import io.atomix.storage.buffer.Buffer;
 import io.atomix.storage.buffer.FileBuffer;
+import io.atomix.storage.buffer.HeapBuffer;
+import io.atomix.storage.buffer.MappedBuffer;
 import io.atomix.time.WallClockTimestamp;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 
 import static com.google.common.base.MoreObjects.toStringHelper;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 
 /**
- * File-based snapshot backed by a {@link FileBuffer}.
+ * File-based snapshot.
+ * <p>
+ * Snapshots are streamed to the snapshot file in chunks, and read from a {@link FileBuffer} or, for the
+ * {@link StorageLevel#MAPPED} storage level, a {@link MappedBuffer}. Snapshots too large to be addressed by a buffer
+ * are streamed from the file as well.
+ * <p>
+ * Temporary file snapshots are written to a temporary file next to the snapshot file, and the temporary file is
+ * atomically moved to the snapshot file once the snapshot is {@link #persist() persisted}.
  */
 final class FileSnapshot extends Snapshot {
+  private static final int HEADER_BYTES = SnapshotDescriptor.BYTES + Integer.BYTES;
+
+  // Written in place of the length of snapshots too large for the length field. The length of such snapshots is
+  // derived from the size of the file.
+  private static final int LARGE_LENGTH = -1;
+
   private final SnapshotFile file;
+  private final File dataFile;
+  private final long previousIndex;
   private final SnapshotStore store;
 
-  FileSnapshot(SnapshotFile file, SnapshotStore store) {
+  FileSnapshot(SnapshotFile file, long previousIndex, SnapshotStore store) {
+    this(file, file.file(), previousIndex, store);
+  }
+
+  FileSnapshot(SnapshotFile file, File dataFile, long previousIndex, SnapshotStore store) {
     super(store);
     this.file = checkNotNull(file, "file cannot be null");
+    this.dataFile = checkNotNull(dataFile, "dataFile cannot be null");
+    this.previousIndex = previousIndex;
     this.store = checkNotNull(store, "store cannot be null");
   }
 
@@ -56,45 +87,111 @@ final class FileSnapshot extends Snapshot {
     return WallClockTimestamp.from(file.timestamp());
   }
 
+  @Override
+  public long previousIndex() {
+    return previousIndex;
+  }
+
   @Override
   public synchronized SnapshotWriter openWriter() {
     checkWriter();
     SnapshotDescriptor descriptor = SnapshotDescriptor.newBuilder()
         .withIndex(file.index())
         .withTimestamp(file.timestamp())
+        .withPreviousIndex(previousIndex)
         .build();
 
-    Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
-    descriptor.copyTo(buffer);
+    byte[] header = new byte[SnapshotDescriptor.BYTES];
+    descriptor.copyTo(HeapBuffer.wrap(header));
 
-    int length = buffer.position(SnapshotDescriptor.BYTES).readInt();
-    return openWriter(new SnapshotWriter(buffer.skip(length).mark(), this), descriptor);
+    // Continue writing after any bytes already written to the snapshot.
+    FileSnapshotOutput output = new FileSnapshotOutput(dataFile, HEADER_BYTES + readLength());
+    output.write(0, header);
+    return openWriter(new SnapshotWriter(output, this), descriptor);
   }
 
   @Override
   protected void closeWriter(SnapshotWriter writer) {
-    int length = writer.buffer.position() - (SnapshotDescriptor.BYTES + Integer.BYTES);
-    writer.buffer.writeInt(SnapshotDescriptor.BYTES, length).flush();
+    long length = writer.file.position() - HEADER_BYTES;
+    writer.file.write(SnapshotDescriptor.BYTES, Ints.toByteArray(length > Integer.MAX_VALUE ? LARGE_LENGTH : (int) length))
+        .flush();
     super.closeWriter(writer);
   }
 
   @Override
   public synchronized SnapshotReader openReader() {
-    checkState(file.file().exists(), "missing snapshot file: %s", file.file());
-    Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
+    checkState(dataFile.exists(), "missing snapshot file: %s", dataFile);
+    long length = readLength();
+
+    // Snapshots too large to be addressed by a buffer are streamed from the file.
+    if (length > Integer.MAX_VALUE - HEADER_BYTES) {
+      try (SnapshotDescriptor descriptor = new SnapshotDescriptor(FileBuffer.allocate(dataFile, SnapshotDescriptor.BYTES))) {
+        return openReader(new SnapshotReader(new FileSnapshotInput(dataFile, HEADER_BYTES, HEADER_BYTES + length), this), descriptor);
+      }
+    }
+
+    Buffer buffer = openBuffer();
     SnapshotDescriptor descriptor = new SnapshotDescriptor(buffer);
-    int length = buffer.position(SnapshotDescriptor.BYTES).readInt();
-    return openReader(new SnapshotReader(buffer.mark().limit(SnapshotDescriptor.BYTES + Integer.BYTES + length), this), descriptor);
+    buffer.position(HEADER_BYTES);
+    return openReader(new SnapshotReader(buffer.mark().limit(HEADER_BYTES + (int) length), this), descriptor);
+  }
+
+  /**
+   * Reads the length of the snapshot from the snapshot file header.
+   */
+  private long readLength() {
+    long fileLength = dataFile.length();
+    if (fileLength < HEADER_BYTES) {
+      return 0;
+    }
+    try (FileChannel channel = FileChannel.open(dataFile.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, SnapshotDescriptor.BYTES + buffer.position()) < 0) {
+          return 0;
+        }
+      }
+      int length = buffer.getInt(0);
+      return length == LARGE_LENGTH ? fileLength - HEADER_BYTES : length;
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  /**
+   * Opens a buffer for the snapshot file according to the configured storage level.
+   */
+  private Buffer openBuffer() {
+    if (store.storage.storageLevel() == StorageLevel.MAPPED) {
+      return MappedBuffer.allocate(dataFile, SnapshotDescriptor.BYTES, Integer.MAX_VALUE);
+    }
+    return FileBuffer.allocate(dataFile, SnapshotDescriptor.BYTES);
+  }
+
+  @Override
+  public Snapshot persist() {
+    if (dataFile.equals(file.file())) {
+      return this;
+    }
+
+    // The snapshot was flushed to the temporary file when its writer was closed, so once the file has been
+    // moved into place the snapshot is either complete on disk or absent.
+    try {
+      Files.move(dataFile.toPath(), file.file().toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } catch (IOException e) {
+      throw new StorageException("Failed to move snapshot to " + file.file(), e);
+    }
+    return new FileSnapshot(file, previousIndex, store);
   }
 
   @Override
   public boolean isPersisted() {
-    return true;
+    return dataFile.equals(file.file());
   }
 
   @Override
   public Snapshot complete() {
-    Buffer buffer = FileBuffer.allocate(file.file(), SnapshotDescriptor.BYTES);
+    Buffer buffer = FileBuffer.allocate(dataFile, SnapshotDescriptor.BYTES);
     try (SnapshotDescriptor descriptor = new SnapshotDescriptor(buffer)) {
       checkState(!descriptor.isLocked(), "cannot complete locked snapshot descriptor");
       descriptor.lock();
@@ -107,10 +204,10 @@ final class FileSnapshot extends Snapshot {
    */
   @Override
   public void delete() {
-    Path path = file.file().toPath();
+    Path path = dataFile.toPath();
     if (Files.exists(path)) {
       try {
-        Files.delete(file.file().toPath());
+        Files.delete(path);
       } catch (IOException e) {
       }
     }
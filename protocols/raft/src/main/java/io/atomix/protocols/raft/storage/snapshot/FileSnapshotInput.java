@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.BufferInput;
+import io.atomix.storage.buffer.Bytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams snapshot bytes from a file.
+ * <p>
+ * Bytes are read from the file through a {@link FileChannel} into a fixed size direct buffer, so the heap use of a
+ * snapshot reader is independent of the size of the snapshot. Positions are tracked as {@code long}s, allowing
+ * snapshots larger than {@code Integer.MAX_VALUE} bytes to be read.
+ */
+final class FileSnapshotInput implements BufferInput<FileSnapshotInput> {
+  private static final int CHUNK_SIZE = 1024 * 64;
+
+  private final FileChannel channel;
+  private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+  private final long limit;
+  private long chunkPosition;
+
+  FileSnapshotInput(File file, long position, long limit) {
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    this.limit = limit;
+    reset(position);
+  }
+
+  /**
+   * Returns the number of bytes remaining to be read.
+   *
+   * @return the number of bytes remaining to be read
+   */
+  long remainingBytes() {
+    return limit - (chunkPosition + chunk.position());
+  }
+
+  /**
+   * Discards the buffered bytes and positions the reader at the given position in the file.
+   */
+  private void reset(long position) {
+    chunkPosition = position;
+    chunk.clear().limit(0);
+  }
+
+  /**
+   * Ensures the given number of bytes are buffered, reading the next chunk of the file if necessary.
+   */
+  private ByteBuffer ensure(int bytes) {
+    if (chunk.remaining() < bytes) {
+      if (remainingBytes() < bytes) {
+        throw new BufferUnderflowException();
+      }
+      chunkPosition += chunk.position();
+      chunk.compact();
+      long position = chunkPosition + chunk.position();
+      chunk.limit((int) Math.min(chunk.capacity(), chunk.position() + (limit - position)));
+      readFully(chunk, position);
+      chunk.flip();
+    }
+    return chunk;
+  }
+
+  /**
+   * Reads bytes from the file at the given position until the given buffer is full.
+   */
+  private void readFully(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position);
+        if (read < 0) {
+          throw new StorageException("Unexpected end of snapshot file");
+        }
+        position += read;
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public int position() {
+    return (int) Math.min(chunkPosition + chunk.position(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public int remaining() {
+    return (int) Math.min(remainingBytes(), Integer.MAX_VALUE);
+  }
+
+  @Override
+  public boolean hasRemaining() {
+    return remainingBytes() > 0;
+  }
+
+  @Override
+  public FileSnapshotInput skip(int bytes) {
+    if (remainingBytes() < bytes) {
+      throw new BufferUnderflowException();
+    }
+    if (chunk.remaining() >= bytes) {
+      chunk.position(chunk.position() + bytes);
+    } else {
+      reset(chunkPosition + chunk.position() + bytes);
+    }
+    return this;
+  }
+
+  @Override
+  public FileSnapshotInput read(Bytes bytes) {
+    return read(bytes, 0, bytes.size());
+  }
+
+  @Override
+  public FileSnapshotInput read(byte[] bytes) {
+    return read(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public FileSnapshotInput read(Bytes bytes, int offset, int length) {
+    byte[] array = new byte[length];
+    read(array, 0, length);
+    bytes.write(offset, array, 0, length);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotInput read(byte[] bytes, int offset, int length) {
+    if (remainingBytes() < length) {
+      throw new BufferUnderflowException();
+    }
+    int buffered = Math.min(chunk.remaining(), length);
+    chunk.get(bytes, offset, buffered);
+    int unbuffered = length - buffered;
+    if (unbuffered > chunk.capacity()) {
+      // Large arrays are read from the file directly rather than copied through the chunk buffer.
+      long position = chunkPosition + chunk.position();
+      readFully(ByteBuffer.wrap(bytes, offset + buffered, unbuffered), position);
+      reset(position + unbuffered);
+    } else if (unbuffered > 0) {
+      ensure(unbuffered).get(bytes, offset + buffered, unbuffered);
+    }
+    return this;
+  }
+
+  @Override
+  public FileSnapshotInput read(Buffer buffer) {
+    byte[] bytes = new byte[(int) Math.min(buffer.remaining(), remainingBytes())];
+    read(bytes);
+    buffer.write(bytes);
+    return this;
+  }
+
+  @Override
+  public int readByte() {
+    return ensure(Byte.BYTES).get();
+  }
+
+  @Override
+  public int readUnsignedByte() {
+    return ensure(Byte.BYTES).get() & 0xFF;
+  }
+
+  @Override
+  public char readChar() {
+    return ensure(Character.BYTES).getChar();
+  }
+
+  @Override
+  public short readShort() {
+    return ensure(Short.BYTES).getShort();
+  }
+
+  @Override
+  public int readUnsignedShort() {
+    return ensure(Short.BYTES).getShort() & 0xFFFF;
+  }
+
+  @Override
+  public int readMedium() {
+    ByteBuffer buffer = ensure(3);
+    return buffer.get() << 16
+        | (buffer.get() & 0xff) << 8
+        | (buffer.get() & 0xff);
+  }
+
+  @Override
+  public int readUnsignedMedium() {
+    ByteBuffer buffer = ensure(3);
+    return (buffer.get() & 0xff) << 16
+        | (buffer.get() & 0xff) << 8
+        | (buffer.get() & 0xff);
+  }
+
+  @Override
+  public int readInt() {
+    return ensure(Integer.BYTES).getInt();
+  }
+
+  @Override
+  public long readUnsignedInt() {
+    return ensure(Integer.BYTES).getInt() & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public long readLong() {
+    return ensure(Long.BYTES).getLong();
+  }
+
+  @Override
+  public float readFloat() {
+    return ensure(Float.BYTES).getFloat();
+  }
+
+  @Override
+  public double readDouble() {
+    return ensure(Double.BYTES).getDouble();
+  }
+
+  @Override
+  public boolean readBoolean() {
+    return ensure(Byte.BYTES).get() == 1;
+  }
+
+  @Override
+  public String readString() {
+    return readString(Charset.defaultCharset());
+  }
+
+  @Override
+  public String readString(Charset charset) {
+    if (readBoolean()) {
+      byte[] bytes = new byte[readUnsignedShort()];
+      read(bytes);
+      return new String(bytes, charset);
+    }
+    return null;
+  }
+
+  @Override
+  public String readUTF8() {
+    return readString(StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void close() {
+    try {
+      channel.close();
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+}
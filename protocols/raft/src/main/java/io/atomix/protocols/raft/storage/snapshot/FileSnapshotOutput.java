@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.storage.snapshot;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.BufferOutput;
+import io.atomix.storage.buffer.Bytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Streams snapshot bytes to a file.
+ * <p>
+ * Bytes are staged in a fixed size direct buffer and written to the file through a {@link FileChannel} each time the
+ * buffer fills, so the heap use of a snapshot writer is independent of the size of the snapshot. Positions are
+ * tracked as {@code long}s, allowing snapshots larger than {@code Integer.MAX_VALUE} bytes to be written. Bytes are
+ * encoded in big-endian order, the same as the {@link Buffer}s from which snapshots are read.
+ */
+final class FileSnapshotOutput implements BufferOutput<FileSnapshotOutput> {
+  private static final int CHUNK_SIZE = 1024 * 64;
+
+  private final FileChannel channel;
+  private final ByteBuffer chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+  private long chunkPosition;
+
+  FileSnapshotOutput(File file, long position) {
+    try {
+      this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    this.chunkPosition = position;
+  }
+
+  /**
+   * Returns the position in the file at which the next byte will be written.
+   *
+   * @return the current position in the file
+   */
+  long position() {
+    return chunkPosition + chunk.position();
+  }
+
+  /**
+   * Writes bytes at the given position in the file.
+   * <p>
+   * If the bytes extend past the current position, the current position is advanced to the end of the bytes.
+   *
+   * @param position the position at which to write the bytes
+   * @param bytes the bytes to write
+   * @return the snapshot output
+   */
+  FileSnapshotOutput write(long position, byte[] bytes) {
+    checkArgument(position >= 0, "position must be positive");
+    drain();
+    writeFully(ByteBuffer.wrap(bytes), position);
+    chunkPosition = Math.max(chunkPosition, position + bytes.length);
+    return this;
+  }
+
+  /**
+   * Reads bytes that have been written to the file.
+   *
+   * @param position the position from which to read
+   * @param bytes the array into which to read the bytes
+   * @param offset the offset in the array at which to begin reading
+   * @param length the number of bytes to read
+   * @return the snapshot output
+   */
+  FileSnapshotOutput read(long position, byte[] bytes, int offset, int length) {
+    drain();
+    ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+    try {
+      while (buffer.hasRemaining()) {
+        int read = channel.read(buffer, position + buffer.position() - offset);
+        if (read < 0) {
+          throw new StorageException("Unexpected end of snapshot file");
+        }
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    return this;
+  }
+
+  /**
+   * Ensures the given number of bytes can be staged in the chunk buffer.
+   */
+  private ByteBuffer ensure(int bytes) {
+    if (chunk.remaining() < bytes) {
+      drain();
+    }
+    return chunk;
+  }
+
+  /**
+   * Writes the staged bytes to the file.
+   */
+  private void drain() {
+    if (chunk.position() > 0) {
+      chunk.flip();
+      long position = chunkPosition;
+      chunkPosition += chunk.remaining();
+      writeFully(chunk, position);
+      chunk.clear();
+    }
+  }
+
+  /**
+   * Writes all remaining bytes in the given buffer to the file at the given position.
+   */
+  private void writeFully(ByteBuffer buffer, long position) {
+    try {
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+
+  @Override
+  public FileSnapshotOutput write(Bytes bytes) {
+    return write(bytes, 0, bytes.size());
+  }
+
+  @Override
+  public FileSnapshotOutput write(byte[] bytes) {
+    return write(bytes, 0, bytes.length);
+  }
+
+  @Override
+  public FileSnapshotOutput write(Bytes bytes, int offset, int length) {
+    byte[] array = new byte[length];
+    bytes.read(offset, array, 0, length);
+    return write(array, 0, length);
+  }
+
+  @Override
+  public FileSnapshotOutput write(byte[] bytes, int offset, int length) {
+    if (length > chunk.capacity()) {
+      // Large arrays are written to the file directly rather than copied through the chunk buffer.
+      drain();
+      writeFully(ByteBuffer.wrap(bytes, offset, length), chunkPosition);
+      chunkPosition += length;
+    } else {
+      ensure(length).put(bytes, offset, length);
+    }
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput write(Buffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.read(bytes);
+    return write(bytes);
+  }
+
+  @Override
+  public FileSnapshotOutput writeByte(int b) {
+    ensure(Byte.BYTES).put((byte) b);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeUnsignedByte(int b) {
+    return writeByte(b);
+  }
+
+  @Override
+  public FileSnapshotOutput writeChar(char c) {
+    ensure(Character.BYTES).putChar(c);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeShort(short s) {
+    ensure(Short.BYTES).putShort(s);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeUnsignedShort(int s) {
+    return writeShort((short) s);
+  }
+
+  @Override
+  public FileSnapshotOutput writeMedium(int m) {
+    ensure(3).put((byte) (m >>> 16)).put((byte) (m >>> 8)).put((byte) m);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeUnsignedMedium(int m) {
+    return writeMedium(m);
+  }
+
+  @Override
+  public FileSnapshotOutput writeInt(int i) {
+    ensure(Integer.BYTES).putInt(i);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeUnsignedInt(long i) {
+    return writeInt((int) i);
+  }
+
+  @Override
+  public FileSnapshotOutput writeLong(long l) {
+    ensure(Long.BYTES).putLong(l);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeFloat(float f) {
+    ensure(Float.BYTES).putFloat(f);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeDouble(double d) {
+    ensure(Double.BYTES).putDouble(d);
+    return this;
+  }
+
+  @Override
+  public FileSnapshotOutput writeBoolean(boolean b) {
+    return writeByte(b ? 1 : 0);
+  }
+
+  @Override
+  public FileSnapshotOutput writeString(String s) {
+    return writeString(s, Charset.defaultCharset());
+  }
+
+  @Override
+  public FileSnapshotOutput writeString(String s, Charset charset) {
+    if (s == null) {
+      return writeBoolean(false);
+    }
+    byte[] bytes = s.getBytes(charset);
+    return writeBoolean(true)
+        .writeUnsignedShort(bytes.length)
+        .write(bytes);
+  }
+
+  @Override
+  public FileSnapshotOutput writeUTF8(String s) {
+    return writeString(s, StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public FileSnapshotOutput flush() {
+    drain();
+    try {
+      channel.force(false);
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    return this;
+  }
+
+  @Override
+  public void close() {
+    try {
+      drain();
+    } finally {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        throw new StorageException(e);
+      }
+    }
+  }
+}
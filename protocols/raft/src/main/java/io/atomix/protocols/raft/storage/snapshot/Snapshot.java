@@ -85,6 +85,18 @@ public abstract class Snapshot implements AutoCloseable {
    */
   public abstract WallClockTimestamp timestamp();
 
+  /**
+   * Returns the index of the snapshot to which this snapshot applies as a delta.
+   * <p>
+   * Delta snapshots are written by {@link DeltaSnapshottable} services and contain only the changes since the
+   * snapshot at the previous index. Once completed, deltas are chained to the snapshot to which they apply.
+   *
+   * @return The index of the snapshot to which this delta applies, or {@code 0} if this is a full snapshot.
+   */
+  public long previousIndex() {
+    return 0;
+  }
+
   /**
    * Opens a new snapshot writer.
    * <p>
@@ -58,6 +58,7 @@ public final class SnapshotDescriptor implements AutoCloseable {
   private final long index;
   private final long timestamp;
   private boolean locked;
+  private final long previousIndex;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
@@ -68,6 +69,7 @@ public final class SnapshotDescriptor implements AutoCloseable {
     this.index = buffer.readLong();
     this.timestamp = buffer.readLong();
     this.locked = buffer.readBoolean();
+    this.previousIndex = buffer.readLong();
     buffer.skip(BYTES - buffer.position());
   }
 
@@ -98,6 +100,15 @@ public final class SnapshotDescriptor implements AutoCloseable {
     return timestamp;
   }
 
+  /**
+   * Returns the index of the snapshot to which a delta snapshot applies.
+   *
+   * @return The index of the snapshot to which the delta applies, or {@code 0} if the snapshot is a full snapshot.
+   */
+  public long previousIndex() {
+    return previousIndex;
+  }
+
   /**
    * Returns whether the snapshot has been locked by commitment.
    * <p>
@@ -128,6 +139,7 @@ public final class SnapshotDescriptor implements AutoCloseable {
         .writeLong(index)
         .writeLong(timestamp)
         .writeBoolean(locked)
+        .writeLong(previousIndex)
         .skip(BYTES - buffer.position())
         .flush();
     return this;
@@ -190,6 +202,17 @@ public final class SnapshotDescriptor implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the index of the snapshot to which a delta snapshot applies.
+     *
+     * @param previousIndex The index of the snapshot to which the delta applies.
+     * @return The snapshot builder.
+     */
+    public Builder withPreviousIndex(long previousIndex) {
+      buffer.writeLong(25, previousIndex);
+      return this;
+    }
+
     /**
      * Builds the snapshot descriptor.
      *
@@ -34,6 +34,7 @@ public final class SnapshotFile {
   private static final char PART_SEPARATOR = '-';
   private static final char EXTENSION_SEPARATOR = '.';
   private static final String EXTENSION = "snapshot";
+  private static final String TEMPORARY_EXTENSION = "tmp";
   private final File file;
 
   /**
@@ -86,6 +87,19 @@ public final class SnapshotFile {
     return true;
   }
 
+  /**
+   * Returns a boolean value indicating whether the given file appears to be a temporary snapshot file.
+   *
+   * @throws NullPointerException if {@code file} is null
+   */
+  public static boolean isTemporarySnapshotFile(String name, File file) {
+    checkNotNull(file, "file cannot be null");
+    String fileName = file.getName();
+    String suffix = String.valueOf(EXTENSION_SEPARATOR) + TEMPORARY_EXTENSION;
+    return fileName.endsWith(suffix)
+        && isSnapshotFile(name, new File(file.getParentFile(), fileName.substring(0, fileName.length() - suffix.length())));
+  }
+
   /**
    * Returns a boolean indicating whether the given string value is numeric.
    *
@@ -109,6 +123,13 @@ public final class SnapshotFile {
     return new File(directory, createSnapshotFileName(name, id, index, timestamp));
   }
 
+  /**
+   * Creates the temporary file to which the given snapshot file is written before it's persisted.
+   */
+  static File createTemporaryFile(File file) {
+    return new File(file.getParentFile(), file.getName() + EXTENSION_SEPARATOR + TEMPORARY_EXTENSION);
+  }
+
   /**
    * Creates a snapshot file name from the given parameters.
    */
@@ -31,39 +31,58 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <p>
  * This class provides the primary interface for reading snapshot buffers from disk or memory.
  * Snapshot bytes are read from an underlying {@link Buffer} which is backed by either memory
- * or disk based on the configured {@link StorageLevel}.
+ * or disk based on the configured {@link StorageLevel}, or streamed from the snapshot file for
+ * snapshots too large to be addressed by a buffer. Readers of {@link ChainedSnapshot chained snapshots}
+ * read the full snapshot and its deltas in sequence.
  * <p>
  * In addition to standard {@link BufferInput} methods, snapshot readers support reading serializable objects
  * from the snapshot via the {@link #readObject(Function)} method. Serializable types must be registered on the
  * {@link RaftServer} serializer to be supported in snapshots.
  */
 public class SnapshotReader implements BufferInput<SnapshotReader> {
-  private final Buffer buffer;
+  private final BufferInput<?> input;
   private final Snapshot snapshot;
 
-  SnapshotReader(Buffer buffer, Snapshot snapshot) {
-    this.buffer = checkNotNull(buffer, "buffer cannot be null");
+  SnapshotReader(BufferInput<?> input, Snapshot snapshot) {
+    this.input = checkNotNull(input, "input cannot be null");
     this.snapshot = checkNotNull(snapshot, "snapshot cannot be null");
   }
 
+  /**
+   * Returns the number of bytes remaining in the snapshot.
+   * <p>
+   * Unlike {@link #remaining()}, the number of remaining bytes is not limited to {@code Integer.MAX_VALUE}
+   * for snapshots larger than 2GB.
+   *
+   * @return the number of bytes remaining in the snapshot
+   */
+  public long remainingBytes() {
+    if (input instanceof FileSnapshotInput) {
+      return ((FileSnapshotInput) input).remainingBytes();
+    } else if (input instanceof ChainedSnapshotInput) {
+      return ((ChainedSnapshotInput) input).remainingBytes();
+    }
+    return input.remaining();
+  }
+
   @Override
   public int position() {
-    return buffer.position();
+    return input.position();
   }
 
   @Override
   public int remaining() {
-    return buffer.remaining();
+    return input.remaining();
   }
 
   @Override
   public boolean hasRemaining() {
-    return buffer.hasRemaining();
+    return input.hasRemaining();
   }
 
   @Override
   public SnapshotReader skip(int bytes) {
-    buffer.skip(bytes);
+    input.skip(bytes);
     return this;
   }
 
@@ -75,123 +94,123 @@ public class SnapshotReader implements BufferInput<SnapshotReader> {
    * @return the read object.
    */
   public <T> T readObject(Function<byte[], T> decoder) {
-    byte[] bytes = buffer.readBytes(buffer.readInt());
+    byte[] bytes = input.readBytes(input.readInt());
     return decoder.apply(bytes);
   }
 
   @Override
   public SnapshotReader read(Bytes bytes) {
-    buffer.read(bytes);
+    input.read(bytes);
     return this;
   }
 
   @Override
   public SnapshotReader read(byte[] bytes) {
-    buffer.read(bytes);
+    input.read(bytes);
     return this;
   }
 
   @Override
   public SnapshotReader read(Bytes bytes, int offset, int length) {
-    buffer.read(bytes, offset, length);
+    input.read(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotReader read(byte[] bytes, int offset, int length) {
-    buffer.read(bytes, offset, length);
+    input.read(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotReader read(Buffer buffer) {
-    this.buffer.read(buffer);
+    input.read(buffer);
     return this;
   }
 
   @Override
   public int readByte() {
-    return buffer.readByte();
+    return input.readByte();
   }
 
   @Override
   public int readUnsignedByte() {
-    return buffer.readUnsignedByte();
+    return input.readUnsignedByte();
   }
 
   @Override
   public char readChar() {
-    return buffer.readChar();
+    return input.readChar();
   }
 
   @Override
   public short readShort() {
-    return buffer.readShort();
+    return input.readShort();
   }
 
   @Override
   public int readUnsignedShort() {
-    return buffer.readUnsignedShort();
+    return input.readUnsignedShort();
   }
 
   @Override
   public int readMedium() {
-    return buffer.readMedium();
+    return input.readMedium();
   }
 
   @Override
   public int readUnsignedMedium() {
-    return buffer.readUnsignedMedium();
+    return input.readUnsignedMedium();
   }
 
   @Override
   public int readInt() {
-    return buffer.readInt();
+    return input.readInt();
   }
 
   @Override
   public long readUnsignedInt() {
-    return buffer.readUnsignedInt();
+    return input.readUnsignedInt();
   }
 
   @Override
   public long readLong() {
-    return buffer.readLong();
+    return input.readLong();
   }
 
   @Override
   public float readFloat() {
-    return buffer.readFloat();
+    return input.readFloat();
   }
 
   @Override
   public double readDouble() {
-    return buffer.readDouble();
+    return input.readDouble();
   }
 
   @Override
   public boolean readBoolean() {
-    return buffer.readBoolean();
+    return input.readBoolean();
   }
 
   @Override
   public String readString() {
-    return buffer.readString();
+    return input.readString();
   }
 
   @Override
   public String readString(Charset charset) {
-    return buffer.readString(charset);
+    return input.readString(charset);
   }
 
   @Override
   public String readUTF8() {
-    return buffer.readUTF8();
+    return input.readUTF8();
   }
 
   @Override
   public void close() {
-    buffer.close();
+    input.close();
     snapshot.closeReader(this);
   }
 
@@ -27,10 +27,12 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -56,6 +58,11 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * the point at which the snapshot was taken. Snapshot indices are used to sort snapshots loaded from
  * disk and apply them at the correct point in the state machine.
  * <p>
+ * Snapshots of {@link DeltaSnapshottable} services may be written as deltas with
+ * {@link #newTemporaryDeltaSnapshot(ServiceId, long, long, WallClockTimestamp)}. Once completed, a delta is chained
+ * to the snapshot to which it applies, and the {@link ChainedSnapshot chained snapshot} replaces it as the service's
+ * latest snapshot. Deltas that no longer apply to the latest snapshot of a service are deleted.
+ * <p>
  * <pre>
  *   {@code
  *   Snapshot snapshot = snapshots.create(10);
@@ -84,7 +91,13 @@ public class SnapshotStore implements AutoCloseable {
    * Opens the snapshot manager.
    */
   private void open() {
+    List<Snapshot> deltaSnapshots = new ArrayList<>();
     for (Snapshot snapshot : loadSnapshots()) {
+      if (snapshot.previousIndex() > 0) {
+        deltaSnapshots.add(snapshot);
+        continue;
+      }
+
       Snapshot existingSnapshot = stateMachineSnapshots.get(snapshot.serviceId());
       if (existingSnapshot == null || existingSnapshot.index() < snapshot.index()) {
         stateMachineSnapshots.put(snapshot.serviceId(), snapshot);
@@ -97,6 +110,19 @@ public class SnapshotStore implements AutoCloseable {
       }
     }
 
+    // Chain deltas to the snapshots to which they apply in index order. Deltas whose previous snapshot is missing
+    // were chained to a stale snapshot or follow a delta that was never completed.
+    deltaSnapshots.sort(Comparator.comparingLong(Snapshot::index));
+    for (Snapshot deltaSnapshot : deltaSnapshots) {
+      Snapshot existingSnapshot = stateMachineSnapshots.get(deltaSnapshot.serviceId());
+      if (existingSnapshot != null && existingSnapshot.index() == deltaSnapshot.previousIndex()) {
+        stateMachineSnapshots.put(deltaSnapshot.serviceId(), chainSnapshot(existingSnapshot, deltaSnapshot));
+      } else if (!storage.isRetainStaleSnapshots()) {
+        deltaSnapshot.close();
+        deltaSnapshot.delete();
+      }
+    }
+
     for (Snapshot snapshot : stateMachineSnapshots.values()) {
       indexSnapshots.put(snapshot.index(), snapshot);
     }
@@ -145,7 +171,7 @@ public class SnapshotStore implements AutoCloseable {
         // unlocked and should ultimately be deleted from disk.
         if (descriptor.isLocked()) {
           log.debug("Loaded disk snapshot: {} ({})", snapshotFile.index(), snapshotFile.file().getName());
-          snapshots.add(new FileSnapshot(snapshotFile, this));
+          snapshots.add(new FileSnapshot(snapshotFile, descriptor.previousIndex(), this));
           descriptor.close();
         }
         // If the segment descriptor wasn't locked, close and delete the descriptor.
@@ -155,13 +181,22 @@ public class SnapshotStore implements AutoCloseable {
           descriptor.delete();
         }
       }
+      // Temporary snapshots that were never persisted are left behind by failures while taking snapshots.
+      else if (SnapshotFile.isTemporarySnapshotFile(storage.prefix(), file)) {
+        log.debug("Deleting temporary snapshot: {}", file.getName());
+        file.delete();
+      }
     }
 
     return snapshots;
   }
 
   /**
-   * Creates a temporary in-memory snapshot.
+   * Creates a temporary snapshot.
+   * <p>
+   * For the {@link StorageLevel#MEMORY MEMORY} storage level, the snapshot is written to memory. Otherwise, the
+   * snapshot is streamed to a temporary file which is atomically moved into place once the snapshot is
+   * {@link Snapshot#persist() persisted}, so temporary snapshots are never staged on the heap.
    *
    * @param serviceId The snapshot identifier.
    * @param index The snapshot index.
@@ -169,12 +204,35 @@ public class SnapshotStore implements AutoCloseable {
    * @return The snapshot.
    */
   public Snapshot newTemporarySnapshot(ServiceId serviceId, long index, WallClockTimestamp timestamp) {
-    SnapshotDescriptor descriptor = SnapshotDescriptor.newBuilder()
-        .withId(serviceId.id())
-        .withIndex(index)
-        .withTimestamp(timestamp.unixTimestamp())
-        .build();
-    return newSnapshot(descriptor, StorageLevel.MEMORY);
+    return newTemporarySnapshot(newDescriptor(serviceId, 0, index, timestamp));
+  }
+
+  /**
+   * Creates a temporary delta snapshot.
+   * <p>
+   * Delta snapshots contain the changes to a {@link DeltaSnapshottable} service since the snapshot at the previous
+   * index. Deltas should only be created if {@link #canAppendDelta(ServiceId, long)} indicates the service's latest
+   * snapshot can be extended, otherwise the delta will be discarded once completed.
+   *
+   * @param serviceId The snapshot identifier.
+   * @param previousIndex The index of the snapshot to which the delta applies.
+   * @param index The snapshot index.
+   * @param timestamp The snapshot timestamp.
+   * @return The snapshot.
+   */
+  public Snapshot newTemporaryDeltaSnapshot(ServiceId serviceId, long previousIndex, long index, WallClockTimestamp timestamp) {
+    checkArgument(previousIndex > 0 && previousIndex < index, "previousIndex must be positive and less than index");
+    return newTemporarySnapshot(newDescriptor(serviceId, previousIndex, index, timestamp));
+  }
+
+  /**
+   * Creates a temporary snapshot for the given descriptor.
+   */
+  private Snapshot newTemporarySnapshot(SnapshotDescriptor descriptor) {
+    if (storage.storageLevel() == StorageLevel.MEMORY) {
+      return createMemorySnapshot(descriptor);
+    }
+    return createTemporaryDiskSnapshot(descriptor);
   }
 
   /**
@@ -186,12 +244,26 @@ public class SnapshotStore implements AutoCloseable {
    * @return The snapshot.
    */
   public Snapshot newSnapshot(ServiceId serviceId, long index, WallClockTimestamp timestamp) {
-    SnapshotDescriptor descriptor = SnapshotDescriptor.newBuilder()
+    return newSnapshot(serviceId, 0, index, timestamp);
+  }
+
+  /**
+   * Creates a new snapshot which applies to the snapshot at the given previous index.
+   */
+  Snapshot newSnapshot(ServiceId serviceId, long previousIndex, long index, WallClockTimestamp timestamp) {
+    return newSnapshot(newDescriptor(serviceId, previousIndex, index, timestamp), storage.storageLevel());
+  }
+
+  /**
+   * Creates a new snapshot descriptor.
+   */
+  private SnapshotDescriptor newDescriptor(ServiceId serviceId, long previousIndex, long index, WallClockTimestamp timestamp) {
+    return SnapshotDescriptor.newBuilder()
         .withId(serviceId.id())
         .withIndex(index)
         .withTimestamp(timestamp.unixTimestamp())
+        .withPreviousIndex(previousIndex)
         .build();
-    return newSnapshot(descriptor, storage.storageLevel());
   }
 
   /**
@@ -220,17 +292,85 @@ public class SnapshotStore implements AutoCloseable {
    */
   private Snapshot createDiskSnapshot(SnapshotDescriptor descriptor) {
     SnapshotFile file = new SnapshotFile(SnapshotFile.createSnapshotFile(storage.prefix(), storage.directory(), descriptor.snapshotId(), descriptor.index(), descriptor.timestamp()));
-    Snapshot snapshot = new FileSnapshot(file, this);
+    Snapshot snapshot = new FileSnapshot(file, descriptor.previousIndex(), this);
     log.debug("Created disk snapshot: {}", snapshot);
     return snapshot;
   }
 
+  /**
+   * Creates a disk snapshot that is written to a temporary file until it's persisted.
+   */
+  private Snapshot createTemporaryDiskSnapshot(SnapshotDescriptor descriptor) {
+    SnapshotFile file = new SnapshotFile(SnapshotFile.createSnapshotFile(storage.prefix(), storage.directory(), descriptor.snapshotId(), descriptor.index(), descriptor.timestamp()));
+    Snapshot snapshot = new FileSnapshot(file, SnapshotFile.createTemporaryFile(file.file()), descriptor.previousIndex(), this);
+    log.debug("Created temporary disk snapshot: {}", snapshot);
+    return snapshot;
+  }
+
+  /**
+   * Returns whether a delta snapshot at the given previous index can be chained to the latest snapshot of a service.
+   * <p>
+   * A delta can be chained if the service's latest snapshot is at the previous index and fewer than
+   * {@link RaftStorage#maxSnapshotDeltas()} deltas have already been chained to the service's last full snapshot.
+   *
+   * @param serviceId The service identifier.
+   * @param previousIndex The index of the snapshot to which the delta would apply.
+   * @return Indicates whether a delta snapshot can be chained to the service's latest snapshot.
+   */
+  public boolean canAppendDelta(ServiceId serviceId, long previousIndex) {
+    Snapshot snapshot = stateMachineSnapshots.get(serviceId);
+    if (snapshot == null || snapshot.index() != previousIndex) {
+      return false;
+    }
+    int deltas = snapshot instanceof ChainedSnapshot ? ((ChainedSnapshot) snapshot).deltas() : 0;
+    return deltas < storage.maxSnapshotDeltas();
+  }
+
+  /**
+   * Chains a delta snapshot to the snapshot to which it applies.
+   */
+  private Snapshot chainSnapshot(Snapshot snapshot, Snapshot deltaSnapshot) {
+    List<Snapshot> snapshots = new ArrayList<>();
+    if (snapshot instanceof ChainedSnapshot) {
+      snapshots.addAll(((ChainedSnapshot) snapshot).snapshots());
+    } else {
+      snapshots.add(snapshot);
+    }
+    snapshots.add(deltaSnapshot);
+    return new ChainedSnapshot(snapshots, this);
+  }
+
+  /**
+   * Completes writing a delta snapshot.
+   */
+  private void completeDeltaSnapshot(Snapshot snapshot) {
+    // Chain the delta to the existing snapshot if it applies to it. The chain replaces the existing snapshot, and
+    // the snapshots in the chain are retained.
+    Snapshot existingSnapshot = stateMachineSnapshots.get(snapshot.serviceId());
+    if (existingSnapshot != null && existingSnapshot.index() == snapshot.previousIndex()) {
+      Snapshot chainedSnapshot = chainSnapshot(existingSnapshot, snapshot);
+      stateMachineSnapshots.put(snapshot.serviceId(), chainedSnapshot);
+      indexSnapshots.remove(existingSnapshot.index());
+      indexSnapshots.put(chainedSnapshot.index(), chainedSnapshot);
+    }
+    // If the delta doesn't apply to the latest snapshot, delete it if necessary.
+    else if (!storage.isRetainStaleSnapshots()) {
+      snapshot.close();
+      snapshot.delete();
+    }
+  }
+
   /**
    * Completes writing a snapshot.
    */
   protected synchronized void completeSnapshot(Snapshot snapshot) {
     checkNotNull(snapshot, "snapshot cannot be null");
 
+    if (snapshot.previousIndex() > 0) {
+      completeDeltaSnapshot(snapshot);
+      return;
+    }
+
     // Only store the snapshot if no existing snapshot exists.
     Snapshot existingSnapshot = stateMachineSnapshots.get(snapshot.serviceId());
     if (existingSnapshot == null || existingSnapshot.index() <= snapshot.index()) {
@@ -23,27 +23,121 @@ import io.atomix.storage.buffer.BufferOutput;
 import io.atomix.storage.buffer.Bytes;
 
 import java.nio.charset.Charset;
+import java.util.zip.CRC32;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * Writes bytes to a state machine {@link Snapshot}.
  * <p>
  * This class provides the primary interface for writing snapshot buffers to disk or memory.
- * Snapshot bytes are written to an underlying {@link Buffer} which is backed by either memory
- * or disk based on the configured {@link StorageLevel}.
+ * Snapshot bytes are written to an underlying {@link Buffer} which is backed by memory for the
+ * {@link StorageLevel#MEMORY MEMORY} storage level, or streamed to the snapshot file in chunks for
+ * file-based storage levels.
  * <p>
  * In addition to standard {@link BufferOutput} methods, snapshot readers support writing serializable objects
  * to the snapshot via the {@link #writeObject(Object, Function)} method. Serializable types must be registered on the
  * {@link RaftServer} serializer to be supported in snapshots.
  */
 public class SnapshotWriter implements BufferOutput<SnapshotWriter> {
+  private static final int CHECKSUM_BUFFER_SIZE = 1024 * 64;
   final Buffer buffer;
+  final FileSnapshotOutput file;
+  private final BufferOutput<?> output;
   private final Snapshot snapshot;
+  private final long start;
 
   SnapshotWriter(Buffer buffer, Snapshot snapshot) {
     this.buffer = checkNotNull(buffer, "buffer cannot be null");
+    this.file = null;
+    this.output = buffer;
     this.snapshot = checkNotNull(snapshot, "snapshot cannot be null");
+    this.start = buffer.position();
+  }
+
+  SnapshotWriter(FileSnapshotOutput file, Snapshot snapshot) {
+    this.buffer = null;
+    this.file = checkNotNull(file, "file cannot be null");
+    this.output = file;
+    this.snapshot = checkNotNull(snapshot, "snapshot cannot be null");
+    this.start = file.position();
+  }
+
+  /**
+   * Returns the number of bytes written to the snapshot since the writer was opened.
+   *
+   * @return the number of bytes written to the snapshot
+   */
+  public long size() {
+    return (buffer != null ? buffer.position() : file.position()) - start;
+  }
+
+  /**
+   * Ensures the snapshot can hold the given number of bytes without being resized.
+   * <p>
+   * The size is relative to the position at which the writer was opened. For buffer-backed snapshots the buffer is
+   * resized up front, while snapshots streamed to a file simply grow as bytes are written.
+   *
+   * @param size the number of bytes to reserve
+   * @return The snapshot writer.
+   */
+  public SnapshotWriter reserve(long size) {
+    checkArgument(size >= 0, "size must be positive");
+    if (buffer != null && start + size > buffer.capacity()) {
+      checkArgument(start + size <= Integer.MAX_VALUE, "size exceeds the maximum snapshot buffer size");
+      buffer.capacity((int) (start + size));
+    }
+    return this;
+  }
+
+  /**
+   * Writes bytes at the given position in the snapshot.
+   * <p>
+   * The position is relative to the position at which the writer was opened. Bytes may be written in any order,
+   * and the writer's position is advanced to the end of the furthest bytes written.
+   *
+   * @param position the position at which to write the bytes
+   * @param bytes the bytes to write
+   * @return The snapshot writer.
+   */
+  public SnapshotWriter write(long position, byte[] bytes) {
+    checkArgument(position >= 0, "position must be positive");
+    if (file != null) {
+      file.write(start + position, bytes);
+    } else {
+      int offset = (int) (start + position);
+      buffer.write(offset, bytes, 0, bytes.length);
+      if (offset + bytes.length > buffer.position()) {
+        buffer.position(offset + bytes.length);
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Computes the CRC32 checksum of the given number of bytes written to the snapshot.
+   * <p>
+   * The bytes are read from the position at which the writer was opened.
+   *
+   * @param length the number of bytes to checksum
+   * @return the checksum of the bytes
+   */
+  public long checksum(long length) {
+    CRC32 checksum = new CRC32();
+    byte[] bytes = new byte[(int) Math.min(length, CHECKSUM_BUFFER_SIZE)];
+    long position = 0;
+    while (position < length) {
+      int count = (int) Math.min(bytes.length, length - position);
+      if (file != null) {
+        file.read(start + position, bytes, 0, count);
+      } else {
+        buffer.read((int) (start + position), bytes, 0, count);
+      }
+      checksum.update(bytes, 0, count);
+      position += count;
+    }
+    return checksum.getValue();
   }
 
   /**
@@ -55,146 +149,147 @@ public class SnapshotWriter implements BufferOutput<SnapshotWriter> {
    */
   public <T> SnapshotWriter writeObject(T object, Function<T, byte[]> encoder) {
     byte[] bytes = encoder.apply(object);
-    buffer.writeInt(bytes.length).write(bytes);
+    output.writeInt(bytes.length);
+    output.write(bytes);
     return this;
   }
 
   @Override
   public SnapshotWriter write(Bytes bytes) {
-    buffer.write(bytes);
+    output.write(bytes);
     return this;
   }
 
   @Override
   public SnapshotWriter write(byte[] bytes) {
-    buffer.write(bytes);
+    output.write(bytes);
     return this;
   }
 
   @Override
   public SnapshotWriter write(Bytes bytes, int offset, int length) {
-    buffer.write(bytes, offset, length);
+    output.write(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotWriter write(byte[] bytes, int offset, int length) {
-    buffer.write(bytes, offset, length);
+    output.write(bytes, offset, length);
     return this;
   }
 
   @Override
   public SnapshotWriter write(Buffer buffer) {
-    this.buffer.write(buffer);
+    output.write(buffer);
     return this;
   }
 
   @Override
   public SnapshotWriter writeByte(int b) {
-    buffer.writeByte(b);
+    output.writeByte(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedByte(int b) {
-    buffer.writeUnsignedByte(b);
+    output.writeUnsignedByte(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeChar(char c) {
-    buffer.writeChar(c);
+    output.writeChar(c);
     return this;
   }
 
   @Override
   public SnapshotWriter writeShort(short s) {
-    buffer.writeShort(s);
+    output.writeShort(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedShort(int s) {
-    buffer.writeUnsignedShort(s);
+    output.writeUnsignedShort(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeMedium(int m) {
-    buffer.writeMedium(m);
+    output.writeMedium(m);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedMedium(int m) {
-    buffer.writeUnsignedMedium(m);
+    output.writeUnsignedMedium(m);
     return this;
   }
 
   @Override
   public SnapshotWriter writeInt(int i) {
-    buffer.writeInt(i);
+    output.writeInt(i);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUnsignedInt(long i) {
-    buffer.writeUnsignedInt(i);
+    output.writeUnsignedInt(i);
     return this;
   }
 
   @Override
   public SnapshotWriter writeLong(long l) {
-    buffer.writeLong(l);
+    output.writeLong(l);
     return this;
   }
 
   @Override
   public SnapshotWriter writeFloat(float f) {
-    buffer.writeFloat(f);
+    output.writeFloat(f);
     return this;
   }
 
   @Override
   public SnapshotWriter writeDouble(double d) {
-    buffer.writeDouble(d);
+    output.writeDouble(d);
     return this;
   }
 
   @Override
   public SnapshotWriter writeBoolean(boolean b) {
-    buffer.writeBoolean(b);
+    output.writeBoolean(b);
     return this;
   }
 
   @Override
   public SnapshotWriter writeString(String s) {
-    buffer.writeString(s);
+    output.writeString(s);
     return this;
   }
 
   @Override
   public SnapshotWriter writeString(String s, Charset charset) {
-    buffer.writeString(s, charset);
+    output.writeString(s, charset);
     return this;
   }
 
   @Override
   public SnapshotWriter writeUTF8(String s) {
-    buffer.writeUTF8(s);
+    output.writeUTF8(s);
     return this;
   }
 
   @Override
   public SnapshotWriter flush() {
-    buffer.flush();
+    output.flush();
     return this;
   }
 
   @Override
   public void close() {
     snapshot.closeWriter(this);
-    buffer.close();
+    output.close();
   }
 
 }
@@ -15,16 +15,26 @@
  */
 package io.atomix.protocols.raft;
 
+import io.atomix.protocols.phi.FailureDetectionEvent;
+import io.atomix.protocols.phi.FailureDetectionEventListener;
+import io.atomix.protocols.phi.FailureDetectionService;
 import io.atomix.protocols.raft.cluster.MemberId;
 import io.atomix.protocols.raft.cluster.RaftClusterEvent;
 import io.atomix.protocols.raft.cluster.RaftMember;
 import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
 import io.atomix.protocols.raft.event.EventType;
+import io.atomix.protocols.raft.impl.DefaultRaftServer;
+import io.atomix.protocols.raft.impl.RaftContext;
 import io.atomix.protocols.raft.operation.OperationId;
 import io.atomix.protocols.raft.operation.OperationType;
 import io.atomix.protocols.raft.operation.RaftOperation;
 import io.atomix.protocols.raft.operation.impl.DefaultOperationId;
+import io.atomix.protocols.raft.protocol.InstallResponse;
+import io.atomix.protocols.raft.protocol.QueryRequest;
+import io.atomix.protocols.raft.protocol.QueryResponse;
+import io.atomix.protocols.raft.protocol.RaftResponse;
 import io.atomix.protocols.raft.protocol.TestRaftProtocolFactory;
+import io.atomix.protocols.raft.proxy.CommunicationStrategy;
 import io.atomix.protocols.raft.proxy.RaftProxy;
 import io.atomix.protocols.raft.service.AbstractRaftService;
 import io.atomix.protocols.raft.service.Commit;
@@ -47,6 +57,8 @@ import io.atomix.protocols.raft.storage.system.Configuration;
 import io.atomix.serializer.Serializer;
 import io.atomix.serializer.kryo.KryoNamespace;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.buffer.HeapBytes;
+import io.atomix.utils.concurrent.Futures;
 import net.jodah.concurrentunit.ConcurrentTestCase;
 import org.junit.After;
 import org.junit.Before;
@@ -55,6 +67,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.ConnectException;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -66,18 +79,28 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Raft test.
@@ -114,6 +137,8 @@ public class RaftTest extends ConcurrentTestCase {
   protected volatile List<RaftClient> clients = new ArrayList<>();
   protected volatile List<RaftServer> servers = new ArrayList<>();
   protected volatile TestRaftProtocolFactory protocolFactory;
+  protected volatile Consumer<RaftStorage.Builder> storageConfig;
+  protected volatile Consumer<RaftServer.Builder> serverConfig;
 
   /**
    * Tests getting session metadata.
@@ -230,6 +255,173 @@ public class RaftTest extends ConcurrentTestCase {
     await(30000);
   }
 
+  /**
+   * Tests committing entries replicated to followers in their serialized form.
+   */
+  @Test
+  public void testRawReplicationSubmitCommand() throws Throwable {
+    storageConfig = RaftStorage.Builder::withRawReplication;
+    testFollowerLinearizableQueryAfterCommand();
+  }
+
+  /**
+   * Tests replicating serialized entries to a server that joins after many entries have been committed.
+   */
+  @Test
+  public void testRawReplicationJoinLate() throws Throwable {
+    storageConfig = RaftStorage.Builder::withRawReplication;
+    testServerJoinLate(RaftMember.Type.ACTIVE, RaftServer.Role.FOLLOWER);
+  }
+
+  /**
+   * Tests recovering a server from a log of entries that were replicated in their serialized form.
+   */
+  @Test
+  public void testRawReplicationCrashRecover() throws Throwable {
+    storageConfig = RaftStorage.Builder::withRawReplication;
+    testCrashRecover();
+  }
+
+  /**
+   * Tests that append requests contain no more than the batch policy's maximum number of entries.
+   */
+  @Test
+  public void testAppendBatchMaxEntries() throws Throwable {
+    serverConfig = builder -> builder.withBatchPolicy(AppendBatchPolicy.newBuilder()
+        .withMaxBatchEntries(5)
+        .withLingerTime(Duration.ofMillis(100))
+        .build());
+    List<Integer> batches = testAppendBatches(3, 50);
+    assertTrue(batches.stream().allMatch(entries -> entries <= 5));
+    assertTrue(batches.stream().anyMatch(entries -> entries > 1));
+  }
+
+  /**
+   * Tests that entries larger than the batch policy's maximum batch size are sent in requests of their own.
+   */
+  @Test
+  public void testAppendBatchMaxSize() throws Throwable {
+    serverConfig = builder -> builder.withBatchPolicy(AppendBatchPolicy.newBuilder()
+        .withMaxBatchSize(1)
+        .withLingerTime(Duration.ofMillis(100))
+        .build());
+    List<Integer> batches = testAppendBatches(3, 50);
+    assertTrue(batches.stream().allMatch(entries -> entries == 1));
+  }
+
+  /**
+   * Tests that entries appended within the linger time are sent to followers together.
+   */
+  @Test
+  public void testAppendBatchLingerTime() throws Throwable {
+    serverConfig = builder -> builder.withBatchPolicy(AppendBatchPolicy.newBuilder()
+        .withLingerTime(Duration.ofMillis(100))
+        .build());
+    List<Integer> batches = testAppendBatches(3, 50);
+    assertTrue(batches.stream().anyMatch(entries -> entries > 1));
+  }
+
+  /**
+   * Submits concurrent commands and returns the number of entries in each append request sent by any server.
+   */
+  private List<Integer> testAppendBatches(int nodes, int commands) throws Throwable {
+    createServers(nodes);
+
+    List<Integer> batches = new CopyOnWriteArrayList<>();
+    for (RaftMember member : members) {
+      protocolFactory.server(member.memberId()).interceptAppends((memberId, request, sender) -> {
+        if (request.entryCount() > 0) {
+          batches.add(request.entryCount());
+        }
+        return sender.apply(request);
+      });
+    }
+
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client);
+    batches.clear();
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < commands; i++) {
+      futures.add(session.invoke(WRITE));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(30, TimeUnit.SECONDS);
+    assertFalse(batches.isEmpty());
+    return batches;
+  }
+
+  /**
+   * Tests installing a snapshot streamed in several in-flight chunks that arrive out of order and are retransmitted.
+   */
+  @Test
+  public void testInstallSnapshotChunks() throws Throwable {
+    serverConfig = builder -> builder
+        .withSnapshotChunkSize(16)
+        .withMaxInflightSnapshotChunks(4);
+    createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client);
+    submit(session, 0, 100);
+    await(30000);
+
+    // Wait for the servers to snapshot and compact their logs.
+    Thread.sleep(15000);
+
+    List<Integer> offsets = new CopyOnWriteArrayList<>();
+    AtomicInteger inflight = new AtomicInteger();
+    AtomicInteger maxInflight = new AtomicInteger();
+    AtomicBoolean reordered = new AtomicBoolean();
+    AtomicBoolean dropped = new AtomicBoolean();
+    AtomicReference<Runnable> heldChunk = new AtomicReference<>();
+    for (RaftMember member : members) {
+      protocolFactory.server(member.memberId()).interceptInstalls((memberId, request, sender) -> {
+        offsets.add(request.chunkOffset());
+        maxInflight.accumulateAndGet(inflight.incrementAndGet(), Math::max);
+
+        // Hold the first chunk until a later chunk has been delivered so the chunks arrive out of order.
+        CompletableFuture<InstallResponse> future;
+        if (request.chunkOffset() == 0 && reordered.compareAndSet(false, true)) {
+          CompletableFuture<InstallResponse> heldFuture = new CompletableFuture<>();
+          heldChunk.set(() -> sender.apply(request).whenComplete((response, error) -> {
+            if (error == null) {
+              heldFuture.complete(response);
+            } else {
+              heldFuture.completeExceptionally(error);
+            }
+          }));
+          future = heldFuture;
+        } else {
+          future = sender.apply(request);
+          Runnable held = heldChunk.getAndSet(null);
+          if (held != null) {
+            held.run();
+          }
+
+          // Drop the response to the second chunk once to force the leader to retransmit the snapshot.
+          if (request.chunkOffset() == 1 && dropped.compareAndSet(false, true)) {
+            future = future.thenCompose(response -> Futures.exceptionalFuture(new ConnectException()));
+          }
+        }
+        return future.whenComplete((response, error) -> inflight.decrementAndGet());
+      });
+    }
+
+    RaftServer joiner = createServer(nextMember(RaftMember.Type.ACTIVE));
+    joiner.addRoleChangeListener(s -> {
+      if (s == RaftServer.Role.FOLLOWER)
+        resume();
+    });
+    joiner.join(members.stream().map(RaftMember::memberId).collect(Collectors.toList())).thenRun(this::resume);
+    await(30000, 2);
+    submit(session, 0, 10);
+    await(30000);
+
+    assertTrue(reordered.get());
+    assertTrue(dropped.get());
+    assertTrue(maxInflight.get() > 1);
+    assertTrue(offsets.size() > new HashSet<>(offsets).size());
+  }
+
   /**
    * Tests leaving a sever from a cluster.
    */
@@ -606,6 +798,486 @@ public class RaftTest extends ConcurrentTestCase {
     await(30000);
   }
 
+  /**
+   * Tests that linearizable queries submitted to followers observe prior writes.
+   */
+  @Test
+  public void testFollowerLinearizableQueryAfterCommand() throws Throwable {
+    createServers(3);
+
+    RaftClient client = createClient();
+    RaftProxy session = client.newProxyBuilder()
+        .withName("test")
+        .withServiceType("test")
+        .withReadConsistency(ReadConsistency.LINEARIZABLE)
+        .withCommunicationStrategy(CommunicationStrategy.FOLLOWERS)
+        .build()
+        .open()
+        .get(5, TimeUnit.SECONDS);
+    for (int i = 0; i < 10; i++) {
+      long index = session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      assertTrue(session.<Long>invoke(READ, clientSerializer::decode).get(5, TimeUnit.SECONDS) >= index);
+    }
+  }
+
+  /**
+   * Tests that linearizable queries submitted while commands are in flight see the effects of completed commands.
+   */
+  @Test
+  public void testLinearizableQueryDuringCommands() throws Throwable {
+    createServers(3);
+    RaftClient client = createClient();
+    RaftProxy writer = createSession(client);
+    RaftProxy reader = createSession(client);
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      futures.add(writer.<Long>invoke(WRITE, clientSerializer::decode)
+          .thenCompose(index -> reader.<Long>invoke(READ, clientSerializer::decode)
+              .thenAccept(readIndex -> assertTrue(readIndex >= index))));
+    }
+    CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()])).get(30, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that a leader that cannot reach a quorum fails linearizable queries.
+   */
+  @Test
+  public void testLinearizableQueryFailsWithoutQuorum() throws Throwable {
+    List<RaftServer> servers = createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client);
+    session.invoke(WRITE).get(5, TimeUnit.SECONDS);
+
+    RaftServer leader = servers.stream().filter(s -> s.getRole() == RaftServer.Role.LEADER).findFirst().get();
+    MemberId leaderId = leader.cluster().getMember().memberId();
+    protocolFactory.server(leaderId).partition();
+
+    QueryResponse response = query(leaderId, session).get(10, TimeUnit.SECONDS);
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(RaftError.Type.QUERY_FAILURE, response.error().type());
+  }
+
+  /**
+   * Tests that linearizable queries awaiting confirmation of leadership fail when the leader steps down.
+   */
+  @Test
+  public void testLinearizableQueryFailsOnStepDown() throws Throwable {
+    List<RaftServer> servers = createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client);
+    session.invoke(WRITE).get(5, TimeUnit.SECONDS);
+
+    // Hold the leader's appends so it can't confirm its leadership and the followers elect a new leader.
+    RaftServer leader = servers.stream().filter(s -> s.getRole() == RaftServer.Role.LEADER).findFirst().get();
+    MemberId leaderId = leader.cluster().getMember().memberId();
+    protocolFactory.server(leaderId).interceptAppends((memberId, request, sender) -> new CompletableFuture<>());
+    leader.addRoleChangeListener(role -> {
+      if (role != RaftServer.Role.LEADER) {
+        resume();
+      }
+    });
+
+    CompletableFuture<QueryResponse> future = query(leaderId, session);
+    await(30000);
+
+    QueryResponse response = future.get(10, TimeUnit.SECONDS);
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(RaftError.Type.QUERY_FAILURE, response.error().type());
+  }
+
+  /**
+   * Sends a read for the given session directly to the given server.
+   */
+  private CompletableFuture<QueryResponse> query(MemberId memberId, RaftProxy session) {
+    return protocolFactory.newClientProtocol(nextMemberId()).query(memberId, QueryRequest.newBuilder()
+        .withSession(session.sessionId().id())
+        .withSequence(0)
+        .withOperation(new RaftOperation(READ, HeapBytes.EMPTY))
+        .withIndex(0)
+        .build());
+  }
+
+  /**
+   * Tests that lease reads are served under the leader's lease.
+   */
+  @Test
+  public void testLeaseReadHits() throws Throwable {
+    List<RaftServer> servers = createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client, ReadConsistency.LINEARIZABLE_LEASE);
+    for (int i = 0; i < 10; i++) {
+      long index = session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      assertTrue(session.<Long>invoke(READ, clientSerializer::decode).get(5, TimeUnit.SECONDS) >= index);
+    }
+
+    RaftServer leader = servers.stream().filter(s -> s.getRole() == RaftServer.Role.LEADER).findFirst().get();
+    assertTrue(getContext(leader, RaftContext::getLeaseHits) > 0);
+  }
+
+  /**
+   * Tests that lease reads fall back to the ReadIndex protocol once a partitioned leader's lease expires.
+   */
+  @Test
+  public void testLeaseReadFallbackAfterLeaseExpires() throws Throwable {
+    List<RaftServer> servers = createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client, ReadConsistency.LINEARIZABLE_LEASE);
+    session.invoke(WRITE).get(5, TimeUnit.SECONDS);
+
+    RaftServer leader = servers.stream().filter(s -> s.getRole() == RaftServer.Role.LEADER).findFirst().get();
+    MemberId leaderId = leader.cluster().getMember().memberId();
+    assertEquals(RaftResponse.Status.OK, query(leaderId, session).get(10, TimeUnit.SECONDS).status());
+    long hits = getContext(leader, RaftContext::getLeaseHits);
+    long misses = getContext(leader, RaftContext::getLeaseMisses);
+    assertTrue(hits > 0);
+
+    // Once the leader stops hearing from its followers for longer than the lease, reads must contact the cluster.
+    protocolFactory.server(leaderId).partition();
+    Thread.sleep(1000);
+
+    QueryResponse response = query(leaderId, session).get(10, TimeUnit.SECONDS);
+    assertEquals(RaftResponse.Status.ERROR, response.status());
+    assertEquals(hits, (long) getContext(leader, RaftContext::getLeaseHits));
+    assertEquals(misses + 1, (long) getContext(leader, RaftContext::getLeaseMisses));
+  }
+
+  /**
+   * Tests that the leader's lease is shortened by the maximum clock drift.
+   */
+  @Test
+  public void testLeaseReadClockDriftMargin() throws Throwable {
+    // A clock drift equal to the election timeout leaves no time in which the leader can hold a lease.
+    serverConfig = builder -> builder.withMaxClockDrift(Duration.ofMillis(750));
+    List<RaftServer> servers = createServers(3);
+    RaftClient client = createClient();
+    RaftProxy session = createSession(client, ReadConsistency.LINEARIZABLE_LEASE);
+    session.invoke(WRITE).get(5, TimeUnit.SECONDS);
+
+    RaftServer leader = servers.stream().filter(s -> s.getRole() == RaftServer.Role.LEADER).findFirst().get();
+    MemberId leaderId = leader.cluster().getMember().memberId();
+    for (int i = 0; i < 10; i++) {
+      assertEquals(RaftResponse.Status.OK, query(leaderId, session).get(10, TimeUnit.SECONDS).status());
+    }
+    assertEquals(0, (long) getContext(leader, RaftContext::getLeaseHits));
+    assertEquals(10, (long) getContext(leader, RaftContext::getLeaseMisses));
+  }
+
+  /**
+   * Reads a value from the given server's context on the server's thread.
+   */
+  private <T> T getContext(RaftServer server, Function<RaftContext, T> getter) throws Exception {
+    RaftContext context = ((DefaultRaftServer) server).getContext();
+    CompletableFuture<T> future = new CompletableFuture<>();
+    context.getThreadContext().execute(() -> future.complete(getter.apply(context)));
+    return future.get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests submitting commands to many partitions hosted on a shared event loop group.
+   */
+  @Test
+  public void testMultiRaftServer() throws Throwable {
+    for (int i = 0; i < 3; i++) {
+      members.add(nextMember(RaftMember.Type.ACTIVE));
+    }
+    List<MemberId> cluster = members.stream().map(RaftMember::memberId).collect(Collectors.toList());
+
+    Map<String, TestRaftProtocolFactory> factories = new ConcurrentHashMap<>();
+    List<MultiRaftServer> multiServers = new ArrayList<>();
+    for (MemberId memberId : cluster) {
+      MultiRaftServer server = MultiRaftServer.newBuilder(memberId)
+          .withName("partition")
+          .withPartitions(3)
+          .withEventLoops(2)
+          .withProtocolFactory(partition -> factories.computeIfAbsent(partition, p -> new TestRaftProtocolFactory())
+              .newServerProtocol(memberId))
+          .withStorage(RaftStorage.newBuilder()
+              .withStorageLevel(StorageLevel.MEMORY)
+              .withDirectory(new File(String.format("target/test-logs/%s", memberId)))
+              .withSerializer(storageSerializer))
+          .addService("test", TestStateMachine::new)
+          .build();
+      server.bootstrap(cluster).thenRun(this::resume);
+      multiServers.add(server);
+    }
+    await(30000 * cluster.size(), cluster.size());
+
+    try {
+      for (int i = 0; i < 3; i++) {
+        String partition = String.format("partition-%d", i);
+        assertEquals(partition, multiServers.get(0).getServer(i).name());
+        MemberId memberId = nextMemberId();
+        RaftClient client = RaftClient.newBuilder()
+            .withMemberId(memberId)
+            .withProtocol(factories.get(partition).newClientProtocol(memberId))
+            .build();
+        clients.add(client);
+        client.connect(cluster).thenRun(this::resume);
+        await(30000);
+        RaftProxy session = createSession(client);
+        assertTrue(session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS) > 0);
+      }
+    } finally {
+      for (MultiRaftServer server : multiServers) {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Tests that idle partitions quiesce without losing their leaders while the leaders' nodes are alive.
+   */
+  @Test
+  public void testMultiRaftServerQuiescence() throws Throwable {
+    TestFailureDetector failureDetector = new TestFailureDetector();
+    Map<String, TestRaftProtocolFactory> factories = new ConcurrentHashMap<>();
+    List<MultiRaftServer> multiServers = createQuiescentServers(factories, failureDetector);
+    AtomicInteger heartbeats = countHeartbeats(factories);
+    try {
+      for (int i = 0; i < 2; i++) {
+        RaftProxy session = createQuiescentSession(factories, i);
+        session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      }
+
+      // Wait for heartbeats to stop and verify that no new leader is elected over several election timeouts.
+      awaitQuiescence(heartbeats);
+      long term0 = multiServers.get(0).getServer(0).cluster().getTerm();
+      long term1 = multiServers.get(0).getServer(1).cluster().getTerm();
+      int count = heartbeats.get();
+      Thread.sleep(3000);
+      assertEquals(count, heartbeats.get());
+      assertEquals(term0, multiServers.get(0).getServer(0).cluster().getTerm());
+      assertEquals(term1, multiServers.get(0).getServer(1).cluster().getTerm());
+    } finally {
+      for (MultiRaftServer server : multiServers) {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Tests that a quiescent leader resumes heartbeats once an entry is appended.
+   */
+  @Test
+  public void testMultiRaftServerQuiescenceResumesOnAppend() throws Throwable {
+    TestFailureDetector failureDetector = new TestFailureDetector();
+    Map<String, TestRaftProtocolFactory> factories = new ConcurrentHashMap<>();
+    List<MultiRaftServer> multiServers = createQuiescentServers(factories, failureDetector);
+    AtomicInteger heartbeats = countHeartbeats(factories);
+    try {
+      RaftProxy session = createQuiescentSession(factories, 0);
+      session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      awaitQuiescence(heartbeats);
+
+      int count = heartbeats.get();
+      session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      Thread.sleep(1000);
+      assertTrue(heartbeats.get() > count);
+
+      // The leader quiesces again once the group is idle.
+      awaitQuiescence(heartbeats);
+    } finally {
+      for (MultiRaftServer server : multiServers) {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Tests that a quiescent leader resumes heartbeats while a follower's node is suspected to have failed.
+   */
+  @Test
+  public void testMultiRaftServerQuiescenceResumesOnSuspicion() throws Throwable {
+    TestFailureDetector failureDetector = new TestFailureDetector();
+    Map<String, TestRaftProtocolFactory> factories = new ConcurrentHashMap<>();
+    List<MultiRaftServer> multiServers = createQuiescentServers(factories, failureDetector);
+    AtomicInteger heartbeats = countHeartbeats(factories);
+    try {
+      RaftProxy session = createQuiescentSession(factories, 0);
+      session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      awaitQuiescence(heartbeats);
+
+      RaftServer follower = multiServers.stream()
+          .map(server -> server.getServer(0))
+          .filter(server -> server.getRole() == RaftServer.Role.FOLLOWER)
+          .findFirst()
+          .get();
+      int count = heartbeats.get();
+      failureDetector.setState(follower.cluster().getMember().memberId(), FailureDetectionEvent.State.INACTIVE);
+      Thread.sleep(1000);
+      assertTrue(heartbeats.get() > count);
+
+      // The leader quiesces again once the follower's node is known to be alive.
+      failureDetector.setState(follower.cluster().getMember().memberId(), FailureDetectionEvent.State.ACTIVE);
+      awaitQuiescence(heartbeats);
+    } finally {
+      for (MultiRaftServer server : multiServers) {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Tests that followers of a quiescent group elect a new leader once the leader's node is reported inactive.
+   */
+  @Test
+  public void testMultiRaftServerQuiescenceElectionOnLeaderFailure() throws Throwable {
+    TestFailureDetector failureDetector = new TestFailureDetector();
+    Map<String, TestRaftProtocolFactory> factories = new ConcurrentHashMap<>();
+    List<MultiRaftServer> multiServers = createQuiescentServers(factories, failureDetector);
+    AtomicInteger heartbeats = countHeartbeats(factories);
+    try {
+      // Commands submitted to the new leader are sequenced behind the session's next keep-alive, so use a session
+      // timeout that keeps the session alive within the time allowed for the command after the election.
+      RaftProxy session = createQuiescentSession(factories, 0, Duration.ofSeconds(4));
+      session.<Long>invoke(WRITE, clientSerializer::decode).get(5, TimeUnit.SECONDS);
+      awaitQuiescence(heartbeats);
+
+      RaftServer leader = multiServers.stream()
+          .map(server -> server.getServer(0))
+          .filter(server -> server.getRole() == RaftServer.Role.LEADER)
+          .findFirst()
+          .get();
+      long term = leader.cluster().getTerm();
+      failureDetector.setState(leader.cluster().getMember().memberId(), FailureDetectionEvent.State.INACTIVE);
+
+      long deadline = System.currentTimeMillis() + 10000;
+      while (multiServers.get(0).getServer(0).cluster().getTerm() == term && System.currentTimeMillis() < deadline) {
+        Thread.sleep(100);
+      }
+      assertTrue(multiServers.get(0).getServer(0).cluster().getTerm() > term);
+
+      failureDetector.setState(leader.cluster().getMember().memberId(), FailureDetectionEvent.State.ACTIVE);
+      assertTrue(session.<Long>invoke(WRITE, clientSerializer::decode).get(10, TimeUnit.SECONDS) > 0);
+    } finally {
+      for (MultiRaftServer server : multiServers) {
+        server.shutdown().get(10, TimeUnit.SECONDS);
+      }
+    }
+  }
+
+  /**
+   * Creates a cluster of multi-Raft servers hosting two partitions that quiesce after 500 milliseconds.
+   */
+  private List<MultiRaftServer> createQuiescentServers(
+      Map<String, TestRaftProtocolFactory> factories, FailureDetectionService<MemberId> failureDetector) throws Throwable {
+    for (int i = 0; i < 3; i++) {
+      members.add(nextMember(RaftMember.Type.ACTIVE));
+    }
+    List<MemberId> cluster = members.stream().map(RaftMember::memberId).collect(Collectors.toList());
+
+    List<MultiRaftServer> multiServers = new ArrayList<>();
+    for (MemberId memberId : cluster) {
+      MultiRaftServer server = MultiRaftServer.newBuilder(memberId)
+          .withName("partition")
+          .withPartitions(2)
+          .withEventLoops(2)
+          .withProtocolFactory(partition -> factories.computeIfAbsent(partition, p -> new TestRaftProtocolFactory())
+              .newServerProtocol(memberId))
+          .withStorage(RaftStorage.newBuilder()
+              .withStorageLevel(StorageLevel.MEMORY)
+              .withDirectory(new File(String.format("target/test-logs/%s", memberId)))
+              .withSerializer(storageSerializer))
+          .withFailureDetector(failureDetector)
+          .withQuiescenceTimeout(Duration.ofMillis(500))
+          .addService("test", TestStateMachine::new)
+          .build();
+      server.bootstrap(cluster).thenRun(this::resume);
+      multiServers.add(server);
+    }
+    await(30000 * cluster.size(), cluster.size());
+    return multiServers;
+  }
+
+  /**
+   * Creates a session for the given partition.
+   * <p>
+   * The session timeout is long enough that keep-alives don't interrupt the partition's quiescence during a test.
+   */
+  private RaftProxy createQuiescentSession(Map<String, TestRaftProtocolFactory> factories, int partition) throws Throwable {
+    return createQuiescentSession(factories, partition, Duration.ofMinutes(1));
+  }
+
+  /**
+   * Creates a session for the given partition with the given session timeout.
+   */
+  private RaftProxy createQuiescentSession(
+      Map<String, TestRaftProtocolFactory> factories, int partition, Duration timeout) throws Throwable {
+    MemberId memberId = nextMemberId();
+    RaftClient client = RaftClient.newBuilder()
+        .withMemberId(memberId)
+        .withProtocol(factories.get(String.format("partition-%d", partition)).newClientProtocol(memberId))
+        .build();
+    clients.add(client);
+    client.connect(members.stream().map(RaftMember::memberId).collect(Collectors.toList())).thenRun(this::resume);
+    await(30000);
+    return client.newProxyBuilder()
+        .withName("test")
+        .withServiceType("test")
+        .withTimeout(timeout)
+        .build()
+        .open()
+        .get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Counts the coalesced heartbeats sent between the servers.
+   */
+  private AtomicInteger countHeartbeats(Map<String, TestRaftProtocolFactory> factories) {
+    AtomicInteger heartbeats = new AtomicInteger();
+    for (RaftMember member : members) {
+      factories.get("partition").server(member.memberId()).interceptHeartbeats((memberId, request, sender) -> {
+        heartbeats.incrementAndGet();
+        return sender.apply(request);
+      });
+    }
+    return heartbeats;
+  }
+
+  /**
+   * Waits until no heartbeats are sent for several heartbeat intervals.
+   */
+  private void awaitQuiescence(AtomicInteger heartbeats) throws InterruptedException {
+    for (int i = 0; i < 30; i++) {
+      int count = heartbeats.get();
+      Thread.sleep(1000);
+      if (heartbeats.get() == count) {
+        return;
+      }
+    }
+    fail("Heartbeats did not stop");
+  }
+
+  /**
+   * Failure detector through which tests report the states of members' nodes.
+   */
+  private static class TestFailureDetector implements FailureDetectionService<MemberId> {
+    private final Set<FailureDetectionEventListener<MemberId>> listeners = new CopyOnWriteArraySet<>();
+
+    /**
+     * Reports a new state for the given member's node.
+     */
+    void setState(MemberId memberId, FailureDetectionEvent.State state) {
+      FailureDetectionEvent<MemberId> event = new FailureDetectionEvent<>(FailureDetectionEvent.Type.STATE_CHANGE, memberId, null, state);
+      listeners.forEach(listener -> listener.onEvent(event));
+    }
+
+    @Override
+    public void addListener(FailureDetectionEventListener<MemberId> listener) {
+      listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(FailureDetectionEventListener<MemberId> listener) {
+      listeners.remove(listener);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
   /**
    * Tests submitting a sequential event.
    */
@@ -1190,17 +1862,20 @@ public class RaftTest extends ConcurrentTestCase {
    * Creates a Raft server.
    */
   private RaftServer createServer(RaftMember member) {
+    RaftStorage.Builder storageBuilder = RaftStorage.newBuilder()
+        .withStorageLevel(StorageLevel.DISK)
+        .withDirectory(new File(String.format("target/test-logs/%s", member.memberId())))
+        .withSerializer(storageSerializer)
+        .withMaxSegmentSize(1024 * 10)
+        .withMaxEntriesPerSegment(10);
+    storageConfig.accept(storageBuilder);
+
     RaftServer.Builder builder = RaftServer.newBuilder(member.memberId())
         .withType(member.getType())
         .withProtocol(protocolFactory.newServerProtocol(member.memberId()))
-        .withStorage(RaftStorage.newBuilder()
-            .withStorageLevel(StorageLevel.DISK)
-            .withDirectory(new File(String.format("target/test-logs/%s", member.memberId())))
-            .withSerializer(storageSerializer)
-            .withMaxSegmentSize(1024 * 10)
-            .withMaxEntriesPerSegment(10)
-            .build())
+        .withStorage(storageBuilder.build())
         .addService("test", TestStateMachine::new);
+    serverConfig.accept(builder);
 
     RaftServer server = builder.build();
     servers.add(server);
@@ -1283,6 +1958,10 @@ public class RaftTest extends ConcurrentTestCase {
     clients = new ArrayList<>();
     servers = new ArrayList<>();
     protocolFactory = new TestRaftProtocolFactory();
+    storageConfig = builder -> {
+    };
+    serverConfig = builder -> {
+    };
   }
 
   private static final OperationId WRITE = OperationId.command("write");
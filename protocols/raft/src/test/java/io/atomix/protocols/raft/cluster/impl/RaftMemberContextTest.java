@@ -0,0 +1,211 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.cluster.impl;
+
+import io.atomix.protocols.raft.cluster.MemberId;
+import io.atomix.protocols.raft.cluster.RaftMember;
+import io.atomix.protocols.raft.impl.RaftContext;
+import io.atomix.protocols.raft.storage.system.MetaStore;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Raft member context test.
+ */
+public class RaftMemberContextTest {
+  private static final int MIN_WINDOW = 1024 * 32;
+  private static final int INITIAL_WINDOW = MIN_WINDOW * 2;
+
+  /**
+   * Creates a member context with the given in-flight limits.
+   */
+  private RaftMemberContext createMember(int maxInflightEntries, int maxInflightBytes) {
+    RaftContext raft = mock(RaftContext.class);
+    when(raft.getName()).thenReturn("test");
+    when(raft.getMetaStore()).thenReturn(mock(MetaStore.class));
+    when(raft.getMaxInflightEntries()).thenReturn(maxInflightEntries);
+    when(raft.getMaxInflightBytes()).thenReturn(maxInflightBytes);
+    RaftClusterContext cluster = new RaftClusterContext(RaftMember.Type.ACTIVE, MemberId.from("1"), raft);
+    return new RaftMemberContext(new DefaultRaftMember(MemberId.from("2"), RaftMember.Type.ACTIVE, Instant.now()), cluster);
+  }
+
+  /**
+   * Tests that appends are only pipelined once an append to the member has succeeded.
+   */
+  @Test
+  public void testPipelineAfterSuccess() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+    assertTrue(member.canAppend());
+    member.startAppend(1, 1024);
+    assertFalse(member.canAppend());
+    member.appendSucceeded();
+    assertTrue(member.canAppend());
+    member.appendFailed();
+    assertFalse(member.canAppend());
+    member.completeAppend(1, 1024, 10);
+    assertTrue(member.canAppend());
+    assertEquals(0, member.getInflightAppends());
+  }
+
+  /**
+   * Tests that the append window grows additively as appends are acknowledged.
+   */
+  @Test
+  public void testAppendWindowGrowth() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+    assertEquals(INITIAL_WINDOW, member.getAppendWindow());
+
+    // Acknowledging a full window of bytes grows the window by one minimum window.
+    member.startAppend(1, INITIAL_WINDOW);
+    member.completeAppend(1, INITIAL_WINDOW, 10);
+    assertEquals(INITIAL_WINDOW + MIN_WINDOW, member.getAppendWindow());
+
+    // Acknowledging a partial window grows the window proportionally.
+    long window = member.getAppendWindow();
+    member.startAppend(1, 1024);
+    member.completeAppend(1, 1024, 10);
+    assertEquals(window + MIN_WINDOW * 1024 / window, member.getAppendWindow());
+
+    // Heartbeats don't grow the window.
+    window = member.getAppendWindow();
+    member.startAppend(0, 0);
+    member.completeAppend(0, 0, 10);
+    assertEquals(window, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the append window is halved at most once per round trip.
+   */
+  @Test
+  public void testAppendWindowHalvedOncePerRoundTrip() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+
+    // Record a round trip time longer than the test so the window can only be halved once.
+    member.startAppend(1, 1024);
+    member.completeAppend(1, 1024, 60000);
+    long window = member.getAppendWindow();
+
+    member.startAppend(1, 1024);
+    member.startAppend(1, 1024);
+    member.failAppend(1, 1024);
+    assertEquals(window / 2, member.getAppendWindow());
+    member.failAppend(1, 1024);
+    assertEquals(window / 2, member.getAppendWindow());
+
+    // A round trip well above the lowest round trip is backpressure, but the window was already halved.
+    member.startAppend(1, 1024);
+    member.completeAppend(1, 1024, 180000);
+    assertEquals(window / 2, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the append window is halved when round trip times rise well above the lowest round trip time.
+   */
+  @Test
+  public void testAppendWindowShrinksOnSlowRoundTrip() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+    member.startAppend(1, INITIAL_WINDOW);
+    member.completeAppend(1, INITIAL_WINDOW, 1);
+    long window = member.getAppendWindow();
+    member.startAppend(1, 1024);
+    member.completeAppend(1, 1024, 1000);
+    assertEquals(window / 2, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the append window is never shrunk below the minimum window.
+   */
+  @Test
+  public void testMinAppendWindow() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+    for (int i = 0; i < 10; i++) {
+      member.startAppend(1, 1024);
+      member.failAppend(1, 1024);
+    }
+    assertEquals(MIN_WINDOW, member.getAppendWindow());
+  }
+
+  /**
+   * Tests that the number of in-flight entries is bounded by the maximum in-flight entries.
+   */
+  @Test
+  public void testMaxInflightEntries() throws Exception {
+    RaftMemberContext member = createMember(2, 1024 * 1024);
+    member.startAppend(1, 10);
+    member.appendSucceeded();
+    assertTrue(member.canAppend());
+    member.startAppend(1, 10);
+    assertEquals(2, member.getInflightEntries());
+    assertFalse(member.canAppend());
+    member.completeAppend(1, 10, 1);
+    assertEquals(1, member.getInflightEntries());
+    assertTrue(member.canAppend());
+  }
+
+  /**
+   * Tests that the append window is bounded by the maximum in-flight bytes.
+   */
+  @Test
+  public void testMaxInflightBytes() throws Exception {
+    int maxInflightBytes = MIN_WINDOW + 1024;
+    RaftMemberContext member = createMember(100, maxInflightBytes);
+    for (int i = 0; i < 10; i++) {
+      member.startAppend(1, INITIAL_WINDOW);
+      member.completeAppend(1, INITIAL_WINDOW, 10);
+      assertEquals(maxInflightBytes, member.getAppendWindow());
+    }
+
+    member.startAppend(1, 1024);
+    member.appendSucceeded();
+    assertTrue(member.canAppend());
+    member.startAppend(1, MIN_WINDOW);
+    assertEquals(maxInflightBytes, member.getInflightBytes());
+    assertFalse(member.canAppend());
+  }
+
+  /**
+   * Tests that appends sent prior to a reset of the member's next index are stale.
+   */
+  @Test
+  public void testStaleAppends() throws Exception {
+    RaftMemberContext member = createMember(100, 1024 * 1024);
+    long first = member.startAppend(1, 10);
+    long second = member.startAppend(1, 10);
+    assertFalse(member.isStaleAppend(first));
+    assertFalse(member.isStaleAppend(second));
+
+    member.resetAppends();
+    assertTrue(member.isStaleAppend(first));
+    assertTrue(member.isStaleAppend(second));
+
+    long third = member.startAppend(1, 10);
+    assertFalse(member.isStaleAppend(third));
+
+    // Failed responses to stale appends still release their in-flight entries and bytes.
+    member.failAppend(1, 10);
+    member.failAppend(1, 10);
+    member.completeAppend(1, 10, 1);
+    assertEquals(0, member.getInflightEntries());
+    assertEquals(0, member.getInflightBytes());
+  }
+}
@@ -0,0 +1,483 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.impl;
+
+import io.atomix.protocols.raft.RaftException;
+import io.atomix.protocols.raft.ReadConsistency;
+import io.atomix.protocols.raft.cluster.MemberId;
+import io.atomix.protocols.raft.cluster.RaftMember;
+import io.atomix.protocols.raft.cluster.impl.DefaultRaftMember;
+import io.atomix.protocols.raft.operation.OperationId;
+import io.atomix.protocols.raft.operation.OperationType;
+import io.atomix.protocols.raft.operation.RaftOperation;
+import io.atomix.protocols.raft.operation.impl.DefaultOperationId;
+import io.atomix.protocols.raft.protocol.RaftServerProtocol;
+import io.atomix.protocols.raft.service.AbstractRaftService;
+import io.atomix.protocols.raft.service.Commit;
+import io.atomix.protocols.raft.service.RaftServiceExecutor;
+import io.atomix.protocols.raft.service.ServiceId;
+import io.atomix.protocols.raft.service.ServiceType;
+import io.atomix.protocols.raft.service.impl.DefaultServiceContext;
+import io.atomix.protocols.raft.session.impl.RaftSessionManager;
+import io.atomix.protocols.raft.storage.RaftStorage;
+import io.atomix.protocols.raft.storage.log.RaftLog;
+import io.atomix.protocols.raft.storage.log.RaftLogWriter;
+import io.atomix.protocols.raft.storage.log.entry.CloseSessionEntry;
+import io.atomix.protocols.raft.storage.log.entry.CommandEntry;
+import io.atomix.protocols.raft.storage.log.entry.ConfigurationEntry;
+import io.atomix.protocols.raft.storage.log.entry.InitializeEntry;
+import io.atomix.protocols.raft.storage.log.entry.KeepAliveEntry;
+import io.atomix.protocols.raft.storage.log.entry.MetadataEntry;
+import io.atomix.protocols.raft.storage.log.entry.OpenSessionEntry;
+import io.atomix.protocols.raft.storage.log.entry.QueryEntry;
+import io.atomix.protocols.raft.storage.snapshot.AsyncSnapshottable;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotReader;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotStore;
+import io.atomix.protocols.raft.storage.snapshot.SnapshotWriter;
+import io.atomix.protocols.raft.storage.system.Configuration;
+import io.atomix.serializer.Serializer;
+import io.atomix.serializer.kryo.KryoNamespace;
+import io.atomix.storage.StorageLevel;
+import io.atomix.storage.buffer.HeapBytes;
+import io.atomix.utils.concurrent.SingleThreadContext;
+import io.atomix.utils.concurrent.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Raft service manager test.
+ */
+public class RaftServiceManagerTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RaftServiceManagerTest.class);
+  private static final OperationId WRITE = OperationId.command("write");
+
+  private static final Serializer serializer = Serializer.using(KryoNamespace.newBuilder()
+      .register(CloseSessionEntry.class)
+      .register(CommandEntry.class)
+      .register(ConfigurationEntry.class)
+      .register(InitializeEntry.class)
+      .register(KeepAliveEntry.class)
+      .register(MetadataEntry.class)
+      .register(OpenSessionEntry.class)
+      .register(QueryEntry.class)
+      .register(RaftOperation.class)
+      .register(DefaultOperationId.class)
+      .register(OperationType.class)
+      .register(ReadConsistency.class)
+      .register(ArrayList.class)
+      .register(HashSet.class)
+      .register(DefaultRaftMember.class)
+      .register(MemberId.class)
+      .register(RaftMember.Type.class)
+      .register(Instant.class)
+      .register(Configuration.class)
+      .register(byte[].class)
+      .register(long[].class)
+      .build());
+
+  private RaftLog log;
+  private RaftLogWriter writer;
+  private SnapshotStore snapshotStore;
+  private ScheduledExecutorService threadPool;
+  private ThreadContext threadContext;
+  private RaftServiceRegistry registry;
+  private AtomicLong lastApplied;
+  private RaftContext raft;
+  private RaftServiceManager manager;
+  private List<TestService> services;
+  private volatile Consumer<Long> lastAppliedListener = index -> {
+  };
+
+  @Before
+  public void setupManager() throws Exception {
+    setupManager(1024 * 1024);
+  }
+
+  /**
+   * Creates a service manager over a log with the given number of entries per segment.
+   */
+  private void setupManager(int maxEntriesPerSegment) {
+    RaftStorage storage = RaftStorage.newBuilder()
+        .withStorageLevel(StorageLevel.MEMORY)
+        .withMaxEntriesPerSegment(maxEntriesPerSegment)
+        .withSerializer(serializer)
+        .build();
+    log = storage.openLog();
+    writer = log.writer();
+    snapshotStore = storage.openSnapshotStore();
+    threadPool = Executors.newScheduledThreadPool(4, namedThreads("raft-service-manager-test-%d", LOGGER));
+    threadContext = new SingleThreadContext("raft-service-manager-test-%d");
+    services = new CopyOnWriteArrayList<>();
+    registry = new RaftServiceRegistry();
+    registry.register("test", () -> {
+      TestService service = new TestService();
+      services.add(service);
+      return service;
+    });
+    registry.register("async", () -> {
+      AsyncTestService service = new AsyncTestService();
+      services.add(service);
+      return service;
+    });
+    lastApplied = new AtomicLong();
+
+    raft = mock(RaftContext.class);
+    when(raft.getName()).thenReturn("test");
+    when(raft.getLog()).thenReturn(log);
+    when(raft.getSnapshotStore()).thenReturn(snapshotStore);
+    when(raft.getServiceRegistry()).thenReturn(registry);
+    when(raft.getProtocol()).thenReturn(mock(RaftServerProtocol.class));
+    when(raft.getThreadContext()).thenReturn(threadContext);
+    when(raft.getLastApplied()).thenAnswer(invocation -> lastApplied.get());
+    doAnswer(invocation -> {
+      long index = (Long) invocation.getArguments()[0];
+      lastApplied.set(index);
+      lastAppliedListener.accept(index);
+      return null;
+    }).when(raft).setLastApplied(anyLong());
+
+    manager = new RaftServiceManager(raft, threadPool, threadContext);
+  }
+
+  @After
+  public void teardownManager() throws Exception {
+    manager.close();
+    threadContext.close();
+    threadPool.shutdownNow();
+    log.close();
+  }
+
+  /**
+   * Appends a session for the given service to the log.
+   *
+   * @return the session identifier
+   */
+  private long openSession(String serviceName) {
+    return openSession(serviceName, "test");
+  }
+
+  /**
+   * Appends a session for the given service of the given type to the log.
+   *
+   * @return the session identifier
+   */
+  private long openSession(String serviceName, String serviceType) {
+    return writer.append(new OpenSessionEntry(1, System.currentTimeMillis(), "client", serviceName, serviceType, ReadConsistency.LINEARIZABLE, 60000)).index();
+  }
+
+  /**
+   * Appends a command for the given session to the log.
+   *
+   * @return the command index
+   */
+  private long command(long session, long sequence) {
+    return writer.append(new CommandEntry(1, System.currentTimeMillis(), session, sequence, new RaftOperation(WRITE, HeapBytes.EMPTY))).index();
+  }
+
+  /**
+   * Tests that applied futures are completed once entries up to their index have been applied.
+   */
+  @Test
+  public void testAppliedCompletesOnceApplied() throws Exception {
+    CompletableFuture<Long> future = manager.applied(3);
+    long session = openSession("test");
+    command(session, 1);
+    long index = command(session, 2);
+    writer.commit(index);
+
+    manager.apply(index - 1).get(5, TimeUnit.SECONDS);
+    assertFalse(future.isDone());
+    manager.apply(index).get(5, TimeUnit.SECONDS);
+    assertEquals(Long.valueOf(index), future.get(5, TimeUnit.SECONDS));
+    assertEquals(Long.valueOf(index), manager.applied(index - 1).get(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests that futures awaiting indexes that have not been applied are failed when the state machine is closed.
+   */
+  @Test
+  public void testAppliedFailsOnClose() throws Exception {
+    CompletableFuture<Long> future = manager.applied(10);
+    manager.applied(0).get(5, TimeUnit.SECONDS);
+    assertFalse(future.isDone());
+
+    manager.close();
+    assertFailed(future);
+    assertFailed(manager.applied(10));
+  }
+
+  /**
+   * Tests that entries are applied to a service in log order across apply rounds.
+   */
+  @Test
+  public void testServiceOrdering() throws Exception {
+    long session = openSession("test");
+    List<Long> indexes = new ArrayList<>();
+    for (int i = 1; i <= 100; i++) {
+      indexes.add(command(session, i));
+    }
+    long index = indexes.get(indexes.size() - 1);
+    writer.commit(index);
+
+    manager.apply(indexes.get(49)).get(5, TimeUnit.SECONDS);
+    manager.apply(index).get(5, TimeUnit.SECONDS);
+    assertEquals(indexes, services.get(0).indexes);
+  }
+
+  /**
+   * Tests that entries for services interleaved in the log are applied to each service in log order.
+   */
+  @Test
+  public void testInterleavedServices() throws Exception {
+    long session1 = openSession("a");
+    long session2 = openSession("b");
+    List<Long> indexes1 = new ArrayList<>();
+    List<Long> indexes2 = new ArrayList<>();
+    long index = 0;
+    for (int i = 1; i <= 100; i++) {
+      index = command(session1, i);
+      indexes1.add(index);
+      if (i % 3 == 0) {
+        index = command(session2, i / 3);
+        indexes2.add(index);
+      }
+    }
+    writer.commit(index);
+    manager.apply(index).get(5, TimeUnit.SECONDS);
+
+    assertEquals(2, services.size());
+    awaitService(services.get(0));
+    awaitService(services.get(1));
+    assertEquals(indexes1, services.get(0).indexes);
+    assertEquals(indexes2, services.get(1).indexes);
+  }
+
+  /**
+   * Tests that the last applied index is only updated once each batch has been submitted to the service when
+   * a round of entries is split into multiple batches.
+   */
+  @Test
+  public void testLastAppliedAfterBatchSplit() throws Exception {
+    long session = openSession("test");
+    List<Long> indexes = new ArrayList<>();
+    for (int i = 1; i <= 2500; i++) {
+      indexes.add(command(session, i));
+    }
+    long index = indexes.get(indexes.size() - 1);
+    writer.commit(index);
+    manager.apply(session).get(5, TimeUnit.SECONDS);
+    manager.applied(session).get(5, TimeUnit.SECONDS);
+
+    // Probe the service state and take a snapshot each time the last applied index is updated.
+    DefaultServiceContext service = services.get(0).context();
+    List<Long> appliedIndexes = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Long>> probes = new CopyOnWriteArrayList<>();
+    List<CompletableFuture<Long>> snapshots = new CopyOnWriteArrayList<>();
+    lastAppliedListener = lastIndex -> {
+      appliedIndexes.add(lastIndex);
+      CompletableFuture<Long> probe = new CompletableFuture<>();
+      service.executor().execute(() -> probe.complete(service.currentIndex()));
+      probes.add(probe);
+      snapshots.add(service.takeSnapshot());
+    };
+    manager.apply(index).get(10, TimeUnit.SECONDS);
+    manager.applied(index).get(5, TimeUnit.SECONDS);
+
+    // Entries are flushed to the service every 1024 entries.
+    assertEquals(Arrays.asList(session + 1024, session + 2048, index), appliedIndexes);
+    for (int i = 0; i < appliedIndexes.size(); i++) {
+      assertEquals(appliedIndexes.get(i), probes.get(i).get(5, TimeUnit.SECONDS));
+      assertEquals(appliedIndexes.get(i), snapshots.get(i).get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(indexes, services.get(0).indexes);
+  }
+
+  /**
+   * Waits for operations submitted to the given service to be applied.
+   */
+  private void awaitService(TestService service) throws Exception {
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    service.context().executor().execute(() -> future.complete(null));
+    future.get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Tests that commands continue to be applied to a service while its snapshot is written in the background.
+   */
+  @Test
+  public void testCommandsApplyDuringAsyncSnapshot() throws Exception {
+    long session = openSession("async", "async");
+    long snapshotIndex = command(session, 1);
+    writer.commit(snapshotIndex);
+    manager.apply(snapshotIndex).get(5, TimeUnit.SECONDS);
+
+    AsyncTestService service = (AsyncTestService) services.get(0);
+    CompletableFuture<Long> snapshotFuture = service.context().takeSnapshot();
+    assertTrue(service.writing.await(5, TimeUnit.SECONDS));
+
+    // Commands are applied while the snapshot writer is blocked.
+    command(session, 2);
+    long index = command(session, 3);
+    writer.commit(index);
+    manager.apply(index).get(5, TimeUnit.SECONDS);
+    assertEquals(Arrays.asList(snapshotIndex, index - 1, index), service.indexes);
+    assertFalse(snapshotFuture.isDone());
+
+    // The snapshot is taken at the index at which the service state was captured.
+    service.release.countDown();
+    assertEquals(Long.valueOf(snapshotIndex), snapshotFuture.get(5, TimeUnit.SECONDS));
+  }
+
+  /**
+   * Tests that snapshots of services to which no entries have been applied are skipped.
+   */
+  @Test
+  public void testAsyncSnapshotWithoutAppliedEntries() throws Exception {
+    AsyncTestService service = new AsyncTestService();
+    DefaultServiceContext context = new DefaultServiceContext(
+        ServiceId.from(1), "async", ServiceType.from("async"), service, raft, new RaftSessionManager(), threadPool);
+    assertEquals(Long.valueOf(0), context.takeSnapshot().get(5, TimeUnit.SECONDS));
+    assertEquals(1, service.writing.getCount());
+    assertNull(snapshotStore.getSnapshotById(ServiceId.from(1)));
+  }
+
+  /**
+   * Tests that the log is not compacted until the snapshot of a service has been written and completed.
+   */
+  @Test
+  public void testCompactionWaitsForAsyncSnapshot() throws Exception {
+    teardownManager();
+    setupManager(10);
+
+    long session = openSession("async", "async");
+    long index = 0;
+    for (int i = 1; i <= 30; i++) {
+      index = command(session, i);
+    }
+    writer.commit(index);
+    manager.apply(index).get(5, TimeUnit.SECONDS);
+    assertTrue(log.isCompactable(index));
+
+    // The log is checked for compaction ten seconds after the manager is created.
+    AsyncTestService service = (AsyncTestService) services.get(0);
+    assertTrue(service.writing.await(15, TimeUnit.SECONDS));
+    Thread.sleep(1000);
+    assertTrue(log.isCompactable(index));
+    assertNull(snapshotStore.getSnapshotById(service.context().serviceId()));
+
+    // Once the snapshot has been written and completed, the log is compacted.
+    service.release.countDown();
+    for (int i = 0; i < 50 && log.isCompactable(index); i++) {
+      Thread.sleep(100);
+    }
+    assertFalse(log.isCompactable(index));
+    assertEquals(index, snapshotStore.getSnapshotById(service.context().serviceId()).index());
+  }
+
+  /**
+   * Asserts that the given future is failed by a protocol exception.
+   */
+  private void assertFailed(CompletableFuture<Long> future) throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof RaftException.ProtocolException);
+    }
+  }
+
+  /**
+   * Test service that records the indexes of applied commands.
+   */
+  private static class TestService extends AbstractRaftService {
+    final List<Long> indexes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns the service context.
+     */
+    DefaultServiceContext context() {
+      return (DefaultServiceContext) getContext();
+    }
+
+    @Override
+    protected void configure(RaftServiceExecutor executor) {
+      executor.register(WRITE, this::write);
+    }
+
+    private void write(Commit<Void> commit) {
+      indexes.add(commit.index());
+    }
+
+    @Override
+    public void snapshot(SnapshotWriter writer) {
+    }
+
+    @Override
+    public void install(SnapshotReader reader) {
+    }
+  }
+
+  /**
+   * Test service whose snapshots are written in the background and block until released.
+   */
+  private static class AsyncTestService extends TestService implements AsyncSnapshottable {
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @Override
+    public Consumer<SnapshotWriter> captureSnapshot() {
+      int count = indexes.size();
+      return writer -> {
+        writing.countDown();
+        try {
+          release.await();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        writer.writeInt(count);
+      };
+    }
+  }
+}
@@ -35,6 +35,7 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
   private Function<CloseSessionRequest, CompletableFuture<CloseSessionResponse>> closeSessionHandler;
   private Function<KeepAliveRequest, CompletableFuture<KeepAliveResponse>> keepAliveHandler;
   private Function<QueryRequest, CompletableFuture<QueryResponse>> queryHandler;
+  private Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> readIndexHandler;
   private Function<CommandRequest, CompletableFuture<CommandResponse>> commandHandler;
   private Function<MetadataRequest, CompletableFuture<MetadataResponse>> metadataHandler;
   private Function<JoinRequest, CompletableFuture<JoinResponse>> joinHandler;
@@ -45,16 +46,64 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
   private Function<PollRequest, CompletableFuture<PollResponse>> pollHandler;
   private Function<VoteRequest, CompletableFuture<VoteResponse>> voteHandler;
   private Function<AppendRequest, CompletableFuture<AppendResponse>> appendHandler;
+  private Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> heartbeatHandler;
   private final Map<Long, Consumer<ResetRequest>> resetListeners = Maps.newConcurrentMap();
+  private volatile boolean partitioned;
+  private volatile Interceptor<AppendRequest, AppendResponse> appendInterceptor;
+  private volatile Interceptor<InstallRequest, InstallResponse> installInterceptor;
+  private volatile Interceptor<HeartbeatRequest, HeartbeatResponse> heartbeatInterceptor;
 
   public TestRaftServerProtocol(MemberId memberId, Map<MemberId, TestRaftServerProtocol> servers, Map<MemberId, TestRaftClientProtocol> clients) {
     super(servers, clients);
     servers.put(memberId, this);
   }
 
+  /**
+   * Partitions the server from all other servers.
+   * <p>
+   * Requests between a partitioned server and other servers fail. Requests from clients are still delivered.
+   */
+  public void partition() {
+    partitioned = true;
+  }
+
+  /**
+   * Heals a partition of the server from other servers.
+   */
+  public void heal() {
+    partitioned = false;
+  }
+
+  /**
+   * Sets an interceptor for append requests sent by the server.
+   *
+   * @param interceptor the append request interceptor, or {@code null} to send requests directly
+   */
+  public void interceptAppends(Interceptor<AppendRequest, AppendResponse> interceptor) {
+    this.appendInterceptor = interceptor;
+  }
+
+  /**
+   * Sets an interceptor for install requests sent by the server.
+   *
+   * @param interceptor the install request interceptor, or {@code null} to send requests directly
+   */
+  public void interceptInstalls(Interceptor<InstallRequest, InstallResponse> interceptor) {
+    this.installInterceptor = interceptor;
+  }
+
+  /**
+   * Sets an interceptor for heartbeat requests sent by the server.
+   *
+   * @param interceptor the heartbeat request interceptor, or {@code null} to send requests directly
+   */
+  public void interceptHeartbeats(Interceptor<HeartbeatRequest, HeartbeatResponse> interceptor) {
+    this.heartbeatInterceptor = interceptor;
+  }
+
   private CompletableFuture<TestRaftServerProtocol> getServer(MemberId memberId) {
     TestRaftServerProtocol server = server(memberId);
-    if (server != null) {
+    if (server != null && !partitioned && !server.partitioned) {
       return Futures.completedFuture(server);
     } else {
       return Futures.exceptionalFuture(new ConnectException());
@@ -90,6 +139,11 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
     return getServer(memberId).thenCompose(listener -> listener.query(request));
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(MemberId memberId, ReadIndexRequest request) {
+    return getServer(memberId).thenCompose(listener -> listener.readIndex(request));
+  }
+
   @Override
   public CompletableFuture<CommandResponse> command(MemberId memberId, CommandRequest request) {
     return getServer(memberId).thenCompose(listener -> listener.command(request));
@@ -122,6 +176,10 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
 
   @Override
   public CompletableFuture<InstallResponse> install(MemberId memberId, InstallRequest request) {
+    Interceptor<InstallRequest, InstallResponse> interceptor = installInterceptor;
+    if (interceptor != null) {
+      return interceptor.intercept(memberId, request, r -> getServer(memberId).thenCompose(listener -> listener.install(r)));
+    }
     return getServer(memberId).thenCompose(listener -> listener.install(request));
   }
 
@@ -137,9 +195,22 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
 
   @Override
   public CompletableFuture<AppendResponse> append(MemberId memberId, AppendRequest request) {
+    Interceptor<AppendRequest, AppendResponse> interceptor = appendInterceptor;
+    if (interceptor != null) {
+      return interceptor.intercept(memberId, request, r -> getServer(memberId).thenCompose(listener -> listener.append(r)));
+    }
     return getServer(memberId).thenCompose(listener -> listener.append(request));
   }
 
+  @Override
+  public CompletableFuture<HeartbeatResponse> heartbeat(MemberId memberId, HeartbeatRequest request) {
+    Interceptor<HeartbeatRequest, HeartbeatResponse> interceptor = heartbeatInterceptor;
+    if (interceptor != null) {
+      return interceptor.intercept(memberId, request, r -> getServer(memberId).thenCompose(listener -> listener.heartbeat(r)));
+    }
+    return getServer(memberId).thenCompose(listener -> listener.heartbeat(request));
+  }
+
   @Override
   public void publish(MemberId memberId, PublishRequest request) {
     getClient(memberId).thenAccept(protocol -> protocol.publish(request));
@@ -217,6 +288,24 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
     this.queryHandler = null;
   }
 
+  CompletableFuture<ReadIndexResponse> readIndex(ReadIndexRequest request) {
+    if (readIndexHandler != null) {
+      return readIndexHandler.apply(request);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    this.readIndexHandler = handler;
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    this.readIndexHandler = null;
+  }
+
   CompletableFuture<CommandResponse> command(CommandRequest request) {
     if (commandHandler != null) {
       return commandHandler.apply(request);
@@ -397,6 +486,24 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
     this.appendHandler = null;
   }
 
+  CompletableFuture<HeartbeatResponse> heartbeat(HeartbeatRequest request) {
+    if (heartbeatHandler != null) {
+      return heartbeatHandler.apply(request);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
+  @Override
+  public void registerHeartbeatHandler(Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> handler) {
+    this.heartbeatHandler = handler;
+  }
+
+  @Override
+  public void unregisterHeartbeatHandler() {
+    this.heartbeatHandler = null;
+  }
+
   void reset(ResetRequest request) {
     Consumer<ResetRequest> listener = resetListeners.get(request.session());
     if (listener != null) {
@@ -413,4 +520,21 @@ public class TestRaftServerProtocol extends TestRaftProtocol implements RaftServ
   public void unregisterResetListener(SessionId sessionId) {
     resetListeners.remove(sessionId.id());
   }
+
+  /**
+   * Intercepts requests sent by a server.
+   */
+  @FunctionalInterface
+  public interface Interceptor<T, U> {
+
+    /**
+     * Intercepts a request.
+     *
+     * @param memberId the member to which the request is being sent
+     * @param request  the request
+     * @param sender   a function that delivers a request to the member
+     * @return a future to be completed with the response
+     */
+    CompletableFuture<U> intercept(MemberId memberId, T request, Function<T, CompletableFuture<U>> sender);
+  }
 }
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft.service.impl;
+
+import io.atomix.protocols.raft.session.SessionId;
+import io.atomix.protocols.raft.session.impl.RaftSessionContext;
+import io.atomix.protocols.raft.session.impl.RaftSessionManager;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Service sessions test.
+ */
+public class DefaultServiceSessionsTest {
+
+  /**
+   * Creates a session with the given identifier, timestamp and timeout.
+   */
+  private RaftSessionContext createSession(long id, long timestamp, long timeout) {
+    RaftSessionContext session = mock(RaftSessionContext.class);
+    AtomicLong sessionTimestamp = new AtomicLong(timestamp);
+    when(session.sessionId()).thenReturn(SessionId.from(id));
+    when(session.timeout()).thenReturn(timeout);
+    when(session.getTimestamp()).thenAnswer(invocation -> sessionTimestamp.get());
+    doAnswer(invocation -> {
+      sessionTimestamp.accumulateAndGet((Long) invocation.getArguments()[0], Math::max);
+      return null;
+    }).when(session).setTimestamp(anyLong());
+    return session;
+  }
+
+  /**
+   * Tests that sessions are expired in order of their deadlines.
+   */
+  @Test
+  public void testExpireByDeadline() throws Exception {
+    DefaultServiceSessions sessions = new DefaultServiceSessions(new RaftSessionManager());
+    RaftSessionContext session1 = createSession(1, 0, 100);
+    RaftSessionContext session2 = createSession(2, 0, 50);
+    RaftSessionContext session3 = createSession(3, 0, 200);
+    sessions.add(session1);
+    sessions.add(session2);
+    sessions.add(session3);
+
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(50));
+    assertEquals(Collections.singletonList(session2), sessions.getExpiredSessions(51));
+    sessions.remove(session2);
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(100));
+    assertEquals(Collections.singletonList(session1), sessions.getExpiredSessions(101));
+    sessions.remove(session1);
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(150));
+    assertEquals(Collections.singletonList(session3), sessions.getExpiredSessions(201));
+  }
+
+  /**
+   * Tests that sessions kept alive after they were indexed are re-indexed once their indexed deadline passes.
+   */
+  @Test
+  public void testReindexAfterKeepAlive() throws Exception {
+    DefaultServiceSessions sessions = new DefaultServiceSessions(new RaftSessionManager());
+    RaftSessionContext session1 = createSession(1, 0, 100);
+    RaftSessionContext session2 = createSession(2, 0, 100);
+    sessions.add(session1);
+    sessions.add(session2);
+
+    // Keep the first session alive, moving its deadline past its indexed deadline.
+    session1.setTimestamp(80);
+    assertEquals(Collections.singletonList(session2), sessions.getExpiredSessions(150));
+    sessions.remove(session2);
+
+    // The first session was re-indexed with its current deadline and is expired once that deadline passes.
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(180));
+    session1.setTimestamp(100);
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(190));
+    assertEquals(Collections.singletonList(session1), sessions.getExpiredSessions(201));
+  }
+
+  /**
+   * Tests that expired sessions are returned in order of their identifiers regardless of their deadlines.
+   */
+  @Test
+  public void testExpireInSessionIdOrder() throws Exception {
+    DefaultServiceSessions sessions = new DefaultServiceSessions(new RaftSessionManager());
+    RaftSessionContext session1 = createSession(1, 0, 30);
+    RaftSessionContext session2 = createSession(2, 0, 20);
+    RaftSessionContext session3 = createSession(3, 0, 10);
+    sessions.add(session3);
+    sessions.add(session1);
+    sessions.add(session2);
+
+    // Keep the second session alive so it's re-indexed before being expired.
+    session2.setTimestamp(50);
+    assertEquals(Arrays.asList(session1, session3), sessions.getExpiredSessions(60));
+    assertEquals(Collections.singletonList(session2), sessions.getExpiredSessions(71));
+  }
+
+  /**
+   * Tests that removed sessions and sessions that never time out are not expired.
+   */
+  @Test
+  public void testNoExpiration() throws Exception {
+    DefaultServiceSessions sessions = new DefaultServiceSessions(new RaftSessionManager());
+    RaftSessionContext session1 = createSession(1, 0, 100);
+    RaftSessionContext session2 = createSession(2, 10, Long.MAX_VALUE);
+    sessions.add(session1);
+    sessions.add(session2);
+    sessions.remove(session1);
+    assertEquals(Collections.emptyList(), sessions.getExpiredSessions(Long.MAX_VALUE));
+  }
+}
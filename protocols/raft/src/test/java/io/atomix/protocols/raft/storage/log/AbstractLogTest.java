@@ -46,6 +46,7 @@ import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -282,6 +283,36 @@ public abstract class AbstractLogTest {
     }
   }
 
+  @Test
+  public void testFlushOnCommitTracksDurableIndex() throws Exception {
+    RaftLog log = RaftLog.builder()
+        .withName("test")
+        .withDirectory(PATH.toFile())
+        .withSerializer(serializer)
+        .withStorageLevel(storageLevel())
+        .withMaxEntriesPerSegment(MAX_ENTRIES_PER_SEGMENT)
+        .withMaxSegmentSize(MAX_SEGMENT_SIZE)
+        .withFlushOnCommit()
+        .build();
+    try {
+      RaftLogWriter writer = log.writer();
+      for (int i = 1; i <= MAX_ENTRIES_PER_SEGMENT * 2; i++) {
+        writer.append(new TestEntry(1, 32));
+      }
+
+      // Appended entries are flushed in the background without waiting for a commit.
+      long lastIndex = writer.getLastIndex();
+      assertEquals(lastIndex, writer.awaitDurable(lastIndex).get(10, TimeUnit.SECONDS).longValue());
+      assertEquals(lastIndex, writer.getDurableIndex());
+
+      writer.append(new TestEntry(1, 32));
+      writer.commit(writer.getLastIndex());
+      assertTrue(writer.getDurableIndex() >= writer.getLastIndex());
+    } finally {
+      log.close();
+    }
+  }
+
   @Before
   @After
   public void cleanupStorage() throws IOException {
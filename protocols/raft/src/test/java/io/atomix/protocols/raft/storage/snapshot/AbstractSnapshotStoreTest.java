@@ -19,8 +19,14 @@ import io.atomix.protocols.raft.service.ServiceId;
 import io.atomix.time.WallClockTimestamp;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Snapshot store test.
@@ -83,4 +89,76 @@ public abstract class AbstractSnapshotStoreTest {
     }
   }
 
+  /**
+   * Tests writing snapshot chunks out of order.
+   */
+  @Test
+  public void testWriteSnapshotChunksAtPositions() {
+    SnapshotStore store = createSnapshotStore();
+    Snapshot snapshot = store.newSnapshot(ServiceId.from(1), 2, new WallClockTimestamp());
+
+    byte[] bytes = ByteBuffer.allocate(24).putLong(10).putLong(11).putLong(12).array();
+    CRC32 checksum = new CRC32();
+    checksum.update(bytes);
+
+    try (SnapshotWriter writer = snapshot.openWriter().reserve(bytes.length)) {
+      writer.write(16, Arrays.copyOfRange(bytes, 16, 24));
+      writer.write(0, Arrays.copyOfRange(bytes, 0, 8));
+      writer.write(8, Arrays.copyOfRange(bytes, 8, 16));
+      assertEquals(checksum.getValue(), writer.checksum(bytes.length));
+    }
+    snapshot.complete();
+
+    try (SnapshotReader reader = store.getSnapshotById(ServiceId.from(1)).openReader()) {
+      assertEquals(reader.remaining(), bytes.length);
+      assertEquals(reader.readLong(), 10);
+      assertEquals(reader.readLong(), 11);
+      assertEquals(reader.readLong(), 12);
+    }
+  }
+
+  /**
+   * Tests chaining delta snapshots to a full snapshot.
+   */
+  @Test
+  public void testChainDeltaSnapshots() {
+    SnapshotStore store = createSnapshotStore();
+    Snapshot snapshot = store.newSnapshot(ServiceId.from(1), 2, new WallClockTimestamp());
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.writeLong(10);
+    }
+    snapshot.complete();
+
+    assertTrue(store.canAppendDelta(ServiceId.from(1), 2));
+    assertFalse(store.canAppendDelta(ServiceId.from(1), 1));
+
+    Snapshot delta = store.newTemporaryDeltaSnapshot(ServiceId.from(1), 2, 3, new WallClockTimestamp());
+    try (SnapshotWriter writer = delta.openWriter()) {
+      writer.writeLong(11);
+    }
+    delta.persist().complete();
+
+    assertNull(store.getSnapshotByIndex(2));
+    assertEquals(store.getSnapshotById(ServiceId.from(1)).index(), 3);
+    assertEquals(store.getSnapshotByIndex(3).index(), 3);
+
+    // A delta that doesn't apply to the latest snapshot is discarded.
+    Snapshot staleDelta = store.newTemporaryDeltaSnapshot(ServiceId.from(1), 2, 4, new WallClockTimestamp());
+    try (SnapshotWriter writer = staleDelta.openWriter()) {
+      writer.writeLong(12);
+    }
+    staleDelta.persist().complete();
+    assertEquals(store.getSnapshotById(ServiceId.from(1)).index(), 3);
+
+    try (SnapshotReader reader = store.getSnapshotById(ServiceId.from(1)).openReader()) {
+      assertEquals(reader.readInt(), ChainedSnapshot.CHAIN_HEADER);
+      assertEquals(reader.readInt(), 2);
+      assertEquals(reader.readLong(), 8);
+      assertEquals(reader.readLong(), 10);
+      assertEquals(reader.readLong(), 8);
+      assertEquals(reader.readLong(), 11);
+      assertFalse(reader.hasRemaining());
+    }
+  }
+
 }
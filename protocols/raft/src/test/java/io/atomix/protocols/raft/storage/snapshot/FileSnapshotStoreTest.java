@@ -45,6 +45,13 @@ import static org.junit.Assert.assertNull;
 public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
   private String testId;
 
+  /**
+   * Returns the snapshot storage level.
+   */
+  protected StorageLevel storageLevel() {
+    return StorageLevel.DISK;
+  }
+
   /**
    * Returns a new snapshot store.
    */
@@ -52,7 +59,7 @@ public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
     RaftStorage storage = RaftStorage.newBuilder()
         .withPrefix("test")
         .withDirectory(new File(String.format("target/test-logs/%s", testId)))
-        .withStorageLevel(StorageLevel.DISK)
+        .withStorageLevel(storageLevel())
         .build();
     return new SnapshotStore(storage);
   }
@@ -127,6 +134,60 @@ public class FileSnapshotStoreTest extends AbstractSnapshotStoreTest {
     }
   }
 
+  /**
+   * Tests loading delta snapshots chained to a full snapshot.
+   */
+  @Test
+  public void testLoadDeltaSnapshots() {
+    SnapshotStore store = createSnapshotStore();
+    Snapshot snapshot = store.newSnapshot(ServiceId.from(1), 2, new WallClockTimestamp());
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.writeLong(10);
+    }
+    snapshot.complete();
+
+    Snapshot delta = store.newTemporaryDeltaSnapshot(ServiceId.from(1), 2, 3, new WallClockTimestamp());
+    try (SnapshotWriter writer = delta.openWriter()) {
+      writer.writeLong(11);
+    }
+    delta.persist().complete();
+    store.close();
+
+    store = createSnapshotStore();
+    assertEquals(store.getSnapshotById(ServiceId.from(1)).index(), 3);
+    assertEquals(store.getSnapshotByIndex(3).index(), 3);
+    assertNull(store.getSnapshotByIndex(2));
+
+    try (SnapshotReader reader = store.getSnapshotById(ServiceId.from(1)).openReader()) {
+      assertEquals(reader.readInt(), ChainedSnapshot.CHAIN_HEADER);
+      assertEquals(reader.readInt(), 2);
+      assertEquals(reader.readLong(), 8);
+      assertEquals(reader.readLong(), 10);
+      assertEquals(reader.readLong(), 8);
+      assertEquals(reader.readLong(), 11);
+    }
+  }
+
+  /**
+   * Tests that temporary snapshots that were never persisted are deleted when the store is loaded.
+   */
+  @Test
+  public void testDeleteTemporarySnapshot() {
+    SnapshotStore store = createSnapshotStore();
+
+    Snapshot snapshot = store.newTemporarySnapshot(ServiceId.from(1), 2, new WallClockTimestamp());
+    try (SnapshotWriter writer = snapshot.openWriter()) {
+      writer.writeLong(10);
+    }
+    assertEquals(1, new File(String.format("target/test-logs/%s", testId)).listFiles().length);
+    store.close();
+
+    store = createSnapshotStore();
+    assertNull(store.getSnapshotById(ServiceId.from(1)));
+    assertNull(store.getSnapshotByIndex(2));
+    assertEquals(0, new File(String.format("target/test-logs/%s", testId)).listFiles().length);
+  }
+
   @Before
   @After
   public void cleanupStorage() throws IOException {
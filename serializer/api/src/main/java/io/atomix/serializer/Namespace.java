@@ -88,6 +88,7 @@ public interface Namespace {
    *
    * @param obj    Object to serialize
    * @param buffer to write to
+   * @throws java.nio.BufferOverflowException if the object does not fit in the buffer's remaining bytes
    */
   void serialize(final Object obj, final ByteBuffer buffer);
 
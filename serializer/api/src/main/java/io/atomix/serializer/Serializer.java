@@ -16,6 +16,8 @@
 
 package io.atomix.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Interface for serialization of store artifacts.
  */
@@ -30,6 +32,22 @@ public interface Serializer {
    */
   <T> byte[] encode(T object);
 
+  /**
+   * Serialize the specified object to the given buffer.
+   * <p>
+   * The object is written starting at the buffer's current position, and the buffer's position is advanced
+   * past the written bytes. Implementations should override this method to write directly to the buffer
+   * without allocating an intermediate byte array.
+   *
+   * @param object object to serialize.
+   * @param buffer buffer to which to write the object.
+   * @param <T>    encoded type
+   * @throws java.nio.BufferOverflowException if the object does not fit in the buffer's remaining bytes
+   */
+  default <T> void encode(T object, ByteBuffer buffer) {
+    buffer.put(encode(object));
+  }
+
   /**
    * Deserialize the specified bytes.
    *
@@ -39,6 +57,22 @@ public interface Serializer {
    */
   <T> T decode(byte[] bytes);
 
+  /**
+   * Deserialize the remaining bytes in the given buffer.
+   * <p>
+   * Implementations should override this method to read directly from the buffer without copying the
+   * buffer's contents into an intermediate byte array.
+   *
+   * @param buffer buffer from which to read the object.
+   * @param <T>    decoded type
+   * @return deserialized object.
+   */
+  default <T> T decode(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return decode(bytes);
+  }
+
   /**
    * Creates a new Serializer instance from a Namespace.
    *
@@ -52,10 +86,20 @@ public interface Serializer {
         return namespace.serialize(object);
       }
 
+      @Override
+      public <T> void encode(T object, ByteBuffer buffer) {
+        namespace.serialize(object, buffer);
+      }
+
       @Override
       public <T> T decode(byte[] bytes) {
         return namespace.deserialize(bytes);
       }
+
+      @Override
+      public <T> T decode(ByteBuffer buffer) {
+        return namespace.deserialize(buffer);
+      }
     };
   }
 
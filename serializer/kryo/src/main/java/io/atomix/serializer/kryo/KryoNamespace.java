@@ -16,6 +16,7 @@
 package io.atomix.serializer.kryo;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
 import com.esotericsoftware.kryo.Registration;
 import com.esotericsoftware.kryo.io.ByteBufferInput;
 import com.esotericsoftware.kryo.io.ByteBufferOutput;
@@ -34,6 +35,7 @@ import org.objenesis.strategy.StdInstantiatorStrategy;
 
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -266,6 +268,7 @@ public final class KryoNamespace implements Namespace, KryoFactory, KryoPool {
    *
    * @param obj    Object to serialize
    * @param buffer to write to
+   * @throws BufferOverflowException if the object does not fit in the buffer's remaining bytes
    */
   public void serialize(final Object obj, final ByteBuffer buffer) {
     ByteBufferOutput out = new ByteBufferOutput(buffer);
@@ -273,11 +276,31 @@ public final class KryoNamespace implements Namespace, KryoFactory, KryoPool {
     try {
       kryo.writeClassAndObject(out, obj);
       out.flush();
+    } catch (KryoException e) {
+      if (isOverflow(e)) {
+        throw new BufferOverflowException();
+      }
+      throw e;
     } finally {
       release(kryo);
     }
   }
 
+  /**
+   * Returns a boolean indicating whether the given exception was caused by a buffer overflow.
+   */
+  private static boolean isOverflow(KryoException e) {
+    Throwable cause = e;
+    while (cause != null) {
+      if (cause instanceof BufferOverflowException
+          || (cause instanceof KryoException && cause.getMessage() != null && cause.getMessage().startsWith("Buffer overflow"))) {
+        return true;
+      }
+      cause = cause.getCause();
+    }
+    return false;
+  }
+
   /**
    * Serializes given object to OutputStream using Kryo instance in pool.
    *
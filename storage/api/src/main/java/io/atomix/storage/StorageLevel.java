@@ -28,6 +28,11 @@ public enum StorageLevel {
   /**
    * Stores data on disk.
    */
-  DISK
+  DISK,
+
+  /**
+   * Stores data in memory-mapped files.
+   */
+  MAPPED
 
 }
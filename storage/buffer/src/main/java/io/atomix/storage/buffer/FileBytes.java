@@ -40,6 +40,7 @@ import java.nio.file.Files;
  */
 public class FileBytes extends AbstractBytes {
   static final String DEFAULT_MODE = "rw";
+  private static final int ZERO_CHUNK_SIZE = 1024 * 64;
 
   /**
    * Allocates a randomAccessFile buffer of unlimited count.
@@ -213,7 +214,9 @@ public class FileBytes extends AbstractBytes {
   @Override
   public Bytes zero() {
     try {
+      // Truncate and re-extend the file so the zeroed bytes remain readable up to the current size.
       randomAccessFile.setLength(0);
+      randomAccessFile.setLength(size);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -223,7 +226,9 @@ public class FileBytes extends AbstractBytes {
   @Override
   public Bytes zero(int offset) {
     try {
+      // Truncate and re-extend the file so the zeroed bytes remain readable up to the current size.
       randomAccessFile.setLength(offset);
+      randomAccessFile.setLength(Math.max(offset, size));
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -232,8 +237,9 @@ public class FileBytes extends AbstractBytes {
 
   @Override
   public Bytes zero(int offset, int length) {
-    for (int i = offset; i < offset + length; i++) {
-      writeByte(i, (byte) 0);
+    byte[] zeros = new byte[Math.min(length, ZERO_CHUNK_SIZE)];
+    for (int i = offset; i < offset + length; i += zeros.length) {
+      write(i, zeros, 0, Math.min(zeros.length, offset + length - i));
     }
     return this;
   }
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.buffer.AbstractBuffer;
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.SlicedBuffer;
+
+import java.io.File;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ * Read-only buffer over a block compressed segment file.
+ *
+ * @see CompressedSegmentBytes
+ */
+final class CompressedSegmentBuffer extends AbstractBuffer {
+
+  /**
+   * Opens a compressed segment file.
+   *
+   * @param file the compressed segment file
+   * @return the compressed segment buffer
+   */
+  static CompressedSegmentBuffer open(File file) {
+    return new CompressedSegmentBuffer(new CompressedSegmentBytes(file));
+  }
+
+  private final CompressedSegmentBytes bytes;
+
+  private CompressedSegmentBuffer(CompressedSegmentBytes bytes) {
+    super(bytes, 0, bytes.size(), bytes.size(), null);
+    this.bytes = bytes;
+  }
+
+  @Override
+  public boolean isReadOnly() {
+    return true;
+  }
+
+  @Override
+  public Buffer compact() {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  protected void compact(int from, int to, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Buffer duplicate() {
+    return new SlicedBuffer(this, bytes, offset(), capacity(), maxCapacity());
+  }
+
+  /**
+   * Closes and deletes the compressed segment file.
+   */
+  void delete() {
+    bytes.delete();
+  }
+}
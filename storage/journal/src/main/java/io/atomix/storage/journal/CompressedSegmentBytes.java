@@ -0,0 +1,325 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.StorageException;
+import io.atomix.storage.buffer.AbstractBytes;
+import io.atomix.storage.buffer.Bytes;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only bytes backed by a block compressed segment file.
+ * <p>
+ * Compressed segment files are composed of a header containing the uncompressed size of the segment, the block size,
+ * and the file offset of each block, followed by the segment's bytes compressed in fixed size blocks with
+ * {@link Deflater}. Blocks are decompressed on demand as they're read, and the most recently read block is retained
+ * so sequential reads decompress each block only once.
+ */
+final class CompressedSegmentBytes extends AbstractBytes {
+  static final int DEFAULT_BLOCK_SIZE = 1024 * 64;
+
+  /**
+   * Compresses the first {@code length} bytes of the given segment file into the given target file.
+   *
+   * @param source the segment file to compress
+   * @param length the number of bytes of the segment file to compress
+   * @param target the file to which to write the compressed segment
+   * @param blockSize the uncompressed size of each compressed block
+   * @throws StorageException if the segment could not be compressed
+   */
+  static void compress(File source, int length, File target, int blockSize) {
+    int blocks = (length + blockSize - 1) / blockSize;
+    long[] offsets = new long[blocks + 1];
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+    try (RandomAccessFile in = new RandomAccessFile(source, "r");
+         RandomAccessFile out = new RandomAccessFile(target, "rw")) {
+      byte[] block = new byte[blockSize];
+      byte[] compressed = new byte[blockSize];
+      int headerSize = Bytes.INTEGER * 3 + Bytes.LONG * offsets.length;
+      out.setLength(0);
+      out.seek(headerSize);
+      for (int i = 0; i < blocks; i++) {
+        int blockLength = Math.min(blockSize, length - i * blockSize);
+        in.readFully(block, 0, blockLength);
+        offsets[i] = out.getFilePointer();
+        deflater.reset();
+        deflater.setInput(block, 0, blockLength);
+        deflater.finish();
+        while (!deflater.finished()) {
+          out.write(compressed, 0, deflater.deflate(compressed));
+        }
+      }
+      offsets[blocks] = out.getFilePointer();
+
+      out.seek(0);
+      out.writeInt(length);
+      out.writeInt(blockSize);
+      out.writeInt(blocks);
+      for (long offset : offsets) {
+        out.writeLong(offset);
+      }
+      out.getFD().sync();
+    } catch (IOException e) {
+      throw new StorageException(e);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private final File file;
+  private final RandomAccessFile randomAccessFile;
+  private final int size;
+  private final int blockSize;
+  private final long[] offsets;
+  private final Inflater inflater = new Inflater(true);
+  private final byte[] block;
+  private byte[] compressed = new byte[0];
+  private int blockIndex = -1;
+
+  CompressedSegmentBytes(File file) {
+    this.file = file;
+    try {
+      this.randomAccessFile = new RandomAccessFile(file, "r");
+      this.size = randomAccessFile.readInt();
+      this.blockSize = randomAccessFile.readInt();
+      this.offsets = new long[randomAccessFile.readInt() + 1];
+      for (int i = 0; i < offsets.length; i++) {
+        offsets[i] = randomAccessFile.readLong();
+      }
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    this.block = new byte[blockSize];
+  }
+
+  /**
+   * Returns the compressed segment file.
+   *
+   * @return the compressed segment file
+   */
+  File file() {
+    return file;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Bytes resize(int newSize) {
+    throw new ReadOnlyBufferException();
+  }
+
+  /**
+   * Returns the decompressed block containing the given offset.
+   */
+  private byte[] block(int offset) {
+    int index = offset / blockSize;
+    if (index != blockIndex) {
+      try {
+        int length = (int) (offsets[index + 1] - offsets[index]);
+        if (compressed.length < length) {
+          compressed = new byte[length];
+        }
+        randomAccessFile.seek(offsets[index]);
+        randomAccessFile.readFully(compressed, 0, length);
+        inflater.reset();
+        inflater.setInput(compressed, 0, length);
+        int blockLength = Math.min(blockSize, size - index * blockSize);
+        int position = 0;
+        while (position < blockLength) {
+          int inflated = inflater.inflate(block, position, blockLength - position);
+          if (inflated == 0 && (inflater.finished() || inflater.needsInput())) {
+            throw new StorageException("Truncated block " + index + " in " + file);
+          }
+          position += inflated;
+        }
+      } catch (IOException | DataFormatException e) {
+        blockIndex = -1;
+        throw new StorageException(e);
+      }
+      blockIndex = index;
+    }
+    return block;
+  }
+
+  /**
+   * Reads {@code length} bytes at the given offset as a big-endian value.
+   */
+  private long readBits(int offset, int length) {
+    checkRead(offset, length);
+    long value = 0;
+    for (int i = 0; i < length; i++) {
+      value = (value << 8) | (block(offset + i)[(offset + i) % blockSize] & 0xFF);
+    }
+    return value;
+  }
+
+  @Override
+  public synchronized Bytes read(int offset, Bytes dst, int dstOffset, int length) {
+    checkRead(offset, length);
+    while (length > 0) {
+      int blockOffset = offset % blockSize;
+      int count = Math.min(length, blockSize - blockOffset);
+      dst.write(dstOffset, block(offset), blockOffset, count);
+      offset += count;
+      dstOffset += count;
+      length -= count;
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized Bytes read(int offset, byte[] dst, int dstOffset, int length) {
+    checkRead(offset, length);
+    while (length > 0) {
+      int blockOffset = offset % blockSize;
+      int count = Math.min(length, blockSize - blockOffset);
+      System.arraycopy(block(offset), blockOffset, dst, dstOffset, count);
+      offset += count;
+      dstOffset += count;
+      length -= count;
+    }
+    return this;
+  }
+
+  @Override
+  public synchronized int readByte(int offset) {
+    return (byte) readBits(offset, BYTE);
+  }
+
+  @Override
+  public synchronized char readChar(int offset) {
+    return (char) readBits(offset, CHARACTER);
+  }
+
+  @Override
+  public synchronized short readShort(int offset) {
+    return (short) readBits(offset, SHORT);
+  }
+
+  @Override
+  public synchronized int readInt(int offset) {
+    return (int) readBits(offset, INTEGER);
+  }
+
+  @Override
+  public synchronized long readLong(int offset) {
+    return readBits(offset, LONG);
+  }
+
+  @Override
+  public float readFloat(int offset) {
+    return Float.intBitsToFloat(readInt(offset));
+  }
+
+  @Override
+  public double readDouble(int offset) {
+    return Double.longBitsToDouble(readLong(offset));
+  }
+
+  @Override
+  public Bytes zero() {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes zero(int offset) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes zero(int offset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes write(int offset, Bytes src, int srcOffset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes write(int offset, byte[] src, int srcOffset, int length) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeByte(int offset, int b) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeChar(int offset, char c) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeShort(int offset, short s) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeInt(int offset, int i) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeLong(int offset, long l) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeFloat(int offset, float f) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public Bytes writeDouble(int offset, double d) {
+    throw new ReadOnlyBufferException();
+  }
+
+  @Override
+  public synchronized void close() {
+    try {
+      randomAccessFile.close();
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+    inflater.end();
+    super.close();
+  }
+
+  /**
+   * Closes and deletes the compressed segment file.
+   */
+  void delete() {
+    close();
+    try {
+      Files.delete(file.toPath());
+    } catch (IOException e) {
+      throw new StorageException(e);
+    }
+  }
+}
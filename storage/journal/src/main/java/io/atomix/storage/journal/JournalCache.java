@@ -0,0 +1,92 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decoded journal entry cache.
+ * <p>
+ * The cache is shared by all readers of a journal so that each entry is decoded at most once while it's cached.
+ * Entries are added to the cache when they're written or decoded by a reader, and the least recently used entries
+ * are evicted once the cache exceeds either its maximum number of entries or its maximum size in serialized bytes.
+ */
+final class JournalCache<E> {
+  private final int maxEntries;
+  private final long maxSize;
+  private final LinkedHashMap<Long, Indexed<E>> entries = new LinkedHashMap<>(16, .75f, true);
+  private long size;
+
+  JournalCache(int maxEntries, long maxSize) {
+    this.maxEntries = maxEntries;
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * Returns the cached entry at the given index.
+   *
+   * @param index the index of the entry to return
+   * @return the cached entry or {@code null} if the entry is not cached
+   */
+  synchronized Indexed<E> get(long index) {
+    return entries.get(index);
+  }
+
+  /**
+   * Adds an entry to the cache, evicting the least recently used entries if necessary.
+   *
+   * @param entry the entry to add
+   */
+  synchronized void put(Indexed<E> entry) {
+    Indexed<E> previous = entries.put(entry.index(), entry);
+    if (previous != null) {
+      size -= previous.size();
+    }
+    size += entry.size();
+
+    Iterator<Indexed<E>> iterator = entries.values().iterator();
+    while (entries.size() > maxEntries || (size > maxSize && entries.size() > 1)) {
+      size -= iterator.next().size();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Removes all entries following the given index from the cache.
+   *
+   * @param index the index after which to remove entries
+   */
+  synchronized void truncate(long index) {
+    Iterator<Map.Entry<Long, Indexed<E>>> iterator = entries.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Indexed<E> entry = iterator.next().getValue();
+      if (entry.index() > index) {
+        size -= entry.size();
+        iterator.remove();
+      }
+    }
+  }
+
+  /**
+   * Removes all entries from the cache.
+   */
+  synchronized void clear() {
+    entries.clear();
+    size = 0;
+  }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * Journal entry checksum algorithm.
+ * <p>
+ * The checksum algorithm used to verify entries is stored in each segment's {@link JournalSegmentDescriptor}, so
+ * segments written with different algorithms can be read by the same journal. Checksums are always computed directly
+ * over the segment's buffer without copying entry bytes.
+ */
+public enum JournalChecksum {
+
+  /**
+   * CRC32 checksums.
+   * <p>
+   * This is the checksum used by segments written before the checksum algorithm was stored in the descriptor.
+   */
+  CRC32(1) {
+    @Override
+    EntryChecksum newChecksum() {
+      return new Crc32Checksum();
+    }
+  },
+
+  /**
+   * CRC32C (Castagnoli) checksums.
+   * <p>
+   * On Java 9 and later, CRC32C checksums are computed using {@code java.util.zip.CRC32C}, which is implemented with
+   * hardware CRC32C instructions where they're available. On Java 8, a table-based implementation is used.
+   */
+  CRC32C(2) {
+    @Override
+    EntryChecksum newChecksum() {
+      return Crc32cChecksum.CONSTRUCTOR != null ? new Crc32cChecksum() : new PureJavaCrc32c();
+    }
+  };
+
+  /**
+   * Returns the checksum algorithm for the given identifier.
+   * <p>
+   * An identifier of {@code 0} indicates a segment written before the checksum algorithm was stored in the segment
+   * descriptor, and such segments are checksummed with {@link #CRC32}.
+   *
+   * @param id the checksum identifier
+   * @return the checksum algorithm for the given identifier
+   * @throws IllegalArgumentException if the identifier is unknown
+   */
+  public static JournalChecksum forId(int id) {
+    if (id == 0) {
+      return CRC32;
+    }
+    for (JournalChecksum checksum : values()) {
+      if (checksum.id == id) {
+        return checksum;
+      }
+    }
+    throw new IllegalArgumentException("Unknown checksum: " + id);
+  }
+
+  private final int id;
+
+  JournalChecksum(int id) {
+    this.id = id;
+  }
+
+  /**
+   * Returns the checksum identifier.
+   *
+   * @return the checksum identifier
+   */
+  public int id() {
+    return id;
+  }
+
+  /**
+   * Returns a new checksum instance.
+   *
+   * @return a new checksum instance
+   */
+  abstract EntryChecksum newChecksum();
+
+  /**
+   * Entry checksum.
+   * <p>
+   * Checksum instances are reusable but not thread safe.
+   */
+  interface EntryChecksum {
+
+    /**
+     * Resets the checksum to its initial value.
+     */
+    void reset();
+
+    /**
+     * Updates the checksum with the remaining bytes in the given buffer, advancing the buffer's position to its limit.
+     *
+     * @param buffer the buffer with which to update the checksum
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Returns the current checksum value.
+     *
+     * @return the current checksum value
+     */
+    long getValue();
+  }
+
+  /**
+   * {@link java.util.zip.CRC32} based checksum.
+   */
+  private static final class Crc32Checksum implements EntryChecksum {
+    private final CRC32 checksum = new CRC32();
+
+    @Override
+    public void reset() {
+      checksum.reset();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+      checksum.update(buffer);
+    }
+
+    @Override
+    public long getValue() {
+      return checksum.getValue();
+    }
+  }
+
+  /**
+   * {@code java.util.zip.CRC32C} based checksum, available on Java 9 and later.
+   */
+  private static final class Crc32cChecksum implements EntryChecksum {
+    private static final MethodHandle CONSTRUCTOR;
+    private static final MethodHandle UPDATE;
+
+    static {
+      MethodHandle constructor = null;
+      MethodHandle update = null;
+      try {
+        Class<?> type = Class.forName("java.util.zip.CRC32C");
+        MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+            .asType(MethodType.methodType(Checksum.class));
+        update = lookup.findVirtual(type, "update", MethodType.methodType(void.class, ByteBuffer.class))
+            .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+      } catch (ReflectiveOperationException e) {
+        constructor = null;
+        update = null;
+      }
+      CONSTRUCTOR = constructor;
+      UPDATE = update;
+    }
+
+    private final Checksum checksum;
+
+    Crc32cChecksum() {
+      try {
+        this.checksum = (Checksum) CONSTRUCTOR.invokeExact();
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void reset() {
+      checksum.reset();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+      try {
+        UPDATE.invokeExact(checksum, buffer);
+      } catch (Throwable e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public long getValue() {
+      return checksum.getValue();
+    }
+  }
+}
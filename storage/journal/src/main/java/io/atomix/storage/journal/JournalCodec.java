@@ -0,0 +1,175 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.serializer.Serializer;
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.ByteBufferBytes;
+import io.atomix.storage.buffer.Bytes;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Journal entry codec.
+ * <p>
+ * The codec reads and writes entries in the segment entry format: a 32-bit length, followed by a 32-bit
+ * unsigned checksum computed by the segment's {@link JournalChecksum}, followed by the serialized entry.
+ * When the segment is backed by a {@link ByteBuffer} (heap and mapped segments), entries are serialized,
+ * checksummed, and deserialized directly in the segment buffer. Otherwise, entries are staged through a
+ * reusable scratch buffer. Codecs are not thread safe; each segment reader and writer owns its own codec.
+ */
+final class JournalCodec<E> {
+  static final int HEADER_BYTES = Bytes.INTEGER + Bytes.INTEGER;
+  private static final int DEFAULT_SCRATCH_SIZE = 1024 * 8;
+
+  private final Serializer serializer;
+  private final JournalChecksum.EntryChecksum checksum;
+  private ByteBuffer scratch;
+
+  JournalCodec(Serializer serializer, JournalChecksum checksum) {
+    this.serializer = serializer;
+    this.checksum = checksum.newChecksum();
+  }
+
+  /**
+   * Writes the given entry at the current position of the given buffer, advancing the buffer position.
+   *
+   * @param buffer the buffer to which to write the entry
+   * @param entry  the entry to write
+   * @return the serialized length of the entry, excluding the entry header
+   */
+  int write(Buffer buffer, E entry) {
+    final int position = buffer.position();
+    final int length;
+    final long checksum;
+    if (buffer.bytes() instanceof ByteBufferBytes) {
+      // Ensure the buffer's capacity covers the header, then serialize the entry directly into the buffer.
+      buffer.position(position + HEADER_BYTES).position(position);
+      final int offset = buffer.offset() + position + HEADER_BYTES;
+      ByteBuffer view = serialize(buffer, entry, offset);
+      length = view.position() - offset;
+      checksum = checksum(view, offset, length);
+      buffer.writeInt(length)
+          .writeUnsignedInt(checksum)
+          .position(position + HEADER_BYTES + length);
+    } else {
+      ByteBuffer view = serialize(entry);
+      length = view.position();
+      checksum = checksum(view, 0, length);
+      buffer.writeInt(length)
+          .writeUnsignedInt(checksum)
+          .write(view.array(), 0, length);
+    }
+    return length;
+  }
+
+  /**
+   * Serializes the entry directly into the buffer at the given absolute offset, growing the buffer as necessary.
+   */
+  private ByteBuffer serialize(Buffer buffer, E entry, int offset) {
+    for (;;) {
+      ByteBuffer view = ((ByteBufferBytes) buffer.bytes()).byteBuffer().duplicate();
+      view.position(offset);
+      try {
+        serializer.encode(entry, view);
+        return view;
+      } catch (BufferOverflowException e) {
+        long capacity = Math.min(buffer.maxCapacity(), (long) (view.capacity() - buffer.offset()) * 2);
+        if (capacity <= buffer.capacity()) {
+          throw e;
+        }
+        buffer.capacity((int) capacity);
+      }
+    }
+  }
+
+  /**
+   * Serializes the entry into the scratch buffer, growing the scratch buffer as necessary.
+   */
+  private ByteBuffer serialize(E entry) {
+    if (scratch == null) {
+      scratch = ByteBuffer.allocate(DEFAULT_SCRATCH_SIZE);
+    }
+    for (;;) {
+      scratch.clear();
+      try {
+        serializer.encode(entry, scratch);
+        return scratch;
+      } catch (BufferOverflowException e) {
+        scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+      }
+    }
+  }
+
+  /**
+   * Reads an entry of the given length from the current position of the given buffer, advancing the buffer position.
+   *
+   * @param buffer   the buffer from which to read the entry
+   * @param length   the serialized length of the entry
+   * @param checksum the stored checksum of the entry
+   * @return the entry or {@code null} if the stored checksum does not match the entry
+   * @throws BufferUnderflowException if the buffer does not contain {@code length} bytes
+   */
+  E read(Buffer buffer, int length, long checksum) {
+    final ByteBuffer view = slice(buffer, length);
+    final int offset = view.position();
+    if (checksum != checksum(view, offset, length)) {
+      return null;
+    }
+    return serializer.decode(view);
+  }
+
+  /**
+   * Returns a view of the next {@code length} bytes in the buffer, advancing the buffer position.
+   */
+  private ByteBuffer slice(Buffer buffer, int length) {
+    final int position = buffer.position();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    buffer.position(position + length);
+
+    final int offset = buffer.offset() + position;
+    final Bytes bytes = buffer.bytes();
+    if (bytes instanceof ByteBufferBytes) {
+      ByteBuffer view = ((ByteBufferBytes) bytes).byteBuffer().duplicate();
+      view.limit(offset + length).position(offset);
+      return view;
+    }
+
+    if (scratch == null || scratch.capacity() < length) {
+      scratch = ByteBuffer.allocate(Math.max(length, DEFAULT_SCRATCH_SIZE));
+    }
+    bytes.read(offset, scratch.array(), 0, length);
+    scratch.clear().limit(length);
+    return scratch;
+  }
+
+  /**
+   * Computes the checksum of {@code length} bytes in the given view starting at {@code offset}.
+   * <p>
+   * The view's position and limit are restored to {@code offset} and {@code offset + length} respectively.
+   */
+  private long checksum(ByteBuffer view, int offset, int length) {
+    view.limit(offset + length).position(offset);
+    checksum.reset();
+    checksum.update(view);
+    view.position(offset);
+    return checksum.getValue();
+  }
+}
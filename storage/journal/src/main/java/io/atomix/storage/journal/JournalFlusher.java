@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.utils.concurrent.Futures;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Group commit journal flusher.
+ * <p>
+ * The flusher combines appends from many callers into a single flush on a dedicated thread. Appends are
+ * recorded via {@link #append(long, int)}, and once the oldest unflushed append is {@code maxDelay} old
+ * or {@code maxBatchSize} bytes have been appended, the flusher flushes the journal and completes any
+ * futures awaiting durability of the flushed indexes.
+ */
+final class JournalFlusher implements AutoCloseable {
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final Runnable flusher;
+  private final long maxDelay;
+  private final int maxBatchSize;
+  private final Thread thread;
+  private final NavigableMap<Long, CompletableFuture<Long>> futures = new TreeMap<>();
+  private long pendingIndex;
+  private long pendingTime;
+  private int pendingBytes;
+  private volatile long durableIndex;
+  private long generation;
+  private boolean open = true;
+
+  JournalFlusher(String name, long lastIndex, Duration maxDelay, int maxBatchSize, Runnable flusher) {
+    this.flusher = flusher;
+    this.maxDelay = maxDelay.toNanos();
+    this.maxBatchSize = maxBatchSize;
+    this.pendingIndex = lastIndex;
+    this.durableIndex = lastIndex;
+    this.thread = namedThreads(name + "-journal-flusher", log).newThread(this::run);
+    this.thread.start();
+  }
+
+  /**
+   * Returns the highest index known to have been flushed to disk.
+   *
+   * @return the highest index known to have been flushed to disk
+   */
+  long durableIndex() {
+    return durableIndex;
+  }
+
+  /**
+   * Records an append to the journal.
+   *
+   * @param index the index of the appended entry
+   * @param bytes the number of bytes appended
+   */
+  synchronized void append(long index, int bytes) {
+    if (pendingIndex <= durableIndex) {
+      pendingTime = System.nanoTime();
+      notifyAll();
+    }
+    pendingIndex = index;
+    pendingBytes += bytes;
+    if (pendingBytes >= maxBatchSize) {
+      notifyAll();
+    }
+  }
+
+  /**
+   * Records a synchronous flush of the journal up to the given index.
+   *
+   * @param index the index up to which the journal was flushed
+   */
+  void flushed(long index) {
+    complete(index, generation());
+  }
+
+  /**
+   * Records a truncation of the journal to the given index.
+   *
+   * @param index the index to which the journal was truncated
+   */
+  synchronized void truncate(long index) {
+    generation++;
+    pendingIndex = Math.min(pendingIndex, index);
+    durableIndex = Math.min(durableIndex, index);
+  }
+
+  /**
+   * Returns a future to be completed once the given index has been flushed to disk.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the durable index once the given index is durable
+   */
+  synchronized CompletableFuture<Long> awaitDurable(long index) {
+    if (!open) {
+      return Futures.exceptionalFuture(new IllegalStateException("journal closed"));
+    }
+    if (index <= durableIndex) {
+      return CompletableFuture.completedFuture(durableIndex);
+    }
+    return futures.computeIfAbsent(index, i -> new CompletableFuture<>());
+  }
+
+  private synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * Runs the flusher loop.
+   */
+  private void run() {
+    for (;;) {
+      long index;
+      long generation;
+      synchronized (this) {
+        try {
+          while (open && pendingIndex <= durableIndex) {
+            wait();
+          }
+          long remaining = pendingTime + maxDelay - System.nanoTime();
+          while (open && pendingBytes < maxBatchSize && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = pendingTime + maxDelay - System.nanoTime();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          open = false;
+        }
+        if (!open) {
+          return;
+        }
+        index = pendingIndex;
+        generation = this.generation;
+        pendingBytes = 0;
+      }
+
+      try {
+        flusher.run();
+        complete(index, generation);
+      } catch (RuntimeException e) {
+        log.error("Failed to flush journal", e);
+        fail(index, e);
+      }
+    }
+  }
+
+  /**
+   * Marks the journal durable up to the given index and completes waiting futures.
+   */
+  private void complete(long index, long generation) {
+    List<CompletableFuture<Long>> completed;
+    long durableIndex;
+    synchronized (this) {
+      // If the journal was truncated while flushing, entries written after the truncation may not have been flushed.
+      if (generation != this.generation || index <= this.durableIndex) {
+        return;
+      }
+      this.durableIndex = durableIndex = index;
+      NavigableMap<Long, CompletableFuture<Long>> durableFutures = futures.headMap(index, true);
+      completed = new ArrayList<>(durableFutures.values());
+      durableFutures.clear();
+    }
+    completed.forEach(future -> future.complete(durableIndex));
+  }
+
+  /**
+   * Fails futures awaiting durability of indexes up to the given index.
+   */
+  private void fail(long index, Throwable error) {
+    List<CompletableFuture<Long>> failed;
+    synchronized (this) {
+      // Back off for the batch delay before retrying the flush.
+      pendingTime = System.nanoTime();
+      NavigableMap<Long, CompletableFuture<Long>> failedFutures = futures.headMap(index, true);
+      failed = new ArrayList<>(failedFutures.values());
+      failedFutures.clear();
+    }
+    failed.forEach(future -> future.completeExceptionally(error));
+  }
+
+  @Override
+  public void close() {
+    List<CompletableFuture<Long>> failed;
+    synchronized (this) {
+      open = false;
+      notifyAll();
+      failed = new ArrayList<>(futures.values());
+      futures.clear();
+    }
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    failed.forEach(future -> future.completeExceptionally(new IllegalStateException("journal closed")));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.util.Collection;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Journal segment index.
+ * <p>
+ * The index maps entry indexes to their physical positions within a segment buffer, allowing readers and
+ * writers to seek to an entry without reading and decoding every entry that precedes it.
+ */
+public interface JournalIndex {
+
+  /**
+   * Adds an entry for the given index at the given position.
+   *
+   * @param index the entry index
+   * @param position the entry position
+   */
+  void index(long index, int position);
+
+  /**
+   * Looks up the position of the given index.
+   * <p>
+   * If the index is not stored in the journal index, the position of the nearest prior indexed entry will be
+   * returned.
+   *
+   * @param index the index to look up
+   * @return the position of the given index or a lesser index, or {@code null} if no prior entry is indexed
+   */
+  Position lookup(long index);
+
+  /**
+   * Truncates the index to the given index.
+   *
+   * @param index the index to which to truncate the index
+   */
+  void truncate(long index);
+
+  /**
+   * Returns the indexed positions in index order.
+   *
+   * @return the indexed positions in index order
+   */
+  Collection<Position> positions();
+
+  /**
+   * Indexed entry position.
+   */
+  class Position {
+    private final long index;
+    private final int position;
+
+    public Position(long index, int position) {
+      this.index = index;
+      this.position = position;
+    }
+
+    /**
+     * Returns the position index.
+     *
+     * @return the position index
+     */
+    public long index() {
+      return index;
+    }
+
+    /**
+     * Returns the position offset.
+     *
+     * @return the position offset
+     */
+    public int position() {
+      return position;
+    }
+
+    @Override
+    public String toString() {
+      return toStringHelper(this)
+          .add("index", index)
+          .add("position", position)
+          .toString();
+    }
+  }
+}
@@ -29,14 +29,23 @@ public class JournalSegment<E> implements AutoCloseable {
   protected final JournalSegmentFile file;
   protected final JournalSegmentDescriptor descriptor;
   protected final Serializer serializer;
+  private final JournalIndex index;
+  private final JournalCache<E> cache;
   private final JournalSegmentWriter<E> writer;
   private boolean open = true;
 
-  public JournalSegment(JournalSegmentFile file, JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegment(
+      JournalSegmentFile file,
+      JournalSegmentDescriptor descriptor,
+      JournalIndex index,
+      Serializer serializer,
+      JournalCache<E> cache) {
     this.file = file;
     this.descriptor = descriptor;
+    this.index = index;
     this.serializer = serializer;
-    this.writer = new JournalSegmentWriter<>(descriptor, serializer);
+    this.cache = cache;
+    this.writer = new JournalSegmentWriter<>(descriptor, index, serializer);
   }
 
   /**
@@ -120,6 +129,15 @@ public class JournalSegment<E> implements AutoCloseable {
     return writer.isFull();
   }
 
+  /**
+   * Returns a boolean indicating whether the segment has been moved to compressed cold storage.
+   *
+   * @return Indicates whether the segment is compressed.
+   */
+  public boolean isCompressed() {
+    return descriptor.buffer() instanceof CompressedSegmentBuffer;
+  }
+
   /**
    * Returns the segment length.
    *
@@ -146,7 +164,7 @@ public class JournalSegment<E> implements AutoCloseable {
    */
   JournalSegmentReader<E> createReader() {
     checkOpen();
-    return new JournalSegmentReader<>(descriptor, serializer);
+    return new JournalSegmentReader<>(descriptor, index, serializer, cache);
   }
 
   /**
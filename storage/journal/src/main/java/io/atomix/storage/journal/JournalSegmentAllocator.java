@@ -0,0 +1,193 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static io.atomix.utils.concurrent.Threads.namedThreads;
+
+/**
+ * Background segment file allocator.
+ * <p>
+ * The allocator keeps a number of pre-allocated, zeroed segment files ready to be swapped in when the journal rolls
+ * over to a new segment, and deletes compacted segments, so neither the allocation nor the deletion of segment files
+ * is done on the journal's writing thread. Pre-allocated files are named {@code <name>-<n>.alloc} and are only
+ * renamed to segment files once they're used, so they're never loaded as segments.
+ */
+final class JournalSegmentAllocator implements AutoCloseable {
+  private static final String EXTENSION = ".alloc";
+  private static final int ZERO_CHUNK_SIZE = 1024 * 64;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
+  private final String name;
+  private final File directory;
+  private final int segmentSize;
+  private final ExecutorService executor;
+  private final Queue<File> allocated = new ConcurrentLinkedQueue<>();
+  private long nextFileId;
+  private volatile boolean open = true;
+
+  JournalSegmentAllocator(String name, File directory, int segmentSize, int preallocatedSegments) {
+    this.name = name;
+    this.directory = directory;
+    this.segmentSize = segmentSize;
+    this.executor = Executors.newSingleThreadExecutor(namedThreads(name + "-journal-allocator", log));
+    deleteAllocatedFiles();
+    for (int i = 0; i < preallocatedSegments; i++) {
+      executor.execute(this::preallocate);
+    }
+  }
+
+  /**
+   * Returns a boolean indicating whether the given file is a pre-allocated segment file for the given journal.
+   *
+   * @param name the journal name
+   * @param file the file to check
+   * @return indicates whether the file is a pre-allocated segment file
+   */
+  private static boolean isAllocatedFile(String name, File file) {
+    String fileName = file.getName();
+    if (!fileName.startsWith(name + "-") || !fileName.endsWith(EXTENSION)
+        || fileName.length() == name.length() + 1 + EXTENSION.length()) {
+      return false;
+    }
+    for (int i = name.length() + 1; i < fileName.length() - EXTENSION.length(); i++) {
+      if (!Character.isDigit(fileName.charAt(i))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Moves a pre-allocated file to the given segment file.
+   * <p>
+   * If a pre-allocated file is used, another file is allocated in the background to replace it.
+   *
+   * @param segmentFile the segment file to which to move a pre-allocated file
+   * @return indicates whether a pre-allocated file was moved to the segment file
+   */
+  boolean allocate(File segmentFile) {
+    File file = allocated.poll();
+    if (file == null) {
+      return false;
+    }
+
+    execute(this::preallocate);
+    if (!file.renameTo(segmentFile)) {
+      log.warn("Failed to rename pre-allocated segment file {} to {}", file, segmentFile);
+      file.delete();
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Closes and deletes the given segment in the background.
+   *
+   * @param segment the segment to delete
+   */
+  void delete(JournalSegment<?> segment) {
+    execute(() -> {
+      segment.close();
+      segment.delete();
+    });
+  }
+
+  /**
+   * Executes the given task on the allocator thread, or on the calling thread if the allocator has been closed.
+   */
+  private void execute(Runnable task) {
+    try {
+      executor.execute(task);
+    } catch (RejectedExecutionException e) {
+      task.run();
+    }
+  }
+
+  /**
+   * Allocates and zeroes a segment file.
+   */
+  private void preallocate() {
+    if (!open) {
+      return;
+    }
+
+    File file = new File(directory, String.format("%s-%d%s", name, nextFileId++, EXTENSION));
+    try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+      byte[] zeros = new byte[ZERO_CHUNK_SIZE];
+      for (int position = 0; position < segmentSize; position += zeros.length) {
+        if (!open) {
+          break;
+        }
+        randomAccessFile.write(zeros, 0, Math.min(zeros.length, segmentSize - position));
+      }
+      randomAccessFile.getFD().sync();
+    } catch (IOException e) {
+      log.warn("Failed to pre-allocate segment file {}", file, e);
+      file.delete();
+      return;
+    }
+
+    if (open) {
+      allocated.add(file);
+      log.debug("Pre-allocated segment file {}", file.getName());
+    } else {
+      file.delete();
+    }
+  }
+
+  /**
+   * Deletes all pre-allocated files for the journal.
+   */
+  private void deleteAllocatedFiles() {
+    File[] files = directory.listFiles(file -> file.isFile() && isAllocatedFile(name, file));
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+  }
+
+  /**
+   * Closes the allocator, waiting for pending deletions to complete and deleting unused pre-allocated files.
+   */
+  @Override
+  public void close() {
+    open = false;
+    executor.shutdown();
+    try {
+      executor.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    File file;
+    while ((file = allocated.poll()) != null) {
+      file.delete();
+    }
+  }
+}
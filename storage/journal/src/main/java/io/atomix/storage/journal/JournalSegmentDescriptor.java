@@ -49,6 +49,16 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * <li>{@code locked} (8-bit boolean) - A boolean indicating whether the segment is locked. Segments will be locked once
  * all entries have been committed to the segment. The lock state of each segment is used to determine log compaction
  * and recovery behavior.</li>
+ * <li>{@code checksum} (8-bit signed integer) - The {@link JournalChecksum} used to verify entries in the segment.
+ * Segments written before the checksum was stored in the descriptor have a checksum identifier of {@code 0}, and their
+ * entries are verified using {@link JournalChecksum#CRC32}.</li>
+ * <li>{@code sealed} (8-bit boolean) - A boolean indicating whether the segment has been sealed. Segments are sealed
+ * once they're full, and sealed segments are opened from the footer without reading their entries.</li>
+ * <li>{@code entries} (32-bit signed integer) - The number of entries in a sealed segment.</li>
+ * <li>{@code length} (32-bit signed integer) - The number of entry bytes in a sealed segment.</li>
+ * <li>{@code lastPosition} (32-bit signed integer) - The position of the last entry in a sealed segment.</li>
+ * <li>{@code footerChecksum} (32-bit unsigned integer) - The checksum of the footer and the segment index persisted
+ * following the entries in a sealed segment.</li>
  * </ul>
  * The remainder of the 64 segment header bytes are reserved for future metadata.
  *
@@ -68,6 +78,12 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private static final int MAX_SIZE_LENGTH = Bytes.INTEGER;    // 32-bit signed integer
   private static final int MAX_ENTRIES_LENGTH = Bytes.INTEGER; // 32-bit signed integer
   private static final int UPDATED_LENGTH = Bytes.LONG;        // 64-bit signed integer
+  private static final int LOCKED_LENGTH = Bytes.BOOLEAN;      // 8-bit boolean
+  private static final int CHECKSUM_LENGTH = Bytes.BYTE;       // 8-bit signed integer
+  private static final int SEALED_LENGTH = Bytes.BOOLEAN;      // 8-bit boolean
+  private static final int ENTRIES_LENGTH = Bytes.INTEGER;     // 32-bit signed integer
+  private static final int LENGTH_LENGTH = Bytes.INTEGER;      // 32-bit signed integer
+  private static final int LAST_POSITION_LENGTH = Bytes.INTEGER; // 32-bit signed integer
 
   // The positions of each field in the header.
   private static final int VERSION_POSITION = 0;                                         // 0
@@ -76,6 +92,13 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private static final int MAX_SIZE_POSITION = INDEX_POSITION + INDEX_LENGTH;            // 20
   private static final int MAX_ENTRIES_POSITION = MAX_SIZE_POSITION + MAX_SIZE_LENGTH;   // 24
   private static final int UPDATED_POSITION = MAX_ENTRIES_POSITION + MAX_ENTRIES_LENGTH; // 28
+  private static final int LOCKED_POSITION = UPDATED_POSITION + UPDATED_LENGTH;          // 36
+  static final int CHECKSUM_POSITION = LOCKED_POSITION + LOCKED_LENGTH;                  // 37
+  private static final int SEALED_POSITION = CHECKSUM_POSITION + CHECKSUM_LENGTH;        // 38
+  private static final int ENTRIES_POSITION = SEALED_POSITION + SEALED_LENGTH;           // 39
+  private static final int LENGTH_POSITION = ENTRIES_POSITION + ENTRIES_LENGTH;          // 43
+  private static final int LAST_POSITION_POSITION = LENGTH_POSITION + LENGTH_LENGTH;     // 47
+  private static final int FOOTER_CHECKSUM_POSITION = LAST_POSITION_POSITION + LAST_POSITION_LENGTH; // 51
 
   /**
    * Returns a descriptor builder.
@@ -107,6 +130,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
   private final int maxEntries;
   private volatile long updated;
   private volatile boolean locked;
+  private final JournalChecksum checksum;
+  private volatile JournalSegmentFooter footer;
 
   /**
    * @throws NullPointerException if {@code buffer} is null
@@ -120,6 +145,13 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
     this.maxEntries = buffer.readInt();
     this.updated = buffer.readLong();
     this.locked = buffer.readBoolean();
+    this.checksum = JournalChecksum.forId(buffer.readByte());
+    boolean sealed = buffer.readBoolean();
+    int entries = buffer.readInt();
+    int length = buffer.readInt();
+    int lastPosition = buffer.readInt();
+    long footerChecksum = buffer.readUnsignedInt();
+    this.footer = sealed ? new JournalSegmentFooter(entries, length, lastPosition, footerChecksum) : null;
     buffer.skip(BYTES - buffer.position()); // 64 bytes reserved for the header
   }
 
@@ -185,6 +217,15 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
     return maxEntries;
   }
 
+  /**
+   * Returns the checksum used to verify entries in the segment.
+   *
+   * @return The checksum used to verify entries in the segment.
+   */
+  public JournalChecksum checksum() {
+    return checksum;
+  }
+
   /**
    * Returns last time the segment was updated.
    * <p>
@@ -208,6 +249,49 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
     }
   }
 
+  /**
+   * Returns the sealed segment footer.
+   *
+   * @return the sealed segment footer or {@code null} if the segment is not sealed
+   */
+  JournalSegmentFooter footer() {
+    return footer;
+  }
+
+  /**
+   * Returns a boolean indicating whether the segment is sealed.
+   *
+   * @return indicates whether the segment is sealed
+   */
+  public boolean isSealed() {
+    return footer != null;
+  }
+
+  /**
+   * Seals the segment, writing the given footer to the descriptor and flushing the descriptor to disk.
+   *
+   * @param footer the segment footer
+   */
+  void seal(JournalSegmentFooter footer) {
+    buffer.writeInt(ENTRIES_POSITION, footer.entries())
+        .writeInt(LENGTH_POSITION, footer.length())
+        .writeInt(LAST_POSITION_POSITION, footer.lastPosition())
+        .writeUnsignedInt(FOOTER_CHECKSUM_POSITION, footer.checksum())
+        .writeBoolean(SEALED_POSITION, true)
+        .flush();
+    this.footer = footer;
+  }
+
+  /**
+   * Unseals the segment, clearing the footer and flushing the descriptor to disk.
+   */
+  void unseal() {
+    buffer.writeBoolean(SEALED_POSITION, false)
+        .zero(ENTRIES_POSITION, FOOTER_CHECKSUM_POSITION + Bytes.INTEGER - ENTRIES_POSITION)
+        .flush();
+    this.footer = null;
+  }
+
   /**
    * Copies the segment to a new buffer.
    */
@@ -220,6 +304,7 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
         .writeInt(maxEntries)
         .writeLong(updated)
         .writeBoolean(locked)
+        .writeByte(checksum.id())
         .skip(BYTES - buffer.position())
         .flush();
     return this;
@@ -248,6 +333,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
         .add("id", id)
         .add("index", index)
         .add("updated", updated)
+        .add("checksum", checksum)
+        .add("sealed", isSealed())
         .toString();
   }
 
@@ -259,7 +346,8 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
 
     private Builder(Buffer buffer) {
       this.buffer = checkNotNull(buffer, "buffer cannot be null")
-          .writeInt(VERSION_POSITION, VERSION);
+          .writeInt(VERSION_POSITION, VERSION)
+          .writeByte(CHECKSUM_POSITION, JournalChecksum.CRC32C.id());
     }
 
     /**
@@ -306,6 +394,17 @@ public final class JournalSegmentDescriptor implements AutoCloseable {
       return this;
     }
 
+    /**
+     * Sets the checksum used to verify entries in the segment.
+     *
+     * @param checksum The entry checksum.
+     * @return The segment descriptor builder.
+     */
+    public Builder withChecksum(JournalChecksum checksum) {
+      buffer.writeByte(CHECKSUM_POSITION, checkNotNull(checksum, "checksum cannot be null").id());
+      return this;
+    }
+
     /**
      * Builds the segment descriptor.
      *
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+
+/**
+ * Sealed segment footer.
+ * <p>
+ * The footer is written to the {@link JournalSegmentDescriptor} once a segment is full, and describes the entries in
+ * the segment so the segment can be opened without reading its entries. The segment's sparse index is written
+ * immediately following the zero-length terminator after the last entry, and is covered by the footer checksum.
+ */
+final class JournalSegmentFooter {
+  private final int entries;
+  private final int length;
+  private final int lastPosition;
+  private final long checksum;
+
+  JournalSegmentFooter(int entries, int length, int lastPosition, long checksum) {
+    this.entries = entries;
+    this.length = length;
+    this.lastPosition = lastPosition;
+    this.checksum = checksum;
+  }
+
+  /**
+   * Returns the number of entries in the segment.
+   *
+   * @return the number of entries in the segment
+   */
+  int entries() {
+    return entries;
+  }
+
+  /**
+   * Returns the number of entry bytes in the segment, excluding the descriptor.
+   *
+   * @return the number of entry bytes in the segment
+   */
+  int length() {
+    return length;
+  }
+
+  /**
+   * Returns the position of the last entry in the segment.
+   *
+   * @return the position of the last entry in the segment
+   */
+  int lastPosition() {
+    return lastPosition;
+  }
+
+  /**
+   * Returns the checksum of the footer and the persisted segment index.
+   *
+   * @return the checksum of the footer and the persisted segment index
+   */
+  long checksum() {
+    return checksum;
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("entries", entries)
+        .add("length", length)
+        .add("lastPosition", lastPosition)
+        .add("checksum", checksum)
+        .toString();
+  }
+}
@@ -17,12 +17,9 @@ package io.atomix.storage.journal;
 
 import io.atomix.serializer.Serializer;
 import io.atomix.storage.buffer.Buffer;
-import io.atomix.storage.buffer.HeapBuffer;
 
 import java.nio.BufferUnderflowException;
 import java.util.NoSuchElementException;
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
 
 /**
  * Log segment reader.
@@ -31,15 +28,22 @@ import java.util.zip.Checksum;
  */
 public class JournalSegmentReader<E> implements JournalReader<E> {
   private final Buffer buffer;
-  private final Serializer serializer;
-  private final HeapBuffer memory = HeapBuffer.allocate();
+  private final JournalIndex index;
+  private final JournalCodec<E> codec;
+  private final JournalCache<E> cache;
+  private final JournalChecksum checksum;
   private final long firstIndex;
   private Indexed<E> currentEntry;
   private Indexed<E> nextEntry;
+  private int currentPosition;
+  private int nextPosition;
 
-  public JournalSegmentReader(JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegmentReader(JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer, JournalCache<E> cache) {
     this.buffer = descriptor.buffer().slice();
-    this.serializer = serializer;
+    this.index = index;
+    this.codec = new JournalCodec<>(serializer, descriptor.checksum());
+    this.cache = cache;
+    this.checksum = descriptor.checksum();
     this.firstIndex = descriptor.index();
     readNext();
   }
@@ -61,12 +65,36 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
 
   @Override
   public void reset(long index) {
-    reset();
+    // Look up the nearest indexed position preceding the given index. If the index precedes the reader's
+    // current position or the indexed position is ahead of the reader, seek to the indexed position.
+    long nextIndex = getNextIndex();
+    JournalIndex.Position position = this.index.lookup(index - 1);
+    if (position != null && (index < nextIndex || position.index() > nextIndex)) {
+      seek(position);
+    } else if (index < nextIndex) {
+      reset();
+    }
+
     while (getNextIndex() < index && hasNext()) {
       next();
     }
   }
 
+  /**
+   * Seeks the reader to the given indexed position.
+   */
+  private void seek(JournalIndex.Position position) {
+    buffer.clear().position(position.position());
+    currentEntry = new Indexed<>(position.index() - 1, null, 0);
+    nextEntry = null;
+    readNext();
+
+    // If the indexed entry could not be read, fall back to reading from the start of the segment.
+    if (nextEntry == null) {
+      reset();
+    }
+  }
+
   @Override
   public void reset() {
     buffer.clear();
@@ -92,6 +120,7 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
 
     // Set the current entry to the next entry.
     currentEntry = nextEntry;
+    currentPosition = nextPosition;
 
     // Reset the next entry to null.
     nextEntry = null;
@@ -103,6 +132,19 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
     return currentEntry;
   }
 
+  /**
+   * Copies the serialized bytes of the current entry to the given raw entries builder.
+   *
+   * @param entries the builder to which to copy the current entry
+   * @throws IllegalStateException if the reader has no current entry
+   */
+  void copyCurrentEntry(RawEntries.Builder entries) {
+    if (currentEntry == null || currentEntry.entry() == null) {
+      throw new IllegalStateException("No current entry");
+    }
+    entries.add(buffer, currentPosition, checksum);
+  }
+
   /**
    * Reads the next entry in the segment.
    */
@@ -112,6 +154,7 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
     final long index = getNextIndex();
 
     // Mark the buffer so it can be reset if necessary.
+    nextPosition = buffer.position();
     buffer.mark();
 
     try {
@@ -128,18 +171,23 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
       // Read the checksum of the entry.
       long checksum = buffer.readUnsignedInt();
 
-      // Read the entry into memory.
-      buffer.read(memory.clear().limit(length));
-      memory.flip();
+      // If the entry has already been decoded, skip the entry bytes and use the cached entry.
+      Indexed<E> cachedEntry = cache != null ? cache.get(index) : null;
+      if (cachedEntry != null && cachedEntry.size() == length) {
+        buffer.skip(length);
+        nextEntry = cachedEntry;
+        return;
+      }
 
-      // Compute the checksum for the entry bytes.
-      final Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), 0, length);
+      // Read the entry, verifying the stored checksum against the entry bytes.
+      E entry = codec.read(buffer, length, checksum);
 
       // If the stored checksum equals the computed checksum, return the entry.
-      if (checksum == crc32.getValue()) {
-        E entry = serializer.decode(memory.array());
+      if (entry != null) {
         nextEntry = new Indexed<>(index, entry, length);
+        if (cache != null) {
+          cache.put(nextEntry);
+        }
       } else {
         buffer.reset();
         nextEntry = null;
@@ -152,7 +200,6 @@ public class JournalSegmentReader<E> implements JournalReader<E> {
 
   @Override
   public void close() {
-    memory.close();
     buffer.close();
   }
 }
\ No newline at end of file
@@ -17,13 +17,16 @@ package io.atomix.storage.journal;
 
 import io.atomix.serializer.Serializer;
 import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.Bytes;
 import io.atomix.storage.buffer.FileBuffer;
-import io.atomix.storage.buffer.HeapBuffer;
 import io.atomix.storage.buffer.MappedBuffer;
 import io.atomix.storage.buffer.SlicedBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.zip.CRC32;
-import java.util.zip.Checksum;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
 
 /**
  * Segment writer.
@@ -41,19 +44,89 @@ import java.util.zip.Checksum;
  * @author <a href="http://github.com/kuujo>Jordan Halterman</a>
  */
 public class JournalSegmentWriter<E> implements JournalWriter<E> {
+  private static final int INDEX_ENTRY_BYTES = Bytes.INTEGER + Bytes.INTEGER;
+
+  private final Logger log = LoggerFactory.getLogger(getClass());
   private final JournalSegmentDescriptor descriptor;
   private final Buffer buffer;
-  private final Serializer serializer;
-  private final HeapBuffer memory = HeapBuffer.allocate();
+  private final JournalIndex index;
+  private final JournalCodec<E> codec;
   private final long firstIndex;
+  private long lastIndex;
+  private int lastPosition;
   private Indexed<E> lastEntry;
 
-  public JournalSegmentWriter(JournalSegmentDescriptor descriptor, Serializer serializer) {
+  public JournalSegmentWriter(JournalSegmentDescriptor descriptor, JournalIndex index, Serializer serializer) {
     this.descriptor = descriptor;
     this.buffer = descriptor.buffer().slice();
-    this.serializer = serializer;
+    this.index = index;
+    this.codec = new JournalCodec<>(serializer, descriptor.checksum());
     this.firstIndex = descriptor.index();
-    reset(0);
+    this.lastIndex = firstIndex - 1;
+    if (!recover(descriptor.footer())) {
+      reset(0);
+
+      // If the footer of a sealed segment could not be verified, remove the footer and anything following the entries.
+      // Compressed segments are read-only, so their entries are read without the footer.
+      if (descriptor.isSealed() && !buffer.isReadOnly()) {
+        descriptor.unseal();
+        buffer.zero(buffer.position());
+      }
+    }
+  }
+
+  /**
+   * Recovers the writer from the footer of a sealed segment without reading the segment's entries.
+   *
+   * @param footer the sealed segment footer
+   * @return indicates whether the writer was recovered from the footer
+   */
+  private boolean recover(JournalSegmentFooter footer) {
+    if (footer == null) {
+      return false;
+    }
+
+    try {
+      // Read the persisted index and verify it and the footer against the footer checksum.
+      final int indexPosition = footer.length() + Bytes.INTEGER;
+      final int size = buffer.readInt(indexPosition);
+      if (size < 0 || size > footer.entries()) {
+        log.warn("Invalid segment footer: {}", footer);
+        return false;
+      }
+      final ByteBuffer indexBuffer = ByteBuffer.allocate(Bytes.INTEGER + size * INDEX_ENTRY_BYTES);
+      buffer.read(indexPosition, indexBuffer.array(), 0, indexBuffer.capacity());
+      if (checksum(footer.entries(), footer.length(), footer.lastPosition(), indexBuffer) != footer.checksum()) {
+        log.warn("Invalid segment footer: {}", footer);
+        return false;
+      }
+
+      // Restore the segment index.
+      indexBuffer.position(Bytes.INTEGER);
+      for (int i = 0; i < size; i++) {
+        this.index.index(firstIndex + indexBuffer.getInt(), indexBuffer.getInt());
+      }
+    } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+      log.warn("Invalid segment footer: {}", footer);
+      return false;
+    }
+
+    buffer.clear().position(footer.length());
+    lastIndex = firstIndex + footer.entries() - 1;
+    lastPosition = footer.lastPosition();
+    return true;
+  }
+
+  /**
+   * Computes the footer checksum for the given footer fields and persisted index.
+   */
+  private long checksum(int entries, int length, int lastPosition, ByteBuffer index) {
+    JournalChecksum.EntryChecksum checksum = descriptor.checksum().newChecksum();
+    ByteBuffer footer = ByteBuffer.allocate(Bytes.INTEGER * 3);
+    footer.putInt(entries).putInt(length).putInt(lastPosition).flip();
+    checksum.update(footer);
+    checksum.update(index.duplicate());
+    return checksum.getValue();
   }
 
   /**
@@ -66,7 +139,17 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
     // Clear the buffer indexes.
     buffer.clear();
 
+    // If an index was provided, seek to the nearest indexed position preceding the index.
+    if (index > 0) {
+      JournalIndex.Position position = this.index.lookup(index);
+      if (position != null) {
+        nextIndex = position.index();
+        buffer.position(position.position());
+      }
+    }
+
     // Read the entry length.
+    int position = buffer.position();
     int length = buffer.mark().readInt();
 
     // If the length is non-zero, read the entry.
@@ -75,24 +158,22 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
       // Read the checksum of the entry.
       final long checksum = buffer.readUnsignedInt();
 
-      // Read the entry into memory.
-      buffer.read(memory.clear().limit(length));
-      memory.flip();
-
-      // Compute the checksum for the entry bytes.
-      final Checksum crc32 = new CRC32();
-      crc32.update(memory.array(), 0, length);
+      // Read the entry, verifying the stored checksum against the entry bytes.
+      final E entry = codec.read(buffer, length, checksum);
 
       // If the stored checksum equals the computed checksum, return the entry.
-      if (checksum == crc32.getValue()) {
-        final E entry = serializer.decode(memory.array());
+      if (entry != null) {
         lastEntry = new Indexed<>(nextIndex, entry, length);
+        lastIndex = nextIndex;
+        lastPosition = position;
+        this.index.index(nextIndex, position);
         nextIndex++;
       } else {
         break;
       }
 
       // Read the next entry length.
+      position = buffer.position();
       length = buffer.mark().readInt();
     }
 
@@ -102,21 +183,39 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
 
   @Override
   public long getLastIndex() {
-    return lastEntry != null ? lastEntry.index() : descriptor.index() - 1;
+    return lastIndex;
   }
 
   @Override
   public Indexed<E> getLastEntry() {
+    // If the writer was recovered from a sealed segment's footer, read the last entry on demand.
+    if (lastEntry == null && lastIndex >= firstIndex) {
+      lastEntry = readLastEntry();
+    }
     return lastEntry;
   }
 
+  /**
+   * Reads the last entry in the segment.
+   */
+  private Indexed<E> readLastEntry() {
+    final int position = buffer.position();
+    try {
+      buffer.position(lastPosition);
+      final int length = buffer.readInt();
+      final long checksum = buffer.readUnsignedInt();
+      final E entry = codec.read(buffer, length, checksum);
+      return entry != null ? new Indexed<>(lastIndex, entry, length) : null;
+    } catch (BufferUnderflowException e) {
+      return null;
+    } finally {
+      buffer.position(position);
+    }
+  }
+
   @Override
   public long getNextIndex() {
-    if (lastEntry != null) {
-      return lastEntry.index() + 1;
-    } else {
-      return firstIndex;
-    }
+    return lastIndex + 1;
   }
 
   /**
@@ -134,7 +233,7 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
    * @return Indicates whether the segment is empty.
    */
   public boolean isEmpty() {
-    return lastEntry == null;
+    return lastIndex < firstIndex;
   }
 
   /**
@@ -174,29 +273,64 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
   @Override
   @SuppressWarnings("unchecked")
   public <T extends E> Indexed<T> append(T entry) {
+    // If the segment is sealed, unseal it before modifying it.
+    if (descriptor.isSealed()) {
+      unseal();
+    }
+
     // Store the entry index.
     final long index = getNextIndex();
 
-    // Serialize the entry.
-    final byte[] bytes = serializer.encode(entry);
-    final int length = bytes.length;
+    // Store the entry position.
+    final int position = buffer.position();
 
-    // Compute the checksum for the entry.
-    final Checksum crc32 = new CRC32();
-    crc32.update(bytes, 0, length);
-    final long checksum = crc32.getValue();
+    // Serialize the entry and write the entry length, checksum and entry to the segment.
+    final int length = codec.write(buffer, entry);
 
-    // Write the entry length and entry to the segment.
-    buffer.writeInt(length)
-        .writeUnsignedInt(checksum)
-        .write(bytes);
+    // Index the entry position.
+    this.index.index(index, position);
 
     // Update the last entry with the correct index/term/length.
     Indexed<E> indexedEntry = new Indexed<>(index, entry, length);
     this.lastEntry = indexedEntry;
+    this.lastIndex = index;
+    this.lastPosition = position;
     return (Indexed<T>) indexedEntry;
   }
 
+  /**
+   * Appends a serialized entry to the segment.
+   * <p>
+   * The entry's bytes are written to the segment without being deserialized. The entry's stored checksum is reused if
+   * the segment uses the same checksum algorithm as the entries, and is otherwise recomputed.
+   *
+   * @param entries the raw entries from which to append the entry
+   * @param entry   the number of the entry to append
+   * @return the index of the appended entry
+   */
+  public long append(RawEntries entries, int entry) {
+    // If the segment is sealed, unseal it before modifying it.
+    if (descriptor.isSealed()) {
+      unseal();
+    }
+
+    final long index = getNextIndex();
+    final int position = buffer.position();
+    final int length = entries.length(entry);
+    buffer.writeInt(length)
+        .writeUnsignedInt(entries.checksum(entry, descriptor.checksum()))
+        .write(entries.bytes(), entries.offset(entry), length);
+
+    // Index the entry position.
+    this.index.index(index, position);
+
+    // The entry is not decoded, so the last entry is read on demand.
+    this.lastEntry = null;
+    this.lastIndex = index;
+    this.lastPosition = position;
+    return index;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public void truncate(long index) {
@@ -205,14 +339,26 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
       return;
     }
 
+    // If the segment is sealed, unseal it before modifying it.
+    if (descriptor.isSealed()) {
+      unseal();
+    }
+
     // If the index is less than the segment index, clear the segment buffer.
     if (index < descriptor.index()) {
       buffer.zero().clear();
+      this.index.truncate(index);
+      lastEntry = null;
+      lastIndex = firstIndex - 1;
       return;
     }
 
     // Reset the last entry.
     lastEntry = null;
+    lastIndex = firstIndex - 1;
+
+    // Truncate the index.
+    this.index.truncate(index);
 
     // Reset the writer to the given index.
     reset(index);
@@ -221,6 +367,59 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
     buffer.zero(buffer.position());
   }
 
+  /**
+   * Seals the segment.
+   * <p>
+   * The segment's entries are flushed to disk and its index is persisted following the entries before the footer is
+   * written to the segment descriptor, so a sealed segment can be opened without reading its entries. Empty and
+   * already sealed segments are not sealed.
+   */
+  void seal() {
+    if (descriptor.isSealed() || isEmpty()) {
+      return;
+    }
+
+    // Serialize the index entries relative to the segment's first index.
+    final Collection<JournalIndex.Position> positions = index.positions();
+    final ByteBuffer indexBuffer = ByteBuffer.allocate(Bytes.INTEGER + positions.size() * INDEX_ENTRY_BYTES);
+    indexBuffer.putInt(positions.size());
+    for (JournalIndex.Position position : positions) {
+      indexBuffer.putInt((int) (position.index() - firstIndex)).putInt(position.position());
+    }
+    indexBuffer.flip();
+
+    // Write the index following the zero length terminator after the last entry and flush the entries and index.
+    final int length = buffer.position();
+    buffer.writeInt(length, 0)
+        .write(length + Bytes.INTEGER, indexBuffer.array(), 0, indexBuffer.limit())
+        .flush();
+
+    // Write the footer to the descriptor.
+    final int entries = (int) (lastIndex - firstIndex + 1);
+    descriptor.seal(new JournalSegmentFooter(entries, length, lastPosition, checksum(entries, length, lastPosition, indexBuffer)));
+  }
+
+  /**
+   * Returns the number of bytes in the sealed segment, including the descriptor and the persisted index.
+   *
+   * @return the number of bytes in the sealed segment
+   */
+  int sealedSize() {
+    final JournalSegmentFooter footer = descriptor.footer();
+    final int size = buffer.readInt(footer.length() + Bytes.INTEGER);
+    return buffer.offset() + footer.length() + Bytes.INTEGER + Bytes.INTEGER + size * INDEX_ENTRY_BYTES;
+  }
+
+  /**
+   * Unseals the segment, removing the footer and the persisted index.
+   */
+  private void unseal() {
+    final JournalSegmentFooter footer = descriptor.footer();
+    descriptor.unseal();
+    final int size = buffer.readInt(footer.length() + Bytes.INTEGER);
+    buffer.zero(footer.length(), Bytes.INTEGER + Bytes.INTEGER + size * INDEX_ENTRY_BYTES);
+  }
+
   @Override
   public void flush() {
     buffer.flush();
@@ -240,6 +439,8 @@ public class JournalSegmentWriter<E> implements JournalWriter<E> {
       ((FileBuffer) buffer).delete();
     } else if (buffer instanceof MappedBuffer) {
       ((MappedBuffer) buffer).delete();
+    } else if (buffer instanceof CompressedSegmentBuffer) {
+      ((CompressedSegmentBuffer) buffer).delete();
     }
   }
 }
\ No newline at end of file
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Table based CRC32C checksum.
+ * <p>
+ * This implementation uses the slicing-by-8 algorithm, reading eight bytes at a time using absolute reads
+ * directly from the buffer. It's used on Java 8, where {@code java.util.zip.CRC32C} is not available.
+ */
+final class PureJavaCrc32c implements JournalChecksum.EntryChecksum {
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int[][] TABLES = new int[8][256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int j = 0; j < 8; j++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ POLYNOMIAL : crc >>> 1;
+      }
+      TABLES[0][i] = crc;
+    }
+    for (int i = 0; i < 256; i++) {
+      for (int t = 1; t < 8; t++) {
+        TABLES[t][i] = (TABLES[t - 1][i] >>> 8) ^ TABLES[0][TABLES[t - 1][i] & 0xff];
+      }
+    }
+  }
+
+  private int crc = 0xffffffff;
+
+  @Override
+  public void reset() {
+    crc = 0xffffffff;
+  }
+
+  @Override
+  public void update(ByteBuffer buffer) {
+    final int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+    final int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+    final boolean bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+    final int limit = buffer.limit();
+    int position = buffer.position();
+    int crc = this.crc;
+
+    while (limit - position >= 8) {
+      long word = buffer.getLong(position);
+      if (bigEndian) {
+        word = Long.reverseBytes(word);
+      }
+      final int lo = (int) word ^ crc;
+      final int hi = (int) (word >>> 32);
+      crc = t7[lo & 0xff] ^ t6[(lo >>> 8) & 0xff] ^ t5[(lo >>> 16) & 0xff] ^ t4[lo >>> 24]
+          ^ t3[hi & 0xff] ^ t2[(hi >>> 8) & 0xff] ^ t1[(hi >>> 16) & 0xff] ^ t0[hi >>> 24];
+      position += 8;
+    }
+
+    while (position < limit) {
+      crc = (crc >>> 8) ^ t0[(crc ^ buffer.get(position++)) & 0xff];
+    }
+
+    this.crc = crc;
+    buffer.position(limit);
+  }
+
+  @Override
+  public long getValue() {
+    return ~crc & 0xffffffffL;
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import io.atomix.storage.buffer.Buffer;
+import io.atomix.storage.buffer.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static com.google.common.base.MoreObjects.toStringHelper;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Serialized journal entries.
+ * <p>
+ * Raw entries are a sequence of consecutive entries in the segment entry format: a 32-bit length, followed by a 32-bit
+ * unsigned checksum computed by the entries' {@link JournalChecksum}, followed by the serialized entry. Raw entries
+ * are copied from one journal to another without deserializing and re-serializing each entry, and the stored
+ * checksums are reused by the target journal when its segments use the same checksum algorithm.
+ */
+public final class RawEntries {
+  private static final RawEntries EMPTY = new RawEntries(JournalChecksum.CRC32.id(), 0, new byte[0]);
+
+  /**
+   * Returns an empty set of raw entries.
+   *
+   * @return an empty set of raw entries
+   */
+  public static RawEntries empty() {
+    return EMPTY;
+  }
+
+  /**
+   * Returns a new raw entries builder.
+   *
+   * @param checksum the checksum algorithm with which to checksum the entries
+   * @return a new raw entries builder
+   */
+  public static Builder newBuilder(JournalChecksum checksum) {
+    return new Builder(checksum);
+  }
+
+  private final int checksum;
+  private final int count;
+  private final byte[] bytes;
+  private transient int[] offsets;
+
+  private RawEntries(int checksum, int count, byte[] bytes) {
+    this.checksum = checksum;
+    this.count = count;
+    this.bytes = bytes;
+  }
+
+  /**
+   * Returns the checksum algorithm with which the entries were checksummed.
+   *
+   * @return the entries checksum algorithm
+   */
+  public JournalChecksum checksum() {
+    return JournalChecksum.forId(checksum);
+  }
+
+  /**
+   * Returns the number of entries.
+   *
+   * @return the number of entries
+   */
+  public int count() {
+    return count;
+  }
+
+  /**
+   * Returns a boolean indicating whether the entries are empty.
+   *
+   * @return indicates whether the entries are empty
+   */
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Returns the serialized entries.
+   *
+   * @return the serialized entries
+   */
+  public byte[] bytes() {
+    return bytes;
+  }
+
+  /**
+   * Verifies the structure of the entries and the checksum of each entry.
+   *
+   * @return indicates whether the entries are valid
+   */
+  public boolean verify() {
+    if (offsets() == null) {
+      return false;
+    }
+    JournalChecksum.EntryChecksum checksum = checksum().newChecksum();
+    for (int i = 0; i < count; i++) {
+      if (checksum(i, checksum) != entryChecksum(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the offsets of the entries, or {@code null} if the entries are malformed.
+   */
+  private int[] offsets() {
+    int[] offsets = this.offsets;
+    if (offsets == null) {
+      offsets = new int[count];
+      ByteBuffer buffer = ByteBuffer.wrap(bytes);
+      for (int i = 0; i < count; i++) {
+        if (buffer.remaining() < JournalCodec.HEADER_BYTES) {
+          return null;
+        }
+        offsets[i] = buffer.position();
+        int length = buffer.getInt(buffer.position());
+        if (length <= 0 || length > buffer.remaining() - JournalCodec.HEADER_BYTES) {
+          return null;
+        }
+        buffer.position(buffer.position() + JournalCodec.HEADER_BYTES + length);
+      }
+      if (buffer.hasRemaining()) {
+        return null;
+      }
+      this.offsets = offsets;
+    }
+    return offsets;
+  }
+
+  /**
+   * Returns the offset of the serialized bytes of the given entry.
+   *
+   * @param entry the entry number
+   * @return the offset of the entry bytes
+   */
+  int offset(int entry) {
+    return offsets()[entry] + JournalCodec.HEADER_BYTES;
+  }
+
+  /**
+   * Returns the serialized length of the given entry.
+   *
+   * @param entry the entry number
+   * @return the serialized length of the entry
+   */
+  int length(int entry) {
+    return ByteBuffer.wrap(bytes).getInt(offsets()[entry]);
+  }
+
+  /**
+   * Returns the stored checksum of the given entry.
+   *
+   * @param entry the entry number
+   * @return the stored checksum of the entry
+   */
+  long entryChecksum(int entry) {
+    return ByteBuffer.wrap(bytes).getInt(offsets()[entry] + Bytes.INTEGER) & 0xFFFFFFFFL;
+  }
+
+  /**
+   * Returns the checksum of the given entry computed with the given checksum algorithm.
+   * <p>
+   * If the algorithm is the entries' checksum algorithm, the stored checksum is returned without being recomputed.
+   *
+   * @param entry    the entry number
+   * @param checksum the checksum algorithm
+   * @return the checksum of the entry
+   */
+  long checksum(int entry, JournalChecksum checksum) {
+    if (checksum.id() == this.checksum) {
+      return entryChecksum(entry);
+    }
+    return checksum(entry, checksum.newChecksum());
+  }
+
+  /**
+   * Computes the checksum of the given entry.
+   */
+  private long checksum(int entry, JournalChecksum.EntryChecksum checksum) {
+    checksum.reset();
+    checksum.update(ByteBuffer.wrap(bytes, offset(entry), length(entry)));
+    return checksum.getValue();
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * checksum + count) + Arrays.hashCode(bytes);
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    if (object instanceof RawEntries) {
+      RawEntries entries = (RawEntries) object;
+      return entries.checksum == checksum && entries.count == count && Arrays.equals(entries.bytes, bytes);
+    }
+    return false;
+  }
+
+  @Override
+  public String toString() {
+    return toStringHelper(this)
+        .add("checksum", checksum())
+        .add("count", count)
+        .add("size", bytes.length)
+        .toString();
+  }
+
+  /**
+   * Raw entries builder.
+   */
+  public static final class Builder {
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private final JournalChecksum checksum;
+    private ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    private JournalChecksum.EntryChecksum entryChecksum;
+    private int count;
+
+    private Builder(JournalChecksum checksum) {
+      this.checksum = checkNotNull(checksum, "checksum cannot be null");
+    }
+
+    /**
+     * Returns the number of entries added to the builder.
+     *
+     * @return the number of entries added to the builder
+     */
+    public int count() {
+      return count;
+    }
+
+    /**
+     * Returns the number of bytes added to the builder.
+     *
+     * @return the number of bytes added to the builder
+     */
+    public int size() {
+      return buffer.position();
+    }
+
+    /**
+     * Copies the entry at the given position in the given segment buffer.
+     *
+     * @param source         the buffer from which to copy the entry
+     * @param position       the position of the entry header in the buffer
+     * @param sourceChecksum the checksum algorithm of the source buffer
+     * @return the raw entries builder
+     */
+    Builder add(Buffer source, int position, JournalChecksum sourceChecksum) {
+      final int length = source.readInt(position);
+      checkArgument(length > 0, "invalid entry length");
+      ensureCapacity(JournalCodec.HEADER_BYTES + length);
+
+      final int offset = buffer.position();
+      source.read(position + JournalCodec.HEADER_BYTES, buffer.array(), offset + JournalCodec.HEADER_BYTES, length);
+
+      long checksum = source.readUnsignedInt(position + Bytes.INTEGER);
+      if (sourceChecksum != this.checksum) {
+        if (entryChecksum == null) {
+          entryChecksum = this.checksum.newChecksum();
+        }
+        entryChecksum.reset();
+        entryChecksum.update(ByteBuffer.wrap(buffer.array(), offset + JournalCodec.HEADER_BYTES, length));
+        checksum = entryChecksum.getValue();
+      }
+
+      buffer.putInt(length).putInt((int) checksum).position(offset + JournalCodec.HEADER_BYTES + length);
+      count++;
+      return this;
+    }
+
+    /**
+     * Grows the buffer to accommodate the given number of additional bytes.
+     */
+    private void ensureCapacity(int size) {
+      if (buffer.remaining() < size) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + size));
+        this.buffer.flip();
+        buffer.put(this.buffer);
+        this.buffer = buffer;
+      }
+    }
+
+    /**
+     * Builds the raw entries.
+     *
+     * @return the raw entries
+     */
+    public RawEntries build() {
+      return new RawEntries(checksum.id(), count, Arrays.copyOf(buffer.array(), buffer.position()));
+    }
+  }
+}
@@ -17,6 +17,7 @@ package io.atomix.storage.journal;
 
 import com.google.common.collect.Sets;
 import io.atomix.serializer.Serializer;
+import io.atomix.storage.StorageException;
 import io.atomix.storage.StorageLevel;
 import io.atomix.storage.buffer.Buffer;
 import io.atomix.storage.buffer.FileBuffer;
@@ -26,16 +27,25 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static io.atomix.utils.concurrent.Threads.namedThreads;
 
 /**
  * Segmented journal implementation.
@@ -54,6 +64,7 @@ public class SegmentedJournal<E> implements Journal<E> {
   }
 
   private static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+  private static final String TEMPORARY_EXTENSION = ".tmp";
 
   private final Logger log = LoggerFactory.getLogger(getClass());
   private final String name;
@@ -62,12 +73,24 @@ public class SegmentedJournal<E> implements Journal<E> {
   private final Serializer serializer;
   private final int maxSegmentSize;
   private final int maxEntriesPerSegment;
+  private final double indexDensity;
+  private final JournalChecksum checksum;
+  private final int recoveryThreads;
+  private final int preallocatedSegments;
+  private final int maxCacheEntries;
+  private final int maxCacheSize;
+  private final File coldDirectory;
+  private final boolean groupCommit;
+  private final Duration maxGroupCommitDelay;
+  private final int maxGroupCommitSize;
 
   private final NavigableMap<Long, JournalSegment<E>> segments = new ConcurrentSkipListMap<>();
   private final Collection<SegmentedJournalReader<E>> readers = Sets.newConcurrentHashSet();
   private JournalSegment<E> currentSegment;
 
+  private final JournalCache<E> cache;
   private final SegmentedJournalWriter<E> writer;
+  private JournalSegmentAllocator allocator;
   private volatile boolean open = true;
 
   public SegmentedJournal(
@@ -76,13 +99,36 @@ public class SegmentedJournal<E> implements Journal<E> {
       File directory,
       Serializer serializer,
       int maxSegmentSize,
-      int maxEntriesPerSegment) {
+      int maxEntriesPerSegment,
+      double indexDensity,
+      JournalChecksum checksum,
+      int recoveryThreads,
+      int preallocatedSegments,
+      int maxCacheEntries,
+      int maxCacheSize,
+      File coldDirectory,
+      boolean groupCommit,
+      Duration maxGroupCommitDelay,
+      int maxGroupCommitSize) {
     this.name = checkNotNull(name, "name cannot be null");
     this.storageLevel = checkNotNull(storageLevel, "storageLevel cannot be null");
     this.directory = checkNotNull(directory, "directory cannot be null");
     this.serializer = checkNotNull(serializer, "serializer cannot be null");
     this.maxSegmentSize = maxSegmentSize;
     this.maxEntriesPerSegment = maxEntriesPerSegment;
+    this.indexDensity = indexDensity;
+    this.checksum = checkNotNull(checksum, "checksum cannot be null");
+    this.recoveryThreads = recoveryThreads;
+    this.preallocatedSegments = preallocatedSegments;
+    this.maxCacheEntries = maxCacheEntries;
+    this.maxCacheSize = maxCacheSize;
+    this.coldDirectory = coldDirectory;
+    checkArgument(coldDirectory == null || !coldDirectory.getAbsoluteFile().equals(directory.getAbsoluteFile()),
+        "coldDirectory cannot be the journal directory");
+    this.groupCommit = groupCommit;
+    this.maxGroupCommitDelay = checkNotNull(maxGroupCommitDelay, "maxGroupCommitDelay cannot be null");
+    this.maxGroupCommitSize = maxGroupCommitSize;
+    this.cache = maxCacheEntries > 0 ? new JournalCache<>(maxCacheEntries, maxCacheSize) : null;
     open();
     this.writer = openWriter();
   }
@@ -109,6 +155,17 @@ public class SegmentedJournal<E> implements Journal<E> {
     return directory;
   }
 
+  /**
+   * Returns the cold storage directory.
+   * <p>
+   * Segments moved to cold storage by {@link #archive(long)} are compressed and stored in the cold storage directory.
+   *
+   * @return The cold storage directory or {@code null} if cold storage is disabled.
+   */
+  public File coldDirectory() {
+    return coldDirectory;
+  }
+
   /**
    * Returns the storage level.
    * <p>
@@ -144,6 +201,104 @@ public class SegmentedJournal<E> implements Journal<E> {
     return maxEntriesPerSegment;
   }
 
+  /**
+   * Returns the segment index density.
+   * <p>
+   * The index density is the proportion of entries in each segment whose positions are stored in the
+   * segment's in-memory index.
+   *
+   * @return The segment index density.
+   */
+  public double indexDensity() {
+    return indexDensity;
+  }
+
+  /**
+   * Returns the checksum used to verify entries in new segments.
+   * <p>
+   * The checksum is stored in each segment's descriptor, so existing segments are read using the checksum with
+   * which they were written.
+   *
+   * @return the checksum used to verify entries in new segments
+   */
+  public JournalChecksum checksum() {
+    return checksum;
+  }
+
+  /**
+   * Returns the maximum number of threads used to load segments when the journal is opened.
+   *
+   * @return the maximum number of segment recovery threads
+   */
+  public int recoveryThreads() {
+    return recoveryThreads;
+  }
+
+  /**
+   * Returns the number of segment files to pre-allocate in the background.
+   *
+   * @return the number of segment files to pre-allocate
+   */
+  public int preallocatedSegments() {
+    return preallocatedSegments;
+  }
+
+  /**
+   * Returns the maximum number of decoded entries to cache.
+   *
+   * @return the maximum number of decoded entries to cache
+   */
+  public int maxCacheEntries() {
+    return maxCacheEntries;
+  }
+
+  /**
+   * Returns the maximum size of cached entries in serialized bytes.
+   *
+   * @return the maximum size of cached entries in bytes
+   */
+  public int maxCacheSize() {
+    return maxCacheSize;
+  }
+
+  /**
+   * Returns the decoded entry cache.
+   *
+   * @return the decoded entry cache or {@code null} if the cache is disabled
+   */
+  JournalCache<E> cache() {
+    return cache;
+  }
+
+  /**
+   * Returns whether group commit is enabled for the journal.
+   * <p>
+   * When group commit is enabled, appends are flushed to disk in batches on a dedicated flusher thread.
+   *
+   * @return whether group commit is enabled for the journal
+   */
+  public boolean isGroupCommit() {
+    return groupCommit;
+  }
+
+  /**
+   * Returns the maximum amount of time for which an append may wait to be flushed when group commit is enabled.
+   *
+   * @return the maximum group commit delay
+   */
+  public Duration maxGroupCommitDelay() {
+    return maxGroupCommitDelay;
+  }
+
+  /**
+   * Returns the maximum number of bytes to append before flushing when group commit is enabled.
+   *
+   * @return the maximum group commit batch size in bytes
+   */
+  public int maxGroupCommitSize() {
+    return maxGroupCommitSize;
+  }
+
   /**
    * Opens a new journal writer.
    *
@@ -162,6 +317,11 @@ public class SegmentedJournal<E> implements Journal<E> {
       segments.put(segment.descriptor().index(), segment);
     }
 
+    // Start pre-allocating segment files for persistent journals.
+    if (storageLevel != StorageLevel.MEMORY) {
+      allocator = new JournalSegmentAllocator(name, directory, JournalSegmentDescriptor.BYTES + maxSegmentSize, preallocatedSegments);
+    }
+
     // If a segment doesn't already exist, create an initial segment starting at index 1.
     if (!segments.isEmpty()) {
       currentSegment = segments.lastEntry().getValue();
@@ -171,6 +331,7 @@ public class SegmentedJournal<E> implements Journal<E> {
           .withIndex(1)
           .withMaxSegmentSize(maxSegmentSize)
           .withMaxEntries(maxEntriesPerSegment)
+          .withChecksum(checksum)
           .build();
 
       currentSegment = createSegment(descriptor);
@@ -202,6 +363,7 @@ public class SegmentedJournal<E> implements Journal<E> {
           .withIndex(1)
           .withMaxSegmentSize(maxSegmentSize)
           .withMaxEntries(maxEntriesPerSegment)
+          .withChecksum(checksum)
           .build();
 
       currentSegment = createSegment(descriptor);
@@ -225,17 +387,22 @@ public class SegmentedJournal<E> implements Journal<E> {
       return firstSegment;
     }
 
+    // Segment identifiers are not reused, since compacted segments may still be pending deletion by the allocator
+    // and segment files are deleted by name.
+    long id = 1;
     for (JournalSegment<E> segment : segments.values()) {
+      id = Math.max(id, segment.descriptor().id() + 1);
       segment.close();
       segment.delete();
     }
     segments.clear();
 
     JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.newBuilder()
-        .withId(1)
+        .withId(id)
         .withIndex(index)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntries(maxEntriesPerSegment)
+        .withChecksum(checksum)
         .build();
     currentSegment = createSegment(descriptor);
     segments.put(index, currentSegment);
@@ -289,6 +456,7 @@ public class SegmentedJournal<E> implements Journal<E> {
         .withIndex(currentSegment.lastIndex() + 1)
         .withMaxSegmentSize(maxSegmentSize)
         .withMaxEntries(maxEntriesPerSegment)
+        .withChecksum(checksum)
         .build();
 
     currentSegment = createSegment(descriptor);
@@ -350,6 +518,8 @@ public class SegmentedJournal<E> implements Journal<E> {
         return createMemorySegment(descriptor);
       case DISK:
         return createDiskSegment(descriptor);
+      case MAPPED:
+        return createMappedSegment(descriptor);
       default:
         throw new AssertionError();
     }
@@ -363,7 +533,7 @@ public class SegmentedJournal<E> implements Journal<E> {
    * @return The segment instance.
    */
   protected JournalSegment<E> newSegment(JournalSegmentFile segmentFile, JournalSegmentDescriptor descriptor) {
-    return new JournalSegment<>(segmentFile, descriptor, serializer);
+    return new JournalSegment<>(segmentFile, descriptor, new SparseJournalIndex(indexDensity), serializer, cache);
   }
 
   /**
@@ -371,13 +541,27 @@ public class SegmentedJournal<E> implements Journal<E> {
    */
   private JournalSegment<E> createDiskSegment(JournalSegmentDescriptor descriptor) {
     File segmentFile = JournalSegmentFile.createSegmentFile(name, directory, descriptor.id(), descriptor.version());
-    Buffer buffer = MappedBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
+    allocator.allocate(segmentFile);
+    Buffer buffer = FileBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
     descriptor.copyTo(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(segmentFile), descriptor);
     log.debug("Created disk segment: {}", segment);
     return segment;
   }
 
+  /**
+   * Creates a new segment.
+   */
+  private JournalSegment<E> createMappedSegment(JournalSegmentDescriptor descriptor) {
+    File segmentFile = JournalSegmentFile.createSegmentFile(name, directory, descriptor.id(), descriptor.version());
+    allocator.allocate(segmentFile);
+    Buffer buffer = MappedBuffer.allocate(segmentFile, Math.min(DEFAULT_BUFFER_SIZE, descriptor.maxSegmentSize()), Integer.MAX_VALUE);
+    descriptor.copyTo(buffer);
+    JournalSegment<E> segment = newSegment(new JournalSegmentFile(segmentFile), descriptor);
+    log.debug("Created mapped segment: {}", segment);
+    return segment;
+  }
+
   /**
    * Creates a new segment.
    */
@@ -399,6 +583,8 @@ public class SegmentedJournal<E> implements Journal<E> {
         return loadMemorySegment(segmentId, segmentVersion);
       case DISK:
         return loadDiskSegment(segmentId, segmentVersion);
+      case MAPPED:
+        return loadMappedSegment(segmentId, segmentVersion);
       default:
         throw new AssertionError();
     }
@@ -409,13 +595,35 @@ public class SegmentedJournal<E> implements Journal<E> {
    */
   private JournalSegment<E> loadDiskSegment(long segmentId, long segmentVersion) {
     File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId, segmentVersion);
-    Buffer buffer = MappedBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
+    Buffer buffer = FileBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
     JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(buffer);
     JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
     log.debug("Loaded disk segment: {} ({})", descriptor.id(), file.getName());
     return segment;
   }
 
+  /**
+   * Loads a segment.
+   */
+  private JournalSegment<E> loadMappedSegment(long segmentId, long segmentVersion) {
+    File file = JournalSegmentFile.createSegmentFile(name, directory, segmentId, segmentVersion);
+    Buffer buffer = MappedBuffer.allocate(file, Math.min(DEFAULT_BUFFER_SIZE, maxSegmentSize), Integer.MAX_VALUE);
+    JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(buffer);
+    JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
+    log.debug("Loaded mapped segment: {} ({})", descriptor.id(), file.getName());
+    return segment;
+  }
+
+  /**
+   * Loads a compressed segment from cold storage.
+   */
+  private JournalSegment<E> loadCompressedSegment(File file) {
+    JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(CompressedSegmentBuffer.open(file));
+    JournalSegment<E> segment = newSegment(new JournalSegmentFile(file), descriptor);
+    log.debug("Loaded compressed segment: {} ({})", descriptor.id(), file.getName());
+    return segment;
+  }
+
   /**
    * Loads a segment.
    */
@@ -430,6 +638,9 @@ public class SegmentedJournal<E> implements Journal<E> {
 
   /**
    * Loads all segments from disk.
+   * <p>
+   * Segments are opened in parallel, and once all segments have been opened, segments that have been superseded by
+   * other segments are discarded.
    *
    * @return A collection of segments for the log.
    */
@@ -439,68 +650,128 @@ public class SegmentedJournal<E> implements Journal<E> {
 
     TreeMap<Long, JournalSegment<E>> segments = new TreeMap<>();
 
-    // Iterate through all files in the log directory.
-    for (File file : directory.listFiles(File::isFile)) {
-
-      // If the file looks like a segment file, attempt to load the segment.
-      if (JournalSegmentFile.isSegmentFile(name, file)) {
-        JournalSegmentFile segmentFile = new JournalSegmentFile(file);
-        JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
-
-        // Load the segment.
-        JournalSegment<E> segment = loadSegment(descriptor.id(), descriptor.version());
-
-        // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
-        // by the earlier segment. This can occur due to segments being combined during log compaction.
-        Map.Entry<Long, JournalSegment<E>> previousEntry = segments.floorEntry(segment.index());
-        if (previousEntry != null) {
-
-          // If an existing descriptor exists with a lower index than this segment's first index, check to determine
-          // whether this segment's first index is contained in that existing index. If it is, determine which segment
-          // should take precedence based on segment versions.
-          JournalSegment previousSegment = previousEntry.getValue();
-
-          // If the two segments start at the same index, the segment with the higher version number is used.
-          if (previousSegment.index() == segment.index()) {
-            if (segment.descriptor().version() > previousSegment.descriptor().version()) {
-              log.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segmentFile.file().getName());
-              segments.remove(previousEntry.getKey());
-              previousSegment.close();
-              previousSegment.delete();
-            } else {
-              segment.close();
-              segment.delete();
-              continue;
-            }
-          }
-          // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
-          // supersedes the loaded segment. Log compaction processes ensure this is always the case.
-          else if (previousSegment.index() + previousSegment.length() > segment.index()) {
+    // Iterate through all segments in the order of their identifiers.
+    for (JournalSegment<E> segment : openSegments()) {
+      JournalSegmentFile segmentFile = segment.file();
+
+      // If a segment with an equal or lower index has already been loaded, ensure this segment is not superseded
+      // by the earlier segment. This can occur due to segments being combined during log compaction.
+      Map.Entry<Long, JournalSegment<E>> previousEntry = segments.floorEntry(segment.index());
+      if (previousEntry != null) {
+
+        // If an existing descriptor exists with a lower index than this segment's first index, check to determine
+        // whether this segment's first index is contained in that existing index. If it is, determine which segment
+        // should take precedence based on segment versions.
+        JournalSegment previousSegment = previousEntry.getValue();
+
+        // If the two segments start at the same index, the segment with the higher version number is used.
+        if (previousSegment.index() == segment.index()) {
+          if (segment.descriptor().version() > previousSegment.descriptor().version()) {
+            log.debug("Replaced segment {} with newer version: {} ({})", previousSegment.descriptor().id(), segment.descriptor().version(), segmentFile.file().getName());
+            segments.remove(previousEntry.getKey());
+            previousSegment.close();
+            previousSegment.delete();
+          } else {
             segment.close();
             segment.delete();
             continue;
           }
         }
+        // If the existing segment's entries overlap with the loaded segment's entries, the existing segment always
+        // supersedes the loaded segment. Log compaction processes ensure this is always the case.
+        else if (previousSegment.index() + previousSegment.length() > segment.index()) {
+          segment.close();
+          segment.delete();
+          continue;
+        }
+      }
 
-        // Add the segment to the segments list.
-        log.debug("Found segment: {} ({})", segment.descriptor().id(), segmentFile.file().getName());
-        segments.put(segment.index(), segment);
+      // Add the segment to the segments list.
+      log.debug("Found segment: {} ({})", segment.descriptor().id(), segmentFile.file().getName());
+      segments.put(segment.index(), segment);
+
+      // Ensure any segments later in the log with which this segment overlaps are removed.
+      Map.Entry<Long, JournalSegment<E>> nextEntry = segments.higherEntry(segment.index());
+      while (nextEntry != null) {
+        if (nextEntry.getValue().index() < segment.index() + segment.length()) {
+          segments.remove(nextEntry.getKey());
+          nextEntry = segments.higherEntry(segment.index());
+        } else {
+          break;
+        }
+      }
+    }
+    return segments.values();
+  }
 
-        // Ensure any segments later in the log with which this segment overlaps are removed.
-        Map.Entry<Long, JournalSegment<E>> nextEntry = segments.higherEntry(segment.index());
-        while (nextEntry != null) {
-          if (nextEntry.getValue().index() < segment.index() + segment.length()) {
-            segments.remove(nextEntry.getKey());
-            nextEntry = segments.higherEntry(segment.index());
-          } else {
-            break;
-          }
+  /**
+   * Opens all segment files in the journal directory in parallel.
+   * <p>
+   * Opening a segment reads and verifies each of its entries, so segments are opened on a bounded pool of
+   * recovery threads. Segments are returned in the order of their identifiers.
+   *
+   * @return the opened segments
+   */
+  private List<JournalSegment<E>> openSegments() {
+    TreeMap<Long, List<Callable<JournalSegment<E>>>> tasks = new TreeMap<>();
+
+    // Compressed segments are only moved to cold storage once they've been fully written, so if a segment exists in
+    // both the journal directory and cold storage, the segment was being archived and the uncompressed file is deleted.
+    if (coldDirectory != null && storageLevel != StorageLevel.MEMORY && coldDirectory.exists()) {
+      for (File file : coldDirectory.listFiles(File::isFile)) {
+        if (JournalSegmentFile.isSegmentFile(name, file)) {
+          new File(directory, file.getName()).delete();
+          tasks.computeIfAbsent(new JournalSegmentFile(file).id(), i -> new ArrayList<>()).add(() -> loadCompressedSegment(file));
+        } else if (file.getName().endsWith(TEMPORARY_EXTENSION)) {
+          file.delete();
         }
+      }
+    }
 
+    // Read the descriptor of each segment file in the log directory.
+    for (File file : directory.listFiles(File::isFile)) {
+
+      // If the file looks like a segment file, attempt to load the segment.
+      if (JournalSegmentFile.isSegmentFile(name, file)) {
+        JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
+        long id = descriptor.id();
+        long version = descriptor.version();
         descriptor.close();
+        tasks.computeIfAbsent(id, i -> new ArrayList<>()).add(() -> loadSegment(id, version));
       }
     }
-    return segments.values();
+
+    List<Callable<JournalSegment<E>>> callables = new ArrayList<>();
+    tasks.values().forEach(callables::addAll);
+    if (callables.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    // Load the segments in parallel, closing any loaded segments if a segment fails to load.
+    ExecutorService executor = Executors.newFixedThreadPool(
+        Math.min(recoveryThreads, callables.size()), namedThreads(name + "-journal-recovery-%d", log));
+    try {
+      List<Future<JournalSegment<E>>> futures = executor.invokeAll(callables);
+      List<JournalSegment<E>> segments = new ArrayList<>(futures.size());
+      Throwable error = null;
+      for (Future<JournalSegment<E>> future : futures) {
+        try {
+          segments.add(future.get());
+        } catch (ExecutionException e) {
+          error = error == null ? e.getCause() : error;
+        }
+      }
+      if (error != null) {
+        segments.forEach(JournalSegment::close);
+        throw error instanceof RuntimeException ? (RuntimeException) error : new IllegalStateException(error);
+      }
+      return segments;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while loading segments", e);
+    } finally {
+      executor.shutdownNow();
+    }
   }
 
   /**
@@ -575,7 +846,8 @@ public class SegmentedJournal<E> implements Journal<E> {
   /**
    * Compacts the journal up to the given index.
    * <p>
-   * The semantics of compaction are not specified by this interface.
+   * The semantics of compaction are not specified by this interface. Segments of persistent journals are closed and
+   * deleted in the background.
    *
    * @param index The index up to which to compact the journal.
    */
@@ -585,22 +857,80 @@ public class SegmentedJournal<E> implements Journal<E> {
       SortedMap<Long, JournalSegment<E>> compactSegments = segments.headMap(segmentEntry.getValue().index());
       if (!compactSegments.isEmpty()) {
         log.info("{} - Compacting {} segment(s)", name, compactSegments.size());
-        for (JournalSegment segment : compactSegments.values()) {
+        for (JournalSegment<E> segment : compactSegments.values()) {
           log.debug("Deleting segment: {}", segment);
-          segment.close();
-          segment.delete();
+          if (allocator != null) {
+            allocator.delete(segment);
+          } else {
+            segment.close();
+            segment.delete();
+          }
         }
         compactSegments.clear();
       }
     }
   }
 
+  /**
+   * Moves segments preceding the given index to compressed cold storage.
+   * <p>
+   * Full segments containing only entries preceding the given index are compressed into the
+   * {@link #coldDirectory() cold storage directory} and are decompressed on demand when read. The current segment is
+   * never moved to cold storage. Compressed segments are read-only, so the journal must not be truncated below the
+   * given index once segments have been archived.
+   *
+   * @param index The index prior to which to move segments to cold storage.
+   */
+  public synchronized void archive(long index) {
+    if (coldDirectory == null || storageLevel == StorageLevel.MEMORY) {
+      return;
+    }
+
+    for (JournalSegment<E> segment : segments.headMap(currentSegment.index()).values()) {
+      if (segment.lastIndex() < index && segment.descriptor().isSealed() && !segment.isCompressed()) {
+        JournalSegment<E> compressedSegment = compressSegment(segment);
+        segments.put(compressedSegment.index(), compressedSegment);
+        log.debug("Archived segment: {}", segment);
+
+        // Close the uncompressed segment and reset any readers reading it before deleting the segment.
+        segment.close();
+        for (SegmentedJournalReader<E> reader : readers) {
+          long nextIndex = reader.getNextIndex();
+          if (nextIndex >= segment.index() && nextIndex <= segment.lastIndex() + 1) {
+            reader.reset(nextIndex);
+          }
+        }
+        segment.delete();
+      }
+    }
+  }
+
+  /**
+   * Compresses the given sealed segment into cold storage.
+   */
+  private JournalSegment<E> compressSegment(JournalSegment<E> segment) {
+    coldDirectory.mkdirs();
+    File file = segment.file().file();
+    File compressedFile = new File(coldDirectory, file.getName());
+    File temporaryFile = new File(coldDirectory, file.getName() + TEMPORARY_EXTENSION);
+    CompressedSegmentBytes.compress(file, segment.writer().sealedSize(), temporaryFile, CompressedSegmentBytes.DEFAULT_BLOCK_SIZE);
+    if (!temporaryFile.renameTo(compressedFile)) {
+      temporaryFile.delete();
+      throw new StorageException("Failed to move compressed segment to " + compressedFile);
+    }
+    return loadCompressedSegment(compressedFile);
+  }
+
   @Override
   public void close() {
+    writer.closeFlusher();
     segments.values().forEach(segment -> {
       log.debug("Closing segment: {}", segment);
       segment.close();
     });
+    if (allocator != null) {
+      allocator.close();
+    }
     currentSegment = null;
     open = false;
   }
@@ -613,6 +943,15 @@ public class SegmentedJournal<E> implements Journal<E> {
     private static final String DEFAULT_DIRECTORY = System.getProperty("user.dir");
     private static final int DEFAULT_MAX_SEGMENT_SIZE = 1024 * 1024 * 32;
     private static final int DEFAULT_MAX_ENTRIES_PER_SEGMENT = 1024 * 1024;
+    private static final double DEFAULT_INDEX_DENSITY = .005;
+    private static final JournalChecksum DEFAULT_CHECKSUM = JournalChecksum.CRC32C;
+    private static final int DEFAULT_RECOVERY_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int DEFAULT_PREALLOCATED_SEGMENTS = 1;
+    private static final int DEFAULT_MAX_CACHE_ENTRIES = 1024;
+    private static final int DEFAULT_MAX_CACHE_SIZE = 1024 * 1024 * 8;
+    private static final boolean DEFAULT_GROUP_COMMIT = false;
+    private static final Duration DEFAULT_MAX_GROUP_COMMIT_DELAY = Duration.ofMillis(2);
+    private static final int DEFAULT_MAX_GROUP_COMMIT_SIZE = 1024 * 1024;
 
     protected String name = DEFAULT_NAME;
     protected StorageLevel storageLevel = StorageLevel.DISK;
@@ -620,6 +959,16 @@ public class SegmentedJournal<E> implements Journal<E> {
     protected Serializer serializer;
     protected int maxSegmentSize = DEFAULT_MAX_SEGMENT_SIZE;
     protected int maxEntriesPerSegment = DEFAULT_MAX_ENTRIES_PER_SEGMENT;
+    protected double indexDensity = DEFAULT_INDEX_DENSITY;
+    protected JournalChecksum checksum = DEFAULT_CHECKSUM;
+    protected int recoveryThreads = DEFAULT_RECOVERY_THREADS;
+    protected int preallocatedSegments = DEFAULT_PREALLOCATED_SEGMENTS;
+    protected int maxCacheEntries = DEFAULT_MAX_CACHE_ENTRIES;
+    protected int maxCacheSize = DEFAULT_MAX_CACHE_SIZE;
+    protected File coldDirectory;
+    protected boolean groupCommit = DEFAULT_GROUP_COMMIT;
+    protected Duration maxGroupCommitDelay = DEFAULT_MAX_GROUP_COMMIT_DELAY;
+    protected int maxGroupCommitSize = DEFAULT_MAX_GROUP_COMMIT_SIZE;
 
     protected Builder() {
     }
@@ -727,6 +1076,197 @@ public class SegmentedJournal<E> implements Journal<E> {
       return this;
     }
 
+    /**
+     * Sets the journal index density, returning the builder for method chaining.
+     * <p>
+     * The index density is the frequency at which the position of entries written to the journal will be
+     * recorded in an in-memory index for faster seeking. A density of {@code 1} indexes every entry, while
+     * the default density of {@code .005} indexes one of every 200 entries.
+     *
+     * @param indexDensity the index density
+     * @return the journal builder
+     * @throws IllegalArgumentException if the density is not between 0 and 1
+     */
+    public Builder<E> withIndexDensity(double indexDensity) {
+      checkArgument(indexDensity > 0 && indexDensity <= 1, "index density must be between 0 and 1");
+      this.indexDensity = indexDensity;
+      return this;
+    }
+
+    /**
+     * Sets the entry checksum, returning the builder for method chaining.
+     * <p>
+     * The checksum is used to verify entries written to new segments. Existing segments are always read using the
+     * checksum with which they were written. By default, entries are verified with {@link JournalChecksum#CRC32C}.
+     *
+     * @param checksum the entry checksum
+     * @return the journal builder
+     * @throws NullPointerException if the checksum is {@code null}
+     */
+    public Builder<E> withChecksum(JournalChecksum checksum) {
+      this.checksum = checkNotNull(checksum, "checksum cannot be null");
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of segment recovery threads, returning the builder for method chaining.
+     * <p>
+     * When the journal is opened, existing segments are loaded and their entries verified in parallel using up to
+     * the given number of threads. By default, the number of recovery threads is the number of available processors.
+     *
+     * @param recoveryThreads the maximum number of segment recovery threads
+     * @return the journal builder
+     * @throws IllegalArgumentException if the number of threads is not positive
+     */
+    public Builder<E> withRecoveryThreads(int recoveryThreads) {
+      checkArgument(recoveryThreads > 0, "recoveryThreads must be positive");
+      this.recoveryThreads = recoveryThreads;
+      return this;
+    }
+
+    /**
+     * Sets the number of segment files to pre-allocate, returning the builder for method chaining.
+     * <p>
+     * Persistent journals allocate and zero the given number of segment files in the background so they're ready
+     * when the journal rolls over to a new segment. By default, {@code 1} segment file is pre-allocated. If the number
+     * of pre-allocated segments is {@code 0}, segment files are allocated when they're needed.
+     *
+     * @param preallocatedSegments the number of segment files to pre-allocate
+     * @return the journal builder
+     * @throws IllegalArgumentException if the number of segments is negative
+     */
+    public Builder<E> withPreallocatedSegments(int preallocatedSegments) {
+      checkArgument(preallocatedSegments >= 0, "preallocatedSegments cannot be negative");
+      this.preallocatedSegments = preallocatedSegments;
+      return this;
+    }
+
+    /**
+     * Sets the maximum number of decoded entries to cache, returning the builder for method chaining.
+     * <p>
+     * Recently written and read entries are cached in decoded form and shared by all readers of the journal, so
+     * readers reading the same entries decode each entry only once. By default, up to {@code 1024} entries are
+     * cached. If the maximum number of entries is {@code 0}, the cache is disabled.
+     *
+     * @param maxCacheEntries the maximum number of decoded entries to cache
+     * @return the journal builder
+     * @throws IllegalArgumentException if the number of entries is negative
+     */
+    public Builder<E> withMaxCacheEntries(int maxCacheEntries) {
+      checkArgument(maxCacheEntries >= 0, "maxCacheEntries cannot be negative");
+      this.maxCacheEntries = maxCacheEntries;
+      return this;
+    }
+
+    /**
+     * Sets the maximum size of cached entries in serialized bytes, returning the builder for method chaining.
+     * <p>
+     * Once the serialized size of cached entries exceeds the given size, the least recently used entries are evicted
+     * from the cache. By default, the maximum cache size is {@code 1024 * 1024 * 8}.
+     *
+     * @param maxCacheSize the maximum size of cached entries in bytes
+     * @return the journal builder
+     * @throws IllegalArgumentException if the size is not positive
+     */
+    public Builder<E> withMaxCacheSize(int maxCacheSize) {
+      checkArgument(maxCacheSize > 0, "maxCacheSize must be positive");
+      this.maxCacheSize = maxCacheSize;
+      return this;
+    }
+
+    /**
+     * Sets the cold storage directory, returning the builder for method chaining.
+     * <p>
+     * Segments moved to cold storage by {@link SegmentedJournal#archive(long)} are compressed into the cold storage
+     * directory, trading read throughput for disk space for old entries. The cold storage directory must differ from
+     * the journal directory. By default, cold storage is disabled.
+     *
+     * @param coldDirectory The cold storage directory.
+     * @return The journal builder.
+     * @throws NullPointerException If the {@code coldDirectory} is {@code null}
+     */
+    public Builder<E> withColdDirectory(String coldDirectory) {
+      return withColdDirectory(new File(checkNotNull(coldDirectory, "coldDirectory cannot be null")));
+    }
+
+    /**
+     * Sets the cold storage directory, returning the builder for method chaining.
+     * <p>
+     * Segments moved to cold storage by {@link SegmentedJournal#archive(long)} are compressed into the cold storage
+     * directory, trading read throughput for disk space for old entries. The cold storage directory must differ from
+     * the journal directory. By default, cold storage is disabled.
+     *
+     * @param coldDirectory The cold storage directory.
+     * @return The journal builder.
+     * @throws NullPointerException If the {@code coldDirectory} is {@code null}
+     */
+    public Builder<E> withColdDirectory(File coldDirectory) {
+      this.coldDirectory = checkNotNull(coldDirectory, "coldDirectory cannot be null");
+      return this;
+    }
+
+    /**
+     * Enables group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, appends are flushed to disk in batches on a dedicated flusher thread rather
+     * than on the writing thread. Writers can use {@link SegmentedJournalWriter#awaitDurable(long)} to be notified
+     * once an entry has been flushed.
+     *
+     * @return the journal builder
+     */
+    public Builder<E> withGroupCommit() {
+      return withGroupCommit(true);
+    }
+
+    /**
+     * Sets whether to enable group commit, returning the builder for method chaining.
+     * <p>
+     * When group commit is enabled, appends are flushed to disk in batches on a dedicated flusher thread rather
+     * than on the writing thread. Writers can use {@link SegmentedJournalWriter#awaitDurable(long)} to be notified
+     * once an entry has been flushed.
+     *
+     * @param groupCommit whether to enable group commit
+     * @return the journal builder
+     */
+    public Builder<E> withGroupCommit(boolean groupCommit) {
+      this.groupCommit = groupCommit;
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit delay, returning the builder for method chaining.
+     * <p>
+     * The group commit delay is the maximum amount of time an append will wait for other appends to be batched
+     * with it before the batch is flushed to disk. By default, the maximum delay is {@code 2} milliseconds.
+     *
+     * @param maxGroupCommitDelay the maximum group commit delay
+     * @return the journal builder
+     * @throws NullPointerException if the delay is {@code null}
+     * @throws IllegalArgumentException if the delay is negative
+     */
+    public Builder<E> withMaxGroupCommitDelay(Duration maxGroupCommitDelay) {
+      checkNotNull(maxGroupCommitDelay, "maxGroupCommitDelay cannot be null");
+      checkArgument(!maxGroupCommitDelay.isNegative(), "maxGroupCommitDelay cannot be negative");
+      this.maxGroupCommitDelay = maxGroupCommitDelay;
+      return this;
+    }
+
+    /**
+     * Sets the maximum group commit batch size in bytes, returning the builder for method chaining.
+     * <p>
+     * Once the given number of bytes have been appended since the last flush, the batch will be flushed
+     * without waiting for the group commit delay to expire. By default, the maximum batch size is {@code 1024 * 1024}.
+     *
+     * @param maxGroupCommitSize the maximum group commit batch size in bytes
+     * @return the journal builder
+     * @throws IllegalArgumentException if the batch size is not positive
+     */
+    public Builder<E> withMaxGroupCommitSize(int maxGroupCommitSize) {
+      checkArgument(maxGroupCommitSize > 0, "maxGroupCommitSize must be positive");
+      this.maxGroupCommitSize = maxGroupCommitSize;
+      return this;
+    }
+
     /**
      * Builds the journal.
      *
@@ -734,7 +1274,7 @@ public class SegmentedJournal<E> implements Journal<E> {
      */
     @Override
     public SegmentedJournal<E> build() {
-      return new SegmentedJournal<>(name, storageLevel, directory, serializer, maxSegmentSize, maxEntriesPerSegment);
+      return new SegmentedJournal<>(name, storageLevel, directory, serializer, maxSegmentSize, maxEntriesPerSegment, indexDensity, checksum, recoveryThreads, preallocatedSegments, maxCacheEntries, maxCacheSize, coldDirectory, groupCommit, maxGroupCommitDelay, maxGroupCommitSize);
     }
   }
 }
\ No newline at end of file
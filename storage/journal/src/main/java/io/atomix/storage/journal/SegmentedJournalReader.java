@@ -39,11 +39,8 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
   private void initialize(long index) {
     currentSegment = journal.getSegment(index);
     currentReader = currentSegment.createReader();
-    long nextIndex = getNextIndex();
-    while (index > nextIndex && hasNext()) {
-      next();
-      nextIndex = getNextIndex();
-    }
+    currentReader.reset(index);
+    forward(index);
   }
 
   /**
@@ -124,6 +121,19 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
    * Fast forwards the journal to the given index.
    */
   private void forward(long index) {
+    // If the prior index is in a later segment, skip directly to that segment and seek within it.
+    JournalSegment<E> segment = journal.getSegment(index - 1);
+    if (segment != null && segment.index() > currentSegment.index() && !segment.isEmpty()) {
+      currentReader.close();
+      currentSegment = segment;
+      currentReader = currentSegment.createReader();
+      previousEntry = null;
+    }
+
+    // Seek to the given index within the current segment.
+    currentReader.reset(index);
+
+    // If the index was not found in the current segment, read through subsequent segments.
     while (getNextIndex() < index && hasNext()) {
       next();
     }
@@ -162,6 +172,22 @@ public class SegmentedJournalReader<E> implements JournalReader<E> {
     }
   }
 
+  /**
+   * Reads the next entry, copying its serialized bytes to the given raw entries builder.
+   * <p>
+   * The serialized entry is copied directly from the segment, so entries can be forwarded to another journal without
+   * being serialized again.
+   *
+   * @param entries the builder to which to copy the entry
+   * @return the next entry
+   * @throws NoSuchElementException if there is no next entry
+   */
+  public Indexed<E> next(RawEntries.Builder entries) {
+    Indexed<E> entry = next();
+    currentReader.copyCurrentEntry(entries);
+    return entry;
+  }
+
   @Override
   public void close() {
     currentReader.close();
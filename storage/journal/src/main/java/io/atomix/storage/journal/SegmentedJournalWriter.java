@@ -15,6 +15,8 @@
  */
 package io.atomix.storage.journal;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Log writer.
  *
@@ -24,11 +26,17 @@ public class SegmentedJournalWriter<E> implements JournalWriter<E> {
   private final SegmentedJournal<E> journal;
   private JournalSegment<E> currentSegment;
   private JournalSegmentWriter<E> currentWriter;
+  private final JournalCache<E> cache;
+  private final JournalFlusher flusher;
 
   public SegmentedJournalWriter(SegmentedJournal<E> journal) {
     this.journal = journal;
+    this.cache = journal.cache();
     this.currentSegment = journal.getLastSegment();
     this.currentWriter = currentSegment.writer();
+    this.flusher = journal.isGroupCommit()
+        ? new JournalFlusher(journal.name(), currentWriter.getLastIndex(), journal.maxGroupCommitDelay(), journal.maxGroupCommitSize(), this::flushSegment)
+        : null;
   }
 
   @Override
@@ -46,60 +54,168 @@ public class SegmentedJournalWriter<E> implements JournalWriter<E> {
     return currentWriter.getNextIndex();
   }
 
+  /**
+   * Returns the highest index known to have been flushed to disk.
+   * <p>
+   * When group commit is disabled the journal does not track durability, and the last written index is returned.
+   *
+   * @return the highest index known to have been flushed to disk
+   */
+  public long getDurableIndex() {
+    return flusher != null ? flusher.durableIndex() : getLastIndex();
+  }
+
+  /**
+   * Returns a future to be completed once entries up to the given index have been flushed to disk.
+   * <p>
+   * When group commit is enabled, the returned future will be completed on the journal's flusher thread once
+   * the batch containing the given index has been flushed. When group commit is disabled the returned future
+   * is completed immediately.
+   *
+   * @param index the index for which to wait
+   * @return a future to be completed with the durable index once the given index has been flushed
+   */
+  public CompletableFuture<Long> awaitDurable(long index) {
+    return flusher != null ? flusher.awaitDurable(index) : CompletableFuture.completedFuture(getLastIndex());
+  }
+
   /**
    * Resets the head of the journal to the given index.
    *
    * @param index the index to which to reset the head of the journal
    */
   public void reset(long index) {
-    currentWriter.close();
-    currentSegment = journal.resetSegments(index);
-    currentWriter = currentSegment.writer();
-    journal.resetHead(index);
+    synchronized (this) {
+      currentWriter.close();
+      currentSegment = journal.resetSegments(index);
+      currentWriter = currentSegment.writer();
+      if (cache != null) {
+        cache.clear();
+      }
+      journal.resetHead(index);
+    }
+    if (flusher != null) {
+      flusher.truncate(index - 1);
+    }
   }
 
   @Override
   public <T extends E> Indexed<T> append(T entry) {
     if (currentWriter.isFull()) {
-      currentSegment = journal.getNextSegment();
-      currentWriter = currentSegment.writer();
+      nextSegment();
     }
-    return currentWriter.append(entry);
+    Indexed<T> indexed = currentWriter.append(entry);
+    if (cache != null) {
+      cache.put(indexed.cast());
+    }
+    if (flusher != null) {
+      flusher.append(indexed.index(), indexed.size());
+    }
+    return indexed;
   }
 
   @Override
   public void append(Indexed<E> entry) {
     if (currentWriter.isFull()) {
-      currentSegment = journal.getNextSegment();
-      currentWriter = currentSegment.writer();
+      nextSegment();
+    }
+    // Appending an entry preceding the next index truncates the journal, so remove truncated entries from the cache.
+    if (cache != null && entry.index() < currentWriter.getNextIndex()) {
+      cache.truncate(entry.index() - 1);
     }
     currentWriter.append(entry);
+    if (cache != null) {
+      cache.put(entry);
+    }
+    if (flusher != null) {
+      flusher.append(entry.index(), entry.size());
+    }
+  }
+
+  /**
+   * Appends a serialized entry to the journal without deserializing it.
+   *
+   * @param entries the raw entries from which to append the entry
+   * @param entry   the number of the entry to append
+   * @return the index of the appended entry
+   */
+  public long append(RawEntries entries, int entry) {
+    if (currentWriter.isFull()) {
+      nextSegment();
+    }
+    long index = currentWriter.append(entries, entry);
+    if (flusher != null) {
+      flusher.append(index, entries.length(entry));
+    }
+    return index;
+  }
+
+  /**
+   * Rolls the writer over to the next segment.
+   */
+  private synchronized void nextSegment() {
+    // Seal the full segment before rolling over. Sealing flushes the segment to disk, which is also required by the
+    // group commit flusher since it only flushes the current segment.
+    currentWriter.seal();
+    currentSegment = journal.getNextSegment();
+    currentWriter = currentSegment.writer();
   }
 
   @Override
   public void truncate(long index) {
-    // Delete all segments with first indexes greater than the given index.
-    while (index < currentWriter.firstIndex() - 1) {
-      currentWriter.close();
-      journal.removeSegment(currentSegment);
-      currentSegment = journal.getLastSegment();
-      currentWriter = currentSegment.writer();
-    }
+    synchronized (this) {
+      // Delete all segments with first indexes greater than the given index.
+      while (index < currentWriter.firstIndex() - 1) {
+        currentWriter.close();
+        journal.removeSegment(currentSegment);
+        currentSegment = journal.getLastSegment();
+        currentWriter = currentSegment.writer();
+      }
 
-    // Truncate the current index.
-    currentWriter.truncate(index);
+      // Truncate the current index.
+      currentWriter.truncate(index);
+      if (cache != null) {
+        cache.truncate(index);
+      }
 
-    // Reset segment readers.
-    journal.resetTail(index + 1);
+      // Reset segment readers.
+      journal.resetTail(index + 1);
+    }
+
+    if (flusher != null) {
+      flusher.truncate(index);
+    }
   }
 
   @Override
   public void flush() {
+    if (flusher != null) {
+      flushSegment();
+      flusher.flushed(getLastIndex());
+    } else {
+      currentWriter.flush();
+    }
+  }
+
+  /**
+   * Flushes the current segment to disk.
+   */
+  private synchronized void flushSegment() {
     currentWriter.flush();
   }
 
+  /**
+   * Stops the group commit flusher, if enabled.
+   */
+  void closeFlusher() {
+    if (flusher != null) {
+      flusher.close();
+    }
+  }
+
   @Override
   public void close() {
+    closeFlusher();
     currentWriter.close();
   }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Sparse segment index.
+ * <p>
+ * The sparse index stores the position of every {@code n}th entry in a segment, where {@code n} is determined by
+ * the configured index density. Lookups return the nearest indexed entry at or before the requested index, and
+ * the caller scans forward from that position.
+ */
+public class SparseJournalIndex implements JournalIndex {
+  private static final int MIN_DENSITY = 1000;
+  private final int density;
+  private final NavigableMap<Long, Integer> positions = new ConcurrentSkipListMap<>();
+
+  public SparseJournalIndex(double density) {
+    checkArgument(density > 0 && density <= 1, "density must be between 0 and 1");
+    this.density = (int) Math.ceil(MIN_DENSITY / (density * MIN_DENSITY));
+  }
+
+  @Override
+  public void index(long index, int position) {
+    if (index % density == 0) {
+      positions.put(index, position);
+    }
+  }
+
+  @Override
+  public Position lookup(long index) {
+    Map.Entry<Long, Integer> entry = positions.floorEntry(index);
+    return entry != null ? new Position(entry.getKey(), entry.getValue()) : null;
+  }
+
+  @Override
+  public void truncate(long index) {
+    positions.tailMap(index, false).clear();
+  }
+
+  @Override
+  public Collection<Position> positions() {
+    return positions.entrySet().stream()
+        .map(entry -> new Position(entry.getKey(), entry.getValue()))
+        .collect(toList());
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.storage.journal;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Journal checksum test.
+ */
+public class JournalChecksumTest {
+  private static final byte[] CHECK = "123456789".getBytes(StandardCharsets.US_ASCII);
+
+  @Test
+  public void testCrc32() throws Exception {
+    assertEquals(0xCBF43926L, checksum(JournalChecksum.CRC32.newChecksum(), ByteBuffer.wrap(CHECK)));
+  }
+
+  @Test
+  public void testCrc32c() throws Exception {
+    assertEquals(0xE3069283L, checksum(JournalChecksum.CRC32C.newChecksum(), ByteBuffer.wrap(CHECK)));
+    assertEquals(0xE3069283L, checksum(new PureJavaCrc32c(), ByteBuffer.wrap(CHECK)));
+  }
+
+  @Test
+  public void testPureJavaCrc32cMatchesPlatform() throws Exception {
+    byte[] bytes = new byte[1027];
+    new Random(1).nextBytes(bytes);
+    for (int offset = 0; offset < 9; offset++) {
+      long expected = checksum(JournalChecksum.CRC32C.newChecksum(), slice(bytes, offset, ByteOrder.BIG_ENDIAN));
+      assertEquals(expected, checksum(new PureJavaCrc32c(), slice(bytes, offset, ByteOrder.BIG_ENDIAN)));
+      assertEquals(expected, checksum(new PureJavaCrc32c(), slice(bytes, offset, ByteOrder.LITTLE_ENDIAN)));
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+      direct.put(bytes).position(offset);
+      assertEquals(expected, checksum(new PureJavaCrc32c(), direct));
+    }
+  }
+
+  @Test
+  public void testForId() throws Exception {
+    assertEquals(JournalChecksum.CRC32, JournalChecksum.forId(0));
+    for (JournalChecksum checksum : JournalChecksum.values()) {
+      assertEquals(checksum, JournalChecksum.forId(checksum.id()));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownId() throws Exception {
+    JournalChecksum.forId(255);
+  }
+
+  private static ByteBuffer slice(byte[] bytes, int offset, ByteOrder order) {
+    ByteBuffer buffer = ByteBuffer.wrap(bytes).order(order);
+    buffer.position(offset);
+    return buffer;
+  }
+
+  private static long checksum(JournalChecksum.EntryChecksum checksum, ByteBuffer buffer) {
+    checksum.reset();
+    checksum.update(buffer);
+    assertEquals(buffer.limit(), buffer.position());
+    return checksum.getValue();
+  }
+}
@@ -25,6 +25,8 @@ import java.io.IOException;
 import java.nio.file.Files;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Segment descriptor test.
@@ -51,6 +53,7 @@ public class JournalSegmentDescriptorTest {
     assertEquals(descriptor.index(), 1025);
     assertEquals(descriptor.maxSegmentSize(), 1024 * 1024);
     assertEquals(descriptor.maxEntries(), 2048);
+    assertEquals(descriptor.checksum(), JournalChecksum.CRC32C);
 
     assertEquals(descriptor.updated(), 0);
     long time = System.currentTimeMillis();
@@ -69,6 +72,7 @@ public class JournalSegmentDescriptorTest {
       .withIndex(1025)
       .withMaxSegmentSize(1024 * 1024)
       .withMaxEntries(2048)
+      .withChecksum(JournalChecksum.CRC32)
       .build();
 
     assertEquals(descriptor.id(), 2);
@@ -76,6 +80,7 @@ public class JournalSegmentDescriptorTest {
     assertEquals(descriptor.index(), 1025);
     assertEquals(descriptor.maxSegmentSize(), 1024 * 1024);
     assertEquals(descriptor.maxEntries(), 2048);
+    assertEquals(descriptor.checksum(), JournalChecksum.CRC32);
 
     buffer.close();
 
@@ -85,6 +90,7 @@ public class JournalSegmentDescriptorTest {
     assertEquals(descriptor.version(), JournalSegmentDescriptor.VERSION);
     assertEquals(descriptor.index(), 1025);
     assertEquals(descriptor.maxSegmentSize(), 1024 * 1024);
+    assertEquals(descriptor.checksum(), JournalChecksum.CRC32);
 
     descriptor.close();
 
@@ -119,6 +125,56 @@ public class JournalSegmentDescriptorTest {
     assertEquals(descriptor.maxSegmentSize(), 1024 * 1024);
     assertEquals(descriptor.maxEntries(), 2048);
     assertEquals(descriptor.updated(), time);
+    assertEquals(descriptor.checksum(), JournalChecksum.CRC32C);
+  }
+
+  /**
+   * Tests sealing the segment descriptor.
+   */
+  @Test
+  public void testDescriptorSeal() {
+    JournalSegmentDescriptor descriptor = JournalSegmentDescriptor.newBuilder(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES))
+      .withId(2)
+      .withIndex(1025)
+      .withMaxSegmentSize(1024 * 1024)
+      .withMaxEntries(2048)
+      .build();
+    assertFalse(descriptor.isSealed());
+    descriptor.seal(new JournalSegmentFooter(2048, 1024 * 512, 1024 * 511, 0xFFFFFFFFL));
+    descriptor.close();
+
+    descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
+    assertTrue(descriptor.isSealed());
+    assertEquals(descriptor.footer().entries(), 2048);
+    assertEquals(descriptor.footer().length(), 1024 * 512);
+    assertEquals(descriptor.footer().lastPosition(), 1024 * 511);
+    assertEquals(descriptor.footer().checksum(), 0xFFFFFFFFL);
+    descriptor.unseal();
+    descriptor.close();
+
+    descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
+    assertFalse(descriptor.isSealed());
+    assertEquals(descriptor.index(), 1025);
+  }
+
+  /**
+   * Tests reading a descriptor written before the checksum was stored in the descriptor.
+   */
+  @Test
+  public void testLegacyDescriptorChecksum() {
+    Buffer buffer = FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES);
+    JournalSegmentDescriptor.newBuilder(buffer)
+      .withId(2)
+      .withIndex(1025)
+      .withMaxSegmentSize(1024 * 1024)
+      .withMaxEntries(2048)
+      .build();
+    buffer.writeByte(JournalSegmentDescriptor.CHECKSUM_POSITION, 0).flush();
+    buffer.close();
+
+    JournalSegmentDescriptor descriptor = new JournalSegmentDescriptor(FileBuffer.allocate(file, JournalSegmentDescriptor.BYTES));
+    assertEquals(descriptor.id(), 2);
+    assertEquals(descriptor.checksum(), JournalChecksum.CRC32);
   }
 
   /**
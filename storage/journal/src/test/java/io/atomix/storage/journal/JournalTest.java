@@ -20,8 +20,21 @@ import io.atomix.serializer.kryo.KryoNamespace;
 import io.atomix.storage.StorageLevel;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -43,6 +56,488 @@ public class JournalTest {
         .build();
   }
 
+  @Test
+  public void testIndexedSeek() throws Exception {
+    Journal<TestEntry> journal = SegmentedJournal.<TestEntry>newBuilder()
+        .withName("test")
+        .withSerializer(serializer)
+        .withStorageLevel(StorageLevel.MEMORY)
+        .withMaxEntriesPerSegment(100)
+        .withIndexDensity(.1)
+        .build();
+    JournalWriter<TestEntry> writer = journal.writer();
+    for (int i = 1; i <= 250; i++) {
+      assertEquals(i, writer.append(new TestEntry(32)).index());
+    }
+
+    JournalReader<TestEntry> reader = journal.openReader(175);
+    assertEquals(175, reader.getNextIndex());
+    assertEquals(174, reader.getCurrentIndex());
+    assertEquals(175, reader.next().index());
+
+    reader.reset(42);
+    assertEquals(41, reader.getCurrentIndex());
+    assertEquals(42, reader.next().index());
+
+    reader.reset(230);
+    assertEquals(229, reader.getCurrentIndex());
+    assertEquals(230, reader.next().index());
+
+    writer.truncate(215);
+    assertEquals(216, writer.getNextIndex());
+    assertEquals(216, writer.append(new TestEntry(32)).index());
+
+    reader.reset(216);
+    assertEquals(215, reader.getCurrentIndex());
+    assertEquals(216, reader.next().index());
+    assertFalse(reader.hasNext());
+  }
+
+  @Test
+  public void testGroupCommit() throws Exception {
+    SegmentedJournal<TestEntry> journal = SegmentedJournal.<TestEntry>newBuilder()
+        .withName("test")
+        .withSerializer(serializer)
+        .withStorageLevel(StorageLevel.MEMORY)
+        .withMaxEntriesPerSegment(10)
+        .withGroupCommit()
+        .withMaxGroupCommitDelay(Duration.ofMillis(10))
+        .build();
+    SegmentedJournalWriter<TestEntry> writer = journal.writer();
+    assertEquals(0, writer.getDurableIndex());
+
+    CompletableFuture<Long> future = null;
+    for (int i = 1; i <= 25; i++) {
+      future = writer.awaitDurable(writer.append(new TestEntry(32)).index());
+    }
+    assertEquals(25, future.get(10, TimeUnit.SECONDS).longValue());
+    assertEquals(25, writer.getDurableIndex());
+    assertTrue(writer.awaitDurable(20).isDone());
+
+    writer.truncate(15);
+    assertEquals(15, writer.getDurableIndex());
+    future = writer.awaitDurable(writer.append(new TestEntry(32)).index());
+    assertEquals(16, future.get(10, TimeUnit.SECONDS).longValue());
+
+    future = writer.awaitDurable(writer.append(new TestEntry(32)).index());
+    writer.flush();
+    assertTrue(future.isDone());
+    assertEquals(17, writer.getDurableIndex());
+
+    future = writer.awaitDurable(100);
+    journal.close();
+    assertTrue(future.isCompletedExceptionally());
+  }
+
+  @Test
+  public void testLargeEntries() throws Exception {
+    for (StorageLevel storageLevel : StorageLevel.values()) {
+      File directory = new File("target/test-logs/" + storageLevel.name().toLowerCase());
+      deleteDirectory(directory);
+      try {
+        SegmentedJournal.Builder<TestEntry> builder = SegmentedJournal.<TestEntry>newBuilder()
+            .withName("test")
+            .withDirectory(directory)
+            .withSerializer(serializer)
+            .withStorageLevel(storageLevel);
+
+        // Write enough large entries to require the segment buffer and the entry scratch buffer to be expanded.
+        Journal<TestEntry> journal = builder.build();
+        JournalWriter<TestEntry> writer = journal.writer();
+        for (int i = 1; i <= 100; i++) {
+          byte[] bytes = new byte[1024 * 16];
+          Arrays.fill(bytes, (byte) i);
+          assertEquals(i, writer.append(new TestEntry(bytes)).index());
+        }
+
+        JournalReader<TestEntry> reader = journal.openReader(1);
+        for (int i = 1; i <= 100; i++) {
+          Indexed<TestEntry> entry = reader.next();
+          assertEquals(i, entry.index());
+          assertEquals(1024 * 16, entry.entry().bytes().length);
+          assertEquals((byte) i, entry.entry().bytes()[1024 * 16 - 1]);
+        }
+        assertFalse(reader.hasNext());
+
+        // Reopen persistent journals and verify the entries are recovered.
+        if (storageLevel != StorageLevel.MEMORY) {
+          journal.close();
+          journal = builder.build();
+          assertEquals(100, journal.writer().getLastIndex());
+          assertEquals((byte) 100, journal.writer().getLastEntry().entry().bytes()[0]);
+          reader = journal.openReader(50);
+          assertEquals(50, reader.next().index());
+        }
+        journal.close();
+      } finally {
+        deleteDirectory(directory);
+      }
+    }
+  }
+
+  @Test
+  public void testRecoverSegments() throws Exception {
+    File directory = new File("target/test-logs/recovery");
+    deleteDirectory(directory);
+    try {
+      SegmentedJournal.Builder<TestEntry> builder = SegmentedJournal.<TestEntry>newBuilder()
+          .withName("test")
+          .withDirectory(directory)
+          .withSerializer(serializer)
+          .withStorageLevel(StorageLevel.DISK)
+          .withMaxEntriesPerSegment(10)
+          .withRecoveryThreads(4);
+
+      SegmentedJournal<TestEntry> journal = builder.build();
+      JournalWriter<TestEntry> writer = journal.writer();
+      for (int i = 1; i <= 95; i++) {
+        assertEquals(i, writer.append(new TestEntry(32)).index());
+      }
+      writer.flush();
+      journal.close();
+
+      // Reopen the journal, loading the segments in parallel.
+      journal = builder.build();
+      assertEquals(95, journal.writer().getLastIndex());
+      JournalReader<TestEntry> reader = journal.openReader(1);
+      for (int i = 1; i <= 95; i++) {
+        assertEquals(i, reader.next().index());
+      }
+      assertFalse(reader.hasNext());
+      assertEquals(96, journal.writer().append(new TestEntry(32)).index());
+      journal.close();
+    } finally {
+      deleteDirectory(directory);
+    }
+  }
+
+  @Test
+  public void testArchiveSegments() throws Exception {
+    File directory = new File("target/test-logs/archive");
+    File coldDirectory = new File("target/test-logs/archive-cold");
+    deleteDirectory(directory);
+    deleteDirectory(coldDirectory);
+    try {
+      SegmentedJournal.Builder<TestEntry> builder = SegmentedJournal.<TestEntry>newBuilder()
+          .withName("test")
+          .withDirectory(directory)
+          .withColdDirectory(coldDirectory)
+          .withSerializer(serializer)
+          .withStorageLevel(StorageLevel.DISK)
+          .withMaxEntriesPerSegment(10)
+          .withMaxCacheEntries(0);
+
+      // Write entries spanning multiple compressed blocks.
+      SegmentedJournal<TestEntry> journal = builder.build();
+      JournalWriter<TestEntry> writer = journal.writer();
+      for (int i = 1; i <= 35; i++) {
+        byte[] bytes = new byte[1024 * 16];
+        Arrays.fill(bytes, (byte) i);
+        assertEquals(i, writer.append(new TestEntry(bytes)).index());
+      }
+
+      // Archive the segments preceding index 25 while a reader is reading the first segment.
+      JournalReader<TestEntry> reader = journal.openReader(1);
+      assertEquals(1, reader.next().index());
+      journal.archive(25);
+      assertTrue(journal.getFirstSegment().isCompressed());
+      assertTrue(journal.getSegment(15).isCompressed());
+      assertFalse(journal.getSegment(25).isCompressed());
+      assertEquals(Arrays.asList("test-1-1.log", "test-2-1.log"), sortedFiles(coldDirectory));
+      assertEquals(Arrays.asList("test-3-1.log", "test-4-1.log"), sortedFiles(directory));
+
+      for (int i = 2; i <= 35; i++) {
+        Indexed<TestEntry> entry = reader.next();
+        assertEquals(i, entry.index());
+        assertEquals(1024 * 16, entry.entry().bytes().length);
+        assertEquals((byte) i, entry.entry().bytes()[1024 * 8]);
+      }
+      assertFalse(reader.hasNext());
+      journal.close();
+
+      // Reopen the journal and read the compressed segments.
+      journal = builder.build();
+      reader = journal.openReader(5);
+      for (int i = 5; i <= 35; i++) {
+        Indexed<TestEntry> entry = reader.next();
+        assertEquals(i, entry.index());
+        assertEquals((byte) i, entry.entry().bytes()[1024 * 16 - 1]);
+      }
+      assertEquals(36, journal.writer().append(new TestEntry(32)).index());
+
+      // Compact the journal, deleting the compressed segments.
+      journal.compact(25);
+      journal.close();
+      assertEquals(0, coldDirectory.list().length);
+    } finally {
+      deleteDirectory(directory);
+      deleteDirectory(coldDirectory);
+    }
+  }
+
+  private static List<String> sortedFiles(File directory) {
+    String[] files = directory.list((dir, name) -> name.endsWith(".log"));
+    Arrays.sort(files);
+    return Arrays.asList(files);
+  }
+
+  @Test
+  public void testSealedSegments() throws Exception {
+    for (StorageLevel storageLevel : new StorageLevel[]{StorageLevel.DISK, StorageLevel.MAPPED}) {
+      File directory = new File("target/test-logs/sealed-" + storageLevel.name().toLowerCase());
+      deleteDirectory(directory);
+      try {
+        SegmentedJournal.Builder<TestEntry> builder = SegmentedJournal.<TestEntry>newBuilder()
+            .withName("test")
+            .withDirectory(directory)
+            .withSerializer(serializer)
+            .withStorageLevel(storageLevel)
+            .withMaxEntriesPerSegment(10)
+            .withIndexDensity(.2);
+
+        SegmentedJournal<TestEntry> journal = builder.build();
+        JournalWriter<TestEntry> writer = journal.writer();
+        for (int i = 1; i <= 35; i++) {
+          assertEquals(i, writer.append(new TestEntry(32)).index());
+        }
+        writer.flush();
+        journal.close();
+
+        // Reopen the journal and verify full segments are recovered from their footers.
+        journal = builder.build();
+        assertTrue(journal.getSegment(1).descriptor().isSealed());
+        assertTrue(journal.getSegment(21).descriptor().isSealed());
+        assertFalse(journal.getLastSegment().descriptor().isSealed());
+        assertEquals(20, journal.getSegment(11).lastIndex());
+        assertEquals(20, journal.getSegment(11).writer().getLastEntry().index());
+        assertEquals(35, journal.writer().getLastIndex());
+
+        JournalReader<TestEntry> reader = journal.openReader(17);
+        assertEquals(17, reader.next().index());
+        reader.reset(1);
+        for (int i = 1; i <= 35; i++) {
+          assertEquals(i, reader.next().index());
+        }
+        assertFalse(reader.hasNext());
+
+        // Truncate into a sealed segment and verify the segment is unsealed.
+        journal.writer().truncate(25);
+        assertFalse(journal.getSegment(21).descriptor().isSealed());
+        assertEquals(25, journal.writer().getLastEntry().index());
+        for (int i = 26; i <= 31; i++) {
+          assertEquals(i, journal.writer().append(new TestEntry(32)).index());
+        }
+        journal.writer().flush();
+        journal.close();
+
+        journal = builder.build();
+        assertTrue(journal.getSegment(21).descriptor().isSealed());
+        assertEquals(31, journal.writer().getLastIndex());
+        reader = journal.openReader(21);
+        for (int i = 21; i <= 31; i++) {
+          assertEquals(i, reader.next().index());
+        }
+        assertFalse(reader.hasNext());
+        journal.close();
+      } finally {
+        deleteDirectory(directory);
+      }
+    }
+  }
+
+  @Test
+  public void testSegmentAllocation() throws Exception {
+    File directory = new File("target/test-logs/allocation");
+    deleteDirectory(directory);
+    try {
+      SegmentedJournal<TestEntry> journal = SegmentedJournal.<TestEntry>newBuilder()
+          .withName("test")
+          .withDirectory(directory)
+          .withSerializer(serializer)
+          .withStorageLevel(StorageLevel.DISK)
+          .withMaxSegmentSize(1024 * 64)
+          .withMaxEntriesPerSegment(10)
+          .withPreallocatedSegments(2)
+          .build();
+      JournalWriter<TestEntry> writer = journal.writer();
+      for (int i = 1; i <= 35; i++) {
+        assertEquals(i, writer.append(new TestEntry(32)).index());
+      }
+
+      // Compact the journal and verify the compacted segments are deleted.
+      journal.compact(25);
+      assertEquals(21, journal.getFirstSegment().index());
+      JournalReader<TestEntry> reader = journal.openReader(21);
+      for (int i = 21; i <= 35; i++) {
+        assertEquals(i, reader.next().index());
+      }
+      journal.close();
+
+      String[] files = directory.list();
+      Arrays.sort(files);
+      assertEquals(Arrays.asList("test-3-1.log", "test-4-1.log"), Arrays.asList(files));
+    } finally {
+      deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Tests that resetting the journal while compacted segments are pending deletion doesn't delete the new segment.
+   */
+  @Test
+  public void testResetAfterCompaction() throws Exception {
+    File directory = new File("target/test-logs/reset");
+    deleteDirectory(directory);
+    try {
+      SegmentedJournal.Builder<TestEntry> builder = SegmentedJournal.<TestEntry>newBuilder()
+          .withName("test")
+          .withDirectory(directory)
+          .withSerializer(serializer)
+          .withStorageLevel(StorageLevel.DISK)
+          .withMaxSegmentSize(1024 * 64)
+          .withMaxEntriesPerSegment(10)
+          .withPreallocatedSegments(2);
+      SegmentedJournal<TestEntry> journal = builder.build();
+      SegmentedJournalWriter<TestEntry> writer = journal.writer();
+      for (int i = 1; i <= 35; i++) {
+        assertEquals(i, writer.append(new TestEntry(32)).index());
+      }
+
+      // Compact the journal and immediately reset it, replacing all segments.
+      journal.compact(25);
+      writer.reset(101);
+      for (int i = 101; i <= 105; i++) {
+        assertEquals(i, writer.append(new TestEntry(32)).index());
+      }
+      writer.flush();
+      journal.close();
+
+      String[] files = directory.list();
+      Arrays.sort(files);
+      assertEquals(Arrays.asList("test-5-1.log"), Arrays.asList(files));
+
+      journal = builder.build();
+      assertEquals(105, journal.writer().getLastIndex());
+      JournalReader<TestEntry> reader = journal.openReader(101);
+      for (int i = 101; i <= 105; i++) {
+        assertEquals(i, reader.next().index());
+      }
+      assertFalse(reader.hasNext());
+      journal.close();
+    } finally {
+      deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Tests sharing decoded entries between journal readers.
+   */
+  @Test
+  public void testEntryCache() throws Exception {
+    File directory = new File("target/test-logs/cache");
+    deleteDirectory(directory);
+    try (SegmentedJournal<TestEntry> journal = SegmentedJournal.<TestEntry>newBuilder()
+        .withName("test")
+        .withDirectory(directory)
+        .withSerializer(serializer)
+        .withStorageLevel(StorageLevel.DISK)
+        .withMaxEntriesPerSegment(10)
+        .withMaxCacheEntries(5)
+        .build()) {
+      JournalWriter<TestEntry> writer = journal.writer();
+      List<Indexed<TestEntry>> written = new ArrayList<>();
+      for (int i = 1; i <= 20; i++) {
+        written.add(writer.append(new TestEntry(32)));
+      }
+
+      // Entries evicted from the cache are decoded once for all readers.
+      JournalReader<TestEntry> reader1 = journal.openReader(1);
+      JournalReader<TestEntry> reader2 = journal.openReader(1);
+      for (int i = 1; i <= 20; i++) {
+        Indexed<TestEntry> entry = reader1.next();
+        assertEquals(i, entry.index());
+        assertNotSame(written.get(i - 1).entry(), entry.entry());
+        assertSame(entry.entry(), reader2.next().entry());
+      }
+
+      // Recently written entries are read from the cache.
+      for (int i = 21; i <= 25; i++) {
+        Indexed<TestEntry> entry = writer.append(new TestEntry(32));
+        assertSame(entry.entry(), reader1.next().entry());
+        assertSame(entry.entry(), reader2.next().entry());
+      }
+
+      // Truncated entries are removed from the cache.
+      writer.truncate(22);
+      Indexed<TestEntry> entry = writer.append(new TestEntry(32));
+      assertEquals(23, entry.index());
+      reader1.reset(23);
+      assertSame(entry.entry(), reader1.next().entry());
+      assertFalse(reader1.hasNext());
+    } finally {
+      deleteDirectory(directory);
+    }
+  }
+
+  /**
+   * Tests copying serialized entries between journals.
+   */
+  @Test
+  public void testRawEntries() throws Exception {
+    try (SegmentedJournal<TestEntry> source = SegmentedJournal.<TestEntry>newBuilder()
+        .withName("source")
+        .withSerializer(serializer)
+        .withStorageLevel(StorageLevel.MEMORY)
+        .withMaxEntriesPerSegment(10)
+        .withChecksum(JournalChecksum.CRC32)
+        .build();
+         SegmentedJournal<TestEntry> target = SegmentedJournal.<TestEntry>newBuilder()
+             .withName("target")
+             .withSerializer(serializer)
+             .withStorageLevel(StorageLevel.MEMORY)
+             .withMaxEntriesPerSegment(7)
+             .build()) {
+      for (int i = 1; i <= 25; i++) {
+        source.writer().append(new TestEntry(new byte[]{(byte) i}));
+      }
+
+      // Copy the serialized entries, recomputing checksums for the builder's checksum algorithm.
+      RawEntries.Builder builder = RawEntries.newBuilder(JournalChecksum.CRC32C);
+      SegmentedJournalReader<TestEntry> reader = source.openReader(1);
+      while (reader.hasNext()) {
+        reader.next(builder);
+      }
+      RawEntries entries = builder.build();
+      assertEquals(25, entries.count());
+      assertTrue(entries.verify());
+
+      for (int i = 0; i < entries.count(); i++) {
+        assertEquals(i + 1, target.writer().append(entries, i));
+      }
+      assertEquals(25, target.writer().getLastEntry().entry().bytes()[0]);
+
+      JournalReader<TestEntry> targetReader = target.openReader(1);
+      for (int i = 1; i <= 25; i++) {
+        Indexed<TestEntry> entry = targetReader.next();
+        assertEquals(i, entry.index());
+        assertEquals(i, entry.entry().bytes()[0]);
+      }
+      assertFalse(targetReader.hasNext());
+
+      // Corrupted entries fail verification.
+      entries.bytes()[entries.bytes().length - 1]++;
+      assertFalse(entries.verify());
+    }
+  }
+
+  private static void deleteDirectory(File directory) throws IOException {
+    if (directory.exists()) {
+      Files.walk(directory.toPath())
+          .sorted(Comparator.reverseOrder())
+          .forEach(path -> path.toFile().delete());
+    }
+  }
+
   @Test
   public void testLogWriteRead() throws Exception {
     Journal<TestEntry> journal = createJournal();
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2017-present Open Networking Laboratory
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.atomix.protocols.raft;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append batching performance test.
+ * <p>
+ * Runs the {@link RaftPerformanceTest} write workload with a range of {@link AppendBatchPolicy batching policies}
+ * and prints the write throughput and latency of each policy to show the throughput/latency trade-off.
+ */
+public class RaftBatchingPerformanceTest implements Runnable {
+
+  private static final int ITERATIONS = 3;
+  private static final int TOTAL_OPERATIONS = 100000;
+
+  private static final List<AppendBatchPolicy> POLICIES = Arrays.asList(
+      AppendBatchPolicy.defaultPolicy(),
+      AppendBatchPolicy.newBuilder()
+          .withMaxBatchSize(1024 * 256)
+          .withLingerTime(Duration.ofMillis(1))
+          .build(),
+      AppendBatchPolicy.newBuilder()
+          .withMaxBatchSize(1024 * 1024)
+          .withLingerTime(Duration.ofMillis(2))
+          .build(),
+      AppendBatchPolicy.newBuilder()
+          .withMaxBatchSize(1024 * 1024 * 4)
+          .withLingerTime(Duration.ofMillis(5))
+          .build(),
+      AppendBatchPolicy.newBuilder()
+          .withMaxBatchSize(1024 * 1024 * 4)
+          .withMaxBatchEntries(1000)
+          .withLingerTime(Duration.ofMillis(10))
+          .build());
+
+  /**
+   * Runs the test.
+   */
+  public static void main(String[] args) {
+    new RaftBatchingPerformanceTest().run();
+  }
+
+  @Override
+  public void run() {
+    StringBuilder results = new StringBuilder(String.format("%-12s %-12s %-10s %-14s %-12s %-12s%n",
+        "batchSize", "batchEntries", "linger", "writes/sec", "p50 (us)", "p99 (us)"));
+    for (AppendBatchPolicy policy : POLICIES) {
+      RaftPerformanceTest test = new RaftPerformanceTest(policy, ITERATIONS, TOTAL_OPERATIONS);
+      test.run();
+      results.append(String.format("%-12d %-12d %-10s %-14d %-12d %-12d%n",
+          policy.maxBatchSize(),
+          policy.maxBatchEntries(),
+          policy.lingerTime().toMillis() + "ms",
+          test.getWriteThroughput(),
+          test.getWriteLatency(50),
+          test.getWriteLatency(99)));
+    }
+    System.out.print(results);
+  }
+}
@@ -33,6 +33,8 @@ import io.atomix.protocols.raft.protocol.CommandRequest;
 import io.atomix.protocols.raft.protocol.CommandResponse;
 import io.atomix.protocols.raft.protocol.ConfigureRequest;
 import io.atomix.protocols.raft.protocol.ConfigureResponse;
+import io.atomix.protocols.raft.protocol.HeartbeatRequest;
+import io.atomix.protocols.raft.protocol.HeartbeatResponse;
 import io.atomix.protocols.raft.protocol.InstallRequest;
 import io.atomix.protocols.raft.protocol.InstallResponse;
 import io.atomix.protocols.raft.protocol.JoinRequest;
@@ -54,6 +56,8 @@ import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftClientMessagingProtocol;
 import io.atomix.protocols.raft.protocol.RaftClientProtocol;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.RaftServerMessagingProtocol;
 import io.atomix.protocols.raft.protocol.RaftServerProtocol;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
@@ -82,6 +86,7 @@ import io.atomix.protocols.raft.storage.system.Configuration;
 import io.atomix.serializer.Serializer;
 import io.atomix.serializer.kryo.KryoNamespace;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.journal.RawEntries;
 import io.atomix.utils.concurrent.Scheduled;
 import io.atomix.utils.concurrent.Scheduler;
 import io.atomix.utils.concurrent.SingleThreadContext;
@@ -163,6 +168,10 @@ public class RaftFuzzTest implements Runnable {
       .register(VoteResponse.class)
       .register(AppendRequest.class)
       .register(AppendResponse.class)
+      .register(HeartbeatRequest.class)
+      .register(HeartbeatResponse.class)
+      .register(ReadIndexRequest.class)
+      .register(ReadIndexResponse.class)
       .register(PublishRequest.class)
       .register(ResetRequest.class)
       .register(RaftResponse.Status.class)
@@ -172,6 +181,7 @@ public class RaftFuzzTest implements Runnable {
       .register(ReadConsistency.class)
       .register(byte[].class)
       .register(long[].class)
+      .register(RawEntries.class)
       .register(CloseSessionEntry.class)
       .register(CommandEntry.class)
       .register(ConfigurationEntry.class)
@@ -187,6 +197,7 @@ public class RaftFuzzTest implements Runnable {
       .register(ArrayList.class)
       .register(Collections.emptyList().getClass())
       .register(HashSet.class)
+      .register(HashMap.class)
       .register(DefaultRaftMember.class)
       .register(MemberId.class)
       .register(SessionId.class)
@@ -569,7 +580,7 @@ public class RaftFuzzTest implements Runnable {
         .withType(member.getType())
         .withProtocol(protocol)
         .withStorage(RaftStorage.newBuilder()
-            .withStorageLevel(StorageLevel.DISK)
+            .withStorageLevel(StorageLevel.MAPPED)
             .withDirectory(new File(String.format("target/fuzz-logs/%s", member.memberId())))
             .withSerializer(storageSerializer)
             .withMaxSegmentSize(1024 * 1024)
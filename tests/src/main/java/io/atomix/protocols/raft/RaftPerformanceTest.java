@@ -33,6 +33,8 @@ import io.atomix.protocols.raft.protocol.CommandRequest;
 import io.atomix.protocols.raft.protocol.CommandResponse;
 import io.atomix.protocols.raft.protocol.ConfigureRequest;
 import io.atomix.protocols.raft.protocol.ConfigureResponse;
+import io.atomix.protocols.raft.protocol.HeartbeatRequest;
+import io.atomix.protocols.raft.protocol.HeartbeatResponse;
 import io.atomix.protocols.raft.protocol.InstallRequest;
 import io.atomix.protocols.raft.protocol.InstallResponse;
 import io.atomix.protocols.raft.protocol.JoinRequest;
@@ -54,6 +56,8 @@ import io.atomix.protocols.raft.protocol.QueryResponse;
 import io.atomix.protocols.raft.protocol.RaftClientMessagingProtocol;
 import io.atomix.protocols.raft.protocol.RaftClientProtocol;
 import io.atomix.protocols.raft.protocol.RaftResponse;
+import io.atomix.protocols.raft.protocol.ReadIndexRequest;
+import io.atomix.protocols.raft.protocol.ReadIndexResponse;
 import io.atomix.protocols.raft.protocol.RaftServerMessagingProtocol;
 import io.atomix.protocols.raft.protocol.RaftServerProtocol;
 import io.atomix.protocols.raft.protocol.ReconfigureRequest;
@@ -82,6 +86,7 @@ import io.atomix.protocols.raft.storage.system.Configuration;
 import io.atomix.serializer.Serializer;
 import io.atomix.serializer.kryo.KryoNamespace;
 import io.atomix.storage.StorageLevel;
+import io.atomix.storage.journal.RawEntries;
 
 import java.io.File;
 import java.io.IOException;
@@ -95,6 +100,7 @@ import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -164,6 +170,10 @@ public class RaftPerformanceTest implements Runnable {
       .register(VoteResponse.class)
       .register(AppendRequest.class)
       .register(AppendResponse.class)
+      .register(HeartbeatRequest.class)
+      .register(HeartbeatResponse.class)
+      .register(ReadIndexRequest.class)
+      .register(ReadIndexResponse.class)
       .register(PublishRequest.class)
       .register(ResetRequest.class)
       .register(RaftResponse.Status.class)
@@ -173,6 +183,7 @@ public class RaftPerformanceTest implements Runnable {
       .register(ReadConsistency.class)
       .register(byte[].class)
       .register(long[].class)
+      .register(RawEntries.class)
       .register(CloseSessionEntry.class)
       .register(CommandEntry.class)
       .register(ConfigurationEntry.class)
@@ -188,6 +199,7 @@ public class RaftPerformanceTest implements Runnable {
       .register(ArrayList.class)
       .register(Collections.emptyList().getClass())
       .register(HashSet.class)
+      .register(HashMap.class)
       .register(DefaultRaftMember.class)
       .register(MemberId.class)
       .register(SessionId.class)
@@ -235,7 +247,13 @@ public class RaftPerformanceTest implements Runnable {
   private Map<MemberId, Endpoint> endpointMap = new ConcurrentHashMap<>();
   private static final String[] KEYS = new String[1024];
   private final Random random = new Random();
+  private final AppendBatchPolicy batchPolicy;
+  private final int iterationCount;
+  private final int operationCount;
   private final List<Long> iterations = new ArrayList<>();
+  private final List<long[]> writeLatencies = new ArrayList<>();
+  private long[] latencies;
+  private final AtomicInteger latencyCount = new AtomicInteger();
   private final AtomicInteger totalOperations = new AtomicInteger();
   private final AtomicInteger writeCount = new AtomicInteger();
   private final AtomicInteger readCount = new AtomicInteger();
@@ -246,9 +264,45 @@ public class RaftPerformanceTest implements Runnable {
     }
   }
 
+  public RaftPerformanceTest() {
+    this(AppendBatchPolicy.defaultPolicy(), ITERATIONS, TOTAL_OPERATIONS);
+  }
+
+  public RaftPerformanceTest(AppendBatchPolicy batchPolicy, int iterationCount, int operationCount) {
+    this.batchPolicy = batchPolicy;
+    this.iterationCount = iterationCount;
+    this.operationCount = operationCount;
+  }
+
+  /**
+   * Returns the average iteration run time in milliseconds.
+   */
+  public long getAverageRunTime() {
+    return (long) iterations.stream().mapToLong(v -> v).average().orElse(0);
+  }
+
+  /**
+   * Returns the average write throughput in operations per second.
+   */
+  public long getWriteThroughput() {
+    long runTime = getAverageRunTime();
+    return runTime > 0 ? (long) (operationCount * (WRITE_RATIO / 10d) * 1000 / runTime) : 0;
+  }
+
+  /**
+   * Returns the given percentile of write latencies in microseconds across all iterations.
+   */
+  public long getWriteLatency(double percentile) {
+    long[] sorted = writeLatencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+    if (sorted.length == 0) {
+      return 0;
+    }
+    return sorted[(int) Math.min(sorted.length - 1, Math.floor(sorted.length * percentile / 100))] / 1000;
+  }
+
   @Override
   public void run() {
-    for (int i = 0; i < ITERATIONS; i++) {
+    for (int i = 0; i < iterationCount; i++) {
       try {
         iterations.add(runIteration());
       } catch (Exception e) {
@@ -257,9 +311,11 @@ public class RaftPerformanceTest implements Runnable {
       }
     }
 
-    System.out.println("Completed " + ITERATIONS + " iterations");
-    long averageRunTime = (long) iterations.stream().mapToLong(v -> v).average().getAsDouble();
-    System.out.println(String.format("averageRunTime: %dms", averageRunTime));
+    System.out.println("Completed " + iterationCount + " iterations");
+    System.out.println(String.format("averageRunTime: %dms, writeLatency p50: %dus, p99: %dus",
+      getAverageRunTime(),
+      getWriteLatency(50),
+      getWriteLatency(99)));
 
     try {
       shutdown();
@@ -294,11 +350,12 @@ public class RaftPerformanceTest implements Runnable {
     CompletableFuture.allOf(futures).join();
     long endTime = System.currentTimeMillis();
     long runTime = endTime - startTime;
+    writeLatencies.add(Arrays.copyOf(latencies, Math.min(latencyCount.get(), latencies.length)));
     System.out.println(String.format("readCount: %d/%d, writeCount: %d/%d, runTime: %dms",
       readCount.get(),
-      TOTAL_OPERATIONS,
+      operationCount,
       writeCount.get(),
-      TOTAL_OPERATIONS,
+      operationCount,
       runTime));
     return runTime;
   }
@@ -308,13 +365,18 @@ public class RaftPerformanceTest implements Runnable {
    */
   private void runProxy(RaftProxy proxy, CompletableFuture<Void> future) {
     int count = totalOperations.incrementAndGet();
-    if (count > TOTAL_OPERATIONS) {
+    if (count > operationCount) {
       future.complete(null);
     } else if (count % 10 < WRITE_RATIO) {
+      long startTime = System.nanoTime();
       proxy.invoke(PUT, clientSerializer::encode, Maps.immutableEntry(randomKey(), UUID.randomUUID().toString()))
           .whenComplete((result, error) -> {
             if (error == null) {
               writeCount.incrementAndGet();
+              int index = latencyCount.getAndIncrement();
+              if (index < latencies.length) {
+                latencies[index] = System.nanoTime() - startTime;
+              }
             }
             runProxy(proxy, future);
           });
@@ -333,6 +395,8 @@ public class RaftPerformanceTest implements Runnable {
    */
   private void reset() throws Exception {
     totalOperations.set(0);
+    latencies = new long[operationCount];
+    latencyCount.set(0);
     readCount.set(0);
     writeCount.set(0);
 
@@ -465,11 +529,13 @@ public class RaftPerformanceTest implements Runnable {
         .withType(member.getType())
         .withProtocol(protocol)
         .withStorage(RaftStorage.newBuilder()
-            .withStorageLevel(StorageLevel.DISK)
+            .withStorageLevel(StorageLevel.MAPPED)
+            .withGroupCommit()
             .withDirectory(new File(String.format("target/perf-logs/%s", member.memberId())))
             .withSerializer(storageSerializer)
             .withMaxSegmentSize(1024 * 1024)
             .build())
+        .withBatchPolicy(batchPolicy)
         .addService("test", PerformanceStateMachine::new);
 
     RaftServer server = builder.build();
@@ -36,6 +36,7 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
   private Function<CloseSessionRequest, CompletableFuture<CloseSessionResponse>> closeSessionHandler;
   private Function<KeepAliveRequest, CompletableFuture<KeepAliveResponse>> keepAliveHandler;
   private Function<QueryRequest, CompletableFuture<QueryResponse>> queryHandler;
+  private Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> readIndexHandler;
   private Function<CommandRequest, CompletableFuture<CommandResponse>> commandHandler;
   private Function<MetadataRequest, CompletableFuture<MetadataResponse>> metadataHandler;
   private Function<JoinRequest, CompletableFuture<JoinResponse>> joinHandler;
@@ -46,6 +47,7 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
   private Function<PollRequest, CompletableFuture<PollResponse>> pollHandler;
   private Function<VoteRequest, CompletableFuture<VoteResponse>> voteHandler;
   private Function<AppendRequest, CompletableFuture<AppendResponse>> appendHandler;
+  private Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> heartbeatHandler;
   private final Map<Long, Consumer<ResetRequest>> resetListeners = Maps.newConcurrentMap();
 
   public LocalRaftServerProtocol(MemberId memberId, Serializer serializer, Map<MemberId, LocalRaftServerProtocol> servers, Map<MemberId, LocalRaftClientProtocol> clients) {
@@ -91,6 +93,11 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     return getServer(memberId).thenCompose(listener -> listener.query(encode(request))).thenApply(this::decode);
   }
 
+  @Override
+  public CompletableFuture<ReadIndexResponse> readIndex(MemberId memberId, ReadIndexRequest request) {
+    return getServer(memberId).thenCompose(listener -> listener.readIndex(encode(request))).thenApply(this::decode);
+  }
+
   @Override
   public CompletableFuture<CommandResponse> command(MemberId memberId, CommandRequest request) {
     return getServer(memberId).thenCompose(listener -> listener.command(encode(request))).thenApply(this::decode);
@@ -141,6 +148,11 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     return getServer(memberId).thenCompose(listener -> listener.append(encode(request))).thenApply(this::decode);
   }
 
+  @Override
+  public CompletableFuture<HeartbeatResponse> heartbeat(MemberId memberId, HeartbeatRequest request) {
+    return getServer(memberId).thenCompose(listener -> listener.heartbeat(encode(request))).thenApply(this::decode);
+  }
+
   @Override
   public void publish(MemberId memberId, PublishRequest request) {
     getClient(memberId).thenAccept(protocol -> protocol.publish(request.session(), encode(request)));
@@ -218,6 +230,24 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     this.queryHandler = null;
   }
 
+  CompletableFuture<byte[]> readIndex(byte[] request) {
+    if (readIndexHandler != null) {
+      return readIndexHandler.apply(decode(request)).thenApply(this::encode);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
+  @Override
+  public void registerReadIndexHandler(Function<ReadIndexRequest, CompletableFuture<ReadIndexResponse>> handler) {
+    this.readIndexHandler = handler;
+  }
+
+  @Override
+  public void unregisterReadIndexHandler() {
+    this.readIndexHandler = null;
+  }
+
   CompletableFuture<byte[]> command(byte[] request) {
     if (commandHandler != null) {
       return commandHandler.apply(decode(request)).thenApply(this::encode);
@@ -398,6 +428,24 @@ public class LocalRaftServerProtocol extends LocalRaftProtocol implements RaftSe
     this.appendHandler = null;
   }
 
+  CompletableFuture<byte[]> heartbeat(byte[] request) {
+    if (heartbeatHandler != null) {
+      return heartbeatHandler.apply(decode(request)).thenApply(this::encode);
+    } else {
+      return Futures.exceptionalFuture(new ConnectException());
+    }
+  }
+
+  @Override
+  public void registerHeartbeatHandler(Function<HeartbeatRequest, CompletableFuture<HeartbeatResponse>> handler) {
+    this.heartbeatHandler = handler;
+  }
+
+  @Override
+  public void unregisterHeartbeatHandler() {
+    this.heartbeatHandler = null;
+  }
+
   void reset(long sessionId, byte[] request) {
     Consumer<ResetRequest> listener = resetListeners.get(sessionId);
     if (listener != null) {